@@ -0,0 +1,116 @@
+package com.aianalyst.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.pool.PoolConcurrencyPolicy;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+
+/**
+ * AI Agent Client Configuration
+ * 
+ * Pooled, keep-alive HTTP transport for calls to the Python AI agent server.
+ * Connections are reused across prompts, capped per route, and every call is
+ * bounded by connect, pool-acquire and response timeouts.
+ */
+@Configuration
+@Slf4j
+public class AIAgentClientConfig {
+    
+    @Value("${ai.agents.base-url:http://localhost:8001}")
+    private String aiAgentsBaseUrl;
+    
+    @Value("${ai.agents.timeout:30000}")
+    private long responseTimeoutMs;
+    
+    @Value("${ai.agents.connect-timeout:5000}")
+    private long connectTimeoutMs;
+    
+    @Value("${ai.agents.pool.max-total:100}")
+    private int maxTotal;
+    
+    @Value("${ai.agents.pool.max-per-route:40}")
+    private int maxPerRoute;
+    
+    @Value("${ai.agents.pool.acquire-timeout:5000}")
+    private long acquireTimeoutMs;
+    
+    @Value("${ai.agents.pool.idle-eviction:30000}")
+    private long idleEvictionMs;
+    
+    @Value("${ai.agents.pool.time-to-live:300000}")
+    private long timeToLiveMs;
+    
+    /**
+     * Connection pool shared by all AI agent calls
+     */
+    @Bean(name = "aiAgentConnectionManager", destroyMethod = "close")
+    public PoolingHttpClientConnectionManager aiAgentConnectionManager(MeterRegistry meterRegistry) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setPoolConcurrencyPolicy(PoolConcurrencyPolicy.STRICT)
+                .setMaxConnTotal(maxTotal)
+                .setMaxConnPerRoute(maxPerRoute)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                        .setSocketTimeout(Timeout.ofMilliseconds(responseTimeoutMs))
+                        .setTimeToLive(TimeValue.ofMilliseconds(timeToLiveMs))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(10))
+                        .build())
+                .build();
+        
+        // The agent server is the hot route; give it the full per-route budget explicitly
+        HttpRoute agentRoute = new HttpRoute(HttpHost.create(URI.create(aiAgentsBaseUrl)));
+        connectionManager.setMaxPerRoute(agentRoute, maxPerRoute);
+        
+        // Exposes httpcomponents.httpclient.pool.* gauges (leased, available, pending, max)
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "ai-agents")
+                .bindTo(meterRegistry);
+        
+        log.info("AI agent HTTP pool initialized: route={}, maxTotal={}, maxPerRoute={}, connectTimeout={}ms, responseTimeout={}ms",
+                aiAgentsBaseUrl, maxTotal, maxPerRoute, connectTimeoutMs, responseTimeoutMs);
+        return connectionManager;
+    }
+    
+    /**
+     * Keep-alive HTTP client on top of the pool
+     */
+    @Bean(name = "aiAgentHttpClient", destroyMethod = "close")
+    public CloseableHttpClient aiAgentHttpClient(
+            @Qualifier("aiAgentConnectionManager") PoolingHttpClientConnectionManager connectionManager) {
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(acquireTimeoutMs))
+                        .setResponseTimeout(Timeout.ofMilliseconds(responseTimeoutMs))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofMilliseconds(idleEvictionMs))
+                .disableAutomaticRetries()
+                .build();
+    }
+    
+    /**
+     * RestTemplate used by AIAgentService
+     */
+    @Bean(name = "aiAgentRestTemplate")
+    public RestTemplate aiAgentRestTemplate(@Qualifier("aiAgentHttpClient") CloseableHttpClient httpClient) {
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+    }
+}
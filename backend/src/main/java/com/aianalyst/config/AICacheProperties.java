@@ -0,0 +1,47 @@
+package com.aianalyst.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * AI Cache Properties
+ * 
+ * Settings for the LLM response cache bound from {@code ai.cache}.
+ * Caching is opt-in per prompt family: only families with a configured TTL are
+ * cached, so generic prompts whose answers should vary are always sent.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "ai.cache")
+public class AICacheProperties {
+    
+    private boolean enabled = true;
+    
+    /**
+     * Upper bound on cached response characters kept in the in-process tier
+     */
+    private long maxWeight = 50_000_000L;
+    
+    private Map<String, Duration> ttl = new HashMap<>();
+    
+    private Redis redis = new Redis();
+    
+    public boolean isCached(String family) {
+        return enabled && ttl.containsKey(family);
+    }
+    
+    public Duration ttlFor(String family) {
+        return ttl.get(family);
+    }
+    
+    @Data
+    public static class Redis {
+        private boolean enabled = false;
+        private String keyPrefix = "ai:response:";
+    }
+}
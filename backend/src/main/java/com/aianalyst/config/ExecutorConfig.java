@@ -0,0 +1,144 @@
+package com.aianalyst.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Executor Configuration
+ * 
+ * Dedicated thread pools for long-running AI work, kept separate from the
+ * common ForkJoinPool and the servlet request threads.
+ */
+@Configuration
+public class ExecutorConfig {
+    
+    /**
+     * Pool used to generate independent memo sections concurrently
+     */
+    @Bean(name = "memoSectionExecutor")
+    public ThreadPoolTaskExecutor memoSectionExecutor(
+            @Value("${ai.agents.max-concurrent-sections:6}") int maxConcurrentSections) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrentSections);
+        executor.setMaxPoolSize(maxConcurrentSections);
+        executor.setQueueCapacity(200);
+        executor.setThreadNamePrefix("memo-section-");
+        // Run on the caller when saturated rather than failing the whole memo
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+    
+    /**
+     * Pool for blocking calls to the AI agent server. Sized for I/O wait rather
+     * than CPU, so LLM round-trips never run on the common ForkJoinPool.
+     */
+    @Bean(name = "aiIoExecutor")
+    public ThreadPoolTaskExecutor aiIoExecutor(
+            @Value("${ai.agents.io-threads:64}") int ioThreads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(ioThreads);
+        executor.setMaxPoolSize(ioThreads);
+        executor.setQueueCapacity(1000);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setThreadNamePrefix("ai-io-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+    
+    /**
+     * Pool that runs the per-source work of data ingestions. Each task blocks on LLM
+     * calls that are themselves scheduled on {@code aiIoExecutor}, so the two pools
+     * must stay separate or the I/O pool starves.
+     */
+    @Bean(name = "ingestionExecutor")
+    public ThreadPoolTaskExecutor ingestionExecutor(
+            @Value("${agents.data-ingestion.worker-threads:16}") int workerThreads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workerThreads);
+        executor.setMaxPoolSize(workerThreads);
+        executor.setQueueCapacity(500);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setThreadNamePrefix("ingestion-");
+        // Run on the ingesting thread when saturated rather than failing the source
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+    
+    /**
+     * Bounded worker pool for durable memo generation jobs. The job service only
+     * claims as many jobs as there are free workers, so the queue stays empty.
+     */
+    @Bean(name = "memoJobExecutor")
+    public ThreadPoolTaskExecutor memoJobExecutor(
+            @Value("${memo.jobs.worker-threads:4}") int workerThreads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workerThreads);
+        executor.setMaxPoolSize(workerThreads);
+        executor.setQueueCapacity(workerThreads);
+        executor.setThreadNamePrefix("memo-job-");
+        // Interrupted jobs are requeued on restart, so shutdown need not wait for them
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+    
+    /**
+     * Pool that writes streamed response bodies (e.g. PPT downloads) off the request threads
+     */
+    @Bean(name = "responseStreamingExecutor")
+    public ThreadPoolTaskExecutor responseStreamingExecutor(
+            @Value("${ai.ppt.streaming-threads:16}") int streamingThreads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(streamingThreads);
+        executor.setMaxPoolSize(streamingThreads);
+        executor.setQueueCapacity(100);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setThreadNamePrefix("response-stream-");
+        return executor;
+    }
+    
+    /**
+     * Pool that extracts text from uploaded documents, one thread per pooled parser.
+     * The queue is bounded; uploads it cannot take are picked up by the pipeline's sweep.
+     */
+    @Bean(name = "extractionExecutor")
+    public ThreadPoolTaskExecutor extractionExecutor(
+            @Value("${storage.extraction.workers:4}") int workers,
+            @Value("${storage.extraction.queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("extraction-");
+        // Unfinished extractions are swept up again after a restart
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+    
+    /**
+     * Single thread that applies search index updates after commits, off the request
+     * threads. One thread keeps the updates of each document in commit order.
+     */
+    @Bean(name = "searchIndexExecutor")
+    public ThreadPoolTaskExecutor searchIndexExecutor(
+            @Value("${ai.search.index-queue-capacity:10000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("search-index-");
+        // Index on the committing thread when the queue is full rather than drop the update
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        // Indexes are rebuilt from the database on startup
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+}
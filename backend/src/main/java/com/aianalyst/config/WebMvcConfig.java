@@ -1,21 +1,33 @@
 package com.aianalyst.config;
 
 import com.aianalyst.interceptor.MonitoringInterceptor;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 /**
  * Web MVC Configuration
  * 
- * Configures web MVC settings including interceptors.
+ * Configures web MVC settings including interceptors and async response streaming.
  */
 @Configuration
-@RequiredArgsConstructor
 public class WebMvcConfig implements WebMvcConfigurer {
     
     private final MonitoringInterceptor monitoringInterceptor;
+    private final ThreadPoolTaskExecutor responseStreamingExecutor;
+    
+    @Value("${spring.mvc.async.request-timeout:300000}")
+    private long asyncRequestTimeoutMs;
+    
+    public WebMvcConfig(MonitoringInterceptor monitoringInterceptor,
+                        @Qualifier("responseStreamingExecutor") ThreadPoolTaskExecutor responseStreamingExecutor) {
+        this.monitoringInterceptor = monitoringInterceptor;
+        this.responseStreamingExecutor = responseStreamingExecutor;
+    }
     
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
@@ -27,5 +39,11 @@ public class WebMvcConfig implements WebMvcConfigurer {
                     "/api/monitoring/health"
                 );
     }
+    
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        // Deck generation can take minutes of LLM time before the first byte is written
+        configurer.setTaskExecutor(responseStreamingExecutor);
+        configurer.setDefaultTimeout(asyncRequestTimeoutMs);
+    }
 }
-
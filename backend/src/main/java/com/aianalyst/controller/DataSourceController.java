@@ -1,16 +1,24 @@
 package com.aianalyst.controller;
 
 import com.aianalyst.dto.DataSourceDTO;
+import com.aianalyst.dto.UploadSessionDTO;
+import com.aianalyst.service.ChunkedUploadService;
 import com.aianalyst.service.DataSourceService;
+import com.aianalyst.service.DataSourceService.StoredDataSourceFile;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
@@ -28,6 +36,8 @@ import java.util.Map;
 public class DataSourceController {
     
     private final DataSourceService dataSourceService;
+    private final ChunkedUploadService chunkedUploadService;
+    private final RangedFileResponder rangedFileResponder;
     
     /**
      * Get all data sources
@@ -64,6 +74,28 @@ public class DataSourceController {
         return ResponseEntity.ok(dataSource);
     }
     
+    /**
+     * Download a data source's stored file. Supports Range requests, so media can be
+     * seeked and interrupted downloads resumed, and ETag revalidation.
+     */
+    @GetMapping("/{id}/file")
+    public ResponseEntity<StreamingResponseBody> downloadFile(
+            @PathVariable String id,
+            @RequestHeader("X-User-ID") String userId,
+            HttpServletRequest request) throws IOException {
+        log.info("Downloading file of data source: {} for user: {}", id, userId);
+        StoredDataSourceFile file = dataSourceService.getStoredFile(id, userId);
+        MediaType contentType = MediaType.APPLICATION_OCTET_STREAM;
+        try {
+            if (file.contentType() != null) {
+                contentType = MediaType.parseMediaType(file.contentType());
+            }
+        } catch (InvalidMediaTypeException e) {
+            log.warn("Serving data source {} as binary, invalid content type: {}", id, file.contentType());
+        }
+        return rangedFileResponder.respond(request, file.path(), file.etag(), contentType, file.fileName());
+    }
+    
     /**
      * Upload file
      */
@@ -84,6 +116,92 @@ public class DataSourceController {
         return ResponseEntity.status(HttpStatus.CREATED).body(dataSource);
     }
     
+    /**
+     * Upload file as the raw request body. The body is streamed once into storage
+     * and hashed instead of being buffered as a multipart part.
+     */
+    @PostMapping("/upload/stream")
+    public ResponseEntity<DataSourceDTO> uploadFileStream(
+            HttpServletRequest request,
+            @RequestParam("filename") String filename,
+            @RequestHeader("X-User-ID") String userId) throws IOException {
+        log.info("Streaming file upload: {} for user: {}", filename, userId);
+        
+        DataSourceDTO dataSource = dataSourceService.uploadStream(request.getInputStream(), filename,
+                request.getContentType(), request.getContentLengthLong(), userId,
+                Map.of("originalName", filename));
+        return ResponseEntity.status(HttpStatus.CREATED).body(dataSource);
+    }
+    
+    /**
+     * Start a resumable chunked upload
+     */
+    @PostMapping("/uploads")
+    public ResponseEntity<UploadSessionDTO> createUpload(
+            @RequestBody Map<String, String> request,
+            @RequestHeader("X-User-ID") String userId) throws IOException {
+        log.info("Starting chunked upload: {} for user: {}", request.get("filename"), userId);
+        
+        String size = request.get("size");
+        if (size == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        UploadSessionDTO upload = chunkedUploadService.createSession(request.get("filename"),
+                request.get("contentType"), Long.parseLong(size), userId);
+        return ResponseEntity.status(HttpStatus.CREATED).body(upload);
+    }
+    
+    /**
+     * Get a chunked upload, including the chunks received so far
+     */
+    @GetMapping("/uploads/{uploadId}")
+    public ResponseEntity<UploadSessionDTO> getUpload(
+            @PathVariable String uploadId,
+            @RequestHeader("X-User-ID") String userId) {
+        return ResponseEntity.ok(chunkedUploadService.getSession(uploadId, userId));
+    }
+    
+    /**
+     * Upload one chunk as the raw request body. Chunk {@code index} covers the bytes
+     * from {@code index * chunkSize}; sending a chunk again overwrites it.
+     */
+    @PutMapping("/uploads/{uploadId}/chunks/{index}")
+    public ResponseEntity<Void> uploadChunk(
+            @PathVariable String uploadId,
+            @PathVariable int index,
+            @RequestHeader(value = "X-Chunk-SHA256", required = false) String sha256,
+            @RequestHeader("X-User-ID") String userId,
+            HttpServletRequest request) throws IOException {
+        log.debug("Receiving chunk {} of upload {} for user: {}", index, uploadId, userId);
+        chunkedUploadService.writeChunk(uploadId, index, request.getInputStream(), sha256, userId);
+        return ResponseEntity.noContent().build();
+    }
+    
+    /**
+     * Complete a chunked upload once every chunk has been received
+     */
+    @PostMapping("/uploads/{uploadId}/complete")
+    public ResponseEntity<DataSourceDTO> completeUpload(
+            @PathVariable String uploadId,
+            @RequestHeader("X-User-ID") String userId) {
+        log.info("Completing chunked upload: {} for user: {}", uploadId, userId);
+        DataSourceDTO dataSource = chunkedUploadService.complete(uploadId, userId);
+        return ResponseEntity.status(HttpStatus.CREATED).body(dataSource);
+    }
+    
+    /**
+     * Abort a chunked upload
+     */
+    @DeleteMapping("/uploads/{uploadId}")
+    public ResponseEntity<Void> abortUpload(
+            @PathVariable String uploadId,
+            @RequestHeader("X-User-ID") String userId) {
+        log.info("Aborting chunked upload: {} for user: {}", uploadId, userId);
+        chunkedUploadService.abort(uploadId, userId);
+        return ResponseEntity.noContent().build();
+    }
+    
     /**
      * Add text source
      */
@@ -2,14 +2,22 @@ package com.aianalyst.controller;
 
 import com.aianalyst.dto.InvestmentMemoDTO;
 import com.aianalyst.service.InvestmentMemoService;
+import com.aianalyst.service.PresentationExportService;
+import com.aianalyst.service.PresentationExportService.PresentationDeck;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
 import java.util.List;
 import java.util.Map;
 
@@ -26,7 +34,12 @@ import java.util.Map;
 @CrossOrigin(origins = "*")
 public class InvestmentMemoController {
     
+    private static final MediaType PPTX =
+            MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.presentationml.presentation");
+    
     private final InvestmentMemoService investmentMemoService;
+    private final PresentationExportService presentationExportService;
+    private final RangedFileResponder rangedFileResponder;
     
     /**
      * Get all investment memos
@@ -188,17 +201,29 @@ public class InvestmentMemoController {
      * Download memo as PPT
      */
     @GetMapping("/{id}/download/ppt")
-    public ResponseEntity<byte[]> downloadMemoPPT(
+    public ResponseEntity<StreamingResponseBody> downloadMemoPPT(
             @PathVariable String id,
-            @RequestHeader("X-User-ID") String userId) {
+            @RequestHeader("X-User-ID") String userId,
+            HttpServletRequest request) throws IOException {
         log.info("Downloading memo as PPT: {} for user: {}", id, userId);
         
-        // This would be implemented to generate and return PPT
-        byte[] pptContent = "Simulated PPT content".getBytes();
+        // A cached deck is sent from disk (by sendfile where supported); otherwise it
+        // is rendered straight into the response
+        PresentationDeck deck = investmentMemoService.getMemoPresentation(id, userId);
+        if (deck.isCached()) {
+            try {
+                return rangedFileResponder.respond(request, deck.cachedFile(), "\"" + deck.cacheKey() + "\"",
+                        PPTX, ContentDisposition.attachment().filename("memo.pptx").build());
+            } catch (NoSuchFileException e) {
+                // Evicted since it was looked up
+                deck = deck.uncached();
+            }
+        }
+        PresentationDeck rendered = deck;
         return ResponseEntity.ok()
-                .header("Content-Type", "application/vnd.ms-powerpoint")
+                .contentType(PPTX)
                 .header("Content-Disposition", "attachment; filename=memo.pptx")
-                .body(pptContent);
+                .body(outputStream -> presentationExportService.writeTo(rendered, outputStream));
     }
     
     /**
@@ -208,19 +233,15 @@ public class InvestmentMemoController {
     public ResponseEntity<Map<String, Object>> getGenerationStatus(
             @PathVariable String id,
             @RequestHeader("X-User-ID") String userId) {
-        log.info("Getting generation status for memo: {} and user: {}", id, userId);
+        log.debug("Getting generation status for memo: {} and user: {}", id, userId);
         
-        // This would be implemented to get actual generation status
-        Map<String, Object> status = Map.of(
-            "status", "completed",
-            "progress", 100,
-            "message", "Generation completed successfully"
-        );
+        // Live updates are also pushed to /user/queue/status-updates while generating
+        Map<String, Object> status = investmentMemoService.getGenerationStatus(id, userId);
         return ResponseEntity.ok(status);
     }
     
     /**
-     * Regenerate memo
+     * Regenerate a single section or subsection of a memo
      */
     @PostMapping("/{id}/regenerate")
     public ResponseEntity<InvestmentMemoDTO> regenerateMemo(
@@ -229,13 +250,8 @@ public class InvestmentMemoController {
             @RequestHeader("X-User-ID") String userId) {
         log.info("Regenerating memo: {} for user: {}", id, userId);
         
-        // This would be implemented to regenerate memo
-        InvestmentMemoDTO memo = new InvestmentMemoDTO();
-        memo.setId(id);
-        memo.setTitle("Regenerated Memo");
-        memo.setStatus(com.aianalyst.entity.InvestmentMemoEntity.MemoStatus.GENERATING);
-        
-        return ResponseEntity.ok(memo);
+        InvestmentMemoDTO memo = investmentMemoService.regenerateMemo(id, request, userId);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(memo);
     }
     
     /**
@@ -0,0 +1,138 @@
+package com.aianalyst.controller;
+
+import com.aianalyst.service.FileStorageService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Ranged File Responder
+ *
+ * Serves a stored file with HTTP Range, ETag, If-None-Match and If-Range support
+ * without loading it onto the heap. When the connector supports sendfile (Tomcat
+ * NIO) the byte range is handed to it and copied by the kernel; otherwise it is
+ * streamed with {@code FileChannel.transferTo}. Only single ranges are served;
+ * a multi-range request gets the whole file, as RFC 9110 allows.
+ */
+@Component
+public class RangedFileResponder {
+    
+    static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    
+    private final FileStorageService fileStorageService;
+    
+    public RangedFileResponder(FileStorageService fileStorageService) {
+        this.fileStorageService = fileStorageService;
+    }
+    
+    public ResponseEntity<StreamingResponseBody> respond(HttpServletRequest request, Path file, String etag,
+                                                         MediaType contentType, String filename) throws IOException {
+        return respond(request, file, etag, contentType,
+                ContentDisposition.inline().filename(filename, StandardCharsets.UTF_8).build());
+    }
+    
+    /**
+     * Serve the file with the given Content-Disposition, such as an attachment download
+     */
+    public ResponseEntity<StreamingResponseBody> respond(HttpServletRequest request, Path file, String etag,
+                                                         MediaType contentType, ContentDisposition disposition)
+            throws IOException {
+        long length = Files.size(file);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(etag);
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        
+        if (matchesAny(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers).build();
+        }
+        headers.setContentType(contentType);
+        headers.setContentDisposition(disposition);
+        
+        long start = 0;
+        long end = length - 1;
+        HttpStatus status = HttpStatus.OK;
+        List<HttpRange> ranges = requestedRanges(request, etag);
+        if (ranges.size() == 1) {
+            try {
+                start = ranges.get(0).getRangeStart(length);
+                end = ranges.get(0).getRangeEnd(length);
+                if (start >= length || start > end) {
+                    throw new IllegalArgumentException("Range starts beyond " + length + " bytes");
+                }
+            } catch (IllegalArgumentException e) {
+                headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE).headers(headers).build();
+            }
+            status = HttpStatus.PARTIAL_CONTENT;
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        }
+        long count = end - start + 1;
+        headers.setContentLength(count);
+        
+        if (count > 0 && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            // The connector sends the region after the handler returns; no body is written here
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return ResponseEntity.status(status).headers(headers).build();
+        }
+        long position = start;
+        return ResponseEntity.status(status).headers(headers)
+                .body(outputStream -> fileStorageService.transferTo(file, position, count, outputStream));
+    }
+    
+    /**
+     * Ranges to serve: none when there is no valid Range header, or when If-Range
+     * names another version of the file
+     */
+    private static List<HttpRange> requestedRanges(HttpServletRequest request, String etag) {
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        // If-Range needs a strong validator match
+        if (range == null || (ifRange != null && (etag.startsWith("W/") || !ifRange.trim().equals(etag)))) {
+            return List.of();
+        }
+        try {
+            return HttpRange.parseRanges(range);
+        } catch (IllegalArgumentException e) {
+            // A malformed Range header is ignored
+            return List.of();
+        }
+    }
+    
+    /**
+     * Weak comparison of an If-None-Match header against the current ETag
+     */
+    private static boolean matchesAny(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String current = weak(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || weak(tag).equals(current)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static String weak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+}
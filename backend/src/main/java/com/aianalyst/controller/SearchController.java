@@ -0,0 +1,43 @@
+package com.aianalyst.controller;
+
+import com.aianalyst.dto.SearchResultDTO;
+import com.aianalyst.service.HybridSearchService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Search Controller
+ * 
+ * One search across a user's data sources and investment memos.
+ */
+@RestController
+@RequestMapping("/search")
+@RequiredArgsConstructor
+@Slf4j
+public class SearchController {
+    
+    private static final int MAX_LIMIT = 100;
+    
+    private final HybridSearchService hybridSearchService;
+    
+    /**
+     * Search data sources and memos, best matches first
+     */
+    @GetMapping
+    public ResponseEntity<List<SearchResultDTO>> search(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestHeader("X-User-ID") String userId) {
+        log.info("Searching data sources and memos with query: {} for user: {}", q, userId);
+        List<SearchResultDTO> results = hybridSearchService.search(userId, q, Math.max(1, Math.min(limit, MAX_LIMIT)));
+        return ResponseEntity.ok(results);
+    }
+}
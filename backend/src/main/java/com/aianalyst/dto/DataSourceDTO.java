@@ -30,6 +30,7 @@ public class DataSourceDTO {
     private String fileName;
     private Long fileSize;
     private String fileType;
+    private String contentSha256;
     private String content;
     private DataSourceEntity.DataSourceStatus status;
     private Double confidenceScore;
@@ -40,7 +41,7 @@ public class DataSourceDTO {
     private LocalDateTime updatedAt;
     
     /**
-     * Convert from Entity to DTO
+     * Convert from Entity to DTO; content lives in its own table and is set by the caller
      */
     public static DataSourceDTO fromEntity(DataSourceEntity entity) {
         return DataSourceDTO.builder()
@@ -53,7 +54,7 @@ public class DataSourceDTO {
                 .fileName(entity.getFileName())
                 .fileSize(entity.getFileSize())
                 .fileType(entity.getFileType())
-                .content(entity.getContent())
+                .contentSha256(entity.getContentSha256())
                 .status(entity.getStatus())
                 .confidenceScore(entity.getConfidenceScore())
                 .metadata(entity.getMetadata())
@@ -64,6 +65,31 @@ public class DataSourceDTO {
                 .build();
     }
     
+    /**
+     * Convert from a list projection, which carries no content
+     */
+    public static DataSourceDTO fromSummary(DataSourceSummary summary, Map<String, String> metadata) {
+        return DataSourceDTO.builder()
+                .id(summary.getId())
+                .type(summary.getType())
+                .name(summary.getName())
+                .description(summary.getDescription())
+                .url(summary.getUrl())
+                .filePath(summary.getFilePath())
+                .fileName(summary.getFileName())
+                .fileSize(summary.getFileSize())
+                .fileType(summary.getFileType())
+                .contentSha256(summary.getContentSha256())
+                .status(summary.getStatus())
+                .confidenceScore(summary.getConfidenceScore())
+                .metadata(metadata)
+                .userId(summary.getUserId())
+                .isSelected(summary.getIsSelected())
+                .createdAt(summary.getCreatedAt())
+                .updatedAt(summary.getUpdatedAt())
+                .build();
+    }
+    
     /**
      * Convert from DTO to Entity
      */
@@ -78,7 +104,7 @@ public class DataSourceDTO {
         entity.setFileName(this.fileName);
         entity.setFileSize(this.fileSize);
         entity.setFileType(this.fileType);
-        entity.setContent(this.content);
+        entity.setContentSha256(this.contentSha256);
         entity.setStatus(this.status);
         entity.setConfidenceScore(this.confidenceScore);
         entity.setMetadata(this.metadata);
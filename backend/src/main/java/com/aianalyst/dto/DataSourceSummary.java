@@ -0,0 +1,41 @@
+package com.aianalyst.dto;
+
+import com.aianalyst.entity.DataSourceEntity;
+
+import java.time.LocalDateTime;
+
+/**
+ * Data Source Summary
+ * 
+ * Projection of the data_sources columns shown in data source lists. Queries
+ * returning it select these columns only, never content or metadata.
+ */
+public interface DataSourceSummary {
+    
+    String getId();
+    DataSourceEntity.DataSourceType getType();
+    String getName();
+    String getDescription();
+    String getUrl();
+    String getFilePath();
+    String getFileName();
+    Long getFileSize();
+    String getFileType();
+    String getContentSha256();
+    DataSourceEntity.DataSourceStatus getStatus();
+    Double getConfidenceScore();
+    String getUserId();
+    Boolean getIsSelected();
+    LocalDateTime getCreatedAt();
+    LocalDateTime getUpdatedAt();
+    
+    /**
+     * One metadata entry of a data source, for loading the metadata of a list at once
+     */
+    interface MetadataEntry {
+        
+        String getDataSourceId();
+        String getMetadataKey();
+        String getMetadataValue();
+    }
+}
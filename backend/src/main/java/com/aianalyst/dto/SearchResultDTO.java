@@ -0,0 +1,29 @@
+package com.aianalyst.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Search Result DTO
+ * 
+ * One hit of the combined data source and memo search, best hits first.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SearchResultDTO {
+    
+    private ResultType type;
+    private String id;
+    private String title;
+    private String subtitle;
+    private Double score;
+    
+    public enum ResultType {
+        DATA_SOURCE,
+        MEMO
+    }
+}
@@ -0,0 +1,48 @@
+package com.aianalyst.dto;
+
+import com.aianalyst.entity.UploadSessionEntity;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Upload Session DTO
+ *
+ * State of a resumable chunked upload. A client resuming an upload sends the
+ * chunks missing from {@code receivedChunks}; chunk {@code i} starts at byte
+ * {@code i * chunkSize}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UploadSessionDTO {
+    
+    private String uploadId;
+    private String fileName;
+    private Long totalSize;
+    private Integer chunkSize;
+    private Integer totalChunks;
+    private List<Integer> receivedChunks;
+    private UploadSessionEntity.UploadStatus status;
+    private String dataSourceId;
+    private LocalDateTime expiresAt;
+    
+    public static UploadSessionDTO fromEntity(UploadSessionEntity entity, List<Integer> receivedChunks) {
+        return UploadSessionDTO.builder()
+                .uploadId(entity.getId())
+                .fileName(entity.getFileName())
+                .totalSize(entity.getTotalSize())
+                .chunkSize(entity.getChunkSize())
+                .totalChunks(entity.getTotalChunks())
+                .receivedChunks(receivedChunks)
+                .status(entity.getStatus())
+                .dataSourceId(entity.getDataSourceId())
+                .expiresAt(entity.getExpiresAt())
+                .build();
+    }
+}
@@ -0,0 +1,77 @@
+package com.aianalyst.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * Blob Entity
+ * 
+ * One stored file per distinct upload content, keyed by its SHA-256. Data sources
+ * with the same bytes share the blob, which is deleted when the last of them is.
+ * The blob's extracted text and the ingestion agent's extraction are kept once
+ * per blob rather than per data source.
+ */
+@Entity
+@Table(name = "blobs")
+@Data
+@EqualsAndHashCode(callSuper = false)
+public class BlobEntity implements Persistable<String> {
+    
+    @Id
+    @Column(name = "sha256", length = 64)
+    private String sha256;
+    
+    @Column(name = "file_path", nullable = false)
+    private String filePath;
+    
+    @Column(name = "file_size", nullable = false)
+    private Long fileSize;
+    
+    @Column(name = "content_type")
+    private String contentType;
+    
+    // Data sources referencing the blob; 0 only while the blob is being deleted
+    @Column(name = "reference_count", nullable = false)
+    private Integer referenceCount;
+    
+    // Text extracted from the blob, written next to it by the extraction pipeline
+    @Column(name = "text_path")
+    private String textPath;
+    
+    @Column(name = "extraction", columnDefinition = "LONGTEXT")
+    private String extraction;
+    
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    @UpdateTimestamp
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+    
+    // The hash is assigned, so saving a new blob must insert rather than merge into a concurrent one
+    @Transient
+    private boolean isNew = true;
+    
+    @Override
+    public String getId() {
+        return sha256;
+    }
+    
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+    
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        isNew = false;
+    }
+}
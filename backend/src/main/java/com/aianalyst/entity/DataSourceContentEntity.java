@@ -0,0 +1,30 @@
+package com.aianalyst.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Source Content Entity
+ * 
+ * Full text of a data source entered as text, kept apart from data_sources so that
+ * listing a user's data sources never reads document bodies. Uploads keep their
+ * extracted text with the blob instead.
+ */
+@Entity
+@Table(name = "data_source_contents")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(callSuper = false)
+public class DataSourceContentEntity {
+    
+    @Id
+    @Column(name = "data_source_id")
+    private String dataSourceId;
+    
+    @Column(name = "content", columnDefinition = "LONGTEXT")
+    private String content;
+}
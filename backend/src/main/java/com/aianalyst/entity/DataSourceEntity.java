@@ -1,5 +1,6 @@
 package com.aianalyst.entity;
 
+import com.aianalyst.search.SearchIndexListener;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -17,6 +18,7 @@ import java.util.Map;
  */
 @Entity
 @Table(name = "data_sources")
+@EntityListeners(SearchIndexListener.class)
 @Data
 @EqualsAndHashCode(callSuper = false)
 public class DataSourceEntity {
@@ -50,8 +52,8 @@ public class DataSourceEntity {
     @Column(name = "file_type")
     private String fileType;
     
-    @Column(name = "content", columnDefinition = "LONGTEXT")
-    private String content;
+    @Column(name = "content_sha256", length = 64)
+    private String contentSha256;
     
     @Enumerated(EnumType.STRING)
     @Column(name = "status", nullable = false)
@@ -1,5 +1,6 @@
 package com.aianalyst.entity;
 
+import com.aianalyst.search.SearchIndexListener;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -18,6 +19,7 @@ import java.util.Map;
  */
 @Entity
 @Table(name = "investment_memos")
+@EntityListeners(SearchIndexListener.class)
 @Data
 @EqualsAndHashCode(callSuper = false)
 public class InvestmentMemoEntity {
@@ -86,6 +88,7 @@ public class InvestmentMemoEntity {
         COMPLETED,
         REVIEWING,
         APPROVED,
-        REJECTED
+        REJECTED,
+        FAILED
     }
 }
@@ -0,0 +1,91 @@
+package com.aianalyst.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Memo Generation Job Entity
+ *
+ * A durable unit of background memo work (LLM generation, PPT rendering).
+ * Jobs are claimed by workers with a lease so they survive restarts and are
+ * retried with backoff on failure.
+ */
+@Entity
+@Table(name = "memo_generation_jobs", indexes = {
+    @Index(name = "idx_memo_jobs_status_next_attempt", columnList = "status, next_attempt_at"),
+    @Index(name = "idx_memo_jobs_memo", columnList = "memo_id")
+})
+@Data
+@EqualsAndHashCode(callSuper = false)
+public class MemoGenerationJobEntity {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private String id;
+    
+    @Column(name = "memo_id", nullable = false)
+    private String memoId;
+    
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "job_type", nullable = false)
+    private JobType jobType;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private JobStatus status;
+    
+    @Column(name = "payload", columnDefinition = "TEXT")
+    private String payload;
+    
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts = 0;
+    
+    @Column(name = "max_attempts", nullable = false)
+    private Integer maxAttempts;
+    
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+    
+    @Column(name = "locked_by")
+    private String lockedBy;
+    
+    @Column(name = "locked_at")
+    private LocalDateTime lockedAt;
+    
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+    
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+    
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    @UpdateTimestamp
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+    
+    // Enums
+    public enum JobType {
+        STAGE_1_MEMO,
+        STAGE_2_MEMO,
+        REGENERATE_SECTION,
+        PPT
+    }
+    
+    public enum JobStatus {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+}
@@ -72,6 +72,8 @@ public class MemoSectionEntity {
         COMPETITIVE_LANDSCAPE,
         FINANCIAL_PROJECTIONS,
         RISK_ASSESSMENT,
-        RECOMMENDATION
+        RECOMMENDATION,
+        VISUAL_SUMMARIES,
+        MEMO_BODY
     }
 }
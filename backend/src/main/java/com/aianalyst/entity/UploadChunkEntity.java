@@ -0,0 +1,52 @@
+package com.aianalyst.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Upload Chunk Entity
+ *
+ * Records that a chunk of an upload session has been written in full. A chunk
+ * sent again overwrites the same bytes and keeps its single row.
+ */
+@Entity
+@Table(name = "upload_chunks")
+@IdClass(UploadChunkEntity.ChunkId.class)
+@Data
+@EqualsAndHashCode(callSuper = false)
+public class UploadChunkEntity {
+    
+    @Id
+    @Column(name = "session_id")
+    private String sessionId;
+    
+    @Id
+    @Column(name = "chunk_index")
+    private Integer chunkIndex;
+    
+    @Column(name = "size", nullable = false)
+    private Integer size;
+    
+    @Column(name = "sha256", length = 64, nullable = false)
+    private String sha256;
+    
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ChunkId implements Serializable {
+        
+        private String sessionId;
+        private Integer chunkIndex;
+    }
+}
@@ -0,0 +1,75 @@
+package com.aianalyst.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Upload Session Entity
+ *
+ * A resumable chunked upload. The file is assembled in place from fixed-size
+ * chunks that may arrive in any order and more than once; completing the session
+ * stores the assembled file as a blob and creates its data source.
+ */
+@Entity
+@Table(name = "upload_sessions", indexes = {
+    @Index(name = "idx_upload_sessions_status_expires", columnList = "status, expires_at")
+})
+@Data
+@EqualsAndHashCode(callSuper = false)
+public class UploadSessionEntity {
+    
+    @Id
+    private String id;
+    
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+    
+    @Column(name = "file_name", nullable = false)
+    private String fileName;
+    
+    @Column(name = "content_type")
+    private String contentType;
+    
+    @Column(name = "total_size", nullable = false)
+    private Long totalSize;
+    
+    @Column(name = "chunk_size", nullable = false)
+    private Integer chunkSize;
+    
+    // File the chunks are written into until the session completes
+    @Column(name = "file_path", nullable = false)
+    private String filePath;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private UploadStatus status;
+    
+    @Column(name = "data_source_id")
+    private String dataSourceId;
+    
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+    
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    @UpdateTimestamp
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+    
+    public int getTotalChunks() {
+        return (int) ((totalSize + chunkSize - 1) / chunkSize);
+    }
+    
+    public enum UploadStatus {
+        OPEN,
+        COMPLETING,
+        COMPLETED
+    }
+}
@@ -0,0 +1,79 @@
+package com.aianalyst.ingestion;
+
+import com.aianalyst.ingestion.ExtractionWorkerProtocol.FrameOutputStream;
+import com.aianalyst.service.TextExtractionService;
+import org.springframework.util.unit.DataSize;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Extraction Worker Main
+ *
+ * Entry point of a forked extraction worker. The worker parses one document at a
+ * time with a warm Tika parser and streams the text back over stdout; anything the
+ * parser or logging prints goes to stderr instead. It exits when the API closes its
+ * stdin, and on OutOfMemoryError, which the API sees as a crashed worker.
+ */
+public final class ExtractionWorkerMain {
+    
+    public static final String MAX_CHARS_PROPERTY = "extraction.max-chars";
+    public static final String MAX_MEMORY_PROPERTY = "extraction.max-memory-per-document";
+    
+    private static final int MAX_ERROR_LENGTH = 1000;
+    
+    private ExtractionWorkerMain() {
+    }
+    
+    public static void main(String[] args) throws IOException {
+        // stdout carries the protocol; keep stray prints off it
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(FileDescriptor.out), 64 * 1024));
+        System.setOut(System.err);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(System.in));
+        
+        TextExtractionService extraction = new TextExtractionService(
+                Integer.getInteger(MAX_CHARS_PROPERTY, 5_000_000), 1,
+                DataSize.ofBytes(Long.getLong(MAX_MEMORY_PROPERTY, DataSize.ofMegabytes(64).toBytes())));
+        out.writeByte(ExtractionWorkerProtocol.READY);
+        out.flush();
+        
+        while (true) {
+            String path;
+            try {
+                path = in.readUTF();
+            } catch (EOFException e) {
+                return;
+            }
+            String filename = in.readUTF();
+            String contentType = in.readUTF();
+            try (InputStream document = Files.newInputStream(Paths.get(path));
+                 Writer text = new BufferedWriter(new OutputStreamWriter(new FrameOutputStream(out),
+                         StandardCharsets.UTF_8), 16 * 1024)) {
+                boolean truncated = extraction.extractTo(document, filename,
+                        contentType.isEmpty() ? null : contentType, text);
+                text.flush();
+                out.writeByte(ExtractionWorkerProtocol.DONE);
+                out.writeBoolean(truncated);
+            } catch (Exception e) {
+                String message = String.valueOf(e.getMessage());
+                out.writeByte(ExtractionWorkerProtocol.ERROR);
+                out.writeUTF(message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message);
+            }
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.aianalyst.ingestion;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Extraction Worker Protocol
+ *
+ * Framing used between the API and a forked extraction worker over the worker's
+ * stdin and stdout. The worker announces {@link #READY} once its parser is warm.
+ * Each request is the document path, file name and content type, written with
+ * {@code writeUTF}. The worker answers with {@link #TEXT} frames carrying UTF-8
+ * text as it is parsed, then {@link #DONE} with a truncation flag, or
+ * {@link #ERROR} with a message if the document could not be parsed.
+ */
+public final class ExtractionWorkerProtocol {
+    
+    public static final int READY = 'R';
+    public static final int TEXT = 'T';
+    public static final int DONE = 'D';
+    public static final int ERROR = 'E';
+    
+    private static final int MAX_FRAME = 64 * 1024;
+    
+    private ExtractionWorkerProtocol() {
+    }
+    
+    /**
+     * Writes bytes as TEXT frames; closing it leaves the underlying stream open
+     */
+    public static final class FrameOutputStream extends OutputStream {
+        
+        private final DataOutputStream out;
+        
+        public FrameOutputStream(DataOutputStream out) {
+            this.out = out;
+        }
+        
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+        
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            while (length > 0) {
+                int frame = Math.min(length, MAX_FRAME);
+                out.writeByte(TEXT);
+                out.writeInt(frame);
+                out.write(buffer, offset, frame);
+                offset += frame;
+                length -= frame;
+            }
+        }
+        
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+        
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+    
+    /**
+     * Reads the bytes of TEXT frames up to the DONE or ERROR frame that ends a response
+     */
+    public static final class FrameInputStream extends InputStream {
+        
+        private final DataInputStream in;
+        private int remaining;
+        private boolean finished;
+        private boolean truncated;
+        private String error;
+        
+        public FrameInputStream(DataInputStream in) {
+            this.in = in;
+        }
+        
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xff;
+        }
+        
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            while (remaining == 0) {
+                if (finished) {
+                    return -1;
+                }
+                nextFrame();
+            }
+            int read = in.read(buffer, offset, Math.min(length, remaining));
+            if (read == -1) {
+                throw new IOException("Extraction worker closed its output mid-frame");
+            }
+            remaining -= read;
+            return read;
+        }
+        
+        private void nextFrame() throws IOException {
+            int type = in.readUnsignedByte();
+            switch (type) {
+                case TEXT -> remaining = in.readInt();
+                case DONE -> {
+                    truncated = in.readBoolean();
+                    finished = true;
+                }
+                case ERROR -> {
+                    error = in.readUTF();
+                    finished = true;
+                }
+                default -> throw new IOException("Unexpected frame from extraction worker: " + type);
+            }
+        }
+        
+        /**
+         * Whether the text was cut at the character limit; valid once the stream ended
+         */
+        public boolean truncated() {
+            return truncated;
+        }
+        
+        /**
+         * The worker's error for this document, or null if it was parsed
+         */
+        public String error() {
+            return error;
+        }
+    }
+}
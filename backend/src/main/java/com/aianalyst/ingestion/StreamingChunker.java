@@ -0,0 +1,350 @@
+package com.aianalyst.ingestion;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Streaming Chunker
+ *
+ * Splits text into windows of at most {@code maxTokens} tokens as it is written,
+ * holding only the current window in memory. Windows are cut on sentence ends,
+ * consecutive windows share about {@code overlapTokens} tokens of trailing
+ * sentences, and a heading always starts a new window. A sentence longer than a
+ * whole window is cut between words.
+ */
+public final class StreamingChunker {
+    
+    private static final Pattern NUMBERED_HEADING = Pattern.compile("\\d+(\\.\\d+)*\\.?\\s+\\S.*");
+    private static final int MAX_HEADING_LENGTH = 120;
+    
+    private final TokenCounter tokenCounter;
+    private final int maxTokens;
+    private final int overlapTokens;
+    
+    public StreamingChunker(TokenCounter tokenCounter, int maxTokens, int overlapTokens) {
+        if (maxTokens < 1 || overlapTokens < 0 || overlapTokens >= maxTokens) {
+            throw new IllegalArgumentException("Invalid chunk window: maxTokens=" + maxTokens
+                    + ", overlapTokens=" + overlapTokens);
+        }
+        this.tokenCounter = tokenCounter;
+        this.maxTokens = maxTokens;
+        this.overlapTokens = overlapTokens;
+    }
+    
+    /**
+     * Writer that chunks everything written to it. Closing it emits the last chunk.
+     */
+    public Writer open(ChunkSink sink) {
+        return new ChunkWriter(sink);
+    }
+    
+    /**
+     * Chunk a reader to the end without holding the whole text
+     */
+    public void chunk(Reader reader, ChunkSink sink) throws IOException {
+        try (Writer writer = open(sink)) {
+            reader.transferTo(writer);
+        }
+    }
+    
+    public List<TextChunk> chunk(String text) {
+        List<TextChunk> chunks = new ArrayList<>();
+        try {
+            chunk(new StringReader(text), chunks::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return chunks;
+    }
+    
+    public int maxTokens() {
+        return maxTokens;
+    }
+    
+    @FunctionalInterface
+    public interface ChunkSink {
+        
+        void accept(TextChunk chunk) throws IOException;
+    }
+    
+    /**
+     * A sentence or a slice of one, with what separates it from the piece before
+     */
+    private record Piece(String text, int tokens, boolean paragraphStart) {
+    }
+    
+    private final class ChunkWriter extends Writer {
+        
+        private final ChunkSink sink;
+        private final StringBuilder sentence = new StringBuilder();
+        private final Deque<Piece> window = new ArrayDeque<>();
+        private int windowTokens;
+        // Tokens added since the last emitted chunk; overlap alone is never emitted
+        private int freshTokens;
+        private int lineStart;
+        private int newlines;
+        private boolean paragraphStart = true;
+        private int chunkIndex;
+        private boolean closed;
+        
+        ChunkWriter(ChunkSink sink) {
+            this.sink = sink;
+        }
+        
+        @Override
+        public void write(char[] buffer, int offset, int length) throws IOException {
+            if (closed) {
+                throw new IOException("Chunk writer is closed");
+            }
+            for (int i = offset; i < offset + length; i++) {
+                accept(buffer[i]);
+            }
+        }
+        
+        @Override
+        public void flush() {
+            // Chunks are emitted as windows fill; nothing is buffered beyond the open window
+        }
+        
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            endLine();
+            completeSentence();
+            if (freshTokens > 0) {
+                emit();
+            }
+        }
+        
+        private void accept(char c) throws IOException {
+            if (c == '\r') {
+                return;
+            }
+            if (c == '\n') {
+                endLine();
+                return;
+            }
+            if (!Character.isWhitespace(c)) {
+                newlines = 0;
+            } else if (endsSentence()) {
+                completeSentence();
+                return;
+            } else if (sentence.length() == 0) {
+                return;
+            }
+            sentence.append(c);
+            if (sentence.length() > maxTokens * 8) {
+                splitLongSentence();
+            }
+        }
+        
+        private void endLine() throws IOException {
+            String line = sentence.substring(lineStart).trim();
+            if (!line.isEmpty() && isHeading(line)) {
+                sentence.setLength(lineStart);
+                completeSentence();
+                sectionBreak();
+                paragraphStart = true;
+                addPiece(line);
+                paragraphStart = true;
+                newlines = 0;
+                return;
+            }
+            newlines++;
+            if (newlines >= 2 || endsSentence()) {
+                completeSentence();
+                paragraphStart |= newlines >= 2;
+            } else if (sentence.length() > 0) {
+                // A single line break inside a sentence is just wrapping
+                sentence.append(' ');
+            }
+            lineStart = sentence.length();
+        }
+        
+        private boolean endsSentence() {
+            int last = sentence.length() - 1;
+            while (last >= 0 && Character.isWhitespace(sentence.charAt(last))) {
+                last--;
+            }
+            if (last < 0) {
+                return false;
+            }
+            char c = sentence.charAt(last);
+            return c == '.' || c == '!' || c == '?' || c == ';';
+        }
+        
+        private boolean isHeading(String line) {
+            if (line.startsWith("#")) {
+                return line.length() > 1;
+            }
+            if (line.length() > MAX_HEADING_LENGTH) {
+                return false;
+            }
+            char last = line.charAt(line.length() - 1);
+            if (last == '.' || last == ',' || last == ';' || last == ':') {
+                return false;
+            }
+            if (NUMBERED_HEADING.matcher(line).matches()) {
+                return true;
+            }
+            int letters = 0;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (Character.isLowerCase(c)) {
+                    return false;
+                }
+                if (Character.isLetter(c)) {
+                    letters++;
+                }
+            }
+            return letters >= 3;
+        }
+        
+        private void completeSentence() throws IOException {
+            String text = sentence.toString().trim();
+            sentence.setLength(0);
+            lineStart = 0;
+            if (!text.isEmpty()) {
+                addPiece(text);
+            }
+        }
+        
+        /**
+         * Cut a runaway sentence at its last space so the buffer stays bounded
+         */
+        private void splitLongSentence() throws IOException {
+            int cut = sentence.lastIndexOf(" ");
+            if (cut <= 0) {
+                cut = sentence.length();
+            }
+            String head = sentence.substring(0, cut);
+            String tail = sentence.substring(cut).trim();
+            sentence.setLength(0);
+            sentence.append(tail);
+            lineStart = 0;
+            addPiece(head);
+        }
+        
+        private void addPiece(String text) throws IOException {
+            int tokens = tokenCounter.count(text);
+            if (tokens > maxTokens) {
+                List<String> parts = splitWords(text);
+                // Only recurse on progress, so a piece the splitter cannot shrink is kept whole
+                if (parts.size() > 1) {
+                    for (String part : parts) {
+                        addPiece(part);
+                    }
+                    return;
+                }
+            }
+            Piece piece = new Piece(text, tokens, paragraphStart);
+            paragraphStart = false;
+            if (windowTokens + tokens > maxTokens) {
+                if (freshTokens > 0) {
+                    emit();
+                }
+                while (!window.isEmpty() && windowTokens + tokens > maxTokens) {
+                    windowTokens -= window.removeFirst().tokens();
+                }
+            }
+            window.addLast(piece);
+            windowTokens += tokens;
+            freshTokens += tokens;
+        }
+        
+        private List<String> splitWords(String text) {
+            List<String> parts = new ArrayList<>();
+            StringBuilder part = new StringBuilder();
+            int partTokens = 0;
+            for (String word : text.split("\\s+")) {
+                int wordTokens = tokenCounter.count(word);
+                if (wordTokens > maxTokens) {
+                    // A run without whitespace (base64, URLs, tables) is cut by characters
+                    if (part.length() > 0) {
+                        parts.add(part.toString());
+                        part.setLength(0);
+                        partTokens = 0;
+                    }
+                    parts.addAll(splitCharacters(word));
+                    continue;
+                }
+                if (part.length() > 0 && partTokens + wordTokens > maxTokens) {
+                    parts.add(part.toString());
+                    part.setLength(0);
+                    partTokens = 0;
+                }
+                if (part.length() > 0) {
+                    part.append(' ');
+                }
+                part.append(word);
+                partTokens += wordTokens;
+            }
+            if (part.length() > 0) {
+                parts.add(part.toString());
+            }
+            return parts;
+        }
+        
+        /**
+         * Cut a word into the longest prefixes that fit the window, at least one character each
+         */
+        private List<String> splitCharacters(String word) {
+            List<String> parts = new ArrayList<>();
+            int start = 0;
+            while (start < word.length()) {
+                int low = start + 1;
+                int high = word.length();
+                while (low < high) {
+                    int mid = (low + high + 1) >>> 1;
+                    if (tokenCounter.count(word.substring(start, mid)) <= maxTokens) {
+                        low = mid;
+                    } else {
+                        high = mid - 1;
+                    }
+                }
+                parts.add(word.substring(start, low));
+                start = low;
+            }
+            return parts;
+        }
+        
+        /**
+         * Close the window at a heading; overlap never crosses into a new section.
+         * Short sections, such as list items that look like headings, share a window.
+         */
+        private void sectionBreak() throws IOException {
+            if (freshTokens < maxTokens / 4) {
+                return;
+            }
+            emit();
+            window.clear();
+            windowTokens = 0;
+        }
+        
+        private void emit() throws IOException {
+            StringBuilder text = new StringBuilder();
+            for (Piece piece : window) {
+                if (text.length() > 0) {
+                    text.append(piece.paragraphStart() ? "\n\n" : " ");
+                }
+                text.append(piece.text());
+            }
+            sink.accept(new TextChunk(chunkIndex++, text.toString(), windowTokens));
+            freshTokens = 0;
+            while (!window.isEmpty() && windowTokens > overlapTokens) {
+                windowTokens -= window.removeFirst().tokens();
+            }
+        }
+    }
+}
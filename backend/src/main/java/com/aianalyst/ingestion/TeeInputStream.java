@@ -0,0 +1,120 @@
+package com.aianalyst.ingestion;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Tee Input Stream
+ *
+ * Copies every byte read from the source into a branch stream, so one pass over a
+ * request body can feed a parser and storage at the same time. Mark and reset are
+ * not supported; wrap the tee in a buffered stream when the reader needs them, so
+ * no byte reaches the branch twice. Reading past {@code maxBytes} fails with
+ * {@link LimitExceededException}. Closing the tee leaves the source open, so a
+ * reader that closes its input early cannot cut off {@link #drain()}.
+ */
+public final class TeeInputStream extends FilterInputStream {
+    
+    private final OutputStream branch;
+    private final long maxBytes;
+    private long count;
+    
+    public TeeInputStream(InputStream source, OutputStream branch, long maxBytes) {
+        super(source);
+        this.branch = branch;
+        this.maxBytes = maxBytes;
+    }
+    
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        if (b != -1) {
+            advance(1);
+            branch.write(b);
+        }
+        return b;
+    }
+    
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int read = in.read(buffer, offset, length);
+        if (read > 0) {
+            advance(read);
+            branch.write(buffer, offset, read);
+        }
+        return read;
+    }
+    
+    @Override
+    public long skip(long n) throws IOException {
+        // Skipped bytes must still reach the branch
+        byte[] buffer = new byte[(int) Math.min(n, 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+            if (read == -1) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+    
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+    
+    @Override
+    public synchronized void mark(int readLimit) {
+    }
+    
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+    
+    @Override
+    public void close() {
+    }
+    
+    /**
+     * Read the rest of the source so the branch receives all of it
+     */
+    public void drain() throws IOException {
+        byte[] buffer = new byte[8192];
+        while (read(buffer, 0, buffer.length) != -1) {
+            // Bytes are copied to the branch as they are read
+        }
+    }
+    
+    /**
+     * Bytes read from the source so far
+     */
+    public long count() {
+        return count;
+    }
+    
+    private void advance(int read) throws LimitExceededException {
+        count += read;
+        if (count > maxBytes) {
+            throw new LimitExceededException(maxBytes);
+        }
+    }
+    
+    public static final class LimitExceededException extends IOException {
+        
+        private final long maxBytes;
+        
+        public LimitExceededException(long maxBytes) {
+            super("Stream exceeds maximum size of " + maxBytes + " bytes");
+            this.maxBytes = maxBytes;
+        }
+        
+        public long maxBytes() {
+            return maxBytes;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.aianalyst.ingestion;
+
+/**
+ * A window of document text produced by {@link StreamingChunker}
+ *
+ * @param index  position of the chunk in the document, from 0
+ * @param text   chunk text, including any overlap with the previous chunk
+ * @param tokens estimated token count of {@code text}
+ */
+public record TextChunk(int index, String text, int tokens) {
+}
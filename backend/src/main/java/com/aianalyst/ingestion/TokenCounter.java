@@ -0,0 +1,37 @@
+package com.aianalyst.ingestion;
+
+/**
+ * Token Counter
+ *
+ * Estimates how many model tokens a piece of text costs, so chunk windows can be
+ * sized in tokens rather than characters.
+ */
+@FunctionalInterface
+public interface TokenCounter {
+    
+    int count(CharSequence text);
+    
+    /**
+     * Heuristic close to BPE tokenizers on English prose: a word costs one token per
+     * four characters (at least one) and every punctuation mark costs one
+     */
+    static TokenCounter approximate() {
+        return text -> {
+            int tokens = 0;
+            int wordLength = 0;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (Character.isLetterOrDigit(c)) {
+                    wordLength++;
+                    continue;
+                }
+                tokens += (wordLength + 3) / 4;
+                wordLength = 0;
+                if (!Character.isWhitespace(c)) {
+                    tokens++;
+                }
+            }
+            return tokens + (wordLength + 3) / 4;
+        };
+    }
+}
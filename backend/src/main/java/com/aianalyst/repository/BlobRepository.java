@@ -0,0 +1,66 @@
+package com.aianalyst.repository;
+
+import com.aianalyst.entity.BlobEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Blob Repository
+ *
+ * Repository interface for BlobEntity operations. Reference counts only change
+ * through single conditional updates, so concurrent uploads and deletes of the
+ * same content, on one node or many, never lose a reference.
+ */
+@Repository
+public interface BlobRepository extends JpaRepository<BlobEntity, String> {
+    
+    /**
+     * Add a reference to a live blob; returns 0 if there is none (or it is being deleted)
+     */
+    @Modifying
+    @Query("UPDATE BlobEntity b SET b.referenceCount = b.referenceCount + 1, b.updatedAt = :now " +
+           "WHERE b.sha256 = :sha256 AND b.referenceCount > 0")
+    int acquire(@Param("sha256") String sha256, @Param("now") LocalDateTime now);
+    
+    /**
+     * Drop a reference to a blob
+     */
+    @Modifying
+    @Query("UPDATE BlobEntity b SET b.referenceCount = b.referenceCount - 1, b.updatedAt = :now " +
+           "WHERE b.sha256 = :sha256 AND b.referenceCount > 0")
+    int release(@Param("sha256") String sha256, @Param("now") LocalDateTime now);
+    
+    /**
+     * Delete a blob once nothing references it; returns 0 if it is still referenced
+     */
+    @Modifying
+    @Query("DELETE FROM BlobEntity b WHERE b.sha256 = :sha256 AND b.referenceCount = 0")
+    int deleteUnreferenced(@Param("sha256") String sha256);
+    
+    /**
+     * Cache the ingestion agent's extraction for a blob
+     */
+    @Modifying
+    @Query("UPDATE BlobEntity b SET b.extraction = :extraction, b.updatedAt = :now WHERE b.sha256 = :sha256")
+    int updateExtraction(@Param("sha256") String sha256, @Param("extraction") String extraction,
+                         @Param("now") LocalDateTime now);
+    
+    /**
+     * Record where a blob's extracted text was written; returns 0 if the blob is gone
+     */
+    @Modifying
+    @Query("UPDATE BlobEntity b SET b.textPath = :textPath, b.updatedAt = :now WHERE b.sha256 = :sha256")
+    int updateTextPath(@Param("sha256") String sha256, @Param("textPath") String textPath,
+                       @Param("now") LocalDateTime now);
+    
+    @Query("SELECT b.textPath FROM BlobEntity b WHERE b.sha256 = :sha256")
+    String findTextPathBySha256(@Param("sha256") String sha256);
+    
+    @Query("SELECT b.extraction FROM BlobEntity b WHERE b.sha256 = :sha256")
+    String findExtractionBySha256(@Param("sha256") String sha256);
+}
@@ -0,0 +1,25 @@
+package com.aianalyst.repository;
+
+import com.aianalyst.entity.DataSourceContentEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * Data Source Content Repository
+ * 
+ * Repository interface for DataSourceContentEntity operations. Content is only
+ * read where a single data source's text is needed.
+ */
+@Repository
+public interface DataSourceContentRepository extends JpaRepository<DataSourceContentEntity, String> {
+    
+    /**
+     * Text of a data source, if it has any
+     */
+    @Query("SELECT c.content FROM DataSourceContentEntity c WHERE c.dataSourceId = :dataSourceId")
+    Optional<String> findContentByDataSourceId(@Param("dataSourceId") String dataSourceId);
+}
@@ -1,14 +1,18 @@
 package com.aianalyst.repository;
 
+import com.aianalyst.dto.DataSourceSummary;
 import com.aianalyst.entity.DataSourceEntity;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -31,6 +35,33 @@ public interface DataSourceRepository extends JpaRepository<DataSourceEntity, St
      */
     Page<DataSourceEntity> findByUserIdOrderByCreatedAtDesc(String userId, Pageable pageable);
     
+    /**
+     * List columns of a user's data sources, newest first
+     */
+    List<DataSourceSummary> findSummariesByUserIdOrderByCreatedAtDesc(String userId);
+    
+    /**
+     * List columns of a user's data sources, a page at a time
+     */
+    Page<DataSourceSummary> findSummariesByUserIdOrderByCreatedAtDesc(String userId, Pageable pageable);
+    
+    /**
+     * List columns of a user's selected data sources, newest first
+     */
+    List<DataSourceSummary> findSummariesByIsSelectedTrueAndUserIdOrderByCreatedAtDesc(String userId);
+    
+    /**
+     * List columns of the given data sources, in no particular order
+     */
+    List<DataSourceSummary> findSummariesByIdIn(Collection<String> ids);
+    
+    /**
+     * Metadata of the given data sources, one row per entry
+     */
+    @Query("SELECT ds.id AS dataSourceId, KEY(m) AS metadataKey, VALUE(m) AS metadataValue " +
+           "FROM DataSourceEntity ds JOIN ds.metadata m WHERE ds.id IN :ids")
+    List<DataSourceSummary.MetadataEntry> findMetadataByIdIn(@Param("ids") Collection<String> ids);
+    
     /**
      * Find data sources by type and user ID
      */
@@ -48,14 +79,6 @@ public interface DataSourceRepository extends JpaRepository<DataSourceEntity, St
      */
     List<DataSourceEntity> findByIsSelectedTrueAndUserIdOrderByCreatedAtDesc(String userId);
     
-    /**
-     * Search data sources by name or description
-     */
-    @Query("SELECT ds FROM DataSourceEntity ds WHERE ds.userId = :userId AND " +
-           "(LOWER(ds.name) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
-           "LOWER(ds.description) LIKE LOWER(CONCAT('%', :query, '%')))")
-    List<DataSourceEntity> searchByQuery(@Param("userId") String userId, @Param("query") String query);
-    
     /**
      * Find data sources created between dates
      */
@@ -95,6 +118,30 @@ public interface DataSourceRepository extends JpaRepository<DataSourceEntity, St
     List<DataSourceEntity> findByStatusInAndUserIdOrderByCreatedAtAsc(
         List<DataSourceEntity.DataSourceStatus> statuses, String userId);
     
+    /**
+     * IDs of data sources stored as the same blob
+     */
+    @Query("SELECT ds.id FROM DataSourceEntity ds WHERE ds.contentSha256 = :sha256")
+    List<String> findIdsByContentSha256(@Param("sha256") String sha256);
+    
+    /**
+     * Move a data source out of PROCESSING; returns 0 if it already left that state
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE DataSourceEntity ds SET ds.status = :status, ds.updatedAt = :now " +
+           "WHERE ds.id = :id AND ds.status = 'PROCESSING'")
+    int finishProcessing(@Param("id") String id,
+                         @Param("status") DataSourceEntity.DataSourceStatus status,
+                         @Param("now") LocalDateTime now);
+    
+    /**
+     * Uploads that have waited for text extraction since before the given time, oldest first
+     */
+    @Query("SELECT ds.id FROM DataSourceEntity ds WHERE ds.type = 'FILE_UPLOAD' AND ds.status = 'PROCESSING' " +
+           "AND ds.contentSha256 IS NOT NULL AND ds.updatedAt < :before ORDER BY ds.updatedAt")
+    List<String> findPendingExtractionIds(@Param("before") LocalDateTime before, Pageable pageable);
+    
     /**
      * Find data sources by metadata key-value pair
      * Note: This method is temporarily disabled due to HQL limitations with Map collections
@@ -0,0 +1,130 @@
+package com.aianalyst.repository;
+
+import com.aianalyst.entity.MemoGenerationJobEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Memo Generation Job Repository
+ *
+ * Repository interface for MemoGenerationJobEntity operations.
+ * Claims and lease recovery are single conditional updates so that
+ * concurrent workers, on one node or many, never run the same job twice.
+ */
+@Repository
+public interface MemoGenerationJobRepository extends JpaRepository<MemoGenerationJobEntity, String> {
+    
+    /**
+     * Find queued jobs that are due, oldest first
+     */
+    @Query("SELECT j.id FROM MemoGenerationJobEntity j WHERE j.status = 'QUEUED' AND j.nextAttemptAt <= :now ORDER BY j.nextAttemptAt")
+    List<String> findDueJobIds(@Param("now") LocalDateTime now, Pageable pageable);
+    
+    /**
+     * Claim a queued job for a worker; returns 0 if another worker got there first.
+     * Always commits on its own, even when dispatch runs from an afterCommit callback.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Modifying
+    @Query("UPDATE MemoGenerationJobEntity j SET j.status = 'RUNNING', j.lockedBy = :workerId, j.lockedAt = :now, " +
+           "j.attempts = j.attempts + 1, j.updatedAt = :now WHERE j.id = :id AND j.status = 'QUEUED'")
+    int claim(@Param("id") String id, @Param("workerId") String workerId, @Param("now") LocalDateTime now);
+    
+    /**
+     * Hand a claimed job back to the queue without counting the attempt
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Modifying
+    @Query("UPDATE MemoGenerationJobEntity j SET j.status = 'QUEUED', j.lockedBy = NULL, j.lockedAt = NULL, " +
+           "j.attempts = j.attempts - 1, j.updatedAt = :now WHERE j.id = :id AND j.status = 'RUNNING'")
+    int release(@Param("id") String id, @Param("now") LocalDateTime now);
+    
+    /**
+     * Put running jobs back on the queue when their worker is gone: either this
+     * node restarted, or the lease expired on another node
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE MemoGenerationJobEntity j SET j.status = 'QUEUED', j.lockedBy = NULL, j.lockedAt = NULL, " +
+           "j.nextAttemptAt = :now, j.updatedAt = :now WHERE j.status = 'RUNNING' AND " +
+           "(j.lockedBy = :workerId OR j.lockedAt < :staleBefore)")
+    int requeueAbandoned(@Param("workerId") String workerId,
+                         @Param("staleBefore") LocalDateTime staleBefore,
+                         @Param("now") LocalDateTime now);
+    
+    /**
+     * Extend the lease of a running job; returns 0 if the worker no longer holds it.
+     * The attempt number fences off an earlier run of the same job on the same node.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Modifying
+    @Query("UPDATE MemoGenerationJobEntity j SET j.lockedAt = :now, j.updatedAt = :now " +
+           "WHERE j.id = :id AND j.status = 'RUNNING' AND j.lockedBy = :workerId AND j.attempts = :attempt")
+    int renewLease(@Param("id") String id, @Param("workerId") String workerId, @Param("attempt") int attempt,
+                   @Param("now") LocalDateTime now);
+    
+    /**
+     * Lock a running job's row for the caller's transaction if the worker still holds
+     * its lease; returns 0 if it does not. Lease recovery has to wait for that
+     * transaction, so whatever it writes cannot land after the job moved on.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Modifying
+    @Query("UPDATE MemoGenerationJobEntity j SET j.updatedAt = :now " +
+           "WHERE j.id = :id AND j.status = 'RUNNING' AND j.lockedBy = :workerId AND j.attempts = :attempt")
+    int holdLease(@Param("id") String id, @Param("workerId") String workerId, @Param("attempt") int attempt,
+                  @Param("now") LocalDateTime now);
+    
+    /**
+     * Mark a job completed if the worker still holds its lease
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE MemoGenerationJobEntity j SET j.status = 'COMPLETED', j.completedAt = :now, j.lockedBy = NULL, " +
+           "j.lockedAt = NULL, j.lastError = NULL, j.updatedAt = :now " +
+           "WHERE j.id = :id AND j.status = 'RUNNING' AND j.lockedBy = :workerId AND j.attempts = :attempt")
+    int complete(@Param("id") String id, @Param("workerId") String workerId, @Param("attempt") int attempt,
+                 @Param("now") LocalDateTime now);
+    
+    /**
+     * Put a failed job back on the queue for a later attempt if the worker still holds its lease
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE MemoGenerationJobEntity j SET j.status = 'QUEUED', j.nextAttemptAt = :nextAttemptAt, " +
+           "j.lockedBy = NULL, j.lockedAt = NULL, j.lastError = :error, j.updatedAt = :now " +
+           "WHERE j.id = :id AND j.status = 'RUNNING' AND j.lockedBy = :workerId AND j.attempts = :attempt")
+    int retry(@Param("id") String id, @Param("workerId") String workerId, @Param("attempt") int attempt,
+              @Param("nextAttemptAt") LocalDateTime nextAttemptAt, @Param("error") String error,
+              @Param("now") LocalDateTime now);
+    
+    /**
+     * Mark a job failed for good if the worker still holds its lease
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE MemoGenerationJobEntity j SET j.status = 'FAILED', j.lockedBy = NULL, j.lockedAt = NULL, " +
+           "j.lastError = :error, j.updatedAt = :now " +
+           "WHERE j.id = :id AND j.status = 'RUNNING' AND j.lockedBy = :workerId AND j.attempts = :attempt")
+    int fail(@Param("id") String id, @Param("workerId") String workerId, @Param("attempt") int attempt,
+             @Param("error") String error, @Param("now") LocalDateTime now);
+    
+    /**
+     * Find jobs for a memo, newest first
+     */
+    List<MemoGenerationJobEntity> findByMemoIdOrderByCreatedAtDesc(String memoId);
+    
+    /**
+     * Count jobs by status
+     */
+    long countByStatus(MemoGenerationJobEntity.JobStatus status);
+}
@@ -0,0 +1,33 @@
+package com.aianalyst.repository;
+
+import com.aianalyst.entity.UploadChunkEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Upload Chunk Repository
+ *
+ * Repository interface for UploadChunkEntity operations.
+ */
+@Repository
+public interface UploadChunkRepository extends JpaRepository<UploadChunkEntity, UploadChunkEntity.ChunkId> {
+    
+    /**
+     * Indexes of the chunks received for a session, in order
+     */
+    @Query("SELECT c.chunkIndex FROM UploadChunkEntity c WHERE c.sessionId = :sessionId ORDER BY c.chunkIndex")
+    List<Integer> findChunkIndexes(@Param("sessionId") String sessionId);
+    
+    long countBySessionId(String sessionId);
+    
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM UploadChunkEntity c WHERE c.sessionId = :sessionId")
+    int deleteBySessionId(@Param("sessionId") String sessionId);
+}
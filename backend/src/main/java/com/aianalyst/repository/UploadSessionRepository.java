@@ -0,0 +1,55 @@
+package com.aianalyst.repository;
+
+import com.aianalyst.entity.UploadSessionEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Upload Session Repository
+ *
+ * Repository interface for UploadSessionEntity operations. Completion is claimed
+ * with a single conditional update, so a finalize call retried by the client, or
+ * sent to another node, never stores the file twice.
+ */
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSessionEntity, String> {
+    
+    /**
+     * Claim an open session for completion; returns 0 if it is not open
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE UploadSessionEntity s SET s.status = 'COMPLETING', s.updatedAt = :now " +
+           "WHERE s.id = :id AND s.status = 'OPEN'")
+    int claimCompletion(@Param("id") String id, @Param("now") LocalDateTime now);
+    
+    /**
+     * Hand a session whose completion failed back to the client
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE UploadSessionEntity s SET s.status = 'OPEN', s.updatedAt = :now " +
+           "WHERE s.id = :id AND s.status = 'COMPLETING'")
+    int reopen(@Param("id") String id, @Param("now") LocalDateTime now);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE UploadSessionEntity s SET s.status = 'COMPLETED', s.dataSourceId = :dataSourceId, " +
+           "s.updatedAt = :now WHERE s.id = :id AND s.status = 'COMPLETING'")
+    int markCompleted(@Param("id") String id, @Param("dataSourceId") String dataSourceId,
+                      @Param("now") LocalDateTime now);
+    
+    /**
+     * Find sessions past their expiry that are not being completed
+     */
+    @Query("SELECT s.id FROM UploadSessionEntity s WHERE s.status <> 'COMPLETING' AND s.expiresAt < :now")
+    List<String> findExpiredIds(@Param("now") LocalDateTime now, Pageable pageable);
+}
@@ -0,0 +1,177 @@
+package com.aianalyst.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * BM25 Index
+ *
+ * In-memory inverted index over documents made of weighted text fields, scored with
+ * BM25. A term occurring in a field counts {@code weight} times, so a match in a
+ * name outranks one in the body. A query only touches the posting lists of its own
+ * terms, so search cost follows how common the terms are, not how many documents
+ * are indexed. The last query term also matches as a prefix, which keeps
+ * search-as-you-type queries like "acm" finding "Acme".
+ */
+public final class Bm25Index {
+    
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final int MIN_PREFIX_LENGTH = 2;
+    
+    private final Map<String, Float> fieldWeights;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // term -> document id -> weighted term frequency
+    private final NavigableMap<String, Map<String, Float>> postings = new TreeMap<>();
+    private final Map<String, IndexedDocument> documents = new HashMap<>();
+    private double totalLength;
+    
+    /**
+     * @param fieldWeights weight of each field name; fields not listed are ignored
+     */
+    public Bm25Index(Map<String, Float> fieldWeights) {
+        this.fieldWeights = Map.copyOf(fieldWeights);
+    }
+    
+    /**
+     * Index a document, replacing any earlier version with the same ID
+     */
+    public void put(String documentId, Map<String, String> fields) {
+        Map<String, Float> frequencies = new HashMap<>();
+        float length = 0;
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            Float weight = fieldWeights.get(field.getKey());
+            if (weight == null || field.getValue() == null) {
+                continue;
+            }
+            for (String term : tokenize(field.getValue())) {
+                frequencies.merge(term, weight, Float::sum);
+                length += weight;
+            }
+        }
+        
+        lock.writeLock().lock();
+        try {
+            removeLocked(documentId);
+            for (Map.Entry<String, Float> entry : frequencies.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), term -> new HashMap<>()).put(documentId, entry.getValue());
+            }
+            documents.put(documentId, new IndexedDocument(frequencies.keySet().toArray(String[]::new), length));
+            totalLength += length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public void remove(String documentId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(documentId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public boolean contains(String documentId) {
+        lock.readLock().lock();
+        try {
+            return documents.containsKey(documentId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Best matching documents, highest score first
+     */
+    public List<ScoredDocument> search(String query, int limit) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        
+        lock.readLock().lock();
+        try {
+            if (documents.isEmpty()) {
+                return List.of();
+            }
+            double averageLength = totalLength / documents.size();
+            Map<String, Double> scores = new HashMap<>();
+            for (int i = 0; i < terms.size(); i++) {
+                String term = terms.get(i);
+                boolean last = i == terms.size() - 1;
+                Map<String, Map<String, Float>> matches = last && term.length() >= MIN_PREFIX_LENGTH
+                        ? postings.subMap(term, true, term + Character.MAX_VALUE, false)
+                        : exact(term);
+                for (Map<String, Float> posting : matches.values()) {
+                    double idf = Math.log(1 + (documents.size() - posting.size() + 0.5) / (posting.size() + 0.5));
+                    for (Map.Entry<String, Float> entry : posting.entrySet()) {
+                        float frequency = entry.getValue();
+                        double norm = K1 * (1 - B + B * documents.get(entry.getKey()).length() / averageLength);
+                        scores.merge(entry.getKey(), idf * frequency * (K1 + 1) / (frequency + norm), Double::sum);
+                    }
+                }
+            }
+            List<ScoredDocument> results = new ArrayList<>(scores.size());
+            scores.forEach((id, score) -> results.add(new ScoredDocument(id, score)));
+            results.sort(Comparator.comparingDouble(ScoredDocument::score).reversed());
+            return results.size() > limit ? new ArrayList<>(results.subList(0, limit)) : results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Lower-cased runs of letters and digits
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+    
+    private Map<String, Map<String, Float>> exact(String term) {
+        Map<String, Float> posting = postings.get(term);
+        return posting == null ? Collections.emptyMap() : Map.of(term, posting);
+    }
+    
+    private void removeLocked(String documentId) {
+        IndexedDocument previous = documents.remove(documentId);
+        if (previous == null) {
+            return;
+        }
+        for (String term : previous.terms()) {
+            Map<String, Float> posting = postings.get(term);
+            posting.remove(documentId);
+            if (posting.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+        totalLength -= previous.length();
+    }
+    
+    private record IndexedDocument(String[] terms, float length) {
+    }
+}
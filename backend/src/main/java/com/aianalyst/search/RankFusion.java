@@ -0,0 +1,38 @@
+package com.aianalyst.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rank Fusion
+ *
+ * Reciprocal rank fusion: each ranking contributes {@code 1 / (k + rank)} to a
+ * document's score. Only ranks are used, so BM25 and cosine scores, which live on
+ * unrelated scales, combine without calibration.
+ */
+public final class RankFusion {
+    
+    public static final int DEFAULT_K = 60;
+    
+    private RankFusion() {
+    }
+    
+    /**
+     * Fuse rankings of document IDs, each best first, into one ranking, best first
+     */
+    public static List<ScoredDocument> reciprocalRank(List<List<String>> rankings, int k, int limit) {
+        Map<String, Double> scores = new LinkedHashMap<>();
+        for (List<String> ranking : rankings) {
+            for (int rank = 0; rank < ranking.size(); rank++) {
+                scores.merge(ranking.get(rank), 1.0 / (k + rank + 1), Double::sum);
+            }
+        }
+        List<ScoredDocument> fused = new ArrayList<>(scores.size());
+        scores.forEach((id, score) -> fused.add(new ScoredDocument(id, score)));
+        fused.sort(Comparator.comparingDouble(ScoredDocument::score).reversed());
+        return fused.size() > limit ? new ArrayList<>(fused.subList(0, limit)) : fused;
+    }
+}
@@ -0,0 +1,7 @@
+package com.aianalyst.search;
+
+/**
+ * A document ID with its relevance score
+ */
+public record ScoredDocument(String id, double score) {
+}
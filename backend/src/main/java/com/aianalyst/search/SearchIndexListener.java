@@ -0,0 +1,62 @@
+package com.aianalyst.search;
+
+import com.aianalyst.entity.DataSourceEntity;
+import com.aianalyst.entity.InvestmentMemoEntity;
+import com.aianalyst.service.HybridSearchService;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Search Index Listener
+ *
+ * Keeps the search indexes in step with every write to data sources and memos,
+ * whichever service makes it. Index updates are queued once the transaction
+ * commits, so rolled-back writes never become searchable and requests never wait
+ * for indexing.
+ */
+@Component
+public class SearchIndexListener {
+    
+    private final ObjectProvider<HybridSearchService> searchService;
+    
+    public SearchIndexListener(ObjectProvider<HybridSearchService> searchService) {
+        this.searchService = searchService;
+    }
+    
+    @PostPersist
+    @PostUpdate
+    public void onSave(Object entity) {
+        if (entity instanceof DataSourceEntity dataSource) {
+            afterCommit(() -> searchService.getObject().indexDataSourceAsync(dataSource));
+        } else if (entity instanceof InvestmentMemoEntity memo) {
+            afterCommit(() -> searchService.getObject().indexMemoAsync(memo));
+        }
+    }
+    
+    @PostRemove
+    public void onRemove(Object entity) {
+        if (entity instanceof DataSourceEntity dataSource) {
+            afterCommit(() -> searchService.getObject().removeDataSourceAsync(dataSource));
+        } else if (entity instanceof InvestmentMemoEntity memo) {
+            afterCommit(() -> searchService.getObject().removeMemoAsync(memo));
+        }
+    }
+    
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
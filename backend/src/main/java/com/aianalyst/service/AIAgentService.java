@@ -1,6 +1,7 @@
 package com.aianalyst.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
@@ -9,6 +10,7 @@ import org.springframework.web.client.HttpClientErrorException;
 
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 @Service
 public class AIAgentService {
@@ -18,9 +20,12 @@ public class AIAgentService {
     
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
+    private final Executor aiIoExecutor;
     
-    public AIAgentService() {
-        this.restTemplate = new RestTemplate();
+    public AIAgentService(@Qualifier("aiAgentRestTemplate") RestTemplate restTemplate,
+                          @Qualifier("aiIoExecutor") Executor aiIoExecutor) {
+        this.restTemplate = restTemplate;
+        this.aiIoExecutor = aiIoExecutor;
         this.objectMapper = new ObjectMapper();
     }
     
@@ -41,7 +46,7 @@ public class AIAgentService {
             } catch (Exception e) {
                 throw new RuntimeException("Error calling AI agent service: " + e.getMessage(), e);
             }
-        });
+        }, aiIoExecutor);
     }
     
     public Map<String, Object> getDataIngestionStatus(String sessionId) {
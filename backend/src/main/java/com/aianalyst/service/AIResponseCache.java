@@ -0,0 +1,191 @@
+package com.aianalyst.service;
+
+import com.aianalyst.config.AICacheProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Optional;
+
+/**
+ * AI Response Cache
+ * 
+ * Content-addressed cache for LLM responses. Entries are keyed by a SHA-256 of
+ * the normalized prompt and model parameters, held in a size-bounded Caffeine
+ * tier and optionally shared across nodes through Redis. Only prompt families
+ * given a TTL under {@code ai.cache.ttl} are cached.
+ */
+@Service
+@Slf4j
+public class AIResponseCache {
+    
+    public static final String DEFAULT_FAMILY = "default";
+    public static final String PPT_EXTRACTION = "ppt-extraction";
+    public static final String CHART = "chart";
+    public static final String SUMMARY = "summary";
+    public static final String MEMO_SECTION = "memo-section";
+    
+    private final AICacheProperties properties;
+    private final StringRedisTemplate redisTemplate;
+    private final Cache<String, CachedResponse> localCache;
+    private final Counter redisHits;
+    private final Counter redisMisses;
+    
+    public AIResponseCache(AICacheProperties properties,
+                           ObjectProvider<StringRedisTemplate> redisTemplate,
+                           MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.redisTemplate = properties.getRedis().isEnabled() ? redisTemplate.getIfAvailable() : null;
+        this.localCache = Caffeine.newBuilder()
+                .maximumWeight(properties.getMaxWeight())
+                .weigher((String key, CachedResponse value) -> value.text().length())
+                .expireAfter(new FamilyExpiry())
+                .recordStats()
+                .build();
+        
+        // Exposes cache.gets{result=hit|miss}, cache.evictions, cache.size for the L1 tier
+        CaffeineCacheMetrics.monitor(meterRegistry, localCache, "ai.responses");
+        this.redisHits = Counter.builder("ai.responses.redis")
+                .description("LLM response lookups served by the Redis tier")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.redisMisses = Counter.builder("ai.responses.redis")
+                .description("LLM response lookups served by the Redis tier")
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Whether responses for a prompt family are cached at all
+     */
+    public boolean caches(String family) {
+        return properties.isCached(family);
+    }
+    
+    /**
+     * Build the cache key for a prompt and its model parameters. Runs of whitespace
+     * count as one space; the prompt is hashed as it is read rather than copied.
+     */
+    public String keyFor(String prompt, String model, Double temperature, Integer maxTokens) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                new DigestOutputStream(OutputStream.nullOutputStream(), digest), StandardCharsets.UTF_8))) {
+            out.write(model + "|" + temperature + "|" + maxTokens + "|");
+            boolean started = false;
+            boolean space = false;
+            for (int i = 0; i < prompt.length(); i++) {
+                char c = prompt.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    space = started;
+                    continue;
+                }
+                if (space) {
+                    out.write(' ');
+                    space = false;
+                }
+                out.write(c);
+                started = true;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+    
+    /**
+     * Look up a cached response, promoting Redis hits into the local tier
+     */
+    public Optional<String> get(String key, String family) {
+        if (!properties.isCached(family)) {
+            return Optional.empty();
+        }
+        
+        CachedResponse local = localCache.getIfPresent(key);
+        if (local != null) {
+            return Optional.of(local.text());
+        }
+        
+        if (redisTemplate != null) {
+            try {
+                String remote = redisTemplate.opsForValue().get(properties.getRedis().getKeyPrefix() + key);
+                if (remote != null) {
+                    redisHits.increment();
+                    localCache.put(key, new CachedResponse(remote, properties.ttlFor(family)));
+                    return Optional.of(remote);
+                }
+                redisMisses.increment();
+            } catch (Exception e) {
+                log.warn("Redis response cache lookup failed: {}", e.getMessage());
+            }
+        }
+        return Optional.empty();
+    }
+    
+    /**
+     * Store a response in every enabled tier using the TTL of its prompt family
+     */
+    public void put(String key, String family, String text) {
+        if (!properties.isCached(family) || text == null) {
+            return;
+        }
+        
+        Duration ttl = properties.ttlFor(family);
+        localCache.put(key, new CachedResponse(text, ttl));
+        
+        if (redisTemplate != null) {
+            try {
+                redisTemplate.opsForValue().set(properties.getRedis().getKeyPrefix() + key, text, ttl);
+            } catch (Exception e) {
+                log.warn("Redis response cache write failed: {}", e.getMessage());
+            }
+        }
+    }
+    
+    private record CachedResponse(String text, Duration ttl) {
+    }
+    
+    /**
+     * Expires each entry after the TTL of the family it was stored under
+     */
+    private static class FamilyExpiry implements Expiry<String, CachedResponse> {
+        
+        @Override
+        public long expireAfterCreate(String key, CachedResponse value, long currentTime) {
+            return value.ttl().toNanos();
+        }
+        
+        @Override
+        public long expireAfterUpdate(String key, CachedResponse value, long currentTime, long currentDuration) {
+            return value.ttl().toNanos();
+        }
+        
+        @Override
+        public long expireAfterRead(String key, CachedResponse value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -6,7 +6,9 @@ import org.springframework.stereotype.Service;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * AI Service
@@ -20,46 +22,124 @@ import java.util.concurrent.CompletableFuture;
 public class AIService {
     
     private final AIAgentService aiAgentService;
+    private final AIResponseCache aiResponseCache;
+    private final InFlightRequestCoalescer inFlightRequestCoalescer;
     
     /**
-     * Generate text using AI
+     * Generate text using AI, blocking until the agent server responds
      */
     public String generateText(String prompt) {
-        log.debug("Generating text with prompt length: {}", prompt.length());
-        
-        try {
-            // Use Python AI agents for text generation
-            Map<String, Object> request = new HashMap<>();
-            request.put("prompt", prompt);
-            request.put("user_id", "system");
-            
-            CompletableFuture<Map<String, Object>> future = aiAgentService.processDataSources(request);
-            Map<String, Object> result = future.get();
-            
-            if (result.get("success").equals(true)) {
-                return "Generated text using AI agents";
-            } else {
-                throw new RuntimeException("AI generation failed: " + result.get("error"));
-            }
-        } catch (Exception e) {
-            log.error("Error generating text: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to generate text: " + e.getMessage());
-        }
+        return await(generateTextAsync(prompt));
     }
     
     /**
-     * Generate text with specific parameters
+     * Generate text for a cacheable prompt family, blocking until the agent server responds
+     */
+    public String generateText(String prompt, String family) {
+        return await(generateTextAsync(prompt, family));
+    }
+    
+    /**
+     * Generate text with specific parameters, blocking until the agent server responds
      */
     public String generateText(String prompt, String model, Double temperature, Integer maxTokens) {
+        return await(generateTextAsync(prompt, model, temperature, maxTokens));
+    }
+    
+    /**
+     * Generate text using AI without blocking the caller.
+     * The HTTP call runs on the dedicated AI I/O executor.
+     */
+    public CompletableFuture<String> generateTextAsync(String prompt) {
+        return generateTextAsync(prompt, AIResponseCache.DEFAULT_FAMILY);
+    }
+    
+    /**
+     * Generate text without blocking the caller, caching the response under the
+     * TTL configured for the given prompt family
+     */
+    public CompletableFuture<String> generateTextAsync(String prompt, String family) {
+        return cachedGenerate(prompt, null, null, null, family, false);
+    }
+    
+    /**
+     * Generate a fresh response for the given prompt family without blocking the caller.
+     * Any cached response is ignored and replaced, so an explicit regeneration always
+     * reaches the agents.
+     */
+    public CompletableFuture<String> regenerateTextAsync(String prompt, String family) {
+        return cachedGenerate(prompt, null, null, null, family, true);
+    }
+    
+    /**
+     * Generate text with specific parameters without blocking the caller
+     */
+    public CompletableFuture<String> generateTextAsync(String prompt, String model, Double temperature, Integer maxTokens) {
         log.debug("Generating text with custom parameters: model={}, temperature={}, maxTokens={}", 
                  model, temperature, maxTokens);
         
+        return cachedGenerate(prompt, model, temperature, maxTokens, AIResponseCache.DEFAULT_FAMILY, false);
+    }
+    
+    /**
+     * Serve identical prompts from the response cache, calling the agents only on a miss.
+     * Concurrent misses for the same prompt share a single agent call. Families without
+     * a cache TTL, such as the default one, always reach the agents. With {@code refresh}
+     * the cached response is skipped and overwritten by the new one.
+     */
+    private CompletableFuture<String> cachedGenerate(String prompt, String model, Double temperature,
+                                                     Integer maxTokens, String family, boolean refresh) {
+        String key = aiResponseCache.keyFor(prompt, model, temperature, maxTokens);
+        if (!aiResponseCache.caches(family)) {
+            return inFlightRequestCoalescer.execute(key, () -> invokeAgents(prompt));
+        }
+        Optional<String> cached = refresh ? Optional.empty() : aiResponseCache.get(key, family);
+        if (cached.isPresent()) {
+            log.debug("Serving cached response for prompt family: {}", family);
+            return CompletableFuture.completedFuture(cached.get());
+        }
+        
+        return inFlightRequestCoalescer.execute(key, () -> invokeAgents(prompt)
+                .thenApply(text -> {
+                    aiResponseCache.put(key, family, text);
+                    return text;
+                }));
+    }
+    
+    /**
+     * Send a prompt to the Python AI agents
+     */
+    private CompletableFuture<String> invokeAgents(String prompt) {
+        log.debug("Generating text with prompt length: {}", prompt.length());
+        
+        // Use Python AI agents for text generation
+        Map<String, Object> request = new HashMap<>();
+        request.put("prompt", prompt);
+        request.put("user_id", "system");
+        
+        return aiAgentService.processDataSources(request)
+                .thenApply(result -> {
+                    if (Boolean.TRUE.equals(result.get("success"))) {
+                        return "Generated text using AI agents";
+                    }
+                    throw new RuntimeException("AI generation failed: " + result.get("error"));
+                })
+                .whenComplete((text, error) -> {
+                    if (error != null) {
+                        log.error("Error generating text: {}", error.getMessage());
+                    }
+                });
+    }
+    
+    /**
+     * Wait for a generation future, unwrapping failures into a RuntimeException
+     */
+    private String await(CompletableFuture<String> future) {
         try {
-            // Use Python AI agents for text generation with parameters
-            return generateText(prompt);
-        } catch (Exception e) {
-            log.error("Error generating text with custom parameters: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to generate text: " + e.getMessage());
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw new RuntimeException("Failed to generate text: " + cause.getMessage(), cause);
         }
     }
     
@@ -135,7 +215,7 @@ public class AIService {
             Format as a well-structured summary.
             """, maxLength, text);
         
-        return generateText(prompt);
+        return generateText(prompt, AIResponseCache.SUMMARY);
     }
     
     /**
@@ -0,0 +1,203 @@
+package com.aianalyst.service;
+
+import com.aianalyst.entity.BlobEntity;
+import com.aianalyst.repository.BlobRepository;
+import com.aianalyst.service.FileStorageService.StoredFile;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Blob Store Service
+ *
+ * Content-addressed storage for uploads. An upload is streamed to disk and hashed
+ * in one pass; if a blob with the same SHA-256 already exists the new copy is
+ * dropped and the existing blob gains a reference. Text is extracted once per blob
+ * by the {@link ExtractionPipeline}. Blobs are deleted, files included, when their
+ * last reference is released.
+ */
+@Service
+@Slf4j
+public class BlobStoreService {
+    
+    private static final int MAX_STORE_ATTEMPTS = 3;
+    
+    private final BlobRepository blobRepository;
+    private final FileStorageService fileStorageService;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate registrationTemplate;
+    private final Counter deduplicatedUploads;
+    
+    public BlobStoreService(BlobRepository blobRepository,
+                            FileStorageService fileStorageService,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry) {
+        this.blobRepository = blobRepository;
+        this.fileStorageService = fileStorageService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Registration commits on its own, so a lost insert race never marks the caller's transaction rollback-only
+        this.registrationTemplate = new TransactionTemplate(transactionManager);
+        this.registrationTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.deduplicatedUploads = Counter.builder("storage.blobs.deduplicated")
+                .description("Uploads whose content was already stored as a blob")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Store an upload and take a reference to its blob for the caller
+     */
+    public BlobEntity store(InputStream body, String filename, String contentType, long expectedSize)
+            throws IOException {
+        StoredFile stored = fileStorageService.storeStream(body, filename, expectedSize);
+        return register(stored, filename, contentType);
+    }
+    
+    /**
+     * Store a file assembled on disk, such as a completed chunked upload, and take a
+     * reference to its blob for the caller
+     */
+    public BlobEntity storeFile(String filePath, String filename, String contentType) throws IOException {
+        StoredFile stored = fileStorageService.adoptFile(filePath, filename);
+        return register(stored, filename, contentType);
+    }
+    
+    private BlobEntity register(StoredFile stored, String filename, String contentType) throws IOException {
+        String blobPath = null;
+        try {
+            for (int attempt = 1; ; attempt++) {
+                BlobEntity existing = registrationTemplate.execute(status ->
+                        blobRepository.acquire(stored.sha256(), LocalDateTime.now()) == 1
+                                ? blobRepository.findById(stored.sha256()).orElse(null)
+                                : null);
+                if (existing != null) {
+                    fileStorageService.deleteFile(blobPath != null ? blobPath : stored.path());
+                    deduplicatedUploads.increment();
+                    log.info("Upload {} deduplicated against blob {}", filename, stored.sha256());
+                    return existing;
+                }
+                
+                if (blobPath == null) {
+                    blobPath = fileStorageService.moveToBlob(stored.path(), stored.sha256());
+                }
+                BlobEntity blob = new BlobEntity();
+                blob.setSha256(stored.sha256());
+                blob.setFilePath(blobPath);
+                blob.setFileSize(stored.size());
+                blob.setContentType(contentType);
+                blob.setReferenceCount(1);
+                try {
+                    return registrationTemplate.execute(status -> blobRepository.saveAndFlush(blob));
+                } catch (DataIntegrityViolationException e) {
+                    // A concurrent upload created the blob, or its last reference is being deleted
+                    if (attempt == MAX_STORE_ATTEMPTS) {
+                        throw e;
+                    }
+                    log.debug("Blob {} created concurrently, retrying", stored.sha256());
+                }
+            }
+        } catch (RuntimeException e) {
+            fileStorageService.deleteFile(blobPath != null ? blobPath : stored.path());
+            throw e;
+        }
+    }
+    
+    /**
+     * Drop a reference, deleting the blob and its file once none remain. Joins the
+     * caller's transaction; the file is removed only after it commits.
+     */
+    public void release(String sha256) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Optional<BlobEntity> blob = blobRepository.findById(sha256);
+            LocalDateTime now = LocalDateTime.now();
+            if (blobRepository.release(sha256, now) == 0 || blobRepository.deleteUnreferenced(sha256) == 0) {
+                return;
+            }
+            log.info("Deleting unreferenced blob {}", sha256);
+            blob.ifPresent(deleted -> TransactionSynchronizationManager.registerSynchronization(
+                    new TransactionSynchronization() {
+                        @Override
+                        public void afterCommit() {
+                            try {
+                                fileStorageService.deleteFile(deleted.getFilePath());
+                                // Text written by an extraction still running is removed when it finishes
+                                if (deleted.getTextPath() != null) {
+                                    fileStorageService.deleteFile(deleted.getTextPath());
+                                }
+                            } catch (RuntimeException e) {
+                                log.error("Failed to delete file of blob {}: {}", sha256, e.getMessage());
+                            }
+                        }
+                    }));
+        });
+    }
+    
+    public Optional<BlobEntity> find(String sha256) {
+        return blobRepository.findById(sha256);
+    }
+    
+    /**
+     * Text extracted from a blob, once the extraction pipeline has written it
+     */
+    public Optional<String> findText(String sha256) {
+        try (Reader reader = openText(sha256).orElse(null)) {
+            if (reader == null) {
+                return Optional.empty();
+            }
+            StringWriter text = new StringWriter();
+            reader.transferTo(text);
+            return Optional.of(text.toString());
+        } catch (IOException e) {
+            log.error("Failed to read text of blob {}: {}", sha256, e.getMessage());
+            return Optional.empty();
+        }
+    }
+    
+    /**
+     * Stream the text extracted from a blob
+     */
+    public Optional<Reader> openText(String sha256) throws IOException {
+        String textPath = blobRepository.findTextPathBySha256(sha256);
+        if (textPath == null || !fileStorageService.fileExists(textPath)) {
+            return Optional.empty();
+        }
+        return Optional.of(Files.newBufferedReader(Paths.get(textPath), StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Record the extracted text of a blob; returns false if the blob has been deleted
+     */
+    public boolean saveTextPath(String sha256, String textPath) {
+        Integer updated = transactionTemplate.execute(status ->
+                blobRepository.updateTextPath(sha256, textPath, LocalDateTime.now()));
+        return updated != null && updated > 0;
+    }
+    
+    /**
+     * Ingestion agent extraction cached for a blob
+     */
+    public Optional<String> findExtraction(String sha256) {
+        return Optional.ofNullable(blobRepository.findExtractionBySha256(sha256));
+    }
+    
+    public void saveExtraction(String sha256, String extraction) {
+        transactionTemplate.executeWithoutResult(status ->
+                blobRepository.updateExtraction(sha256, extraction, LocalDateTime.now()));
+    }
+}
@@ -0,0 +1,290 @@
+package com.aianalyst.service;
+
+import com.aianalyst.dto.DataSourceDTO;
+import com.aianalyst.dto.UploadSessionDTO;
+import com.aianalyst.entity.BlobEntity;
+import com.aianalyst.entity.UploadChunkEntity;
+import com.aianalyst.entity.UploadSessionEntity;
+import com.aianalyst.repository.UploadChunkRepository;
+import com.aianalyst.repository.UploadSessionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Chunked Upload Service
+ *
+ * Resumable uploads for files too large, or connections too flaky, for a single
+ * request. A session is opened with the file size; chunks of
+ * {@code storage.upload.chunk-size} bytes are then PUT by index, in any order and
+ * in parallel, each written at its offset of the assembly file. A chunk that fails
+ * or is sent again is simply re-sent, and a client that lost its connection asks
+ * which chunks arrived and sends the rest. Completing the session stores the
+ * assembled file as a blob in one read pass and creates its data source.
+ * Chunk writes share a per-session lock that completion takes exclusively to claim
+ * the session, so no chunk lands in the file once it is being hashed.
+ */
+@Service
+@Slf4j
+public class ChunkedUploadService {
+    
+    private static final int EXPIRED_BATCH_SIZE = 100;
+    
+    private final UploadSessionRepository sessionRepository;
+    private final UploadChunkRepository chunkRepository;
+    private final FileStorageService fileStorageService;
+    private final BlobStoreService blobStoreService;
+    private final DataSourceService dataSourceService;
+    private final int chunkSize;
+    private final long maxSize;
+    private final Duration sessionTtl;
+    private final ConcurrentMap<String, ReadWriteLock> sessionLocks = new ConcurrentHashMap<>();
+    
+    public ChunkedUploadService(UploadSessionRepository sessionRepository,
+                                UploadChunkRepository chunkRepository,
+                                FileStorageService fileStorageService,
+                                BlobStoreService blobStoreService,
+                                DataSourceService dataSourceService,
+                                @Value("${storage.upload.chunk-size:8MB}") DataSize chunkSize,
+                                @Value("${storage.upload.max-size:2GB}") DataSize maxSize,
+                                @Value("${storage.upload.session-ttl:24h}") Duration sessionTtl) {
+        this.sessionRepository = sessionRepository;
+        this.chunkRepository = chunkRepository;
+        this.fileStorageService = fileStorageService;
+        this.blobStoreService = blobStoreService;
+        this.dataSourceService = dataSourceService;
+        this.chunkSize = Math.toIntExact(chunkSize.toBytes());
+        this.maxSize = maxSize.toBytes();
+        this.sessionTtl = sessionTtl;
+    }
+    
+    /**
+     * Open an upload session for a file of the given size
+     */
+    public UploadSessionDTO createSession(String filename, String contentType, long totalSize, String userId)
+            throws IOException {
+        if (filename == null || filename.isBlank()) {
+            throw new IllegalArgumentException("File name is required");
+        }
+        if (totalSize <= 0) {
+            throw new IllegalArgumentException("File is empty");
+        }
+        if (totalSize > maxSize) {
+            throw new MaxUploadSizeExceededException(maxSize);
+        }
+        
+        UploadSessionEntity session = new UploadSessionEntity();
+        session.setId(UUID.randomUUID().toString());
+        session.setUserId(userId);
+        session.setFileName(filename);
+        session.setContentType(contentType);
+        session.setTotalSize(totalSize);
+        session.setChunkSize(chunkSize);
+        session.setFilePath(fileStorageService.createUploadFile(session.getId()));
+        session.setStatus(UploadSessionEntity.UploadStatus.OPEN);
+        session.setExpiresAt(LocalDateTime.now().plus(sessionTtl));
+        try {
+            session = sessionRepository.save(session);
+        } catch (RuntimeException e) {
+            fileStorageService.deleteFile(session.getFilePath());
+            throw e;
+        }
+        
+        log.info("Opened upload {} for {} ({} bytes in {} chunks) for user: {}",
+                session.getId(), filename, totalSize, session.getTotalChunks(), userId);
+        return UploadSessionDTO.fromEntity(session, List.of());
+    }
+    
+    /**
+     * State of an upload, including the chunks received so far
+     */
+    public UploadSessionDTO getSession(String uploadId, String userId) {
+        UploadSessionEntity session = findSession(uploadId, userId);
+        return UploadSessionDTO.fromEntity(session, chunkRepository.findChunkIndexes(uploadId));
+    }
+    
+    /**
+     * Write one chunk at its offset. The body must hold exactly the chunk's bytes and,
+     * when {@code expectedSha256} is given, match it; otherwise the chunk is not
+     * counted as received and must be sent again.
+     */
+    public void writeChunk(String uploadId, int index, InputStream body, String expectedSha256, String userId)
+            throws IOException {
+        // Authorize before taking a lock, so unknown or foreign ids never get one
+        requireOpen(findSession(uploadId, userId));
+        Lock lock = lockFor(uploadId).readLock();
+        lock.lock();
+        try {
+            // Read again under the lock, so a session claimed for completion is seen as such
+            UploadSessionEntity session = findSession(uploadId, userId);
+            requireOpen(session);
+            if (index < 0 || index >= session.getTotalChunks()) {
+                throw new IllegalArgumentException("Chunk index " + index + " is outside 0.."
+                        + (session.getTotalChunks() - 1));
+            }
+            writeChunk(session, index, body, expectedSha256);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private void writeChunk(UploadSessionEntity session, int index, InputStream body, String expectedSha256)
+            throws IOException {
+        String uploadId = session.getId();
+        long offset = (long) index * session.getChunkSize();
+        int length = (int) Math.min(session.getChunkSize(), session.getTotalSize() - offset);
+        UploadChunkEntity.ChunkId chunkId = new UploadChunkEntity.ChunkId(uploadId, index);
+        String sha256;
+        try {
+            sha256 = fileStorageService.writeAt(session.getFilePath(), offset, body, length);
+            if (expectedSha256 != null && !expectedSha256.equalsIgnoreCase(sha256)) {
+                throw new IllegalArgumentException("Chunk " + index + " does not match its SHA-256");
+            }
+        } catch (IOException | RuntimeException e) {
+            // The chunk's bytes may be partly overwritten, so an earlier copy no longer counts
+            chunkRepository.deleteById(chunkId);
+            throw e;
+        }
+        
+        UploadChunkEntity chunk = new UploadChunkEntity();
+        chunk.setSessionId(uploadId);
+        chunk.setChunkIndex(index);
+        chunk.setSize(length);
+        chunk.setSha256(sha256);
+        try {
+            chunkRepository.save(chunk);
+        } catch (DataIntegrityViolationException e) {
+            // The same chunk was recorded by a concurrent retry
+            log.debug("Chunk {} of upload {} recorded concurrently", index, uploadId);
+        }
+    }
+    
+    /**
+     * Store the assembled file and create its data source. Completing an upload
+     * again returns the data source created the first time.
+     */
+    public DataSourceDTO complete(String uploadId, String userId) {
+        UploadSessionEntity session = findSession(uploadId, userId);
+        if (session.getStatus() == UploadSessionEntity.UploadStatus.COMPLETED) {
+            return dataSourceService.getDataSource(session.getDataSourceId(), userId);
+        }
+        // Waits for chunk writes in progress; later ones see the session is no longer open
+        Lock lock = lockFor(uploadId).writeLock();
+        lock.lock();
+        try {
+            long received = chunkRepository.countBySessionId(uploadId);
+            if (received < session.getTotalChunks()) {
+                throw new IllegalArgumentException("Upload " + uploadId + " is missing "
+                        + (session.getTotalChunks() - received) + " of " + session.getTotalChunks() + " chunks");
+            }
+            if (sessionRepository.claimCompletion(uploadId, LocalDateTime.now()) == 0) {
+                throw new IllegalArgumentException("Upload " + uploadId + " is already being completed");
+            }
+        } finally {
+            lock.unlock();
+        }
+        
+        DataSourceDTO dataSource;
+        try {
+            BlobEntity blob = blobStoreService.storeFile(session.getFilePath(), session.getFileName(),
+                    session.getContentType());
+            dataSource = dataSourceService.createFileDataSource(blob, session.getFileName(),
+                    session.getContentType(), userId, Map.of("originalName", session.getFileName()));
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to complete upload {}: {}", uploadId, e.getMessage(), e);
+            if (fileStorageService.fileExists(session.getFilePath())) {
+                sessionRepository.reopen(uploadId, LocalDateTime.now());
+            } else {
+                discard(uploadId, session.getFilePath());
+            }
+            throw new RuntimeException("Failed to complete upload: " + e.getMessage());
+        }
+        
+        sessionRepository.markCompleted(uploadId, dataSource.getId(), LocalDateTime.now());
+        chunkRepository.deleteBySessionId(uploadId);
+        sessionLocks.remove(uploadId);
+        log.info("Completed upload {} as data source {}", uploadId, dataSource.getId());
+        return dataSource;
+    }
+    
+    /**
+     * Abandon an upload and delete what was received
+     */
+    public void abort(String uploadId, String userId) {
+        UploadSessionEntity session = findSession(uploadId, userId);
+        if (session.getStatus() == UploadSessionEntity.UploadStatus.COMPLETING) {
+            throw new IllegalArgumentException("Upload " + uploadId + " is being completed");
+        }
+        discard(uploadId, session.getFilePath());
+        log.info("Aborted upload {} for user: {}", uploadId, userId);
+    }
+    
+    /**
+     * Delete expired sessions: abandoned uploads with their partial files, and
+     * completed ones kept so a retried completion finds its data source
+     */
+    @Scheduled(fixedDelayString = "${storage.upload.cleanup-interval:3600000}")
+    public void purgeExpiredSessions() {
+        List<String> expired = sessionRepository.findExpiredIds(LocalDateTime.now(),
+                PageRequest.of(0, EXPIRED_BATCH_SIZE));
+        for (String uploadId : expired) {
+            sessionRepository.findById(uploadId).ifPresent(session -> {
+                try {
+                    discard(uploadId, session.getFilePath());
+                } catch (RuntimeException e) {
+                    log.warn("Failed to purge upload {}: {}", uploadId, e.getMessage());
+                }
+            });
+        }
+        if (!expired.isEmpty()) {
+            log.info("Purged {} expired uploads", expired.size());
+        }
+    }
+    
+    private void discard(String uploadId, String filePath) {
+        if (fileStorageService.fileExists(filePath)) {
+            fileStorageService.deleteFile(filePath);
+        }
+        chunkRepository.deleteBySessionId(uploadId);
+        sessionRepository.deleteById(uploadId);
+        sessionLocks.remove(uploadId);
+    }
+    
+    private static void requireOpen(UploadSessionEntity session) {
+        if (session.getStatus() != UploadSessionEntity.UploadStatus.OPEN) {
+            throw new IllegalArgumentException("Upload " + session.getId() + " no longer accepts chunks");
+        }
+    }
+    
+    private ReadWriteLock lockFor(String uploadId) {
+        return sessionLocks.computeIfAbsent(uploadId, id -> new ReentrantReadWriteLock());
+    }
+    
+    private UploadSessionEntity findSession(String uploadId, String userId) {
+        UploadSessionEntity session = sessionRepository.findById(uploadId)
+                .orElseThrow(() -> new RuntimeException("Upload not found"));
+        
+        if (!session.getUserId().equals(userId)) {
+            throw new RuntimeException("Access denied");
+        }
+        return session;
+    }
+}
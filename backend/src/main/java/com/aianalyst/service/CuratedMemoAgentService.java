@@ -1,26 +1,54 @@
 package com.aianalyst.service;
 
+import com.aianalyst.entity.MemoSectionEntity.SectionType;
+import com.aianalyst.service.SectionGraphExecutor.SectionTask;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Curated Memo Agent Service
  * 
  * Service for generating final curated investment memos.
  * Creates comprehensive memos with customizable preferences and visual summaries.
+ * Sections form a dependency graph, so a single section can be regenerated while
+ * the outputs of the sections it does not affect are reused.
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class CuratedMemoAgentService {
     
+    public static final String FOUNDER_PROFILE = "founderProfile";
+    public static final String PROBLEM_SIZING = "problemSizing";
+    public static final String DIFFERENTIATION = "differentiation";
+    public static final String COMPANY_REVIEW = "companyReview";
+    public static final String VISUAL_SUMMARIES = "visualSummaries";
+    public static final String RISK_ANALYSIS = "riskAnalysis";
+    public static final String CURATED_MEMO = "curatedMemo";
+    
+    /**
+     * Persisted form of each graph section, in display order
+     */
+    public static final List<CuratedSection> SECTIONS = List.of(
+            new CuratedSection(CURATED_MEMO, SectionType.MEMO_BODY, "Curated Investment Memo"),
+            new CuratedSection(FOUNDER_PROFILE, SectionType.FOUNDER_PROFILE, "Founder Profile"),
+            new CuratedSection(PROBLEM_SIZING, SectionType.PROBLEM_SIZING, "Problem Sizing"),
+            new CuratedSection(DIFFERENTIATION, SectionType.DIFFERENTIATION, "Differentiation"),
+            new CuratedSection(COMPANY_REVIEW, SectionType.COMPANY_REVIEW, "Company Review"),
+            new CuratedSection(VISUAL_SUMMARIES, SectionType.VISUAL_SUMMARIES, "Visual Summaries"),
+            new CuratedSection(RISK_ANALYSIS, SectionType.RISK_ASSESSMENT, "Risk Analysis"));
+    
     private final AIService aiService;
     private final DataSourceService dataSourceService;
-    private final InvestmentMemoService investmentMemoService;
     private final VisualizationService visualizationService;
+    private final SectionGraphExecutor sectionGraphExecutor;
     
     /**
      * Execute curated memo generation
@@ -38,24 +66,8 @@ public class CuratedMemoAgentService {
                 throw new RuntimeException("Missing required input: stage1MemoId or companyName");
             }
             
-            // Get source data
-            String sourceData = getSourceData(stage1MemoId, companyName);
-            
-            // Generate curated memo sections
-            String founderProfile = generateFounderProfile(sourceData, preferences);
-            String problemSizing = generateProblemSizing(sourceData, preferences);
-            String differentiation = generateDifferentiation(sourceData, preferences);
-            String companyReview = generateCompanyReview(sourceData, preferences);
-            
-            // Generate visual summaries
-            String visualSummaries = generateVisualSummaries(sourceData);
-            
-            // Generate risk analysis
-            String riskAnalysis = generateRiskAnalysis(sourceData);
-            
-            // Combine into final memo
-            String curatedMemo = combineIntoCurtatedMemo(founderProfile, problemSizing, 
-                    differentiation, companyReview, visualSummaries, riskAnalysis);
+            Map<String, String> sections = generateSections(stage1MemoId, companyName, preferences, Map.of(), false);
+            String curatedMemo = sections.get(CURATED_MEMO);
             
             log.info("Curated memo generation completed successfully");
             return curatedMemo;
@@ -66,6 +78,73 @@ public class CuratedMemoAgentService {
         }
     }
     
+    /**
+     * Generate every section that is not in {@code reused}. Reused outputs are fed
+     * to their dependents unchanged, so only missing sections cost an LLM call.
+     * With {@code refresh} the missing sections bypass the response cache, so an
+     * explicit regeneration yields new text even when the prompts are unchanged.
+     * Returns the outputs of all sections, keyed by section name.
+     */
+    public Map<String, String> generateSections(String stage1MemoId, String companyName,
+                                                Map<String, Object> preferences, Map<String, String> reused,
+                                                boolean refresh) {
+        String sourceData = getSourceData(stage1MemoId, companyName);
+        return sectionGraphExecutor.execute(sectionGraph(sourceData, preferences, refresh), reused);
+    }
+    
+    /**
+     * Sections whose outputs go stale when {@code section} changes, including itself
+     */
+    public Set<String> staleSections(String section) {
+        Set<String> stale = SectionGraphExecutor.dependentsOf(sectionGraph(null, Map.of(), false), section);
+        stale.add(section);
+        return stale;
+    }
+    
+    /**
+     * Regenerate a single subsection in the context of its parent section
+     */
+    public CompletableFuture<String> regenerateSubsection(String sectionTitle, String sectionContent,
+                                                          String subsectionTitle, String currentContent,
+                                                          Map<String, Object> preferences) {
+        log.debug("Regenerating subsection {} of {}", subsectionTitle, sectionTitle);
+        
+        String prompt = String.format("""
+            Rewrite the "%s" subsection of the "%s" section of a curated investment memo.
+            
+            Section:
+            %s
+            
+            Current subsection:
+            %s
+            
+            Preferences: %s
+            
+            Keep the subsection consistent with the rest of the section and return only its new content.
+            """, subsectionTitle, sectionTitle, sectionContent, currentContent, preferences);
+        
+        return aiService.regenerateTextAsync(prompt, AIResponseCache.MEMO_SECTION);
+    }
+    
+    /**
+     * Section dependency graph. Every analysis section depends only on the source
+     * data, so they run concurrently and are joined for the final combine step.
+     */
+    private List<SectionTask> sectionGraph(String sourceData, Map<String, Object> preferences, boolean refresh) {
+        return List.of(
+                SectionTask.async(FOUNDER_PROFILE, inputs -> generateFounderProfile(sourceData, preferences, refresh)),
+                SectionTask.async(PROBLEM_SIZING, inputs -> generateProblemSizing(sourceData, preferences, refresh)),
+                SectionTask.async(DIFFERENTIATION, inputs -> generateDifferentiation(sourceData, preferences, refresh)),
+                SectionTask.async(COMPANY_REVIEW, inputs -> generateCompanyReview(sourceData, preferences, refresh)),
+                SectionTask.async(VISUAL_SUMMARIES, inputs -> generateVisualSummaries(sourceData, refresh)),
+                SectionTask.async(RISK_ANALYSIS, inputs -> generateRiskAnalysis(sourceData, refresh)),
+                SectionTask.async(CURATED_MEMO, List.of(FOUNDER_PROFILE, PROBLEM_SIZING, DIFFERENTIATION,
+                                COMPANY_REVIEW, VISUAL_SUMMARIES, RISK_ANALYSIS),
+                        inputs -> combineIntoCurtatedMemo(inputs.get(FOUNDER_PROFILE), inputs.get(PROBLEM_SIZING),
+                                inputs.get(DIFFERENTIATION), inputs.get(COMPANY_REVIEW),
+                                inputs.get(VISUAL_SUMMARIES), inputs.get(RISK_ANALYSIS), refresh)));
+    }
+    
     /**
      * Get source data
      */
@@ -83,7 +162,7 @@ public class CuratedMemoAgentService {
     /**
      * Generate founder profile section
      */
-    private String generateFounderProfile(String sourceData, Map<String, Object> preferences) {
+    private CompletableFuture<String> generateFounderProfile(String sourceData, Map<String, Object> preferences, boolean refresh) {
         log.debug("Generating founder profile section");
         
         String prompt = String.format("""
@@ -112,13 +191,13 @@ public class CuratedMemoAgentService {
             Format as a structured section with clear subsections and actionable insights.
             """, sourceData, preferences);
         
-        return aiService.generateText(prompt);
+        return generate(prompt, refresh);
     }
     
     /**
      * Generate problem sizing section
      */
-    private String generateProblemSizing(String sourceData, Map<String, Object> preferences) {
+    private CompletableFuture<String> generateProblemSizing(String sourceData, Map<String, Object> preferences, boolean refresh) {
         log.debug("Generating problem sizing section");
         
         String prompt = String.format("""
@@ -146,13 +225,13 @@ public class CuratedMemoAgentService {
             Format as a structured section with data visualizations and market insights.
             """, sourceData, preferences);
         
-        return aiService.generateText(prompt);
+        return generate(prompt, refresh);
     }
     
     /**
      * Generate differentiation section
      */
-    private String generateDifferentiation(String sourceData, Map<String, Object> preferences) {
+    private CompletableFuture<String> generateDifferentiation(String sourceData, Map<String, Object> preferences, boolean refresh) {
         log.debug("Generating differentiation section");
         
         String prompt = String.format("""
@@ -181,13 +260,13 @@ public class CuratedMemoAgentService {
             Format as a structured section with competitive analysis and differentiation matrix.
             """, sourceData, preferences);
         
-        return aiService.generateText(prompt);
+        return generate(prompt, refresh);
     }
     
     /**
      * Generate company review section
      */
-    private String generateCompanyReview(String sourceData, Map<String, Object> preferences) {
+    private CompletableFuture<String> generateCompanyReview(String sourceData, Map<String, Object> preferences, boolean refresh) {
         log.debug("Generating company review section");
         
         String prompt = String.format("""
@@ -218,13 +297,13 @@ public class CuratedMemoAgentService {
             Format as a structured section with financial analysis and performance metrics.
             """, sourceData, preferences);
         
-        return aiService.generateText(prompt);
+        return generate(prompt, refresh);
     }
     
     /**
      * Generate visual summaries
      */
-    private String generateVisualSummaries(String sourceData) {
+    private CompletableFuture<String> generateVisualSummaries(String sourceData, boolean refresh) {
         log.debug("Generating visual summaries");
         
         String prompt = String.format("""
@@ -247,13 +326,13 @@ public class CuratedMemoAgentService {
             Format as a structured section with chart descriptions and data specifications.
             """, sourceData);
         
-        return aiService.generateText(prompt);
+        return generate(prompt, refresh);
     }
     
     /**
      * Generate risk analysis
      */
-    private String generateRiskAnalysis(String sourceData) {
+    private CompletableFuture<String> generateRiskAnalysis(String sourceData, boolean refresh) {
         log.debug("Generating risk analysis");
         
         String prompt = String.format("""
@@ -280,15 +359,15 @@ public class CuratedMemoAgentService {
             Format as a structured section with risk matrix and mitigation strategies.
             """, sourceData);
         
-        return aiService.generateText(prompt);
+        return generate(prompt, refresh);
     }
     
     /**
      * Combine into curated memo
      */
-    private String combineIntoCurtatedMemo(String founderProfile, String problemSizing, 
+    private CompletableFuture<String> combineIntoCurtatedMemo(String founderProfile, String problemSizing, 
                                          String differentiation, String companyReview, 
-                                         String visualSummaries, String riskAnalysis) {
+                                         String visualSummaries, String riskAnalysis, boolean refresh) {
         log.debug("Combining sections into curated memo");
         
         String prompt = String.format("""
@@ -324,6 +403,32 @@ public class CuratedMemoAgentService {
             Format as a professional investment memo with clear structure and actionable insights.
             """, founderProfile, problemSizing, differentiation, companyReview, visualSummaries, riskAnalysis);
         
-        return aiService.generateText(prompt);
+        return generate(prompt, refresh);
+    }
+    
+    /**
+     * Send a section prompt, bypassing the response cache when refreshing
+     */
+    private CompletableFuture<String> generate(String prompt, boolean refresh) {
+        return refresh
+                ? aiService.regenerateTextAsync(prompt, AIResponseCache.MEMO_SECTION)
+                : aiService.generateTextAsync(prompt, AIResponseCache.MEMO_SECTION);
+    }
+    
+    /**
+     * Find the graph section stored under a section type
+     */
+    public static Optional<CuratedSection> sectionFor(SectionType type) {
+        return SECTIONS.stream().filter(section -> section.type() == type).findFirst();
+    }
+    
+    /**
+     * A graph section and the memo section it is stored as
+     */
+    public record CuratedSection(String name, SectionType type, String title) {
+        
+        public int orderIndex() {
+            return SECTIONS.indexOf(this);
+        }
     }
 }
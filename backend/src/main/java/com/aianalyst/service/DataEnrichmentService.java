@@ -4,6 +4,8 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Data Enrichment Service
  * 
@@ -22,53 +24,76 @@ public class DataEnrichmentService {
      */
     public String enrichResearchData(String marketData, String competitorData, 
                                    String industryData, String financialData) {
+        try {
+            return enrichResearchDataAsync(marketData, competitorData, industryData, financialData).join();
+        } catch (Exception e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            log.error("Error enriching research data: {}", cause.getMessage(), cause);
+            throw new RuntimeException("Failed to enrich research data: " + cause.getMessage());
+        }
+    }
+    
+    /**
+     * Enrich research data without blocking the caller
+     */
+    public CompletableFuture<String> enrichResearchDataAsync(String marketData, String competitorData, 
+                                                            String industryData, String financialData) {
         log.info("Enriching research data with AI analysis");
         
-        try {
-            String prompt = String.format("""
-                Enrich and analyze the following research data to provide comprehensive insights:
-                
-                Market Data:
-                %s
-                
-                Competitor Data:
-                %s
-                
-                Industry Data:
-                %s
-                
-                Financial Data:
-                %s
-                
-                Please provide:
-                1. Cross-referenced insights across all data sources
-                2. Data validation and consistency checks
-                3. Enhanced market analysis with AI insights
-                4. Competitive positioning analysis
-                5. Industry trend analysis with predictions
-                6. Financial performance benchmarking
-                7. Risk assessment based on all data
-                8. Key opportunities and threats
-                9. Confidence scores for each insight
-                10. Recommendations for further research
-                
-                Format as a comprehensive enriched analysis report.
-                """, marketData, competitorData, industryData, financialData);
+        String prompt = String.format("""
+            Enrich and analyze the following research data to provide comprehensive insights:
             
-            String enrichedData = aiService.generateText(prompt);
-            log.info("Research data enriched successfully");
-            return enrichedData;
+            Market Data:
+            %s
             
-        } catch (Exception e) {
-            log.error("Error enriching research data: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to enrich research data: " + e.getMessage());
-        }
+            Competitor Data:
+            %s
+            
+            Industry Data:
+            %s
+            
+            Financial Data:
+            %s
+            
+            Please provide:
+            1. Cross-referenced insights across all data sources
+            2. Data validation and consistency checks
+            3. Enhanced market analysis with AI insights
+            4. Competitive positioning analysis
+            5. Industry trend analysis with predictions
+            6. Financial performance benchmarking
+            7. Risk assessment based on all data
+            8. Key opportunities and threats
+            9. Confidence scores for each insight
+            10. Recommendations for further research
+            
+            Format as a comprehensive enriched analysis report.
+            """, marketData, competitorData, industryData, financialData);
+        
+        return aiService.generateTextAsync(prompt)
+                .thenApply(enrichedData -> {
+                    log.info("Research data enriched successfully");
+                    return enrichedData;
+                });
     }
     
     /**
      * Validate data consistency
      */
     public String validateDataConsistency(String data1, String data2, String context) {
+        try {
+            return validateDataConsistencyAsync(data1, data2, context).join();
+        } catch (Exception e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            log.error("Error validating data consistency: {}", cause.getMessage(), cause);
+            throw new RuntimeException("Failed to validate data consistency: " + cause.getMessage());
+        }
+    }
+    
+    /**
+     * Validate data consistency without blocking the caller
+     */
+    public CompletableFuture<String> validateDataConsistencyAsync(String data1, String data2, String context) {
         log.debug("Validating data consistency between two data sources");
         
         String prompt = String.format("""
@@ -93,13 +118,26 @@ public class DataEnrichmentService {
             Format as a structured validation report.
             """, context, data1, data2);
         
-        return aiService.generateText(prompt);
+        return aiService.generateTextAsync(prompt);
     }
     
     /**
      * Generate data insights
      */
     public String generateDataInsights(String data, String analysisType) {
+        try {
+            return generateDataInsightsAsync(data, analysisType).join();
+        } catch (Exception e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            log.error("Error generating data insights: {}", cause.getMessage(), cause);
+            throw new RuntimeException("Failed to generate data insights: " + cause.getMessage());
+        }
+    }
+    
+    /**
+     * Generate data insights without blocking the caller
+     */
+    public CompletableFuture<String> generateDataInsightsAsync(String data, String analysisType) {
         log.debug("Generating data insights for analysis type: {}", analysisType);
         
         String prompt = String.format("""
@@ -120,6 +158,6 @@ public class DataEnrichmentService {
             Format as a structured insights report.
             """, analysisType, data);
         
-        return aiService.generateText(prompt);
+        return aiService.generateTextAsync(prompt);
     }
 }
@@ -1,25 +1,71 @@
 package com.aianalyst.service;
 
-import lombok.RequiredArgsConstructor;
+import com.aianalyst.ingestion.StreamingChunker;
+import com.aianalyst.ingestion.TextChunk;
+import com.aianalyst.ingestion.TokenCounter;
+import com.aianalyst.service.DataSourceService.DataSourceContent;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Data Ingestion Agent Service
  * 
  * Service for processing and normalizing uploaded data sources.
  * Uses RAG, CAG, and MCP for intelligent parsing and structuring.
+ * Sources are processed concurrently up to a per-ingestion limit; a source that
+ * fails or times out is reported in the output instead of failing the batch.
  */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class DataIngestionAgentService {
     
+    /** Reduce passes over the combined extractions before giving up on fitting one prompt */
+    private static final int MAX_REDUCE_PASSES = 3;
+    
     private final AIService aiService;
     private final DataSourceService dataSourceService;
     private final VectorStoreService vectorStoreService;
+    private final BlobStoreService blobStoreService;
+    private final TokenCounter tokenCounter = TokenCounter.approximate();
+    private final StreamingChunker promptChunker;
+    private final Executor executor;
+    private final int maxConcurrentSources;
+    private final long sourceTimeoutSeconds;
+    
+    public DataIngestionAgentService(AIService aiService, DataSourceService dataSourceService,
+                                     VectorStoreService vectorStoreService, BlobStoreService blobStoreService,
+                                     @Qualifier("ingestionExecutor") Executor executor,
+                                     @Value("${agents.data-ingestion.chunking.max-tokens:3000}") int promptTokens,
+                                     @Value("${agents.data-ingestion.chunking.overlap-tokens:200}") int promptOverlapTokens,
+                                     @Value("${agents.data-ingestion.max-concurrent-sources:8}") int maxConcurrentSources,
+                                     @Value("${agents.data-ingestion.source-timeout:300}") long sourceTimeoutSeconds) {
+        this.aiService = aiService;
+        this.dataSourceService = dataSourceService;
+        this.vectorStoreService = vectorStoreService;
+        this.blobStoreService = blobStoreService;
+        this.promptChunker = new StreamingChunker(tokenCounter, promptTokens, promptOverlapTokens);
+        this.executor = executor;
+        this.maxConcurrentSources = maxConcurrentSources;
+        this.sourceTimeoutSeconds = sourceTimeoutSeconds;
+    }
     
     /**
      * Execute data ingestion
@@ -39,25 +85,28 @@ public class DataIngestionAgentService {
             }
             
             // Parse data source IDs
-            String[] ids = dataSourceIds.split(",");
-            log.info("Processing {} data sources in {} mode", ids.length, processingMode);
-            
-            // Process each data source
-            StringBuilder results = new StringBuilder();
-            for (String id : ids) {
-                String result = processDataSource(id.trim(), processingMode, qualityCheck, enableOCR);
-                results.append(result).append("\n\n");
+            List<String> ids = Arrays.stream(dataSourceIds.split(","))
+                    .map(String::trim)
+                    .filter(id -> !id.isEmpty())
+                    .toList();
+            log.info("Processing {} data sources in {} mode", ids.size(), processingMode);
+            
+            // Process data sources concurrently, collecting extractions as they finish
+            IngestionResults results = processDataSources(ids, processingMode, qualityCheck, enableOCR);
+            if (!ids.isEmpty() && results.failures().size() == ids.size()) {
+                throw new RuntimeException("All data sources failed: " + results.failures());
             }
             
             // Generate structured output
-            String structuredOutput = generateStructuredOutput(results.toString());
+            String structuredOutput = generateStructuredOutput(condense(results.extractions())
+                    + describeFailures(results.failures()));
             
             // Store in vector database
             vectorStoreService.storeProcessedData(structuredOutput);
             
-            log.info("Data ingestion completed successfully for {} sources", ids.length);
+            log.info("Data ingestion completed for {} sources, {} failed", ids.size(), results.failures().size());
             return structuredOutput;
-            
+        
         } catch (Exception e) {
             log.error("Error executing data ingestion: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to execute data ingestion: " + e.getMessage());
@@ -65,21 +114,130 @@ public class DataIngestionAgentService {
     }
     
     /**
-     * Process individual data source
+     * Fan out over the sources with at most {@code maxConcurrentSources} in flight.
+     * Each extraction is appended as soon as its source finishes. A source that fails
+     * or exceeds the timeout is recorded as a failure; a timed-out source keeps its
+     * slot until its work actually returns, so the limit holds.
      */
-    private String processDataSource(String dataSourceId, String processingMode, Boolean qualityCheck, Boolean enableOCR) {
+    private IngestionResults processDataSources(List<String> ids, String processingMode, Boolean qualityCheck,
+                                                Boolean enableOCR) throws InterruptedException {
+        Semaphore slots = new Semaphore(maxConcurrentSources);
+        StringBuilder extractions = new StringBuilder();
+        Map<String, String> failures = Collections.synchronizedMap(new LinkedHashMap<>());
+        List<CompletableFuture<Void>> outcomes = new ArrayList<>(ids.size());
+        
+        for (String id : ids) {
+            slots.acquire();
+            CompletableFuture<String> work;
+            try {
+                work = CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return processDataSource(id, processingMode, qualityCheck, enableOCR);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, executor);
+            } catch (RuntimeException e) {
+                slots.release();
+                throw e;
+            }
+            work.whenComplete((result, error) -> slots.release());
+            
+            outcomes.add(work.copy()
+                    .orTimeout(sourceTimeoutSeconds, TimeUnit.SECONDS)
+                    .handle((result, error) -> {
+                        if (error == null) {
+                            synchronized (extractions) {
+                                extractions.append(result).append("\n\n");
+                            }
+                        } else {
+                            String reason = failureReason(error);
+                            log.warn("Data source {} failed during ingestion: {}", id, reason);
+                            failures.put(id, reason);
+                        }
+                        return null;
+                    }));
+        }
+        CompletableFuture.allOf(outcomes.toArray(new CompletableFuture[0])).join();
+        
+        synchronized (extractions) {
+            return new IngestionResults(extractions.toString(), new LinkedHashMap<>(failures));
+        }
+    }
+    
+    private String failureReason(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof TimeoutException) {
+            return "timed out after " + sourceTimeoutSeconds + "s";
+        }
+        return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+    }
+    
+    private static String describeFailures(Map<String, String> failures) {
+        if (failures.isEmpty()) {
+            return "";
+        }
+        StringBuilder description = new StringBuilder("Data sources that could not be processed:\n");
+        failures.forEach((id, reason) -> description.append("- ").append(id).append(": ").append(reason).append('\n'));
+        return description.toString();
+    }
+    
+    /**
+     * Process individual data source. The text is streamed through the prompt
+     * chunker, so the document is never held whole; each prompt-sized chunk is
+     * extracted on its own. Uploads with the same content share one blob and reuse
+     * its cached extraction. Embeddings for search are left to
+     * {@link HybridSearchService}, which indexes every data source once its text is in.
+     */
+    private String processDataSource(String dataSourceId, String processingMode, Boolean qualityCheck,
+                                     Boolean enableOCR) throws IOException {
         log.debug("Processing data source: {} in {} mode", dataSourceId, processingMode);
         
-        // In a real implementation, this would:
-        // 1. Retrieve data source from database
-        // 2. Apply appropriate processing based on type
-        // 3. Use RAG for content extraction
-        // 4. Use CAG for content analysis
-        // 5. Use MCP for content processing
-        // 6. Perform quality checks
-        // 7. Extract structured data
+        try (DataSourceContent content = dataSourceService.openContent(dataSourceId)) {
+            String blob = content.contentSha256();
+            String cached = blob != null ? blobStoreService.findExtraction(blob).orElse(null) : null;
+            if (cached != null) {
+                log.debug("Reused cached ingestion of blob {} for data source {}", blob, dataSourceId);
+                return cached;
+            }
+            
+            StringBuilder extractions = new StringBuilder();
+            try (Writer prompts = promptChunker.open(chunk -> extractions
+                    .append(processDocumentContent(chunk.text(), content.fileType())).append("\n\n"))) {
+                content.reader().transferTo(prompts);
+            }
+            if (blob != null) {
+                blobStoreService.saveExtraction(blob, extractions.toString());
+            }
+            return extractions.toString();
+        }
+    }
+    
+    /**
+     * Summarize the per-chunk extractions chunk by chunk until they fit one prompt
+     */
+    private String condense(String extractions) {
+        String text = extractions;
+        for (int pass = 0; pass < MAX_REDUCE_PASSES && tokenCounter.count(text) > promptChunker.maxTokens(); pass++) {
+            log.debug("Condensing {} tokens of extractions, pass {}", tokenCounter.count(text), pass + 1);
+            StringBuilder reduced = new StringBuilder();
+            for (TextChunk chunk : promptChunker.chunk(text)) {
+                reduced.append(condenseExtraction(chunk.text())).append("\n\n");
+            }
+            text = reduced.toString();
+        }
+        return text;
+    }
+    
+    private String condenseExtraction(String extraction) {
+        String prompt = String.format("""
+            Condense the following extracted document information. Keep every figure,
+            name, date and risk factor, merge duplicates and drop repetition:
+            
+            %s
+            """, extraction);
         
-        return "Simulated processing result for data source: " + dataSourceId;
+        return aiService.generateText(prompt);
     }
     
     /**
@@ -197,4 +355,7 @@ public class DataIngestionAgentService {
         
         return aiService.generateText(prompt);
     }
+    
+    private record IngestionResults(String extractions, Map<String, String> failures) {
+    }
 }
@@ -1,20 +1,39 @@
 package com.aianalyst.service;
 
 import com.aianalyst.dto.DataSourceDTO;
+import com.aianalyst.dto.DataSourceSummary;
+import com.aianalyst.entity.BlobEntity;
+import com.aianalyst.entity.DataSourceContentEntity;
 import com.aianalyst.entity.DataSourceEntity;
+import com.aianalyst.repository.DataSourceContentRepository;
 import com.aianalyst.repository.DataSourceRepository;
+import com.aianalyst.search.ScoredDocument;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -28,35 +47,49 @@ import java.util.stream.Collectors;
 @Transactional
 public class DataSourceService {
     
+    private static final int MAX_SEARCH_RESULTS = 100;
+    
     private final DataSourceRepository dataSourceRepository;
+    private final DataSourceContentRepository dataSourceContentRepository;
     private final FileStorageService fileStorageService;
-    // private final FileProcessingService fileProcessingService;
+    private final HybridSearchService hybridSearchService;
+    private final BlobStoreService blobStoreService;
+    private final ExtractionPipeline extractionPipeline;
+    private final TransactionTemplate transactionTemplate;
     
-    public DataSourceService(DataSourceRepository dataSourceRepository, FileStorageService fileStorageService) {
+    public DataSourceService(DataSourceRepository dataSourceRepository,
+                             DataSourceContentRepository dataSourceContentRepository,
+                             FileStorageService fileStorageService, HybridSearchService hybridSearchService,
+                             BlobStoreService blobStoreService, ExtractionPipeline extractionPipeline,
+                             PlatformTransactionManager transactionManager) {
         this.dataSourceRepository = dataSourceRepository;
+        this.dataSourceContentRepository = dataSourceContentRepository;
         this.fileStorageService = fileStorageService;
+        this.hybridSearchService = hybridSearchService;
+        this.blobStoreService = blobStoreService;
+        this.extractionPipeline = extractionPipeline;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
     
     /**
-     * Get all data sources for a user
+     * Get all data sources for a user, without their content
      */
     @Transactional(readOnly = true)
     public List<DataSourceDTO> getDataSources(String userId) {
         log.debug("Getting data sources for user: {}", userId);
-        return dataSourceRepository.findByUserIdOrderByCreatedAtDesc(userId)
-                .stream()
-                .map(DataSourceDTO::fromEntity)
-                .collect(Collectors.toList());
+        return toDTOs(dataSourceRepository.findSummariesByUserIdOrderByCreatedAtDesc(userId));
     }
     
     /**
-     * Get data sources with pagination
+     * Get data sources with pagination, without their content
      */
     @Transactional(readOnly = true)
     public Page<DataSourceDTO> getDataSources(String userId, Pageable pageable) {
         log.debug("Getting data sources for user: {} with pagination", userId);
-        return dataSourceRepository.findByUserIdOrderByCreatedAtDesc(userId, pageable)
-                .map(DataSourceDTO::fromEntity);
+        Page<DataSourceSummary> page =
+                dataSourceRepository.findSummariesByUserIdOrderByCreatedAtDesc(userId, pageable);
+        Map<String, Map<String, String>> metadata = metadataOf(page.getContent());
+        return page.map(summary -> toDTO(summary, metadata));
     }
     
     /**
@@ -72,55 +105,147 @@ public class DataSourceService {
             throw new RuntimeException("Access denied");
         }
         
-        return DataSourceDTO.fromEntity(entity);
+        DataSourceDTO dto = DataSourceDTO.fromEntity(entity);
+        dto.setContent(dataSourceContentRepository.findContentByDataSourceId(id).orElse(null));
+        return dto;
+    }
+    
+    /**
+     * Open a data source's text for streaming. Stored text files are read straight
+     * from storage; other sources stream their extracted content.
+     */
+    @Transactional(readOnly = true)
+    public DataSourceContent openContent(String id) throws IOException {
+        DataSourceEntity entity = dataSourceRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Data source not found: " + id));
+        
+        Reader reader;
+        if (entity.getFilePath() != null && isTextFile(entity.getFileType())
+                && fileStorageService.fileExists(entity.getFilePath())) {
+            reader = Files.newBufferedReader(Paths.get(entity.getFilePath()), StandardCharsets.UTF_8);
+        } else if (entity.getContentSha256() != null) {
+            reader = blobStoreService.openText(entity.getContentSha256()).orElseGet(() -> new StringReader(""));
+        } else {
+            reader = new StringReader(dataSourceContentRepository.findContentByDataSourceId(id).orElse(""));
+        }
+        return new DataSourceContent(entity.getId(), entity.getFileType(), entity.getContentSha256(), reader);
     }
     
     /**
-     * Upload file data source
+     * Locate a data source's stored file for download. Blob files are tagged with
+     * their SHA-256; older files fall back to a weak tag of size and modification time.
      */
+    @Transactional(readOnly = true)
+    public StoredDataSourceFile getStoredFile(String id, String userId) throws IOException {
+        DataSourceEntity entity = dataSourceRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Data source not found"));
+        
+        if (!entity.getUserId().equals(userId)) {
+            throw new RuntimeException("Access denied");
+        }
+        if (entity.getFilePath() == null || !fileStorageService.fileExists(entity.getFilePath())) {
+            throw new RuntimeException("Data source has no stored file");
+        }
+        
+        Path path = Paths.get(entity.getFilePath());
+        String etag = entity.getContentSha256() != null
+                ? "\"" + entity.getContentSha256() + "\""
+                : "W/\"" + Files.size(path) + "-" + Files.getLastModifiedTime(path).toMillis() + "\"";
+        return new StoredDataSourceFile(path, entity.getFileName(), entity.getFileType(), etag);
+    }
+    
+    /**
+     * Upload file data source. Runs outside a transaction, so no connection is
+     * held while the file is copied and hashed.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public DataSourceDTO uploadFile(MultipartFile file, String userId, Map<String, String> metadata) {
         log.info("Uploading file: {} for user: {}", file.getOriginalFilename(), userId);
         
+        if (file.isEmpty()) {
+            throw new RuntimeException("File is empty");
+        }
+        try (InputStream in = file.getInputStream()) {
+            return storeUpload(in, file.getOriginalFilename(), file.getContentType(), file.getSize(), userId, metadata);
+        } catch (IOException e) {
+            log.error("Error uploading file: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to upload file: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Upload file data source from a raw request body. The body is read once, in a
+     * single pass that stores and hashes it, with no multipart temp file. Runs
+     * outside a transaction, so a slow client never holds a database connection.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public DataSourceDTO uploadStream(InputStream body, String filename, String contentType, long contentLength,
+                                     String userId, Map<String, String> metadata) {
+        log.info("Streaming upload: {} ({} bytes) for user: {}", filename, contentLength, userId);
+        
         try {
-            // Store file
-            String filePath = fileStorageService.storeFile(file);
-            
-            // Process file content
-            // String content = fileProcessingService.extractContent(file);
-            String content = "File content extraction temporarily disabled";
-            
-            // Create data source entity
-            DataSourceEntity entity = new DataSourceEntity();
-            entity.setId(UUID.randomUUID().toString());
-            entity.setType(DataSourceEntity.DataSourceType.FILE_UPLOAD);
-            entity.setName(file.getOriginalFilename());
-            entity.setFilePath(filePath);
-            entity.setFileName(file.getOriginalFilename());
-            entity.setFileSize(file.getSize());
-            entity.setFileType(file.getContentType());
-            entity.setContent(content);
-            entity.setStatus(DataSourceEntity.DataSourceStatus.PROCESSING);
-            entity.setMetadata(metadata);
-            entity.setUserId(userId);
-            entity.setIsSelected(false);
-            entity.setCreatedAt(LocalDateTime.now());
-            entity.setUpdatedAt(LocalDateTime.now());
-            
-            // Save entity
-            DataSourceEntity savedEntity = dataSourceRepository.save(entity);
-            
-            // Process file asynchronously
-            processFileAsync(savedEntity.getId());
-            
-            log.info("File uploaded successfully: {}", savedEntity.getId());
-            return DataSourceDTO.fromEntity(savedEntity);
-            
-        } catch (Exception e) {
+            return storeUpload(body, filename, contentType, contentLength, userId, metadata);
+        } catch (IOException e) {
             log.error("Error uploading file: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to upload file: " + e.getMessage());
         }
     }
     
+    private DataSourceDTO storeUpload(InputStream body, String filename, String contentType, long contentLength,
+                                      String userId, Map<String, String> metadata) throws IOException {
+        // Identical content is stored once; the text extracted from it lives on the blob
+        BlobEntity blob = blobStoreService.store(body, filename, contentType, contentLength);
+        return createFileDataSource(blob, filename, contentType, userId, metadata);
+    }
+    
+    /**
+     * Create the data source for an uploaded file whose blob reference the caller
+     * holds. The reference passes to the data source, or is released if it fails.
+     * The row is saved in its own short transaction, and extraction starts once it
+     * has committed.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public DataSourceDTO createFileDataSource(BlobEntity blob, String filename, String contentType,
+                                              String userId, Map<String, String> metadata) {
+        boolean hasText = blob.getTextPath() != null;
+        
+        // Create data source entity
+        DataSourceEntity entity = new DataSourceEntity();
+        entity.setId(UUID.randomUUID().toString());
+        entity.setType(DataSourceEntity.DataSourceType.FILE_UPLOAD);
+        entity.setName(filename);
+        entity.setFilePath(blob.getFilePath());
+        entity.setFileName(filename);
+        entity.setFileSize(blob.getFileSize());
+        entity.setFileType(contentType);
+        entity.setContentSha256(blob.getSha256());
+        entity.setStatus(hasText
+                ? DataSourceEntity.DataSourceStatus.COMPLETED
+                : DataSourceEntity.DataSourceStatus.PROCESSING);
+        entity.setMetadata(metadata);
+        entity.setUserId(userId);
+        entity.setIsSelected(false);
+        entity.setCreatedAt(LocalDateTime.now());
+        entity.setUpdatedAt(LocalDateTime.now());
+        
+        // Save entity
+        DataSourceEntity savedEntity;
+        try {
+            savedEntity = transactionTemplate.execute(status -> dataSourceRepository.save(entity));
+        } catch (RuntimeException e) {
+            blobStoreService.release(blob.getSha256());
+            throw e;
+        }
+        
+        // Text is extracted once per blob, off the request thread
+        if (!hasText) {
+            extractionPipeline.submit(savedEntity.getId(), blob.getSha256());
+        }
+        
+        log.info("File uploaded successfully: {}", savedEntity.getId());
+        return DataSourceDTO.fromEntity(savedEntity);
+    }
+    
     /**
      * Add text data source
      */
@@ -131,7 +256,6 @@ public class DataSourceService {
         entity.setId(UUID.randomUUID().toString());
         entity.setType(DataSourceEntity.DataSourceType.TEXT_INPUT);
         entity.setName(title);
-        entity.setContent(content);
         entity.setStatus(DataSourceEntity.DataSourceStatus.COMPLETED);
         entity.setUserId(userId);
         entity.setIsSelected(false);
@@ -139,8 +263,12 @@ public class DataSourceService {
         entity.setUpdatedAt(LocalDateTime.now());
         
         DataSourceEntity savedEntity = dataSourceRepository.save(entity);
+        // Content is indexed for search once both rows commit
+        dataSourceContentRepository.save(new DataSourceContentEntity(savedEntity.getId(), content));
         log.info("Text source added successfully: {}", savedEntity.getId());
-        return DataSourceDTO.fromEntity(savedEntity);
+        DataSourceDTO dto = DataSourceDTO.fromEntity(savedEntity);
+        dto.setContent(content);
+        return dto;
     }
     
     /**
@@ -197,6 +325,7 @@ public class DataSourceService {
     /**
      * Delete data source
      */
+    @Transactional
     public void deleteDataSource(String id, String userId) {
         log.info("Deleting data source: {} for user: {}", id, userId);
         
@@ -207,12 +336,16 @@ public class DataSourceService {
             throw new RuntimeException("Access denied");
         }
         
-        // Delete associated file if exists
-        if (entity.getFilePath() != null) {
+        // Content goes first; its row references the data source
+        dataSourceContentRepository.deleteById(id);
+        dataSourceRepository.delete(entity);
+        
+        // Release the shared blob, or delete a file stored before uploads were deduplicated
+        if (entity.getContentSha256() != null) {
+            blobStoreService.release(entity.getContentSha256());
+        } else if (entity.getFilePath() != null) {
             fileStorageService.deleteFile(entity.getFilePath());
         }
-        
-        dataSourceRepository.delete(entity);
         log.info("Data source deleted successfully: {}", id);
     }
     
@@ -222,10 +355,15 @@ public class DataSourceService {
     @Transactional(readOnly = true)
     public List<DataSourceDTO> searchDataSources(String query, String userId) {
         log.debug("Searching data sources with query: {} for user: {}", query, userId);
-        return dataSourceRepository.searchByQuery(userId, query)
+        List<ScoredDocument> hits = hybridSearchService.searchDataSources(userId, query, MAX_SEARCH_RESULTS);
+        Map<String, DataSourceSummary> summaries = dataSourceRepository
+                .findSummariesByIdIn(HybridSearchService.ids(hits))
                 .stream()
-                .map(DataSourceDTO::fromEntity)
-                .collect(Collectors.toList());
+                .collect(Collectors.toMap(DataSourceSummary::getId, Function.identity()));
+        return toDTOs(hits.stream()
+                .map(hit -> summaries.get(hit.id()))
+                .filter(summary -> summary != null && userId.equals(summary.getUserId()))
+                .toList());
     }
     
     /**
@@ -234,10 +372,7 @@ public class DataSourceService {
     @Transactional(readOnly = true)
     public List<DataSourceDTO> getSelectedDataSources(String userId) {
         log.debug("Getting selected data sources for user: {}", userId);
-        return dataSourceRepository.findByIsSelectedTrueAndUserIdOrderByCreatedAtDesc(userId)
-                .stream()
-                .map(DataSourceDTO::fromEntity)
-                .collect(Collectors.toList());
+        return toDTOs(dataSourceRepository.findSummariesByIsSelectedTrueAndUserIdOrderByCreatedAtDesc(userId));
     }
     
     /**
@@ -259,20 +394,58 @@ public class DataSourceService {
     }
     
     /**
-     * Process file asynchronously
+     * Process URL asynchronously
      */
-    private void processFileAsync(String dataSourceId) {
+    private void processUrlAsync(String dataSourceId) {
         // This would be implemented with @Async annotation
         // For now, we'll simulate processing
-        log.debug("Processing file asynchronously: {}", dataSourceId);
+        log.debug("Processing URL asynchronously: {}", dataSourceId);
     }
     
     /**
-     * Process URL asynchronously
+     * List DTOs for summaries, with the metadata of all of them loaded in one query
      */
-    private void processUrlAsync(String dataSourceId) {
-        // This would be implemented with @Async annotation
-        // For now, we'll simulate processing
-        log.debug("Processing URL asynchronously: {}", dataSourceId);
+    private List<DataSourceDTO> toDTOs(List<DataSourceSummary> summaries) {
+        Map<String, Map<String, String>> metadata = metadataOf(summaries);
+        return summaries.stream()
+                .map(summary -> toDTO(summary, metadata))
+                .collect(Collectors.toList());
+    }
+    
+    private static DataSourceDTO toDTO(DataSourceSummary summary, Map<String, Map<String, String>> metadata) {
+        return DataSourceDTO.fromSummary(summary, metadata.getOrDefault(summary.getId(), Map.of()));
+    }
+    
+    private Map<String, Map<String, String>> metadataOf(List<DataSourceSummary> summaries) {
+        Map<String, Map<String, String>> metadata = new HashMap<>();
+        if (summaries.isEmpty()) {
+            return metadata;
+        }
+        List<String> ids = summaries.stream().map(DataSourceSummary::getId).toList();
+        for (DataSourceSummary.MetadataEntry entry : dataSourceRepository.findMetadataByIdIn(ids)) {
+            metadata.computeIfAbsent(entry.getDataSourceId(), id -> new HashMap<>())
+                    .put(entry.getMetadataKey(), entry.getMetadataValue());
+        }
+        return metadata;
+    }
+    
+    private static boolean isTextFile(String contentType) {
+        return contentType != null && (contentType.startsWith("text/")
+                || contentType.equals("application/json") || contentType.equals("application/xml"));
+    }
+    
+    public record StoredDataSourceFile(Path path, String fileName, String contentType, String etag) {
+    }
+    
+    /**
+     * Streamed text of a data source; closing it closes the reader
+     */
+    public record DataSourceContent(String id, String fileType, String contentSha256, Reader reader)
+            implements Closeable {
+        
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
     }
 }
@@ -5,6 +5,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Deep Research Agent Service
@@ -40,9 +41,8 @@ public class DeepResearchAgentService {
                 throw new RuntimeException("Missing required input: companyName");
             }
             
-            // Generate research strategy
-            String researchStrategy = generateResearchStrategy(companyName, sector, geography, stage, keyQuestions, searchDepth);
-            log.info("Generated research strategy for: {}", companyName);
+            // Generate research strategy while sources are collected and enriched
+            CompletableFuture<String> researchStrategy = generateResearchStrategy(companyName, sector, geography, stage, keyQuestions, searchDepth);
             
             // Execute research across multiple sources
             String marketData = researchMarketData(companyName, sector, geography);
@@ -51,10 +51,15 @@ public class DeepResearchAgentService {
             String financialData = researchFinancialData(companyName);
             
             // Enrich data with AI analysis
-            String enrichedData = dataEnrichmentService.enrichResearchData(marketData, competitorData, industryData, financialData);
+            CompletableFuture<String> enrichedData = dataEnrichmentService.enrichResearchDataAsync(marketData, competitorData, industryData, financialData);
+            
+            researchStrategy.join();
+            log.info("Generated research strategy for: {}", companyName);
             
             // Generate comprehensive report
-            String report = generateResearchReport(companyName, enrichedData, keyQuestions);
+            String report = enrichedData
+                    .thenCompose(enriched -> generateResearchReport(companyName, enriched, keyQuestions))
+                    .join();
             
             log.info("Deep research completed successfully for: {}", companyName);
             return report;
@@ -68,8 +73,8 @@ public class DeepResearchAgentService {
     /**
      * Generate research strategy
      */
-    private String generateResearchStrategy(String companyName, String sector, String geography, 
-                                         String stage, String keyQuestions, String searchDepth) {
+    private CompletableFuture<String> generateResearchStrategy(String companyName, String sector, String geography, 
+                                                              String stage, String keyQuestions, String searchDepth) {
         log.debug("Generating research strategy for: {}", companyName);
         
         String prompt = String.format("""
@@ -94,7 +99,7 @@ public class DeepResearchAgentService {
             Format as a structured research plan with specific data sources and methodologies.
             """, companyName, sector, geography, stage, keyQuestions, searchDepth);
         
-        return aiService.generateText(prompt);
+        return aiService.generateTextAsync(prompt);
     }
     
     /**
@@ -160,7 +165,7 @@ public class DeepResearchAgentService {
     /**
      * Generate research report
      */
-    private String generateResearchReport(String companyName, String enrichedData, String keyQuestions) {
+    private CompletableFuture<String> generateResearchReport(String companyName, String enrichedData, String keyQuestions) {
         log.debug("Generating research report for: {}", companyName);
         
         String prompt = String.format("""
@@ -185,6 +190,6 @@ public class DeepResearchAgentService {
             Format as a professional research report with clear sections and actionable insights.
             """, companyName, enrichedData, keyQuestions);
         
-        return aiService.generateText(prompt);
+        return aiService.generateTextAsync(prompt);
     }
 }
@@ -0,0 +1,184 @@
+package com.aianalyst.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Embedding Batcher
+ *
+ * Merges the texts of concurrent ingestion jobs into shared batches for
+ * {@link EmbeddingService#embedAll}. There are no batcher threads and no batching
+ * window: callers queue their texts and then embed batches drained from the
+ * queue themselves, their own texts together with whatever other callers queued
+ * alongside them. At most {@code concurrency} callers embed at once; the others
+ * wait while their texts are picked up by those that do. The queue is bounded, so
+ * once it is full producers wait for room instead of buffering unbounded text.
+ */
+@Service
+@Slf4j
+public class EmbeddingBatcher {
+    
+    // How long a waiting caller sleeps before checking whether it can embed itself
+    private static final long POLL_MILLIS = 5;
+    
+    private final EmbeddingService embeddingService;
+    private final BlockingQueue<PendingEmbedding> queue;
+    private final Semaphore embedders;
+    private final int maxBatchSize;
+    private final DistributionSummary batchSizes;
+    private final Timer batchTimer;
+    private final Counter blockedSubmissions;
+    
+    public EmbeddingBatcher(EmbeddingService embeddingService,
+                            @Value("${ai.embedding.batching.max-batch-size:64}") int maxBatchSize,
+                            @Value("${ai.embedding.batching.queue-capacity:2048}") int queueCapacity,
+                            @Value("${ai.embedding.batching.concurrency:0}") int concurrency,
+                            MeterRegistry meterRegistry) {
+        if (maxBatchSize < 1 || queueCapacity < 1 || concurrency < 0) {
+            throw new IllegalArgumentException("Invalid embedding batching: maxBatchSize=" + maxBatchSize
+                    + ", queueCapacity=" + queueCapacity + ", concurrency=" + concurrency);
+        }
+        this.embeddingService = embeddingService;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.embedders = new Semaphore(concurrency > 0 ? concurrency : Runtime.getRuntime().availableProcessors());
+        this.maxBatchSize = maxBatchSize;
+        this.batchSizes = DistributionSummary.builder("embedding.batch.size")
+                .description("Texts embedded per batch")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("embedding.batch.duration")
+                .description("Time to embed one batch")
+                .register(meterRegistry);
+        this.blockedSubmissions = Counter.builder("embedding.queue.blocked")
+                .description("Submissions that waited for space in a full embedding queue")
+                .register(meterRegistry);
+        Gauge.builder("embedding.queue.depth", queue, BlockingQueue::size)
+                .description("Texts waiting to be embedded")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Embed texts through the shared batches and wait for all of them, in order
+     */
+    public List<float[]> embedAll(List<String> texts) {
+        List<CompletableFuture<float[]>> futures = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            futures.add(enqueue(new PendingEmbedding(text, new CompletableFuture<>())));
+        }
+        for (CompletableFuture<float[]> future : futures) {
+            await(future);
+        }
+        List<float[]> vectors = new ArrayList<>(texts.size());
+        for (CompletableFuture<float[]> future : futures) {
+            vectors.add(future.join());
+        }
+        return vectors;
+    }
+    
+    public int queueDepth() {
+        return queue.size();
+    }
+    
+    /**
+     * Queue a text, embedding batches while the queue is full and waiting if others
+     * already embed as many as allowed
+     */
+    private CompletableFuture<float[]> enqueue(PendingEmbedding pending) {
+        if (queue.offer(pending)) {
+            return pending.result();
+        }
+        blockedSubmissions.increment();
+        try {
+            while (!queue.offer(pending, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                tryEmbedNextBatch();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for embedding queue capacity", e);
+        }
+        return pending.result();
+    }
+    
+    /**
+     * Embed queued batches until {@code future} is done. Once the queue is empty, all
+     * of this caller's texts are in batches that are already being embedded.
+     */
+    private void await(CompletableFuture<float[]> future) {
+        while (!future.isDone()) {
+            Drain drain = tryEmbedNextBatch();
+            if (drain == Drain.EMPTY) {
+                return;
+            }
+            if (drain == Drain.BUSY) {
+                try {
+                    future.get(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException | ExecutionException e) {
+                    // Still queued, or failed; either way the loop or the caller's join sees it
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while waiting for embeddings", e);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Embed up to one batch of queued texts if fewer than {@code concurrency} callers
+     * are embedding
+     */
+    private Drain tryEmbedNextBatch() {
+        if (!embedders.tryAcquire()) {
+            return Drain.BUSY;
+        }
+        List<PendingEmbedding> batch = new ArrayList<>(maxBatchSize);
+        try {
+            queue.drainTo(batch, maxBatchSize);
+            if (batch.isEmpty()) {
+                return Drain.EMPTY;
+            }
+            embedBatch(batch);
+            return Drain.EMBEDDED;
+        } finally {
+            embedders.release();
+        }
+    }
+    
+    private void embedBatch(List<PendingEmbedding> batch) {
+        batchSizes.record(batch.size());
+        try {
+            List<String> texts = batch.stream().map(PendingEmbedding::text).toList();
+            List<float[]> vectors = batchTimer.recordCallable(() -> embeddingService.embedAll(texts));
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result().complete(vectors.get(i));
+            }
+        } catch (Exception e) {
+            log.error("Error embedding batch of {} texts: {}", batch.size(), e.getMessage(), e);
+            batch.forEach(pending -> pending.result().completeExceptionally(e));
+        }
+    }
+    
+    private record PendingEmbedding(String text, CompletableFuture<float[]> result) {
+    }
+    
+    private enum Drain {
+        EMBEDDED,
+        EMPTY,
+        // As many callers as allowed are embedding already
+        BUSY
+    }
+}
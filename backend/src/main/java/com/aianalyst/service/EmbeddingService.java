@@ -0,0 +1,96 @@
+package com.aianalyst.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Embedding Service
+ *
+ * Turns text into fixed-size vectors for the vector store. Embeddings are computed
+ * in process by feature hashing: word unigrams and bigrams are hashed into signed
+ * buckets and the result is L2-normalized, so texts that share vocabulary land
+ * close together under cosine distance without a network round-trip.
+ */
+@Service
+@Slf4j
+public class EmbeddingService {
+    
+    private final int dimension;
+    
+    public EmbeddingService(@Value("${ai.vectorstore.mongodb.dimension:1536}") int dimension) {
+        this.dimension = dimension;
+    }
+    
+    /**
+     * Embed a piece of text
+     */
+    public float[] embed(String text) {
+        float[] vector = new float[dimension];
+        String[] tokens = text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+");
+        String previous = null;
+        for (String token : tokens) {
+            if (token.isEmpty()) {
+                continue;
+            }
+            addFeature(vector, token.hashCode(), 1f);
+            if (previous != null) {
+                addFeature(vector, (previous + ' ' + token).hashCode(), 0.5f);
+            }
+            previous = token;
+        }
+        normalize(vector);
+        return vector;
+    }
+    
+    /**
+     * Embed a batch of texts, in order
+     */
+    public List<float[]> embedAll(List<String> texts) {
+        List<float[]> vectors = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            vectors.add(embed(text));
+        }
+        return vectors;
+    }
+    
+    public int dimension() {
+        return dimension;
+    }
+    
+    private void addFeature(float[] vector, int hash, float weight) {
+        int mixed = mix(hash);
+        int bucket = Math.floorMod(mixed, dimension);
+        vector[bucket] += (mixed & 0x40000000) == 0 ? weight : -weight;
+    }
+    
+    /**
+     * Murmur3 finalizer, so similar strings spread across buckets
+     */
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+    
+    private static void normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        if (norm == 0) {
+            return;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= scale;
+        }
+    }
+}
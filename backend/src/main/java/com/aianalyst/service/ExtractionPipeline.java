@@ -0,0 +1,336 @@
+package com.aianalyst.service;
+
+import com.aianalyst.entity.BlobEntity;
+import com.aianalyst.entity.DataSourceEntity;
+import com.aianalyst.repository.DataSourceRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Extraction Pipeline
+ *
+ * Extracts the text of uploaded files off the request path. Each blob is extracted
+ * once, by a bounded pool of workers, into a text file next to it; data sources
+ * waiting on the blob then move from PROCESSING to COMPLETED, or to FAILED if the
+ * document could not be parsed. A document that runs past
+ * {@code storage.extraction.timeout} is failed and its worker interrupted. Files larger than
+ * {@code max-file-size} are not parsed. Uploads the queue cannot take during a
+ * burst, or left PROCESSING by a restart, are picked up again by a periodic sweep.
+ * Status changes are bulk updates that bypass the entity listeners, so completed
+ * uploads are indexed for search here.
+ * In {@code forked} mode, the default, documents are parsed by
+ * {@link ForkedExtractionWorkers} instead of in this JVM, and a timed-out parse is
+ * ended by killing its worker. In {@code in-process} mode the timeout only
+ * interrupts the parser, which Tika and PDFBox mostly ignore: a hostile document
+ * keeps its extraction thread until the parser returns, and as many such documents
+ * as there are workers stall all extraction. Those threads are counted by the
+ * {@code extraction.workers.stuck} gauge and logged as errors, so in-process mode
+ * is only suited to trusted uploads.
+ */
+@Service
+@Slf4j
+public class ExtractionPipeline {
+    
+    private final TextExtractionService textExtractionService;
+    private final ForkedExtractionWorkers forkedWorkers;
+    private final BlobStoreService blobStoreService;
+    private final DataSourceRepository dataSourceRepository;
+    private final HybridSearchService hybridSearchService;
+    private final ThreadPoolTaskExecutor executor;
+    private final ScheduledExecutorService watchdog;
+    private final Map<String, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+    // Timed-out in-process extractions whose parser has not returned yet
+    private final Set<ExtractionTask> overrun = ConcurrentHashMap.newKeySet();
+    private final Duration timeout;
+    private final long maxFileSize;
+    private final Duration sweepDelay;
+    private final Timer extractionTimer;
+    private final Counter timeouts;
+    private final Counter failures;
+    
+    public ExtractionPipeline(TextExtractionService textExtractionService,
+                              Optional<ForkedExtractionWorkers> forkedWorkers,
+                              BlobStoreService blobStoreService,
+                              DataSourceRepository dataSourceRepository,
+                              HybridSearchService hybridSearchService,
+                              @Qualifier("extractionExecutor") ThreadPoolTaskExecutor executor,
+                              @Value("${storage.extraction.timeout:120s}") Duration timeout,
+                              @Value("${storage.extraction.max-file-size:200MB}") DataSize maxFileSize,
+                              @Value("${storage.extraction.sweep-delay:5m}") Duration sweepDelay,
+                              MeterRegistry meterRegistry) {
+        this.textExtractionService = textExtractionService;
+        this.forkedWorkers = forkedWorkers.orElse(null);
+        this.blobStoreService = blobStoreService;
+        this.dataSourceRepository = dataSourceRepository;
+        this.hybridSearchService = hybridSearchService;
+        this.executor = executor;
+        this.timeout = timeout;
+        this.maxFileSize = maxFileSize.toBytes();
+        this.sweepDelay = sweepDelay;
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "extraction-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.extractionTimer = Timer.builder("extraction.duration")
+                .description("Time to extract the text of one document")
+                .register(meterRegistry);
+        this.timeouts = Counter.builder("extraction.timeouts")
+                .description("Documents interrupted for running past the extraction timeout")
+                .register(meterRegistry);
+        this.failures = Counter.builder("extraction.failures")
+                .description("Documents whose text could not be extracted")
+                .register(meterRegistry);
+        Gauge.builder("extraction.queue.depth", executor, pool -> pool.getThreadPoolExecutor().getQueue().size())
+                .description("Documents waiting for an extraction worker")
+                .register(meterRegistry);
+        Gauge.builder("extraction.workers.stuck", overrun, Set::size)
+                .description("Extraction threads still held by a timed-out in-process parse")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Extract the text of a data source's blob and settle its status. Uploads of the
+     * same content share one extraction.
+     */
+    public void submit(String dataSourceId, String sha256) {
+        CompletableFuture<Void> created = new CompletableFuture<>();
+        CompletableFuture<Void> extraction = inFlight.putIfAbsent(sha256, created);
+        if (extraction == null) {
+            extraction = created;
+            created.whenComplete((ignored, error) -> inFlight.remove(sha256, created));
+            start(sha256, created);
+        }
+        extraction.whenComplete((ignored, error) -> settle(dataSourceId, error));
+    }
+    
+    /**
+     * Resubmit uploads still PROCESSING after the sweep delay, as far as the queue has room
+     */
+    @Scheduled(fixedDelayString = "${storage.extraction.sweep-interval:60000}")
+    public void sweep() {
+        int room = executor.getThreadPoolExecutor().getQueue().remainingCapacity();
+        if (room == 0) {
+            return;
+        }
+        List<String> pending = dataSourceRepository.findPendingExtractionIds(
+                LocalDateTime.now().minus(sweepDelay), PageRequest.of(0, room));
+        for (String dataSourceId : pending) {
+            dataSourceRepository.findById(dataSourceId)
+                    .filter(entity -> !inFlight.containsKey(entity.getContentSha256()))
+                    .ifPresent(entity -> submit(entity.getId(), entity.getContentSha256()));
+        }
+        if (!pending.isEmpty()) {
+            log.info("Resubmitted {} uploads waiting for text extraction", pending.size());
+        }
+    }
+    
+    @PreDestroy
+    public void stop() {
+        watchdog.shutdownNow();
+    }
+    
+    private void start(String sha256, CompletableFuture<Void> result) {
+        try {
+            executor.execute(new ExtractionTask(sha256, result));
+        } catch (RejectedExecutionException e) {
+            log.warn("Extraction queue is full, blob {} will be picked up by the next sweep", sha256);
+            result.completeExceptionally(e);
+        }
+    }
+    
+    private void settle(String dataSourceId, Throwable error) {
+        if (error instanceof RejectedExecutionException) {
+            return;
+        }
+        DataSourceEntity.DataSourceStatus status = error == null
+                ? DataSourceEntity.DataSourceStatus.COMPLETED
+                : DataSourceEntity.DataSourceStatus.FAILED;
+        try {
+            if (dataSourceRepository.finishProcessing(dataSourceId, status, LocalDateTime.now()) == 0) {
+                return;
+            }
+            log.info("Data source {} {}", dataSourceId, error == null
+                    ? "extracted" : "failed extraction: " + error.getMessage());
+        } catch (RuntimeException e) {
+            log.error("Failed to update status of data source {}: {}", dataSourceId, e.getMessage());
+            return;
+        }
+        if (error == null) {
+            index(dataSourceId);
+        }
+    }
+    
+    /**
+     * Reindex a data source with its extracted text
+     */
+    private void index(String dataSourceId) {
+        try {
+            dataSourceRepository.findById(dataSourceId).ifPresent(hybridSearchService::indexDataSource);
+        } catch (RuntimeException e) {
+            log.warn("Failed to index data source {} for search: {}", dataSourceId, e.getMessage());
+        }
+    }
+    
+    /**
+     * Write a blob's text to a file next to it and record it on the blob
+     */
+    private void extract(String sha256) throws IOException {
+        BlobEntity blob = blobStoreService.find(sha256).orElse(null);
+        if (blob == null || blob.getTextPath() != null) {
+            return;
+        }
+        if (!textExtractionService.isExtractable(blob.getContentType())) {
+            log.debug("Blob {} of type {} has no text to extract", sha256, blob.getContentType());
+            return;
+        }
+        if (blob.getFileSize() > maxFileSize) {
+            throw new IOException("File of " + blob.getFileSize() + " bytes exceeds the extraction limit of "
+                    + maxFileSize + " bytes");
+        }
+        
+        Path source = Paths.get(blob.getFilePath());
+        Path text = Paths.get(blob.getFilePath() + ".txt");
+        // A timed-out attempt may still be writing its own partial file
+        Path partial = Paths.get(text + "." + UUID.randomUUID() + ".part");
+        Timer.Sample sample = Timer.start();
+        try {
+            try (Writer out = Files.newBufferedWriter(partial, StandardCharsets.UTF_8)) {
+                if (forkedWorkers != null) {
+                    forkedWorkers.extractTo(source, source.getFileName().toString(), blob.getContentType(), out);
+                } else {
+                    try (InputStream in = Files.newInputStream(source)) {
+                        textExtractionService.extractTo(in, source.getFileName().toString(),
+                                blob.getContentType(), out);
+                    }
+                }
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("Extraction of blob " + sha256 + " was interrupted");
+            }
+            Files.move(partial, text, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(partial);
+            sample.stop(extractionTimer);
+        }
+        if (!blobStoreService.saveTextPath(sha256, text.toString())) {
+            // The blob was deleted while it was being extracted
+            Files.deleteIfExists(text);
+        }
+    }
+    
+    /**
+     * Extraction of one blob, interrupted if it runs past the timeout. The timer
+     * starts when a worker picks the task up, not while it waits in the queue.
+     */
+    private final class ExtractionTask extends FutureTask<Void> {
+        
+        private final String sha256;
+        private final CompletableFuture<Void> result;
+        private volatile boolean returned;
+        
+        ExtractionTask(String sha256, CompletableFuture<Void> result) {
+            super(() -> {
+                extract(sha256);
+                return null;
+            });
+            this.sha256 = sha256;
+            this.result = result;
+        }
+        
+        @Override
+        public void run() {
+            ScheduledFuture<?> timer = watchdog.schedule(this::timeOut, timeout.toMillis(), TimeUnit.MILLISECONDS);
+            try {
+                super.run();
+            } finally {
+                returned = true;
+                timer.cancel(false);
+                if (overrun.remove(this)) {
+                    log.info("Timed-out extraction of blob {} returned its worker", sha256);
+                }
+            }
+        }
+        
+        /**
+         * Fail the extraction and interrupt it. A forked worker is killed at the same
+         * timeout; an in-process parser may keep running, so it is tracked until it returns.
+         */
+        private void timeOut() {
+            if (forkedWorkers != null) {
+                cancel(true);
+                return;
+            }
+            // Counted before the data source fails, so the gauge already shows the held worker
+            overrun.add(this);
+            cancel(true);
+            if (returned) {
+                overrun.remove(this);
+                return;
+            }
+            watchdog.schedule(() -> {
+                if (overrun.contains(this)) {
+                    log.error("Extraction of blob {} ignored its interrupt and still holds a worker {} after timing "
+                            + "out; {} of {} extraction workers are stuck. Use storage.extraction.mode=forked for "
+                            + "untrusted uploads.", sha256, timeout, overrun.size(), executor.getMaxPoolSize());
+                }
+            }, timeout.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        
+        @Override
+        protected void done() {
+            if (isCancelled()) {
+                timeouts.increment();
+                log.warn("Extraction of blob {} timed out after {}", sha256, timeout);
+                result.completeExceptionally(new TimeoutException("Extraction timed out after " + timeout));
+                return;
+            }
+            try {
+                get();
+                result.complete(null);
+            } catch (Exception e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                failures.increment();
+                log.warn("Extraction of blob {} failed: {}", sha256, cause.getMessage());
+                result.completeExceptionally(cause);
+            }
+        }
+    }
+}
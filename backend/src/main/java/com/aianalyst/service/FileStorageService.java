@@ -1,15 +1,32 @@
 package com.aianalyst.service;
 
+import com.aianalyst.ingestion.TeeInputStream;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.UUID;
 
 /**
@@ -28,6 +45,9 @@ public class FileStorageService {
     @Value("${storage.type:local}")
     private String storageType;
     
+    @Value("${spring.servlet.multipart.max-file-size:100MB}")
+    private DataSize maxFileSize;
+    
     /**
      * Store uploaded file
      */
@@ -38,24 +58,124 @@ public class FileStorageService {
             throw new RuntimeException("File is empty");
         }
         
-        // Generate unique filename
-        String originalFilename = file.getOriginalFilename();
-        String extension = getFileExtension(originalFilename);
-        String filename = UUID.randomUUID().toString() + extension;
-        
-        // Create storage directory if it doesn't exist
+        try (InputStream in = file.getInputStream()) {
+            return storeStream(in, file.getOriginalFilename(), file.getSize()).path();
+        }
+    }
+    
+    /**
+     * Store a stream in one pass. Bytes are written to storage and hashed as they are
+     * read; text is extracted later from the stored blob by {@link ExtractionPipeline}.
+     */
+    public StoredFile storeStream(InputStream body, String originalFilename, long expectedSize) throws IOException {
         Path storageDir = Paths.get(storagePath);
-        if (!Files.exists(storageDir)) {
-            Files.createDirectories(storageDir);
+        Files.createDirectories(storageDir);
+        Path target = storageDir.resolve(UUID.randomUUID() + getFileExtension(originalFilename));
+        Path partial = storageDir.resolve(target.getFileName() + ".part");
+        
+        MessageDigest digest = sha256();
+        long size;
+        try (OutputStream out = new DigestOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(partial), 64 * 1024), digest)) {
+            TeeInputStream tee = new TeeInputStream(body, out, maxFileSize.toBytes());
+            tee.drain();
+            size = tee.count();
+        } catch (TeeInputStream.LimitExceededException e) {
+            Files.deleteIfExists(partial);
+            throw new MaxUploadSizeExceededException(e.maxBytes(), e);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(partial);
+            throw e;
+        }
+        if (size == 0) {
+            Files.deleteIfExists(partial);
+            throw new RuntimeException("File is empty");
+        }
+        if (expectedSize >= 0 && size != expectedSize) {
+            Files.deleteIfExists(partial);
+            throw new IOException("Upload of " + originalFilename + " is incomplete: received " + size
+                    + " of " + expectedSize + " bytes");
         }
+        Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE);
         
-        // Store file
-        Path targetLocation = storageDir.resolve(filename);
-        Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
+        String sha256 = HexFormat.of().formatHex(digest.digest());
+        log.info("File stored successfully at: {} ({} bytes, sha256 {})", target, size, sha256);
+        return new StoredFile(target.toString(), size, sha256);
+    }
+    
+    /**
+     * Create the empty file a chunked upload is assembled in
+     */
+    public String createUploadFile(String uploadId) throws IOException {
+        Path uploadDir = Paths.get(storagePath, "uploads");
+        Files.createDirectories(uploadDir);
+        Path target = uploadDir.resolve(uploadId + ".part");
+        Files.deleteIfExists(target);
+        Files.createFile(target);
+        return target.toString();
+    }
+    
+    /**
+     * Write exactly {@code length} bytes of a body at a position in a file and return
+     * their SHA-256. Writes are positional, so chunks of one file can be written
+     * concurrently and a chunk can be written again.
+     */
+    public String writeAt(String filePath, long position, InputStream body, int length) throws IOException {
+        MessageDigest digest = sha256();
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.WRITE)) {
+            long written = 0;
+            while (written < length) {
+                int read = body.read(buffer.array(), 0, (int) Math.min(buffer.capacity(), length - written));
+                if (read == -1) {
+                    throw new IllegalArgumentException("Chunk is incomplete: received " + written
+                            + " of " + length + " bytes");
+                }
+                digest.update(buffer.array(), 0, read);
+                buffer.limit(read).position(0);
+                while (buffer.hasRemaining()) {
+                    written += channel.write(buffer, position + written);
+                }
+                buffer.clear();
+            }
+        }
+        if (body.read() != -1) {
+            throw new IllegalArgumentException("Chunk is larger than " + length + " bytes");
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+    
+    /**
+     * Store a file that was assembled on disk, such as a completed chunked upload.
+     * The file is read once to hash it and then moved into storage.
+     */
+    public StoredFile adoptFile(String filePath, String originalFilename) throws IOException {
+        Path source = Paths.get(filePath);
+        MessageDigest digest = sha256();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(source), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
         
-        String filePath = targetLocation.toString();
-        log.info("File stored successfully at: {}", filePath);
-        return filePath;
+        Path target = Paths.get(storagePath).resolve(UUID.randomUUID() + getFileExtension(originalFilename));
+        Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        long size = Files.size(target);
+        String sha256 = HexFormat.of().formatHex(digest.digest());
+        log.info("Assembled file stored at: {} ({} bytes, sha256 {})", target, size, sha256);
+        return new StoredFile(target.toString(), size, sha256);
+    }
+    
+    /**
+     * Move a stored file into the blob area under its content hash. The stored file
+     * name is kept as a suffix, so content that is deleted and uploaded again gets a
+     * new path that a late delete of the old blob cannot remove.
+     */
+    public String moveToBlob(String filePath, String sha256) throws IOException {
+        Path source = Paths.get(filePath);
+        Path blobDir = Paths.get(storagePath, "blobs", sha256.substring(0, 2));
+        Files.createDirectories(blobDir);
+        Path target = blobDir.resolve(sha256 + "-" + source.getFileName());
+        Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        return target.toString();
     }
     
     /**
@@ -77,14 +197,22 @@ public class FileStorageService {
     }
     
     /**
-     * Get file content as byte array
+     * Copy a byte range of a file to an output stream with FileChannel.transferTo,
+     * so the file is never buffered on the heap
      */
-    public byte[] getFileContent(String filePath) throws IOException {
-        Path path = Paths.get(filePath);
-        if (!Files.exists(path)) {
-            throw new RuntimeException("File not found: " + filePath);
+    public void transferTo(Path file, long position, long count, OutputStream out) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long sent = 0;
+            while (sent < count) {
+                long transferred = channel.transferTo(position + sent, count - sent, target);
+                if (transferred <= 0) {
+                    throw new EOFException("File " + file + " ended before byte " + (position + count));
+                }
+                sent += transferred;
+            }
         }
-        return Files.readAllBytes(path);
+        out.flush();
     }
     
     /**
@@ -145,4 +273,15 @@ public class FileStorageService {
                 return new String[]{".pdf", ".docx", ".doc", ".ppt", ".pptx", ".txt", ".mp4", ".mp3", ".jpg", ".png"};
         }
     }
+    
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    public record StoredFile(String path, long size, String sha256) {
+    }
 }
@@ -0,0 +1,297 @@
+package com.aianalyst.service;
+
+import com.aianalyst.ingestion.ExtractionWorkerMain;
+import com.aianalyst.ingestion.ExtractionWorkerProtocol;
+import com.aianalyst.ingestion.ExtractionWorkerProtocol.FrameInputStream;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarFile;
+
+/**
+ * Forked Extraction Workers
+ *
+ * Runs Tika in child JVMs when {@code storage.extraction.mode} is {@code forked},
+ * the default, so a hostile document can spin a CPU or exhaust a heap without
+ * touching the API JVM. Each worker has its own {@code -Xmx} and exits on OutOfMemoryError. A worker
+ * still busy after the extraction timeout is killed. Workers are started on demand,
+ * up to one per extraction thread, kept warm between documents, replaced after
+ * {@code max-documents}, and stopped after {@code idle-timeout} without work.
+ */
+@Service
+@ConditionalOnProperty(name = "storage.extraction.mode", havingValue = "forked", matchIfMissing = true)
+@Slf4j
+public class ForkedExtractionWorkers {
+    
+    private static final String BOOT_LAUNCHER = "org.springframework.boot.loader.launch.PropertiesLauncher";
+    
+    private final List<String> command;
+    private final Semaphore slots;
+    private final BlockingDeque<Worker> idle = new LinkedBlockingDeque<>();
+    private final Set<Worker> running = ConcurrentHashMap.newKeySet();
+    private final Duration timeout;
+    private final int maxDocumentsPerWorker;
+    private final Duration idleTimeout;
+    private final ScheduledExecutorService watchdog;
+    private final Counter started;
+    private final Counter killed;
+    
+    public ForkedExtractionWorkers(@Value("${storage.extraction.workers:4}") int maxWorkers,
+                                   @Value("${storage.extraction.timeout:120s}") Duration timeout,
+                                   @Value("${storage.extraction.max-chars:5000000}") int maxChars,
+                                   @Value("${storage.extraction.max-memory-per-document:64MB}") DataSize maxMemory,
+                                   @Value("${storage.extraction.forked.heap:512MB}") DataSize heap,
+                                   @Value("${storage.extraction.forked.max-documents:200}") int maxDocumentsPerWorker,
+                                   @Value("${storage.extraction.forked.idle-timeout:10m}") Duration idleTimeout,
+                                   MeterRegistry meterRegistry) {
+        this.command = workerCommand(heap, maxChars, maxMemory);
+        this.slots = new Semaphore(maxWorkers);
+        this.timeout = timeout;
+        this.maxDocumentsPerWorker = maxDocumentsPerWorker;
+        this.idleTimeout = idleTimeout;
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "extraction-worker-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.started = Counter.builder("extraction.workers.started")
+                .description("Extraction worker JVMs started")
+                .register(meterRegistry);
+        this.killed = Counter.builder("extraction.workers.killed")
+                .description("Extraction worker JVMs killed for running past the timeout")
+                .register(meterRegistry);
+        Gauge.builder("extraction.workers.running", running, Set::size)
+                .description("Extraction worker JVMs alive")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Write the text of a document to {@code out} using a worker JVM; returns whether
+     * the text was truncated. Waits for a worker if all of them are busy.
+     */
+    public boolean extractTo(Path source, String filename, String contentType, Writer out) throws IOException {
+        try {
+            slots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for an extraction worker");
+        }
+        Worker worker = null;
+        boolean reusable = false;
+        try {
+            worker = idle.pollFirst();
+            if (worker == null || !worker.process.isAlive()) {
+                if (worker != null) {
+                    worker.stop();
+                }
+                worker = start();
+            }
+            Worker current = worker;
+            ScheduledFuture<?> kill = watchdog.schedule(() -> {
+                killed.increment();
+                log.warn("Killing extraction worker {} after {} on {}", current.process.pid(), timeout, filename);
+                current.process.destroyForcibly();
+            }, timeout.toMillis(), TimeUnit.MILLISECONDS);
+            try {
+                boolean truncated = worker.extract(source, filename, contentType, out);
+                reusable = true;
+                return truncated;
+            } catch (DocumentException e) {
+                // The worker reported a parse failure and is still usable
+                reusable = true;
+                throw new IOException(e.getMessage(), e);
+            } catch (IOException e) {
+                throw new IOException("Extraction worker failed on " + filename
+                        + (worker.process.isAlive() ? ": " + e.getMessage() : ", worker exited"), e);
+            } finally {
+                kill.cancel(false);
+            }
+        } finally {
+            if (worker != null) {
+                if (reusable && worker.process.isAlive() && worker.documents < maxDocumentsPerWorker) {
+                    idle.offerFirst(worker);
+                } else {
+                    worker.stop();
+                }
+            }
+            slots.release();
+        }
+    }
+    
+    /**
+     * Stop workers that have been idle for longer than the idle timeout
+     */
+    @Scheduled(fixedDelayString = "${storage.extraction.forked.idle-check-interval:60000}")
+    public void stopIdleWorkers() {
+        long cutoff = System.nanoTime() - idleTimeout.toNanos();
+        for (Worker worker : idle) {
+            if (worker.lastUsed - cutoff < 0 && idle.remove(worker)) {
+                log.debug("Stopping idle extraction worker {}", worker.process.pid());
+                worker.stop();
+            }
+        }
+    }
+    
+    @PreDestroy
+    public void stop() {
+        watchdog.shutdownNow();
+        running.forEach(Worker::stop);
+    }
+    
+    int runningWorkers() {
+        return running.size();
+    }
+    
+    private Worker start() throws IOException {
+        Process process = new ProcessBuilder(command)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        Worker worker = new Worker(process);
+        running.add(worker);
+        // Parser warm-up happens before READY; a worker that never gets there is killed
+        ScheduledFuture<?> kill = watchdog.schedule(process::destroyForcibly, timeout.toMillis(),
+                TimeUnit.MILLISECONDS);
+        try {
+            int ready = worker.responses.read();
+            if (ready != ExtractionWorkerProtocol.READY) {
+                throw new IOException("Extraction worker failed to start (exit " +
+                        (process.isAlive() ? "pending" : process.exitValue()) + ")");
+            }
+        } catch (IOException e) {
+            worker.stop();
+            throw e;
+        } finally {
+            kill.cancel(false);
+        }
+        started.increment();
+        log.info("Started extraction worker {}", process.pid());
+        return worker;
+    }
+    
+    /**
+     * Command that starts a worker JVM on the API's own classpath, through the Boot
+     * launcher when the API runs from an executable jar
+     */
+    static List<String> workerCommand(DataSize heap, int maxChars, DataSize maxMemory) {
+        String classpath = System.getProperty("java.class.path");
+        List<String> command = new ArrayList<>(List.of(
+                Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-Xmx" + heap.toMegabytes() + "m",
+                "-XX:+ExitOnOutOfMemoryError",
+                "-XX:+UseSerialGC",
+                "-XX:TieredStopAtLevel=1",
+                "-Djava.awt.headless=true",
+                "-D" + ExtractionWorkerMain.MAX_CHARS_PROPERTY + "=" + maxChars,
+                "-D" + ExtractionWorkerMain.MAX_MEMORY_PROPERTY + "=" + maxMemory.toBytes(),
+                "-cp", classpath));
+        if (isBootJar(classpath)) {
+            command.add("-Dloader.main=" + ExtractionWorkerMain.class.getName());
+            command.add(BOOT_LAUNCHER);
+        } else {
+            command.add(ExtractionWorkerMain.class.getName());
+        }
+        return command;
+    }
+    
+    private static boolean isBootJar(String classpath) {
+        if (classpath.contains(File.pathSeparator) || !classpath.endsWith(".jar")) {
+            return false;
+        }
+        try (JarFile jar = new JarFile(classpath)) {
+            return jar.getEntry("BOOT-INF/") != null;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+    
+    private final class Worker {
+        
+        private final Process process;
+        private final DataOutputStream requests;
+        private final DataInputStream responses;
+        private int documents;
+        private volatile long lastUsed = System.nanoTime();
+        
+        Worker(Process process) {
+            this.process = process;
+            this.requests = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+            this.responses = new DataInputStream(new BufferedInputStream(process.getInputStream(), 64 * 1024));
+        }
+        
+        boolean extract(Path source, String filename, String contentType, Writer out) throws IOException {
+            documents++;
+            requests.writeUTF(source.toAbsolutePath().toString());
+            requests.writeUTF(filename != null ? filename : "");
+            requests.writeUTF(contentType != null ? contentType : "");
+            requests.flush();
+            
+            FrameInputStream frames = new FrameInputStream(responses);
+            new InputStreamReader(frames, StandardCharsets.UTF_8).transferTo(out);
+            lastUsed = System.nanoTime();
+            if (frames.error() != null) {
+                throw new DocumentException(frames.error());
+            }
+            return frames.truncated();
+        }
+        
+        void stop() {
+            running.remove(this);
+            try {
+                // Closing stdin lets an idle worker exit on its own
+                requests.close();
+            } catch (IOException e) {
+                log.debug("Failed to close extraction worker input: {}", e.getMessage());
+            }
+            try {
+                if (!process.waitFor(2, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    /**
+     * A document the worker could not parse, as opposed to a worker that failed
+     */
+    private static final class DocumentException extends IOException {
+        
+        DocumentException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package com.aianalyst.service;
+
+import com.aianalyst.dto.DataSourceSummary;
+import com.aianalyst.dto.SearchResultDTO;
+import com.aianalyst.entity.DataSourceEntity;
+import com.aianalyst.entity.InvestmentMemoEntity;
+import com.aianalyst.repository.DataSourceContentRepository;
+import com.aianalyst.repository.DataSourceRepository;
+import com.aianalyst.repository.InvestmentMemoRepository;
+import com.aianalyst.search.Bm25Index;
+import com.aianalyst.search.RankFusion;
+import com.aianalyst.search.ScoredDocument;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Hybrid Search Service
+ *
+ * Search over a user's data sources and memos. Keyword relevance comes from
+ * per-user BM25 indexes, so exact tickers and company names are found and a query
+ * only reads the posting lists of its terms. Data source content is also embedded
+ * in the vector store; both rankings are combined by reciprocal rank fusion. This
+ * service is the only writer of those embeddings: only the content is embedded, so
+ * uploads stored as the same blob share embeddings, copied instead of recomputed.
+ * Indexes are rebuilt from the database on startup and kept current by
+ * {@link com.aianalyst.search.SearchIndexListener}, whose updates are applied
+ * in order on a single background thread.
+ */
+@Service
+@Slf4j
+public class HybridSearchService {
+    
+    static final String DATA_SOURCE_PREFIX = "datasource:";
+    private static final int REBUILD_PAGE_SIZE = 200;
+    private static final Map<String, Float> DATA_SOURCE_FIELDS = Map.of("name", 3f, "description", 2f, "content", 1f);
+    private static final Map<String, Float> MEMO_FIELDS = Map.of("companyName", 3f, "title", 2f);
+    
+    private final DataSourceRepository dataSourceRepository;
+    private final DataSourceContentRepository dataSourceContentRepository;
+    private final InvestmentMemoRepository investmentMemoRepository;
+    private final VectorStoreService vectorStoreService;
+    private final BlobStoreService blobStoreService;
+    private final Executor indexExecutor;
+    
+    // Per-user indexes, so a search never scores another user's documents
+    private final ConcurrentMap<String, Bm25Index> dataSourceIndexes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Bm25Index> memoIndexes = new ConcurrentHashMap<>();
+    // Hash of the content last embedded per data source, so unrelated updates do not re-embed
+    private final ConcurrentMap<String, Integer> embeddedText = new ConcurrentHashMap<>();
+    // Hash of the indexed columns per data source, so list-only updates (selection, status) skip the reload
+    private final ConcurrentMap<String, Integer> indexedColumns = new ConcurrentHashMap<>();
+    
+    public HybridSearchService(DataSourceRepository dataSourceRepository,
+                               DataSourceContentRepository dataSourceContentRepository,
+                               InvestmentMemoRepository investmentMemoRepository,
+                               VectorStoreService vectorStoreService,
+                               BlobStoreService blobStoreService,
+                               @Qualifier("searchIndexExecutor") Executor indexExecutor) {
+        this.dataSourceRepository = dataSourceRepository;
+        this.dataSourceContentRepository = dataSourceContentRepository;
+        this.investmentMemoRepository = investmentMemoRepository;
+        this.vectorStoreService = vectorStoreService;
+        this.blobStoreService = blobStoreService;
+        this.indexExecutor = indexExecutor;
+    }
+    
+    /**
+     * Load every data source and memo into the indexes
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIndexes() {
+        long start = System.currentTimeMillis();
+        int dataSources = 0;
+        Page<DataSourceEntity> dataSourcePage;
+        int page = 0;
+        do {
+            dataSourcePage = dataSourceRepository.findAll(PageRequest.of(page++, REBUILD_PAGE_SIZE));
+            dataSourcePage.forEach(this::indexDataSource);
+            dataSources += dataSourcePage.getNumberOfElements();
+        } while (dataSourcePage.hasNext());
+        
+        int memos = 0;
+        Page<InvestmentMemoEntity> memoPage;
+        page = 0;
+        do {
+            memoPage = investmentMemoRepository.findAll(PageRequest.of(page++, REBUILD_PAGE_SIZE));
+            memoPage.forEach(this::indexMemo);
+            memos += memoPage.getNumberOfElements();
+        } while (memoPage.hasNext());
+        log.info("Indexed {} data sources and {} memos for search in {} ms",
+                dataSources, memos, System.currentTimeMillis() - start);
+    }
+    
+    /**
+     * Queue a saved data source for indexing. Saves that leave its name, description
+     * and content untouched, such as selection toggles, do not reload its content.
+     */
+    public void indexDataSourceAsync(DataSourceEntity entity) {
+        submit("index data source " + entity.getId(), () -> {
+            if (!Objects.equals(indexedColumns.get(entity.getId()), indexedColumnsOf(entity))) {
+                indexDataSource(entity);
+            }
+        });
+    }
+    
+    public void removeDataSourceAsync(DataSourceEntity entity) {
+        submit("remove data source " + entity.getId(), () -> removeDataSource(entity));
+    }
+    
+    public void indexMemoAsync(InvestmentMemoEntity entity) {
+        submit("index memo " + entity.getId(), () -> indexMemo(entity));
+    }
+    
+    public void removeMemoAsync(InvestmentMemoEntity entity) {
+        submit("remove memo " + entity.getId(), () -> removeMemo(entity));
+    }
+    
+    /**
+     * Index a data source, reloading its content
+     */
+    public void indexDataSource(DataSourceEntity entity) {
+        if (entity.getUserId() == null) {
+            return;
+        }
+        indexedColumns.put(entity.getId(), indexedColumnsOf(entity));
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("name", entity.getName());
+        fields.put("description", entity.getDescription());
+        fields.put("content", contentOf(entity));
+        userIndex(dataSourceIndexes, entity.getUserId(), DATA_SOURCE_FIELDS).put(entity.getId(), fields);
+        embedContent(entity, fields.get("content"));
+    }
+    
+    /**
+     * Embed a data source's content unless it is embedded already. Name and
+     * description are left to keyword search.
+     */
+    private void embedContent(DataSourceEntity entity, String content) {
+        if (content == null) {
+            // Not extracted yet; indexed again once it is
+            return;
+        }
+        String vectorId = DATA_SOURCE_PREFIX + entity.getId();
+        Integer previous = embeddedText.put(entity.getId(), content.hashCode());
+        boolean changed = previous == null ? !vectorStoreService.containsData(vectorId) : previous != content.hashCode();
+        if (!changed) {
+            return;
+        }
+        try {
+            if (entity.getContentSha256() == null || !copyEmbeddings(entity, vectorId)) {
+                try (Writer embeddings = vectorStoreService.openDocument(vectorId)) {
+                    embeddings.write(content);
+                }
+            }
+        } catch (Exception e) {
+            // Keyword search still finds the data source; the next update retries the embedding
+            embeddedText.remove(entity.getId());
+            log.warn("Failed to embed data source {} for search: {}", entity.getId(), e.getMessage());
+        }
+    }
+    
+    /**
+     * Copy embeddings from another data source stored as the same blob, if one has them
+     */
+    private boolean copyEmbeddings(DataSourceEntity entity, String vectorId) {
+        for (String duplicate : dataSourceRepository.findIdsByContentSha256(entity.getContentSha256())) {
+            if (!duplicate.equals(entity.getId())
+                    && vectorStoreService.copyData(DATA_SOURCE_PREFIX + duplicate, vectorId)) {
+                log.debug("Copied embeddings of data source {} from duplicate {}", entity.getId(), duplicate);
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static int indexedColumnsOf(DataSourceEntity entity) {
+        return Objects.hash(entity.getUserId(), entity.getName(), entity.getDescription(), entity.getContentSha256());
+    }
+    
+    /**
+     * Text of a data source; uploads keep theirs once per blob, text sources in their own table
+     */
+    private String contentOf(DataSourceEntity entity) {
+        if (entity.getContentSha256() != null) {
+            return blobStoreService.findText(entity.getContentSha256()).orElse(null);
+        }
+        return dataSourceContentRepository.findContentByDataSourceId(entity.getId()).orElse(null);
+    }
+    
+    public void removeDataSource(DataSourceEntity entity) {
+        Bm25Index index = dataSourceIndexes.get(entity.getUserId());
+        if (index != null) {
+            index.remove(entity.getId());
+        }
+        embeddedText.remove(entity.getId());
+        indexedColumns.remove(entity.getId());
+        vectorStoreService.deleteDataById(DATA_SOURCE_PREFIX + entity.getId());
+    }
+    
+    public void indexMemo(InvestmentMemoEntity entity) {
+        if (entity.getUserId() == null) {
+            return;
+        }
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("companyName", entity.getCompanyName());
+        fields.put("title", entity.getTitle());
+        userIndex(memoIndexes, entity.getUserId(), MEMO_FIELDS).put(entity.getId(), fields);
+    }
+    
+    public void removeMemo(InvestmentMemoEntity entity) {
+        Bm25Index index = memoIndexes.get(entity.getUserId());
+        if (index != null) {
+            index.remove(entity.getId());
+        }
+    }
+    
+    /**
+     * IDs of the user's best matching data sources, fusing keyword and vector rankings
+     */
+    public List<ScoredDocument> searchDataSources(String userId, String query, int limit) {
+        Bm25Index index = dataSourceIndexes.get(userId);
+        if (index == null) {
+            return List.of();
+        }
+        List<String> keywordRanking = ids(index.search(query, limit));
+        
+        // The vector store is shared by all users, so its search only accepts this user's data sources
+        List<String> vectorRanking = vectorStoreService.searchDocuments(query, limit, id ->
+                        id.startsWith(DATA_SOURCE_PREFIX) && index.contains(id.substring(DATA_SOURCE_PREFIX.length())))
+                .stream()
+                .map(id -> id.substring(DATA_SOURCE_PREFIX.length()))
+                .collect(Collectors.toList());
+        return RankFusion.reciprocalRank(List.of(keywordRanking, vectorRanking), RankFusion.DEFAULT_K, limit);
+    }
+    
+    /**
+     * IDs of the user's best matching memos by title and company name
+     */
+    public List<ScoredDocument> searchMemos(String userId, String query, int limit) {
+        Bm25Index index = memoIndexes.get(userId);
+        return index == null ? List.of() : index.search(query, limit);
+    }
+    
+    /**
+     * Data sources and memos in one ranking
+     */
+    public List<SearchResultDTO> search(String userId, String query, int limit) {
+        List<ScoredDocument> dataSources = searchDataSources(userId, query, limit);
+        List<ScoredDocument> memos = searchMemos(userId, query, limit);
+        Map<String, DataSourceSummary> dataSourceSummaries = byId(
+                dataSourceRepository.findSummariesByIdIn(ids(dataSources)), DataSourceSummary::getId);
+        Map<String, InvestmentMemoEntity> memoEntities = byId(
+                investmentMemoRepository.findAllById(ids(memos)), InvestmentMemoEntity::getId);
+        
+        // Prefix IDs so a data source and a memo never collide in the fused ranking
+        List<ScoredDocument> fused = RankFusion.reciprocalRank(List.of(
+                dataSources.stream().map(hit -> "D" + hit.id()).toList(),
+                memos.stream().map(hit -> "M" + hit.id()).toList()), RankFusion.DEFAULT_K, limit);
+        List<SearchResultDTO> results = new ArrayList<>(fused.size());
+        for (ScoredDocument hit : fused) {
+            String id = hit.id().substring(1);
+            if (hit.id().charAt(0) == 'D' && dataSourceSummaries.containsKey(id)) {
+                DataSourceSummary summary = dataSourceSummaries.get(id);
+                results.add(SearchResultDTO.builder()
+                        .type(SearchResultDTO.ResultType.DATA_SOURCE)
+                        .id(id)
+                        .title(summary.getName())
+                        .subtitle(summary.getDescription())
+                        .score(hit.score())
+                        .build());
+            } else if (hit.id().charAt(0) == 'M' && memoEntities.containsKey(id)) {
+                InvestmentMemoEntity entity = memoEntities.get(id);
+                results.add(SearchResultDTO.builder()
+                        .type(SearchResultDTO.ResultType.MEMO)
+                        .id(id)
+                        .title(entity.getTitle())
+                        .subtitle(entity.getCompanyName())
+                        .score(hit.score())
+                        .build());
+            }
+        }
+        return results;
+    }
+    
+    /**
+     * IDs in ranking order
+     */
+    public static List<String> ids(Collection<ScoredDocument> ranking) {
+        return ranking.stream().map(ScoredDocument::id).collect(Collectors.toList());
+    }
+    
+    private void submit(String description, Runnable update) {
+        indexExecutor.execute(() -> {
+            try {
+                update.run();
+            } catch (Exception e) {
+                log.warn("Failed to {} for search: {}", description, e.getMessage(), e);
+            }
+        });
+    }
+    
+    private static Bm25Index userIndex(ConcurrentMap<String, Bm25Index> indexes, String userId,
+                                       Map<String, Float> fields) {
+        return indexes.computeIfAbsent(userId, id -> new Bm25Index(fields));
+    }
+    
+    private static <T> Map<String, T> byId(List<T> entities, Function<T, String> id) {
+        return entities.stream().collect(Collectors.toMap(id, Function.identity()));
+    }
+}
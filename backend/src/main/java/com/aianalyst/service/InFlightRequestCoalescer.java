@@ -0,0 +1,145 @@
+package com.aianalyst.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * In-Flight Request Coalescer
+ *
+ * Single-flight deduplication for AI calls. Concurrent callers with the same
+ * prompt fingerprint share one outstanding request; each caller gets its own
+ * view of the shared future, so cancelling one view never affects the others.
+ * The underlying request is cancelled only when every caller has cancelled.
+ */
+@Service
+@Slf4j
+public class InFlightRequestCoalescer {
+    
+    private final ConcurrentMap<String, Flight> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalescedRequests;
+    
+    public InFlightRequestCoalescer(MeterRegistry meterRegistry) {
+        this.coalescedRequests = Counter.builder("ai.requests.coalesced")
+                .description("AI requests served by joining an identical in-flight request")
+                .register(meterRegistry);
+        Gauge.builder("ai.requests.inflight", inFlight, ConcurrentMap::size)
+                .description("Distinct AI requests currently outstanding")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Join the in-flight request for {@code key}, or start one with {@code call}
+     */
+    public CompletableFuture<String> execute(String key, Supplier<CompletableFuture<String>> call) {
+        while (true) {
+            Flight existing = inFlight.get(key);
+            if (existing != null) {
+                if (existing.subscribe()) {
+                    coalescedRequests.increment();
+                    log.debug("Coalesced AI request onto in-flight call: {}", key);
+                    return existing.view();
+                }
+                // Abandoned flight that is being torn down; replace it
+                inFlight.remove(key, existing);
+                continue;
+            }
+            
+            Flight flight = new Flight(key);
+            if (inFlight.putIfAbsent(key, flight) == null) {
+                flight.subscribe();
+                CompletableFuture<String> view = flight.view();
+                flight.start(call);
+                return view;
+            }
+        }
+    }
+    
+    /**
+     * Number of distinct requests currently outstanding
+     */
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+    
+    private final class Flight {
+        
+        private final String key;
+        private final CompletableFuture<String> shared = new CompletableFuture<>();
+        // Number of callers still waiting; -1 once every caller has cancelled
+        private final AtomicInteger subscribers = new AtomicInteger();
+        private volatile CompletableFuture<String> source;
+        
+        private Flight(String key) {
+            this.key = key;
+        }
+        
+        private void start(Supplier<CompletableFuture<String>> call) {
+            try {
+                source = call.get();
+            } catch (Exception e) {
+                source = CompletableFuture.failedFuture(e);
+            }
+            source.whenComplete((result, error) -> {
+                inFlight.remove(key, this);
+                if (error != null) {
+                    shared.completeExceptionally(error);
+                } else {
+                    shared.complete(result);
+                }
+            });
+            if (subscribers.get() < 0) {
+                source.cancel(true);
+            }
+        }
+        
+        private boolean subscribe() {
+            while (true) {
+                int current = subscribers.get();
+                if (current < 0 || shared.isDone()) {
+                    return false;
+                }
+                if (subscribers.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+        
+        private CompletableFuture<String> view() {
+            CompletableFuture<String> view = new CompletableFuture<>();
+            shared.whenComplete((result, error) -> {
+                if (error != null) {
+                    view.completeExceptionally(error);
+                } else {
+                    view.complete(result);
+                }
+            });
+            view.whenComplete((result, error) -> {
+                if (view.isCancelled()) {
+                    unsubscribe();
+                }
+            });
+            return view;
+        }
+        
+        private void unsubscribe() {
+            if (subscribers.decrementAndGet() == 0 && subscribers.compareAndSet(0, -1)) {
+                log.debug("All callers cancelled AI request: {}", key);
+                inFlight.remove(key, this);
+                shared.cancel(true);
+                CompletableFuture<String> current = source;
+                if (current != null) {
+                    current.cancel(true);
+                }
+            }
+        }
+    }
+}
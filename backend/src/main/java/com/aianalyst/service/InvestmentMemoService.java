@@ -3,7 +3,13 @@ package com.aianalyst.service;
 import com.aianalyst.dto.InvestmentMemoDTO;
 import com.aianalyst.dto.DataSourceDTO;
 import com.aianalyst.entity.InvestmentMemoEntity;
+import com.aianalyst.entity.MemoGenerationJobEntity;
+import com.aianalyst.entity.MemoGenerationJobEntity.JobStatus;
+import com.aianalyst.entity.MemoGenerationJobEntity.JobType;
+import com.aianalyst.entity.MemoSectionEntity;
 import com.aianalyst.repository.InvestmentMemoRepository;
+import com.aianalyst.search.ScoredDocument;
+import com.aianalyst.service.PresentationExportService.PresentationDeck;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
@@ -12,9 +18,14 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -29,10 +40,14 @@ import java.util.stream.Collectors;
 @Transactional
 public class InvestmentMemoService {
     
+    private static final int MAX_SEARCH_RESULTS = 100;
+    
     private final InvestmentMemoRepository investmentMemoRepository;
     private final DataSourceService dataSourceService;
-    private final AIService aiService;
-    private final PPTGenerationService pptGenerationService;
+    private final PresentationExportService presentationExportService;
+    private final MemoGenerationJobService memoGenerationJobService;
+    private final MemoProgressRegistry memoProgressRegistry;
+    private final HybridSearchService hybridSearchService;
     
     /**
      * Get all investment memos for a user
@@ -111,6 +126,7 @@ public class InvestmentMemoService {
         entity.setUpdatedAt(LocalDateTime.now());
         
         InvestmentMemoEntity savedEntity = investmentMemoRepository.save(entity);
+        presentationExportService.evict(savedEntity.getId());
         log.info("Investment memo updated successfully: {}", savedEntity.getId());
         return InvestmentMemoDTO.fromEntity(savedEntity);
     }
@@ -129,9 +145,26 @@ public class InvestmentMemoService {
         }
         
         investmentMemoRepository.delete(entity);
+        presentationExportService.evict(id);
         log.info("Investment memo deleted successfully: {}", id);
     }
     
+    /**
+     * Get the PowerPoint deck for a memo, reusing the cached file when the memo is unchanged
+     */
+    @Transactional(readOnly = true)
+    public PresentationDeck getMemoPresentation(String id, String userId) {
+        log.debug("Preparing PPT for memo: {} for user: {}", id, userId);
+        InvestmentMemoEntity entity = investmentMemoRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Investment memo not found"));
+        
+        if (!entity.getUserId().equals(userId)) {
+            throw new RuntimeException("Access denied");
+        }
+        
+        return presentationExportService.prepare(entity);
+    }
+    
     /**
      * Generate Stage 1 memo from data sources
      */
@@ -149,9 +182,6 @@ public class InvestmentMemoService {
                 throw new RuntimeException("No data sources selected");
             }
             
-            // Generate memo content
-            String memoContent = generateStage1Content(selectedSources);
-            
             // Create memo entity
             InvestmentMemoEntity entity = new InvestmentMemoEntity();
             entity.setId(UUID.randomUUID().toString());
@@ -167,10 +197,11 @@ public class InvestmentMemoService {
             
             InvestmentMemoEntity savedEntity = investmentMemoRepository.save(entity);
             
-            // Generate PPT asynchronously
-            generatePPTAsync(savedEntity.getId(), memoContent);
+            // Content and PPT are generated by the job workers once this transaction commits
+            memoGenerationJobService.enqueue(savedEntity.getId(), userId, JobType.STAGE_1_MEMO,
+                    Map.of("dataSourceIds", selectedSources));
             
-            log.info("Stage 1 memo generated successfully: {}", savedEntity.getId());
+            log.info("Stage 1 memo queued for generation: {}", savedEntity.getId());
             return InvestmentMemoDTO.fromEntity(savedEntity);
             
         } catch (Exception e) {
@@ -194,9 +225,6 @@ public class InvestmentMemoService {
                 throw new RuntimeException("Access denied");
             }
             
-            // Generate curated memo content
-            String memoContent = generateStage2Content(stage1Memo, preferences);
-            
             // Create Stage 2 memo entity
             InvestmentMemoEntity entity = new InvestmentMemoEntity();
             entity.setId(UUID.randomUUID().toString());
@@ -212,10 +240,13 @@ public class InvestmentMemoService {
             
             InvestmentMemoEntity savedEntity = investmentMemoRepository.save(entity);
             
-            // Generate curated memo asynchronously
-            generateCuratedMemoAsync(savedEntity.getId(), memoContent);
+            // Curated content is generated by the job workers once this transaction commits
+            Map<String, Object> payload = new HashMap<>();
+            payload.put("stage1MemoId", stage1MemoId);
+            payload.put("preferences", preferences != null ? preferences : Map.of());
+            memoGenerationJobService.enqueue(savedEntity.getId(), userId, JobType.STAGE_2_MEMO, payload);
             
-            log.info("Stage 2 memo generated successfully: {}", savedEntity.getId());
+            log.info("Stage 2 memo queued for generation: {}", savedEntity.getId());
             return InvestmentMemoDTO.fromEntity(savedEntity);
             
         } catch (Exception e) {
@@ -225,88 +256,145 @@ public class InvestmentMemoService {
     }
     
     /**
-     * Search memos
+     * Regenerate one section or subsection of a curated memo. The request names either
+     * a {@code sectionId} or a {@code subsectionId}, plus optional {@code preferences}
+     * that override those the memo was generated with. Only the target and the
+     * sections that depend on it are recomputed by the job worker.
      */
-    @Transactional(readOnly = true)
-    public List<InvestmentMemoDTO> searchMemos(String query, String userId) {
-        log.debug("Searching memos with query: {} for user: {}", query, userId);
-        return investmentMemoRepository.searchByQuery(userId, query)
-                .stream()
-                .map(InvestmentMemoDTO::fromEntity)
-                .collect(Collectors.toList());
-    }
-    
-    /**
-     * Generate Stage 1 content
-     */
-    private String generateStage1Content(List<String> dataSourceIds) {
-        log.debug("Generating Stage 1 content from {} data sources", dataSourceIds.size());
+    public InvestmentMemoDTO regenerateMemo(String id, Map<String, Object> request, String userId) {
+        log.info("Regenerating memo: {} for user: {}", id, userId);
         
-        String prompt = String.format("""
-            Generate a comprehensive Stage 1 AI-Generated Investment Memo based on the following data sources:
-            
-            Data Source IDs: %s
-            
-            The memo should include all standard investment memo sections:
-            1. Executive Summary
-            2. Company Overview
-            3. Market Analysis
-            4. Business Model
-            5. Financial Analysis
-            6. Competitive Landscape
-            7. Management Team
-            8. Investment Thesis
-            9. Risk Assessment
-            10. Valuation Analysis
-            11. Recommendations
-            
-            Format as a professional investment memo with clear sections and actionable insights.
-            """, String.join(", ", dataSourceIds));
+        InvestmentMemoEntity entity = investmentMemoRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Investment memo not found"));
+        
+        if (!entity.getUserId().equals(userId)) {
+            throw new RuntimeException("Access denied");
+        }
+        if (entity.getStatus() == InvestmentMemoEntity.MemoStatus.GENERATING) {
+            throw new IllegalArgumentException("Memo is already being generated");
+        }
+        
+        String sectionId = (String) request.get("sectionId");
+        String subsectionId = (String) request.get("subsectionId");
+        if ((sectionId == null) == (subsectionId == null)) {
+            throw new IllegalArgumentException("Exactly one of sectionId or subsectionId is required");
+        }
+        
+        MemoSectionEntity section = findRegenerableSection(entity, sectionId, subsectionId);
+        if (CuratedMemoAgentService.sectionFor(section.getType()).isEmpty()) {
+            throw new IllegalArgumentException("Section " + section.getId() + " cannot be regenerated");
+        }
+        
+        // Regeneration runs against the same Stage 1 memo and preferences as the last generation
+        Map<String, Object> previous = memoGenerationJobService
+                .getLatestPayload(id, Set.of(JobType.STAGE_2_MEMO, JobType.REGENERATE_SECTION))
+                .orElseThrow(() -> new IllegalArgumentException("Only curated memos support section regeneration"));
+        
+        Map<String, Object> preferences = new HashMap<>();
+        if (previous.get("preferences") instanceof Map<?, ?> previousPreferences) {
+            previousPreferences.forEach((key, value) -> preferences.put(String.valueOf(key), value));
+        }
+        if (request.get("preferences") instanceof Map<?, ?> requestPreferences) {
+            requestPreferences.forEach((key, value) -> preferences.put(String.valueOf(key), value));
+        }
         
-        return aiService.generateText(prompt);
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("stage1MemoId", previous.get("stage1MemoId"));
+        payload.put("preferences", preferences);
+        if (subsectionId != null) {
+            payload.put("subsectionId", subsectionId);
+        } else {
+            payload.put("sectionId", sectionId);
+        }
+        
+        entity.setStatus(InvestmentMemoEntity.MemoStatus.GENERATING);
+        entity.setUpdatedAt(LocalDateTime.now());
+        InvestmentMemoEntity savedEntity = investmentMemoRepository.save(entity);
+        memoGenerationJobService.enqueue(id, userId, JobType.REGENERATE_SECTION, payload);
+        
+        log.info("Memo regeneration queued: {}", id);
+        return InvestmentMemoDTO.fromEntity(savedEntity);
     }
     
     /**
-     * Generate Stage 2 content
+     * Get generation progress for a memo. Served from the in-memory progress
+     * registry; falls back to the persisted memo and job state when this node
+     * is not tracking the memo (e.g. it is running elsewhere or after a restart).
      */
-    private String generateStage2Content(InvestmentMemoEntity stage1Memo, Map<String, Object> preferences) {
-        log.debug("Generating Stage 2 content from Stage 1 memo: {}", stage1Memo.getId());
+    @Transactional(readOnly = true)
+    public Map<String, Object> getGenerationStatus(String id, String userId) {
+        Optional<MemoProgressRegistry.MemoProgress> tracked = memoProgressRegistry.get(id);
+        if (tracked.isPresent()) {
+            if (!tracked.get().userId().equals(userId)) {
+                throw new RuntimeException("Access denied");
+            }
+            return tracked.get().toMap();
+        }
         
-        String prompt = String.format("""
-            Generate a curated Stage 2 Investment Memo based on the following Stage 1 memo and preferences:
-            
-            Stage 1 Memo: %s
-            Preferences: %s
-            
-            The curated memo should include:
-            1. Founder Profile Analysis
-            2. Problem Sizing and Market Opportunity
-            3. Differentiation and Competitive Advantages
-            4. Company Review and Performance
-            5. Visual Summaries and Charts
-            6. Risk Analysis and Mitigation
-            7. Investment Recommendation
-            8. Customized insights based on preferences
-            
-            Format as a professional curated investment memo with enhanced analysis and visual elements.
-            """, stage1Memo.getTitle(), preferences);
+        InvestmentMemoEntity entity = investmentMemoRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Investment memo not found"));
         
-        return aiService.generateText(prompt);
+        if (!entity.getUserId().equals(userId)) {
+            throw new RuntimeException("Access denied");
+        }
+        
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("memoId", id);
+        switch (entity.getStatus()) {
+            case GENERATING -> {
+                Optional<MemoGenerationJobEntity> latestJob = memoGenerationJobService.getJobs(id).stream().findFirst();
+                boolean running = latestJob.map(job -> job.getStatus() == JobStatus.RUNNING).orElse(false);
+                String lastError = latestJob.map(MemoGenerationJobEntity::getLastError).orElse(null);
+                status.put("status", running ? "generating" : "queued");
+                status.put("progress", 0);
+                if (running) {
+                    status.put("message", "Generating");
+                } else {
+                    status.put("message", lastError != null ? "Retrying after error: " + lastError : "Waiting for a worker");
+                }
+            }
+            case FAILED -> {
+                status.put("status", "failed");
+                status.put("progress", 0);
+                status.put("message", "Generation failed");
+            }
+            default -> {
+                status.put("status", "completed");
+                status.put("progress", 100);
+                status.put("message", "Generation completed successfully");
+            }
+        }
+        return status;
     }
     
     /**
-     * Generate PPT asynchronously
+     * Find the section to regenerate: the named section, or the section holding the named subsection
      */
-    private void generatePPTAsync(String memoId, String content) {
-        // This would be implemented with @Async annotation
-        log.debug("Generating PPT asynchronously for memo: {}", memoId);
+    private MemoSectionEntity findRegenerableSection(InvestmentMemoEntity entity, String sectionId, String subsectionId) {
+        List<MemoSectionEntity> sections = entity.getSections() != null ? entity.getSections() : List.of();
+        return sections.stream()
+                .filter(section -> subsectionId == null
+                        ? section.getId().equals(sectionId)
+                        : section.getSubsections() != null && section.getSubsections().stream()
+                                .anyMatch(subsection -> subsection.getId().equals(subsectionId)))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Section not found in memo"));
     }
     
     /**
-     * Generate curated memo asynchronously
+     * Search memos
      */
-    private void generateCuratedMemoAsync(String memoId, String content) {
-        // This would be implemented with @Async annotation
-        log.debug("Generating curated memo asynchronously for memo: {}", memoId);
+    @Transactional(readOnly = true)
+    public List<InvestmentMemoDTO> searchMemos(String query, String userId) {
+        log.debug("Searching memos with query: {} for user: {}", query, userId);
+        List<ScoredDocument> hits = hybridSearchService.searchMemos(userId, query, MAX_SEARCH_RESULTS);
+        Map<String, InvestmentMemoEntity> entities = investmentMemoRepository.findAllById(HybridSearchService.ids(hits))
+                .stream()
+                .collect(Collectors.toMap(InvestmentMemoEntity::getId, Function.identity()));
+        return hits.stream()
+                .map(hit -> entities.get(hit.id()))
+                .filter(entity -> entity != null && userId.equals(entity.getUserId()))
+                .map(InvestmentMemoDTO::fromEntity)
+                .collect(Collectors.toList());
     }
 }
@@ -0,0 +1,344 @@
+package com.aianalyst.service;
+
+import com.aianalyst.entity.MemoGenerationJobEntity;
+import com.aianalyst.entity.MemoGenerationJobEntity.JobStatus;
+import com.aianalyst.entity.MemoGenerationJobEntity.JobType;
+import com.aianalyst.repository.MemoGenerationJobRepository;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Memo Generation Job Service
+ *
+ * Durable background queue for memo generation. Jobs are persisted before any
+ * work starts, claimed by a bounded worker pool, retried with exponential
+ * backoff, and put back on the queue if the node that claimed them dies. A
+ * running job's lease is renewed by a heartbeat, and its outcome is only
+ * recorded while the run still holds the lease, so a job requeued from under
+ * a slow run is never finished twice.
+ */
+@Service
+@Slf4j
+public class MemoGenerationJobService {
+    
+    private final MemoGenerationJobRepository jobRepository;
+    private final MemoGenerationWorker worker;
+    private final MemoProgressRegistry progressRegistry;
+    private final ThreadPoolTaskExecutor memoJobExecutor;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Semaphore workerSlots;
+    private final String workerId;
+    private final ScheduledExecutorService heartbeats;
+    private final Counter jobsSucceeded;
+    private final Counter jobsRetried;
+    private final Counter jobsFailed;
+    
+    @Value("${memo.jobs.max-attempts:4}")
+    private int maxAttempts;
+    
+    @Value("${memo.jobs.backoff-initial:5000}")
+    private long backoffInitialMs;
+    
+    @Value("${memo.jobs.backoff-max:300000}")
+    private long backoffMaxMs;
+    
+    @Value("${memo.jobs.lease-timeout:900000}")
+    private long leaseTimeoutMs;
+    
+    @Value("${memo.jobs.heartbeat-interval:300000}")
+    private long heartbeatIntervalMs;
+    
+    public MemoGenerationJobService(MemoGenerationJobRepository jobRepository,
+                                    MemoGenerationWorker worker,
+                                    MemoProgressRegistry progressRegistry,
+                                    @Qualifier("memoJobExecutor") ThreadPoolTaskExecutor memoJobExecutor,
+                                    @Value("${memo.jobs.worker-id:}") String workerId,
+                                    MeterRegistry meterRegistry) {
+        this.jobRepository = jobRepository;
+        this.worker = worker;
+        this.progressRegistry = progressRegistry;
+        this.memoJobExecutor = memoJobExecutor;
+        this.workerSlots = new Semaphore(memoJobExecutor.getMaxPoolSize());
+        this.workerId = workerId.isBlank() ? defaultWorkerId() : workerId;
+        this.heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "memo-job-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        this.jobsSucceeded = Counter.builder("memo.jobs")
+                .description("Memo generation job outcomes")
+                .tag("result", "success")
+                .register(meterRegistry);
+        this.jobsRetried = Counter.builder("memo.jobs")
+                .description("Memo generation job outcomes")
+                .tag("result", "retry")
+                .register(meterRegistry);
+        this.jobsFailed = Counter.builder("memo.jobs")
+                .description("Memo generation job outcomes")
+                .tag("result", "failure")
+                .register(meterRegistry);
+        Gauge.builder("memo.jobs.queued", jobRepository, repository -> repository.countByStatus(JobStatus.QUEUED))
+                .description("Memo generation jobs waiting for a worker")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Persist a job and hand it to a worker once the surrounding transaction commits
+     */
+    public MemoGenerationJobEntity enqueue(String memoId, String userId, JobType jobType, Map<String, Object> payload) {
+        MemoGenerationJobEntity job = new MemoGenerationJobEntity();
+        job.setMemoId(memoId);
+        job.setUserId(userId);
+        job.setJobType(jobType);
+        job.setStatus(JobStatus.QUEUED);
+        job.setPayload(writePayload(payload));
+        job.setMaxAttempts(maxAttempts);
+        job.setNextAttemptAt(LocalDateTime.now());
+        
+        MemoGenerationJobEntity saved = jobRepository.save(job);
+        log.info("Queued {} job {} for memo: {}", jobType, saved.getId(), memoId);
+        
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatch();
+                }
+            });
+        } else {
+            dispatch();
+        }
+        return saved;
+    }
+    
+    /**
+     * Claim due jobs while there are free workers. Also runs on a schedule to
+     * pick up retries and jobs queued on other nodes.
+     */
+    @Scheduled(fixedDelayString = "${memo.jobs.poll-interval:2000}")
+    public void dispatch() {
+        while (workerSlots.tryAcquire()) {
+            String jobId = claimNext();
+            if (jobId == null) {
+                workerSlots.release();
+                return;
+            }
+            
+            try {
+                memoJobExecutor.execute(() -> {
+                    try {
+                        run(jobId);
+                    } finally {
+                        workerSlots.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                workerSlots.release();
+                log.warn("Memo job executor rejected job {}, returning it to the queue", jobId);
+                jobRepository.release(jobId, LocalDateTime.now());
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Requeue jobs this node was running before it restarted
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverInterruptedJobs() {
+        LocalDateTime now = LocalDateTime.now();
+        int recovered = jobRepository.requeueAbandoned(workerId, now.minus(Duration.ofMillis(leaseTimeoutMs)), now);
+        if (recovered > 0) {
+            log.warn("Recovered {} interrupted memo generation jobs for worker {}", recovered, workerId);
+        }
+        dispatch();
+    }
+    
+    /**
+     * Requeue jobs whose lease has expired, e.g. because the node running them crashed
+     */
+    @Scheduled(fixedDelayString = "${memo.jobs.lease-check-interval:60000}")
+    public void recoverExpiredLeases() {
+        LocalDateTime now = LocalDateTime.now();
+        int recovered = jobRepository.requeueAbandoned(null, now.minus(Duration.ofMillis(leaseTimeoutMs)), now);
+        if (recovered > 0) {
+            log.warn("Requeued {} memo generation jobs with expired leases", recovered);
+        }
+    }
+    
+    @PreDestroy
+    public void stop() {
+        heartbeats.shutdownNow();
+    }
+    
+    /**
+     * Jobs recorded for a memo, newest first
+     */
+    public List<MemoGenerationJobEntity> getJobs(String memoId) {
+        return jobRepository.findByMemoIdOrderByCreatedAtDesc(memoId);
+    }
+    
+    /**
+     * Payload of the most recent job of one of the given types for a memo
+     */
+    public Optional<Map<String, Object>> getLatestPayload(String memoId, Set<JobType> jobTypes) {
+        return getJobs(memoId).stream()
+                .filter(job -> jobTypes.contains(job.getJobType()))
+                .findFirst()
+                .map(job -> readPayload(job.getPayload()));
+    }
+    
+    private String claimNext() {
+        LocalDateTime now = LocalDateTime.now();
+        for (String candidate : jobRepository.findDueJobIds(now, PageRequest.of(0, 10))) {
+            if (jobRepository.claim(candidate, workerId, now) == 1) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+    
+    private void run(String jobId) {
+        MemoGenerationJobEntity job = jobRepository.findById(jobId).orElse(null);
+        if (job == null) {
+            return;
+        }
+        
+        log.info("Running {} job {} for memo: {} (attempt {}/{})",
+                job.getJobType(), jobId, job.getMemoId(), job.getAttempts(), job.getMaxAttempts());
+        int attempt = job.getAttempts();
+        if (job.getJobType() != JobType.PPT) {
+            progressRegistry.start(job.getMemoId(), job.getUserId(), MemoGenerationWorker.TRACKED_SECTIONS);
+        }
+        ScheduledFuture<?> heartbeat = heartbeats.scheduleWithFixedDelay(() -> renewLease(jobId, attempt),
+                heartbeatIntervalMs, heartbeatIntervalMs, TimeUnit.MILLISECONDS);
+        try {
+            worker.execute(job, readPayload(job.getPayload()));
+        } catch (Exception e) {
+            heartbeat.cancel(false);
+            handleFailure(job, e);
+            return;
+        }
+        heartbeat.cancel(false);
+        
+        if (jobRepository.complete(jobId, workerId, attempt, LocalDateTime.now()) == 0) {
+            log.warn("{} job {} finished after losing its lease; another run owns it now", job.getJobType(), jobId);
+            return;
+        }
+        jobsSucceeded.increment();
+        
+        if (job.getJobType() != JobType.PPT) {
+            // Pre-render the deck so the first download is served from the cache
+            enqueue(job.getMemoId(), job.getUserId(), JobType.PPT, Map.of());
+        }
+    }
+    
+    private void renewLease(String jobId, int attempt) {
+        try {
+            if (jobRepository.renewLease(jobId, workerId, attempt, LocalDateTime.now()) == 0) {
+                log.warn("Memo job {} lost its lease while running; its result will be discarded", jobId);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to renew lease of memo job {}: {}", jobId, e.getMessage());
+        }
+    }
+    
+    private void handleFailure(MemoGenerationJobEntity job, Exception e) {
+        String error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        LocalDateTime now = LocalDateTime.now();
+        if (job.getAttempts() < job.getMaxAttempts()) {
+            LocalDateTime nextAttempt = now.plus(Duration.ofMillis(backoffFor(job.getAttempts())));
+            if (jobRepository.retry(job.getId(), workerId, job.getAttempts(), nextAttempt, error, now) == 0) {
+                log.warn("{} job {} failed after losing its lease: {}", job.getJobType(), job.getId(), error);
+                return;
+            }
+            log.warn("{} job {} failed (attempt {}/{}), retrying at {}: {}",
+                    job.getJobType(), job.getId(), job.getAttempts(), job.getMaxAttempts(), nextAttempt, error);
+            progressRegistry.retrying(job.getMemoId(), job.getAttempts(), error);
+            jobsRetried.increment();
+            return;
+        }
+        
+        if (jobRepository.fail(job.getId(), workerId, job.getAttempts(), error, now) == 0) {
+            log.warn("{} job {} failed after losing its lease: {}", job.getJobType(), job.getId(), error);
+            return;
+        }
+        log.error("{} job {} failed permanently after {} attempts: {}",
+                job.getJobType(), job.getId(), job.getAttempts(), error, e);
+        worker.markFailed(job);
+        if (job.getJobType() == JobType.PPT) {
+            progressRegistry.completed(job.getMemoId(), "Memo ready; presentation will be rendered on download");
+        } else {
+            progressRegistry.failed(job.getMemoId(), error);
+        }
+        jobsFailed.increment();
+    }
+    
+    /**
+     * Exponential backoff with jitter: a random delay in [half, full] of the capped exponential step
+     */
+    private long backoffFor(int attempt) {
+        long exponential = backoffInitialMs << Math.min(attempt - 1, 20);
+        long capped = Math.min(exponential, backoffMaxMs);
+        return capped / 2 + ThreadLocalRandom.current().nextLong(capped / 2 + 1);
+    }
+    
+    private String writePayload(Map<String, Object> payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Job payload is not serializable: " + e.getMessage(), e);
+        }
+    }
+    
+    private Map<String, Object> readPayload(String payload) {
+        if (payload == null || payload.isBlank()) {
+            return Map.of();
+        }
+        try {
+            return objectMapper.readValue(payload, new TypeReference<Map<String, Object>>() {});
+        } catch (Exception e) {
+            throw new IllegalStateException("Corrupt job payload: " + e.getMessage(), e);
+        }
+    }
+    
+    private static String defaultWorkerId() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "memo-worker-" + ProcessHandle.current().pid();
+        }
+    }
+}
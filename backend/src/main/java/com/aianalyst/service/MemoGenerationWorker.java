@@ -0,0 +1,376 @@
+package com.aianalyst.service;
+
+import com.aianalyst.entity.InvestmentMemoEntity;
+import com.aianalyst.entity.MemoGenerationJobEntity;
+import com.aianalyst.entity.MemoSectionEntity;
+import com.aianalyst.entity.MemoSectionEntity.SectionType;
+import com.aianalyst.entity.MemoSubsectionEntity;
+import com.aianalyst.repository.InvestmentMemoRepository;
+import com.aianalyst.repository.MemoGenerationJobRepository;
+import com.aianalyst.service.CuratedMemoAgentService.CuratedSection;
+import com.aianalyst.service.PresentationExportService.PresentationDeck;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Memo Generation Worker
+ *
+ * Performs the work behind each memo generation job. LLM and rendering calls run
+ * outside any transaction; results are written back in short transactions so no
+ * JDBC connection is held for the length of an LLM round-trip. Each of those
+ * transactions first checks that the job's lease is still held by this run, so a
+ * run that lost its job to lease recovery cannot overwrite what the new run wrote.
+ */
+@Service
+@Slf4j
+public class MemoGenerationWorker {
+    
+    /**
+     * Progress steps reported per memo: the memo body, then its presentation
+     */
+    public static final int TRACKED_SECTIONS = 2;
+    
+    private static final String MEMO_SECTION = "memo";
+    private static final String PRESENTATION_SECTION = "presentation";
+    
+    private final InvestmentMemoRepository investmentMemoRepository;
+    private final MemoGenerationJobRepository jobRepository;
+    private final AIService aiService;
+    private final CuratedMemoAgentService curatedMemoAgentService;
+    private final PresentationExportService presentationExportService;
+    private final MemoProgressRegistry progressRegistry;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    
+    public MemoGenerationWorker(InvestmentMemoRepository investmentMemoRepository,
+                                MemoGenerationJobRepository jobRepository,
+                                AIService aiService,
+                                CuratedMemoAgentService curatedMemoAgentService,
+                                PresentationExportService presentationExportService,
+                                MemoProgressRegistry progressRegistry,
+                                PlatformTransactionManager transactionManager) {
+        this.investmentMemoRepository = investmentMemoRepository;
+        this.jobRepository = jobRepository;
+        this.aiService = aiService;
+        this.curatedMemoAgentService = curatedMemoAgentService;
+        this.presentationExportService = presentationExportService;
+        this.progressRegistry = progressRegistry;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+    }
+    
+    /**
+     * Run a job to completion, throwing on failure so the queue can retry it
+     */
+    public void execute(MemoGenerationJobEntity job, Map<String, Object> payload) {
+        Lease lease = new Lease(job.getId(), job.getLockedBy(), job.getAttempts());
+        switch (job.getJobType()) {
+            case STAGE_1_MEMO -> generateStage1Memo(lease, job.getMemoId(), payload);
+            case STAGE_2_MEMO -> generateStage2Memo(lease, job.getMemoId(), payload);
+            case REGENERATE_SECTION -> regenerateSection(lease, job.getMemoId(), payload);
+            case PPT -> generatePresentation(lease, job.getMemoId());
+        }
+    }
+    
+    /**
+     * Record that a memo could not be generated after all retries
+     */
+    public void markFailed(MemoGenerationJobEntity job) {
+        if (job.getJobType() == MemoGenerationJobEntity.JobType.PPT) {
+            // The memo itself is fine; only the deck is missing and can be rendered on download
+            return;
+        }
+        // A regeneration writes all of its sections in one transaction at the end, so the previously generated sections still stand
+        InvestmentMemoEntity.MemoStatus memoStatus = job.getJobType() == MemoGenerationJobEntity.JobType.REGENERATE_SECTION
+                ? InvestmentMemoEntity.MemoStatus.COMPLETED
+                : InvestmentMemoEntity.MemoStatus.FAILED;
+        transactionTemplate.executeWithoutResult(status ->
+                investmentMemoRepository.findById(job.getMemoId()).ifPresent(memo -> {
+                    memo.setStatus(memoStatus);
+                    memo.setUpdatedAt(LocalDateTime.now());
+                    investmentMemoRepository.save(memo);
+                }));
+    }
+    
+    private void generateStage1Memo(Lease lease, String memoId, Map<String, Object> payload) {
+        @SuppressWarnings("unchecked")
+        List<String> dataSourceIds = (List<String>) payload.getOrDefault("dataSourceIds", List.of());
+        progressRegistry.sectionStarted(memoId, MEMO_SECTION);
+        String content = generateStage1Content(dataSourceIds);
+        completeMemo(lease, memoId, List.of(new SectionUpdate(SectionType.MEMO_BODY, "AI-Generated Investment Memo", 0,
+                content)), null);
+    }
+    
+    private void generateStage2Memo(Lease lease, String memoId, Map<String, Object> payload) {
+        String stage1MemoId = (String) payload.get("stage1MemoId");
+        String companyName = investmentMemoRepository.findById(stage1MemoId)
+                .map(InvestmentMemoEntity::getCompanyName)
+                .orElseThrow(() -> new RuntimeException("Stage 1 memo not found"));
+        
+        progressRegistry.sectionStarted(memoId, MEMO_SECTION);
+        Map<String, String> outputs = curatedMemoAgentService.generateSections(stage1MemoId, companyName,
+                preferencesOf(payload), Map.of(), false);
+        completeMemo(lease, memoId, curatedUpdates(outputs, outputs.keySet()), null);
+    }
+    
+    /**
+     * Regenerate one section or subsection of a curated memo. Only the target and the
+     * sections downstream of it are recomputed; the stored output of every other
+     * section is fed back into the section graph unchanged. A rewritten subsection is
+     * stored together with the sections that depend on it, so a run that fails part
+     * way leaves the memo as it was.
+     */
+    private void regenerateSection(Lease lease, String memoId, Map<String, Object> payload) {
+        String stage1MemoId = (String) payload.get("stage1MemoId");
+        String subsectionId = (String) payload.get("subsectionId");
+        Map<String, Object> preferences = preferencesOf(payload);
+        progressRegistry.sectionStarted(memoId, MEMO_SECTION);
+        
+        SubsectionRewrite rewrite = subsectionId != null ? rewriteSubsection(memoId, subsectionId, preferences) : null;
+        String sectionId = rewrite != null ? rewrite.sectionId() : (String) payload.get("sectionId");
+        StoredSections stored = readOnlyTransactionTemplate.execute(status -> loadSections(memoId, sectionId, rewrite));
+        
+        // A rewritten subsection keeps its parent section; only what depends on the parent is stale
+        Set<String> stale = curatedMemoAgentService.staleSections(stored.target());
+        if (subsectionId != null) {
+            stale.remove(stored.target());
+        }
+        Map<String, String> reused = new HashMap<>(stored.outputs());
+        reused.keySet().removeAll(stale);
+        
+        // An explicit regeneration must produce new text, so the stale sections skip the response cache
+        Map<String, String> outputs = curatedMemoAgentService.generateSections(stage1MemoId, stored.companyName(),
+                preferences, reused, true);
+        Set<String> changed = new HashSet<>(outputs.keySet());
+        changed.removeAll(reused.keySet());
+        log.info("Regenerating sections {} of memo {}, reusing {}", changed, memoId, reused.keySet());
+        completeMemo(lease, memoId, curatedUpdates(outputs, changed), rewrite);
+    }
+    
+    /**
+     * Rewrite a single subsection, without storing the new text yet
+     */
+    private SubsectionRewrite rewriteSubsection(String memoId, String subsectionId, Map<String, Object> preferences) {
+        SubsectionContext context = readOnlyTransactionTemplate.execute(status -> {
+            MemoSubsectionEntity subsection = findSubsection(findMemo(memoId), subsectionId);
+            MemoSectionEntity section = subsection.getSection();
+            return new SubsectionContext(section.getId(), section.getTitle(), section.getContent(),
+                    subsection.getTitle(), subsection.getContent());
+        });
+        
+        String content = curatedMemoAgentService.regenerateSubsection(context.sectionTitle(),
+                context.sectionContent(), context.subsectionTitle(), context.subsectionContent(), preferences).join();
+        return new SubsectionRewrite(context.sectionId(), subsectionId, content);
+    }
+    
+    /**
+     * Current output of every curated section stored on the memo, keyed by graph section
+     * name, with the rewritten subsection in place of its stored text
+     */
+    private StoredSections loadSections(String memoId, String sectionId, SubsectionRewrite rewrite) {
+        InvestmentMemoEntity memo = findMemo(memoId);
+        Map<String, String> outputs = new HashMap<>();
+        String target = null;
+        for (MemoSectionEntity section : sectionsOf(memo)) {
+            CuratedSection curated = CuratedMemoAgentService.sectionFor(section.getType()).orElse(null);
+            if (curated == null) {
+                continue;
+            }
+            outputs.put(curated.name(), sectionText(section, rewrite));
+            if (section.getId().equals(sectionId)) {
+                target = curated.name();
+            }
+        }
+        if (target == null) {
+            throw new IllegalStateException("Section " + sectionId + " is not a curated section of memo " + memoId);
+        }
+        return new StoredSections(memo.getCompanyName(), target, outputs);
+    }
+    
+    private void generatePresentation(Lease lease, String memoId) {
+        progressRegistry.sectionStarted(memoId, PRESENTATION_SECTION);
+        PresentationDeck deck = readOnlyTransactionTemplate.execute(status ->
+                presentationExportService.prepare(investmentMemoRepository.findById(memoId)
+                        .orElseThrow(() -> new RuntimeException("Investment memo not found"))));
+        
+        Path deckFile;
+        long size;
+        try {
+            deckFile = presentationExportService.render(deck);
+            size = Files.size(deckFile);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to render PPT: " + e.getMessage(), e);
+        }
+        
+        transactionTemplate.executeWithoutResult(status -> {
+            holdLease(lease);
+            investmentMemoRepository.findById(memoId).ifPresent(memo -> {
+                memo.setFilePath(deckFile.toString());
+                memo.setFileSize(size);
+                investmentMemoRepository.save(memo);
+            });
+        });
+        progressRegistry.sectionCompleted(memoId, PRESENTATION_SECTION, null);
+        log.info("PPT rendered for memo: {} ({} bytes)", memoId, size);
+    }
+    
+    /**
+     * Store generated sections, and the rewritten subsection if any, on the memo and
+     * mark the memo completed
+     */
+    private void completeMemo(Lease lease, String memoId, List<SectionUpdate> updates, SubsectionRewrite rewrite) {
+        transactionTemplate.executeWithoutResult(status -> {
+            holdLease(lease);
+            InvestmentMemoEntity memo = findMemo(memoId);
+            if (rewrite != null) {
+                findSubsection(memo, rewrite.subsectionId()).setContent(rewrite.content());
+            }
+            List<MemoSectionEntity> sections = sectionsOf(memo);
+            for (SectionUpdate update : updates) {
+                // A retried job overwrites the section written by an earlier, interrupted attempt
+                MemoSectionEntity section = sections.stream()
+                        .filter(existing -> existing.getType() == update.type())
+                        .findFirst()
+                        .orElseGet(() -> {
+                            MemoSectionEntity created = new MemoSectionEntity();
+                            created.setMemo(memo);
+                            created.setType(update.type());
+                            created.setOrderIndex(update.orderIndex());
+                            sections.add(created);
+                            return created;
+                        });
+                section.setTitle(update.title());
+                section.setContent(update.content());
+            }
+            memo.setSections(sections);
+            memo.setStatus(InvestmentMemoEntity.MemoStatus.COMPLETED);
+            memo.setUpdatedAt(LocalDateTime.now());
+            investmentMemoRepository.save(memo);
+        });
+        presentationExportService.evict(memoId);
+        progressRegistry.sectionCompleted(memoId, MEMO_SECTION, updates.stream()
+                .map(SectionUpdate::content)
+                .collect(Collectors.joining()));
+        log.info("Memo generation completed: {}", memoId);
+    }
+    
+    /**
+     * Lock the job row for the current transaction, or abort it if this run has lost the job
+     */
+    private void holdLease(Lease lease) {
+        if (jobRepository.holdLease(lease.jobId(), lease.workerId(), lease.attempt(), LocalDateTime.now()) == 0) {
+            throw new IllegalStateException("Memo job " + lease.jobId() + " attempt " + lease.attempt()
+                    + " no longer holds its lease; discarding its result");
+        }
+    }
+    
+    private List<SectionUpdate> curatedUpdates(Map<String, String> outputs, Set<String> changed) {
+        return CuratedMemoAgentService.SECTIONS.stream()
+                .filter(section -> changed.contains(section.name()))
+                .map(section -> new SectionUpdate(section.type(), section.title(), section.orderIndex(),
+                        outputs.get(section.name())))
+                .collect(Collectors.toList());
+    }
+    
+    private InvestmentMemoEntity findMemo(String memoId) {
+        return investmentMemoRepository.findById(memoId)
+                .orElseThrow(() -> new RuntimeException("Investment memo not found"));
+    }
+    
+    private static List<MemoSectionEntity> sectionsOf(InvestmentMemoEntity memo) {
+        return memo.getSections() == null ? new ArrayList<>() : memo.getSections();
+    }
+    
+    private static MemoSubsectionEntity findSubsection(InvestmentMemoEntity memo, String subsectionId) {
+        return sectionsOf(memo).stream()
+                .filter(section -> section.getSubsections() != null)
+                .flatMap(section -> section.getSubsections().stream())
+                .filter(subsection -> subsection.getId().equals(subsectionId))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Subsection " + subsectionId + " not found"));
+    }
+    
+    /**
+     * Section content followed by its subsections, as seen by the sections that depend on it
+     */
+    private static String sectionText(MemoSectionEntity section, SubsectionRewrite rewrite) {
+        StringBuilder text = new StringBuilder(section.getContent() != null ? section.getContent() : "");
+        if (section.getSubsections() != null) {
+            section.getSubsections().stream()
+                    .sorted(Comparator.comparing(MemoSubsectionEntity::getOrderIndex,
+                            Comparator.nullsLast(Comparator.naturalOrder())))
+                    .forEach(subsection -> text.append("\n\n").append(subsection.getTitle())
+                            .append('\n').append(rewrite != null && subsection.getId().equals(rewrite.subsectionId())
+                                    ? rewrite.content()
+                                    : subsection.getContent()));
+        }
+        return text.toString();
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> preferencesOf(Map<String, Object> payload) {
+        return (Map<String, Object>) payload.getOrDefault("preferences", Map.of());
+    }
+    
+    /**
+     * Generate Stage 1 content
+     */
+    private String generateStage1Content(List<String> dataSourceIds) {
+        log.debug("Generating Stage 1 content from {} data sources", dataSourceIds.size());
+        
+        String prompt = String.format("""
+            Generate a comprehensive Stage 1 AI-Generated Investment Memo based on the following data sources:
+            
+            Data Source IDs: %s
+            
+            The memo should include all standard investment memo sections:
+            1. Executive Summary
+            2. Company Overview
+            3. Market Analysis
+            4. Business Model
+            5. Financial Analysis
+            6. Competitive Landscape
+            7. Management Team
+            8. Investment Thesis
+            9. Risk Assessment
+            10. Valuation Analysis
+            11. Recommendations
+            
+            Format as a professional investment memo with clear sections and actionable insights.
+            """, String.join(", ", dataSourceIds));
+        
+        return aiService.generateText(prompt);
+    }
+    
+    private record Lease(String jobId, String workerId, int attempt) {
+    }
+    
+    private record SubsectionRewrite(String sectionId, String subsectionId, String content) {
+    }
+    
+    private record SectionUpdate(SectionType type, String title, int orderIndex, String content) {
+    }
+    
+    private record StoredSections(String companyName, String target, Map<String, String> outputs) {
+    }
+    
+    private record SubsectionContext(String sectionId, String sectionTitle, String sectionContent,
+                                     String subsectionTitle, String subsectionContent) {
+    }
+}
@@ -0,0 +1,213 @@
+package com.aianalyst.service;
+
+import com.aianalyst.controller.WebSocketController;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * Memo Progress Registry
+ *
+ * Lock-free, in-memory record of memo generation progress. Each memo holds an
+ * immutable snapshot swapped by CAS, so workers never block readers. Every change
+ * is pushed to the owning user over STOMP, and the status endpoint reads the
+ * latest snapshot without touching the database.
+ *
+ * Entries live only on the node running the job. An entry that has not moved
+ * for the job lease timeout is treated as gone, since the job may have been
+ * requeued elsewhere; callers then fall back to the persisted job state.
+ */
+@Service
+@Slf4j
+public class MemoProgressRegistry {
+    
+    public static final String STATUS_TYPE = "memo-generation";
+    
+    // Finished entries are kept this long so late pollers still see the outcome
+    private static final Duration FINISHED_RETENTION = Duration.ofMinutes(10);
+    
+    private final ConcurrentMap<String, AtomicReference<MemoProgress>> progress = new ConcurrentHashMap<>();
+    private final WebSocketController webSocketController;
+    private final Duration staleAfter;
+    
+    public MemoProgressRegistry(WebSocketController webSocketController,
+                                @Value("${memo.jobs.lease-timeout:900000}") long staleAfterMs) {
+        this.webSocketController = webSocketController;
+        this.staleAfter = Duration.ofMillis(staleAfterMs);
+    }
+    
+    /**
+     * Start tracking a memo that will produce the given number of sections.
+     * Called by the node that runs the job, once it has claimed it.
+     */
+    public void start(String memoId, String userId, int sectionsTotal) {
+        Instant now = Instant.now();
+        MemoProgress initial = new MemoProgress(memoId, userId, Phase.QUEUED, null, 0, sectionsTotal, 0, now, now,
+                "Queued for generation");
+        progress.put(memoId, new AtomicReference<>(initial));
+        publish(initial);
+    }
+    
+    /**
+     * Record that work on a section has begun
+     */
+    public void sectionStarted(String memoId, String section) {
+        update(memoId, current -> current.with(Phase.GENERATING, section, current.sectionsCompleted(),
+                current.tokensProduced(), "Generating " + section));
+    }
+    
+    /**
+     * Record a finished section and the approximate number of tokens it produced
+     */
+    public void sectionCompleted(String memoId, String section, String output) {
+        update(memoId, current -> {
+            int completed = Math.min(current.sectionsCompleted() + 1, current.sectionsTotal());
+            Phase phase = completed >= current.sectionsTotal() ? Phase.COMPLETED : Phase.GENERATING;
+            String message = phase == Phase.COMPLETED ? "Generation completed successfully" : "Completed " + section;
+            return current.with(phase, section, completed, current.tokensProduced() + estimateTokens(output), message);
+        });
+    }
+    
+    /**
+     * Record a failed attempt that will be retried
+     */
+    public void retrying(String memoId, int attempt, String error) {
+        update(memoId, current -> current.with(Phase.QUEUED, current.currentSection(), current.sectionsCompleted(),
+                current.tokensProduced(), "Attempt " + attempt + " failed, retrying: " + error));
+    }
+    
+    /**
+     * Mark generation as finished regardless of remaining sections
+     */
+    public void completed(String memoId, String message) {
+        update(memoId, current -> current.with(Phase.COMPLETED, current.currentSection(), current.sectionsTotal(),
+                current.tokensProduced(), message));
+    }
+    
+    /**
+     * Mark generation as permanently failed
+     */
+    public void failed(String memoId, String error) {
+        update(memoId, current -> current.with(Phase.FAILED, current.currentSection(), current.sectionsCompleted(),
+                current.tokensProduced(), "Generation failed: " + error));
+    }
+    
+    /**
+     * Latest progress snapshot for a memo, if this node is tracking it and the entry is still live
+     */
+    public Optional<MemoProgress> get(String memoId) {
+        AtomicReference<MemoProgress> ref = progress.get(memoId);
+        if (ref == null) {
+            return Optional.empty();
+        }
+        MemoProgress snapshot = ref.get();
+        return isExpired(snapshot, Instant.now()) ? Optional.empty() : Optional.of(snapshot);
+    }
+    
+    /**
+     * Drop finished entries once pollers have had time to see the outcome, and
+     * entries that stopped moving because their job finished or moved elsewhere
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictExpired() {
+        Instant now = Instant.now();
+        progress.values().removeIf(ref -> isExpired(ref.get(), now));
+    }
+    
+    private boolean isExpired(MemoProgress snapshot, Instant now) {
+        Duration retention = snapshot.isFinished() ? FINISHED_RETENTION : staleAfter;
+        return snapshot.updatedAt().isBefore(now.minus(retention));
+    }
+    
+    private void update(String memoId, UnaryOperator<MemoProgress> change) {
+        AtomicReference<MemoProgress> ref = progress.get(memoId);
+        if (ref == null) {
+            return;
+        }
+        publish(ref.updateAndGet(change));
+    }
+    
+    private void publish(MemoProgress snapshot) {
+        try {
+            webSocketController.sendStatusUpdateToUser(snapshot.userId(), STATUS_TYPE, snapshot.toMap());
+        } catch (Exception e) {
+            log.warn("Failed to push progress for memo {}: {}", snapshot.memoId(), e.getMessage());
+        }
+    }
+    
+    /**
+     * Rough token count for generated text, at about four characters per token
+     */
+    private static long estimateTokens(String output) {
+        return output == null ? 0 : (output.length() + 3) / 4;
+    }
+    
+    public enum Phase {
+        QUEUED,
+        GENERATING,
+        COMPLETED,
+        FAILED
+    }
+    
+    /**
+     * Immutable progress snapshot
+     */
+    public record MemoProgress(String memoId, String userId, Phase phase, String currentSection,
+                               int sectionsCompleted, int sectionsTotal, long tokensProduced,
+                               Instant startedAt, Instant updatedAt, String message) {
+        
+        MemoProgress with(Phase phase, String currentSection, int sectionsCompleted, long tokensProduced,
+                          String message) {
+            return new MemoProgress(memoId, userId, phase, currentSection, sectionsCompleted, sectionsTotal,
+                    tokensProduced, startedAt, Instant.now(), message);
+        }
+        
+        public boolean isFinished() {
+            return phase == Phase.COMPLETED || phase == Phase.FAILED;
+        }
+        
+        public int percent() {
+            return sectionsTotal == 0 ? 0 : sectionsCompleted * 100 / sectionsTotal;
+        }
+        
+        /**
+         * Remaining seconds extrapolated from the average time per finished section
+         */
+        public Long etaSeconds() {
+            if (isFinished()) {
+                return 0L;
+            }
+            if (sectionsCompleted == 0) {
+                return null;
+            }
+            long elapsed = Duration.between(startedAt, Instant.now()).toSeconds();
+            return elapsed * (sectionsTotal - sectionsCompleted) / sectionsCompleted;
+        }
+        
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("memoId", memoId);
+            map.put("status", phase.name().toLowerCase());
+            map.put("progress", percent());
+            map.put("sectionsCompleted", sectionsCompleted);
+            map.put("sectionsTotal", sectionsTotal);
+            map.put("currentSection", currentSection);
+            map.put("tokensProduced", tokensProduced);
+            map.put("etaSeconds", etaSeconds());
+            map.put("message", message);
+            map.put("updatedAt", updatedAt.toString());
+            return map;
+        }
+    }
+}
@@ -5,11 +5,20 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.poi.xslf.usermodel.XMLSlideShow;
 import org.apache.poi.xslf.usermodel.XSLFSlide;
 import org.apache.poi.xslf.usermodel.XSLFTextShape;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * PPT Generation Service
@@ -22,58 +31,81 @@ import java.util.List;
 @Slf4j
 public class PPTGenerationService {
     
+    private static final String EXECUTIVE_SUMMARY = "EXECUTIVE_SUMMARY";
+    private static final String COMPANY_OVERVIEW = "COMPANY_OVERVIEW";
+    private static final String MARKET_ANALYSIS = "MARKET_ANALYSIS";
+    private static final String BUSINESS_MODEL = "BUSINESS_MODEL";
+    private static final String FINANCIAL_ANALYSIS = "FINANCIAL_ANALYSIS";
+    private static final String COMPETITIVE_LANDSCAPE = "COMPETITIVE_LANDSCAPE";
+    private static final String MANAGEMENT_TEAM = "MANAGEMENT_TEAM";
+    private static final String INVESTMENT_THESIS = "INVESTMENT_THESIS";
+    private static final String RISK_ASSESSMENT = "RISK_ASSESSMENT";
+    private static final String RECOMMENDATIONS = "RECOMMENDATIONS";
+    
+    private static final Pattern SECTION_HEADER = Pattern.compile("^\\s*###\\s*([A-Z_]+)\\s*$", Pattern.MULTILINE);
+    
     private final AIService aiService;
     private final VisualizationService visualizationService;
     
+    @Value("${ai.ppt.batched-extraction:true}")
+    private boolean batchedExtraction;
+    
     /**
      * Generate PPT from memo content
      */
     public byte[] generatePPT(String memoContent, String companyName) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        writePPT(memoContent, companyName, outputStream);
+        return outputStream.toByteArray();
+    }
+    
+    /**
+     * Generate PPT from memo content and write it straight to the given stream,
+     * without buffering the serialized deck in memory
+     */
+    public void writePPT(String memoContent, String companyName, OutputStream outputStream) {
         log.info("Generating PPT for company: {}", companyName);
         
-        try {
-            XMLSlideShow ppt = new XMLSlideShow();
+        try (XMLSlideShow ppt = new XMLSlideShow()) {
+            // Extract every slide section up front; slides are laid out once all are back
+            Map<String, String> sections = extractSlideSections(memoContent).join();
             
             // Create title slide
             createTitleSlide(ppt, companyName);
             
             // Create executive summary slide
-            createExecutiveSummarySlide(ppt, memoContent);
+            createExecutiveSummarySlide(ppt, sections.get(EXECUTIVE_SUMMARY));
             
             // Create company overview slide
-            createCompanyOverviewSlide(ppt, memoContent);
+            createCompanyOverviewSlide(ppt, sections.get(COMPANY_OVERVIEW));
             
             // Create market analysis slide
-            createMarketAnalysisSlide(ppt, memoContent);
+            createMarketAnalysisSlide(ppt, sections.get(MARKET_ANALYSIS));
             
             // Create business model slide
-            createBusinessModelSlide(ppt, memoContent);
+            createBusinessModelSlide(ppt, sections.get(BUSINESS_MODEL));
             
             // Create financial analysis slide
-            createFinancialAnalysisSlide(ppt, memoContent);
+            createFinancialAnalysisSlide(ppt, sections.get(FINANCIAL_ANALYSIS));
             
             // Create competitive landscape slide
-            createCompetitiveLandscapeSlide(ppt, memoContent);
+            createCompetitiveLandscapeSlide(ppt, sections.get(COMPETITIVE_LANDSCAPE));
             
             // Create management team slide
-            createManagementTeamSlide(ppt, memoContent);
+            createManagementTeamSlide(ppt, sections.get(MANAGEMENT_TEAM));
             
             // Create investment thesis slide
-            createInvestmentThesisSlide(ppt, memoContent);
+            createInvestmentThesisSlide(ppt, sections.get(INVESTMENT_THESIS));
             
             // Create risk assessment slide
-            createRiskAssessmentSlide(ppt, memoContent);
+            createRiskAssessmentSlide(ppt, sections.get(RISK_ASSESSMENT));
             
             // Create recommendations slide
-            createRecommendationsSlide(ppt, memoContent);
+            createRecommendationsSlide(ppt, sections.get(RECOMMENDATIONS));
             
-            // Convert to byte array
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
             ppt.write(outputStream);
-            byte[] pptBytes = outputStream.toByteArray();
             
-            log.info("PPT generated successfully, size: {} bytes", pptBytes.length);
-            return pptBytes;
+            log.info("PPT generated successfully with {} slides", ppt.getSlides().size());
             
         } catch (Exception e) {
             log.error("Error generating PPT: {}", e.getMessage(), e);
@@ -100,7 +132,7 @@ public class PPTGenerationService {
     /**
      * Create executive summary slide
      */
-    private void createExecutiveSummarySlide(XMLSlideShow ppt, String memoContent) {
+    private void createExecutiveSummarySlide(XMLSlideShow ppt, String content) {
         log.debug("Creating executive summary slide");
         
         XSLFSlide slide = ppt.createSlide();
@@ -110,13 +142,13 @@ public class PPTGenerationService {
         
         XSLFTextShape contentShape = slide.createTextBox();
         contentShape.setAnchor(new java.awt.geom.Rectangle2D.Double(50, 120, 600, 400));
-        contentShape.setText(extractExecutiveSummary(memoContent));
+        contentShape.setText(content);
     }
     
     /**
      * Create company overview slide
      */
-    private void createCompanyOverviewSlide(XMLSlideShow ppt, String memoContent) {
+    private void createCompanyOverviewSlide(XMLSlideShow ppt, String content) {
         log.debug("Creating company overview slide");
         
         XSLFSlide slide = ppt.createSlide();
@@ -126,13 +158,13 @@ public class PPTGenerationService {
         
         XSLFTextShape contentShape = slide.createTextBox();
         contentShape.setAnchor(new java.awt.geom.Rectangle2D.Double(50, 120, 600, 400));
-        contentShape.setText(extractCompanyOverview(memoContent));
+        contentShape.setText(content);
     }
     
     /**
      * Create market analysis slide
      */
-    private void createMarketAnalysisSlide(XMLSlideShow ppt, String memoContent) {
+    private void createMarketAnalysisSlide(XMLSlideShow ppt, String content) {
         log.debug("Creating market analysis slide");
         
         XSLFSlide slide = ppt.createSlide();
@@ -142,13 +174,13 @@ public class PPTGenerationService {
         
         XSLFTextShape contentShape = slide.createTextBox();
         contentShape.setAnchor(new java.awt.geom.Rectangle2D.Double(50, 120, 600, 400));
-        contentShape.setText(extractMarketAnalysis(memoContent));
+        contentShape.setText(content);
     }
     
     /**
      * Create business model slide
      */
-    private void createBusinessModelSlide(XMLSlideShow ppt, String memoContent) {
+    private void createBusinessModelSlide(XMLSlideShow ppt, String content) {
         log.debug("Creating business model slide");
         
         XSLFSlide slide = ppt.createSlide();
@@ -158,13 +190,13 @@ public class PPTGenerationService {
         
         XSLFTextShape contentShape = slide.createTextBox();
         contentShape.setAnchor(new java.awt.geom.Rectangle2D.Double(50, 120, 600, 400));
-        contentShape.setText(extractBusinessModel(memoContent));
+        contentShape.setText(content);
     }
     
     /**
      * Create financial analysis slide
      */
-    private void createFinancialAnalysisSlide(XMLSlideShow ppt, String memoContent) {
+    private void createFinancialAnalysisSlide(XMLSlideShow ppt, String content) {
         log.debug("Creating financial analysis slide");
         
         XSLFSlide slide = ppt.createSlide();
@@ -174,13 +206,13 @@ public class PPTGenerationService {
         
         XSLFTextShape contentShape = slide.createTextBox();
         contentShape.setAnchor(new java.awt.geom.Rectangle2D.Double(50, 120, 600, 400));
-        contentShape.setText(extractFinancialAnalysis(memoContent));
+        contentShape.setText(content);
     }
     
     /**
      * Create competitive landscape slide
      */
-    private void createCompetitiveLandscapeSlide(XMLSlideShow ppt, String memoContent) {
+    private void createCompetitiveLandscapeSlide(XMLSlideShow ppt, String content) {
         log.debug("Creating competitive landscape slide");
         
         XSLFSlide slide = ppt.createSlide();
@@ -190,13 +222,13 @@ public class PPTGenerationService {
         
         XSLFTextShape contentShape = slide.createTextBox();
         contentShape.setAnchor(new java.awt.geom.Rectangle2D.Double(50, 120, 600, 400));
-        contentShape.setText(extractCompetitiveLandscape(memoContent));
+        contentShape.setText(content);
     }
     
     /**
      * Create management team slide
      */
-    private void createManagementTeamSlide(XMLSlideShow ppt, String memoContent) {
+    private void createManagementTeamSlide(XMLSlideShow ppt, String content) {
         log.debug("Creating management team slide");
         
         XSLFSlide slide = ppt.createSlide();
@@ -206,13 +238,13 @@ public class PPTGenerationService {
         
         XSLFTextShape contentShape = slide.createTextBox();
         contentShape.setAnchor(new java.awt.geom.Rectangle2D.Double(50, 120, 600, 400));
-        contentShape.setText(extractManagementTeam(memoContent));
+        contentShape.setText(content);
     }
     
     /**
      * Create investment thesis slide
      */
-    private void createInvestmentThesisSlide(XMLSlideShow ppt, String memoContent) {
+    private void createInvestmentThesisSlide(XMLSlideShow ppt, String content) {
         log.debug("Creating investment thesis slide");
         
         XSLFSlide slide = ppt.createSlide();
@@ -222,13 +254,13 @@ public class PPTGenerationService {
         
         XSLFTextShape contentShape = slide.createTextBox();
         contentShape.setAnchor(new java.awt.geom.Rectangle2D.Double(50, 120, 600, 400));
-        contentShape.setText(extractInvestmentThesis(memoContent));
+        contentShape.setText(content);
     }
     
     /**
      * Create risk assessment slide
      */
-    private void createRiskAssessmentSlide(XMLSlideShow ppt, String memoContent) {
+    private void createRiskAssessmentSlide(XMLSlideShow ppt, String content) {
         log.debug("Creating risk assessment slide");
         
         XSLFSlide slide = ppt.createSlide();
@@ -238,13 +270,13 @@ public class PPTGenerationService {
         
         XSLFTextShape contentShape = slide.createTextBox();
         contentShape.setAnchor(new java.awt.geom.Rectangle2D.Double(50, 120, 600, 400));
-        contentShape.setText(extractRiskAssessment(memoContent));
+        contentShape.setText(content);
     }
     
     /**
      * Create recommendations slide
      */
-    private void createRecommendationsSlide(XMLSlideShow ppt, String memoContent) {
+    private void createRecommendationsSlide(XMLSlideShow ppt, String content) {
         log.debug("Creating recommendations slide");
         
         XSLFSlide slide = ppt.createSlide();
@@ -254,13 +286,141 @@ public class PPTGenerationService {
         
         XSLFTextShape contentShape = slide.createTextBox();
         contentShape.setAnchor(new java.awt.geom.Rectangle2D.Double(50, 120, 600, 400));
-        contentShape.setText(extractRecommendations(memoContent));
+        contentShape.setText(content);
+    }
+    
+    /**
+     * Extract the text for every content slide, keyed by section.
+     * In batched mode the memo is sent once with a structured prompt covering all
+     * slides; any section the response does not yield is extracted individually.
+     */
+    private CompletableFuture<Map<String, String>> extractSlideSections(String memoContent) {
+        Map<String, Function<String, CompletableFuture<String>>> extractors = sectionExtractors();
+        if (!batchedExtraction) {
+            return extractIndividually(memoContent, extractors.keySet(), extractors);
+        }
+        
+        return extractBatched(memoContent)
+                .exceptionally(e -> {
+                    log.warn("Batched slide extraction failed, falling back to per-section prompts: {}", e.getMessage());
+                    return Map.of();
+                })
+                .thenCompose(parsed -> {
+                    List<String> missing = extractors.keySet().stream()
+                            .filter(section -> !parsed.containsKey(section))
+                            .toList();
+                    if (missing.isEmpty()) {
+                        return CompletableFuture.completedFuture(parsed);
+                    }
+                    
+                    log.info("Batched slide extraction returned {}/{} sections, extracting the rest individually",
+                            extractors.size() - missing.size(), extractors.size());
+                    return extractIndividually(memoContent, missing, extractors)
+                            .thenApply(rest -> {
+                                Map<String, String> merged = new HashMap<>(parsed);
+                                merged.putAll(rest);
+                                return merged;
+                            });
+                });
+    }
+    
+    /**
+     * Per-section extractors in slide order
+     */
+    private Map<String, Function<String, CompletableFuture<String>>> sectionExtractors() {
+        Map<String, Function<String, CompletableFuture<String>>> extractors = new LinkedHashMap<>();
+        extractors.put(EXECUTIVE_SUMMARY, this::extractExecutiveSummary);
+        extractors.put(COMPANY_OVERVIEW, this::extractCompanyOverview);
+        extractors.put(MARKET_ANALYSIS, this::extractMarketAnalysis);
+        extractors.put(BUSINESS_MODEL, this::extractBusinessModel);
+        extractors.put(FINANCIAL_ANALYSIS, this::extractFinancialAnalysis);
+        extractors.put(COMPETITIVE_LANDSCAPE, this::extractCompetitiveLandscape);
+        extractors.put(MANAGEMENT_TEAM, this::extractManagementTeam);
+        extractors.put(INVESTMENT_THESIS, this::extractInvestmentThesis);
+        extractors.put(RISK_ASSESSMENT, this::extractRiskAssessment);
+        extractors.put(RECOMMENDATIONS, this::extractRecommendations);
+        return extractors;
+    }
+    
+    /**
+     * Run the given per-section extractors concurrently
+     */
+    private CompletableFuture<Map<String, String>> extractIndividually(
+            String memoContent, Iterable<String> sections,
+            Map<String, Function<String, CompletableFuture<String>>> extractors) {
+        Map<String, CompletableFuture<String>> futures = new LinkedHashMap<>();
+        for (String section : sections) {
+            futures.put(section, extractors.get(section).apply(memoContent));
+        }
+        
+        return CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> {
+                    Map<String, String> results = new HashMap<>();
+                    futures.forEach((section, future) -> results.put(section, future.join()));
+                    return results;
+                });
+    }
+    
+    /**
+     * Extract all slide sections with a single structured prompt
+     */
+    private CompletableFuture<Map<String, String>> extractBatched(String memoContent) {
+        String prompt = String.format("""
+            Extract the content for each slide of an investment memo presentation from the
+            following investment memo content:
+            
+            %s
+            
+            Return every section below, each starting with its header on its own line
+            exactly as written, followed by concise text suitable for a PowerPoint slide:
+            
+            ### EXECUTIVE_SUMMARY
+            ### COMPANY_OVERVIEW
+            ### MARKET_ANALYSIS
+            ### BUSINESS_MODEL
+            ### FINANCIAL_ANALYSIS
+            ### COMPETITIVE_LANDSCAPE
+            ### MANAGEMENT_TEAM
+            ### INVESTMENT_THESIS
+            ### RISK_ASSESSMENT
+            ### RECOMMENDATIONS
+            """, memoContent);
+        
+        return aiService.generateTextAsync(prompt, AIResponseCache.PPT_EXTRACTION)
+                .thenApply(PPTGenerationService::parseBatchedSections);
+    }
+    
+    /**
+     * Split a batched extraction response on its section headers, dropping empty sections
+     */
+    static Map<String, String> parseBatchedSections(String response) {
+        Map<String, String> sections = new HashMap<>();
+        if (response == null) {
+            return sections;
+        }
+        
+        Matcher matcher = SECTION_HEADER.matcher(response);
+        String current = null;
+        int start = 0;
+        while (matcher.find()) {
+            if (current != null) {
+                sections.put(current, response.substring(start, matcher.start()).strip());
+            }
+            current = matcher.group(1);
+            start = matcher.end();
+        }
+        if (current != null) {
+            sections.put(current, response.substring(start).strip());
+        }
+        
+        sections.values().removeIf(String::isEmpty);
+        return sections;
     }
     
     /**
      * Extract executive summary from memo content
      */
-    private String extractExecutiveSummary(String memoContent) {
+    private CompletableFuture<String> extractExecutiveSummary(String memoContent) {
         String prompt = String.format("""
             Extract the executive summary from the following investment memo content:
             
@@ -269,13 +429,13 @@ public class PPTGenerationService {
             Format as a concise executive summary suitable for a PowerPoint slide.
             """, memoContent);
         
-        return aiService.generateText(prompt);
+        return aiService.generateTextAsync(prompt, AIResponseCache.PPT_EXTRACTION);
     }
     
     /**
      * Extract company overview from memo content
      */
-    private String extractCompanyOverview(String memoContent) {
+    private CompletableFuture<String> extractCompanyOverview(String memoContent) {
         String prompt = String.format("""
             Extract the company overview from the following investment memo content:
             
@@ -284,13 +444,13 @@ public class PPTGenerationService {
             Format as a concise company overview suitable for a PowerPoint slide.
             """, memoContent);
         
-        return aiService.generateText(prompt);
+        return aiService.generateTextAsync(prompt, AIResponseCache.PPT_EXTRACTION);
     }
     
     /**
      * Extract market analysis from memo content
      */
-    private String extractMarketAnalysis(String memoContent) {
+    private CompletableFuture<String> extractMarketAnalysis(String memoContent) {
         String prompt = String.format("""
             Extract the market analysis from the following investment memo content:
             
@@ -299,13 +459,13 @@ public class PPTGenerationService {
             Format as a concise market analysis suitable for a PowerPoint slide.
             """, memoContent);
         
-        return aiService.generateText(prompt);
+        return aiService.generateTextAsync(prompt, AIResponseCache.PPT_EXTRACTION);
     }
     
     /**
      * Extract business model from memo content
      */
-    private String extractBusinessModel(String memoContent) {
+    private CompletableFuture<String> extractBusinessModel(String memoContent) {
         String prompt = String.format("""
             Extract the business model from the following investment memo content:
             
@@ -314,13 +474,13 @@ public class PPTGenerationService {
             Format as a concise business model description suitable for a PowerPoint slide.
             """, memoContent);
         
-        return aiService.generateText(prompt);
+        return aiService.generateTextAsync(prompt, AIResponseCache.PPT_EXTRACTION);
     }
     
     /**
      * Extract financial analysis from memo content
      */
-    private String extractFinancialAnalysis(String memoContent) {
+    private CompletableFuture<String> extractFinancialAnalysis(String memoContent) {
         String prompt = String.format("""
             Extract the financial analysis from the following investment memo content:
             
@@ -329,13 +489,13 @@ public class PPTGenerationService {
             Format as a concise financial analysis suitable for a PowerPoint slide.
             """, memoContent);
         
-        return aiService.generateText(prompt);
+        return aiService.generateTextAsync(prompt, AIResponseCache.PPT_EXTRACTION);
     }
     
     /**
      * Extract competitive landscape from memo content
      */
-    private String extractCompetitiveLandscape(String memoContent) {
+    private CompletableFuture<String> extractCompetitiveLandscape(String memoContent) {
         String prompt = String.format("""
             Extract the competitive landscape from the following investment memo content:
             
@@ -344,13 +504,13 @@ public class PPTGenerationService {
             Format as a concise competitive landscape analysis suitable for a PowerPoint slide.
             """, memoContent);
         
-        return aiService.generateText(prompt);
+        return aiService.generateTextAsync(prompt, AIResponseCache.PPT_EXTRACTION);
     }
     
     /**
      * Extract management team from memo content
      */
-    private String extractManagementTeam(String memoContent) {
+    private CompletableFuture<String> extractManagementTeam(String memoContent) {
         String prompt = String.format("""
             Extract the management team information from the following investment memo content:
             
@@ -359,13 +519,13 @@ public class PPTGenerationService {
             Format as a concise management team overview suitable for a PowerPoint slide.
             """, memoContent);
         
-        return aiService.generateText(prompt);
+        return aiService.generateTextAsync(prompt, AIResponseCache.PPT_EXTRACTION);
     }
     
     /**
      * Extract investment thesis from memo content
      */
-    private String extractInvestmentThesis(String memoContent) {
+    private CompletableFuture<String> extractInvestmentThesis(String memoContent) {
         String prompt = String.format("""
             Extract the investment thesis from the following investment memo content:
             
@@ -374,13 +534,13 @@ public class PPTGenerationService {
             Format as a concise investment thesis suitable for a PowerPoint slide.
             """, memoContent);
         
-        return aiService.generateText(prompt);
+        return aiService.generateTextAsync(prompt, AIResponseCache.PPT_EXTRACTION);
     }
     
     /**
      * Extract risk assessment from memo content
      */
-    private String extractRiskAssessment(String memoContent) {
+    private CompletableFuture<String> extractRiskAssessment(String memoContent) {
         String prompt = String.format("""
             Extract the risk assessment from the following investment memo content:
             
@@ -389,13 +549,13 @@ public class PPTGenerationService {
             Format as a concise risk assessment suitable for a PowerPoint slide.
             """, memoContent);
         
-        return aiService.generateText(prompt);
+        return aiService.generateTextAsync(prompt, AIResponseCache.PPT_EXTRACTION);
     }
     
     /**
      * Extract recommendations from memo content
      */
-    private String extractRecommendations(String memoContent) {
+    private CompletableFuture<String> extractRecommendations(String memoContent) {
         String prompt = String.format("""
             Extract the recommendations from the following investment memo content:
             
@@ -404,6 +564,6 @@ public class PPTGenerationService {
             Format as a concise recommendations list suitable for a PowerPoint slide.
             """, memoContent);
         
-        return aiService.generateText(prompt);
+        return aiService.generateTextAsync(prompt, AIResponseCache.PPT_EXTRACTION);
     }
 }
@@ -0,0 +1,257 @@
+package com.aianalyst.service;
+
+import com.aianalyst.entity.InvestmentMemoEntity;
+import com.aianalyst.entity.MemoSectionEntity;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Presentation Export Service
+ *
+ * Streams generated PowerPoint decks to the client and keeps a disk cache of
+ * finished decks. A cache miss renders the deck directly into the response while
+ * teeing it into a temp file; a hit is served from disk by the caller, with
+ * sendfile where the connector supports it. The cache is bounded in size and age:
+ * decks unused for {@code ttl} are dropped, then the least recently used ones
+ * until the cache fits in {@code max-size}.
+ */
+@Service
+@Slf4j
+public class PresentationExportService {
+    
+    private final PPTGenerationService pptGenerationService;
+    private final String cachePath;
+    private final long maxCacheBytes;
+    private final Duration ttl;
+    
+    public PresentationExportService(PPTGenerationService pptGenerationService,
+                                     @Value("${storage.ppt-cache.path:./uploads/ppt-cache}") String cachePath,
+                                     @Value("${storage.ppt-cache.max-size:1GB}") DataSize maxCacheSize,
+                                     @Value("${storage.ppt-cache.ttl:7d}") Duration ttl) {
+        this.pptGenerationService = pptGenerationService;
+        this.cachePath = cachePath;
+        this.maxCacheBytes = maxCacheSize.toBytes();
+        this.ttl = ttl;
+    }
+    
+    /**
+     * Resolve the deck for a memo from its sections in display order.
+     * Must be called while the memo's sections can still be loaded.
+     */
+    public PresentationDeck prepare(InvestmentMemoEntity memo) {
+        String memoContent = memo.getSections() == null ? "" : memo.getSections().stream()
+                .sorted(Comparator.comparing(MemoSectionEntity::getOrderIndex,
+                        Comparator.nullsLast(Comparator.naturalOrder())))
+                .map(section -> section.getTitle() + "\n" + section.getContent())
+                .collect(Collectors.joining("\n\n"));
+        return prepare(memo.getId(), memo.getCompanyName(), memoContent);
+    }
+    
+    /**
+     * Resolve the deck for a memo, pointing at the cached file when one exists. A hit
+     * marks the file as recently used so it is the last to be evicted.
+     */
+    public PresentationDeck prepare(String memoId, String companyName, String memoContent) {
+        String cacheKey = memoId + "-" + fingerprint(companyName, memoContent);
+        Path cached = Paths.get(cachePath).resolve(cacheKey + ".pptx");
+        try {
+            Files.setLastModifiedTime(cached, FileTime.from(Instant.now()));
+        } catch (IOException e) {
+            // Not cached, or evicted since
+            cached = null;
+        }
+        return new PresentationDeck(cacheKey, companyName, memoContent, cached);
+    }
+    
+    /**
+     * Render the deck into the output stream, caching it on disk as it is written
+     */
+    public void writeTo(PresentationDeck deck, OutputStream outputStream) throws IOException {
+        renderToCache(deck, outputStream);
+    }
+    
+    /**
+     * Render the deck into the disk cache ahead of any download
+     */
+    public Path render(PresentationDeck deck) throws IOException {
+        if (deck.isCached()) {
+            return deck.cachedFile();
+        }
+        return renderToCache(deck, OutputStream.nullOutputStream());
+    }
+    
+    private Path renderToCache(PresentationDeck deck, OutputStream outputStream) throws IOException {
+        Path cacheDir = Paths.get(cachePath);
+        Files.createDirectories(cacheDir);
+        Path tempFile = Files.createTempFile(cacheDir, deck.cacheKey(), ".tmp");
+        try {
+            try (OutputStream fileOut = Files.newOutputStream(tempFile);
+                 OutputStream tee = new TeeOutputStream(outputStream, fileOut)) {
+                pptGenerationService.writePPT(deck.memoContent(), deck.companyName(), tee);
+            }
+            Path cached = cacheDir.resolve(deck.cacheKey() + ".pptx");
+            Files.move(tempFile, cached, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Cached generated PPT: {}", deck.cacheKey());
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+        trimCache();
+        return cacheDir.resolve(deck.cacheKey() + ".pptx");
+    }
+    
+    /**
+     * Drop decks unused for longer than the TTL, then the least recently used ones
+     * until the cache fits its size bound
+     */
+    @Scheduled(fixedDelayString = "${storage.ppt-cache.trim-interval:300000}")
+    public synchronized void trimCache() {
+        Path cacheDir = Paths.get(cachePath);
+        if (!Files.isDirectory(cacheDir)) {
+            return;
+        }
+        
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(cacheDir)) {
+            files = listing.filter(file -> file.toString().endsWith(".pptx")).toList();
+        } catch (IOException e) {
+            log.warn("Failed to list PPT cache: {}", e.getMessage());
+            return;
+        }
+        List<CachedDeck> decks = new ArrayList<>(files.size());
+        for (Path file : files) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                decks.add(new CachedDeck(file, attributes.size(), attributes.lastModifiedTime().toInstant()));
+            } catch (IOException e) {
+                // Evicted or replaced while listing
+            }
+        }
+        
+        decks.sort(Comparator.comparing(CachedDeck::lastUsed));
+        long total = decks.stream().mapToLong(CachedDeck::size).sum();
+        Instant expired = Instant.now().minus(ttl);
+        for (CachedDeck deck : decks) {
+            if (total <= maxCacheBytes && deck.lastUsed().isAfter(expired)) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(deck.file());
+                total -= deck.size();
+                log.debug("Evicted cached PPT: {}", deck.file().getFileName());
+            } catch (IOException e) {
+                log.warn("Failed to evict cached PPT {}: {}", deck.file().getFileName(), e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Drop every cached deck of a memo
+     */
+    public void evict(String memoId) {
+        Path cacheDir = Paths.get(cachePath);
+        if (!Files.isDirectory(cacheDir)) {
+            return;
+        }
+        
+        try (var files = Files.newDirectoryStream(cacheDir, memoId + "-*.pptx")) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to evict cached PPT for memo {}: {}", memoId, e.getMessage());
+        }
+    }
+    
+    private String fingerprint(String companyName, String memoContent) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(String.valueOf(companyName).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.valueOf(memoContent).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest(), 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    /**
+     * A memo deck ready to be exported; {@code cachedFile} is null until it has been rendered once
+     */
+    public record PresentationDeck(String cacheKey, String companyName, String memoContent, Path cachedFile) {
+        
+        public boolean isCached() {
+            return cachedFile != null;
+        }
+        
+        /**
+         * The same deck, to be rendered again because its cached file has gone
+         */
+        public PresentationDeck uncached() {
+            return new PresentationDeck(cacheKey, companyName, memoContent, null);
+        }
+    }
+    
+    private record CachedDeck(Path file, long size, Instant lastUsed) {
+    }
+    
+    /**
+     * Writes every byte to both the client stream and the cache file
+     */
+    private static class TeeOutputStream extends FilterOutputStream {
+        
+        private final OutputStream branch;
+        
+        TeeOutputStream(OutputStream out, OutputStream branch) {
+            super(out);
+            this.branch = branch;
+        }
+        
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            branch.write(b);
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            branch.write(b, off, len);
+        }
+        
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+            branch.flush();
+        }
+        
+        @Override
+        public void close() throws IOException {
+            // The servlet container owns the client stream; only flush it
+            out.flush();
+        }
+    }
+}
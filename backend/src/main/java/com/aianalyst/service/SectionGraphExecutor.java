@@ -0,0 +1,194 @@
+package com.aianalyst.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Section Graph Executor
+ * 
+ * Executes memo sections as a dependency graph. Every section starts as soon as
+ * the sections it depends on have completed, so independent sections are
+ * generated concurrently. Prompt assembly runs on the bounded memo section
+ * pool; AI calls themselves complete on the AI I/O executor.
+ */
+@Service
+@Slf4j
+public class SectionGraphExecutor {
+    
+    private final Executor executor;
+    
+    public SectionGraphExecutor(@Qualifier("memoSectionExecutor") Executor executor) {
+        this.executor = executor;
+    }
+    
+    /**
+     * Execute all sections and return their outputs keyed by section name
+     */
+    public Map<String, String> execute(List<SectionTask> tasks) {
+        return execute(tasks, Map.of());
+    }
+    
+    /**
+     * Execute the sections that are not already present in {@code completed}.
+     * Completed outputs are reused as-is and are never regenerated.
+     */
+    public Map<String, String> execute(List<SectionTask> tasks, Map<String, String> completed) {
+        Map<String, SectionTask> tasksByName = index(tasks);
+        validate(tasksByName, completed);
+        
+        Map<String, CompletableFuture<String>> futures = new HashMap<>();
+        for (SectionTask task : tasks) {
+            schedule(task.name(), tasksByName, completed, futures);
+        }
+        
+        Map<String, String> results = new LinkedHashMap<>();
+        try {
+            CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0])).join();
+            for (SectionTask task : tasks) {
+                results.put(task.name(), futures.get(task.name()).join());
+            }
+        } catch (CompletionException e) {
+            futures.values().forEach(future -> future.cancel(true));
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw new RuntimeException("Section generation failed: " + cause.getMessage(), cause);
+        }
+        return results;
+    }
+    
+    /**
+     * Names of every section that depends, directly or transitively, on {@code name}.
+     * These are the sections that go stale when {@code name} is regenerated.
+     */
+    public static Set<String> dependentsOf(Collection<SectionTask> tasks, String name) {
+        Set<String> dependents = new LinkedHashSet<>();
+        List<String> frontier = new ArrayList<>(List.of(name));
+        while (!frontier.isEmpty()) {
+            String current = frontier.remove(frontier.size() - 1);
+            for (SectionTask task : tasks) {
+                if (task.dependsOn().contains(current) && dependents.add(task.name())) {
+                    frontier.add(task.name());
+                }
+            }
+        }
+        return dependents;
+    }
+    
+    /**
+     * Create (or reuse) the future for a section, chaining it after its dependencies
+     */
+    private CompletableFuture<String> schedule(String name, Map<String, SectionTask> tasksByName,
+                                               Map<String, String> completed,
+                                               Map<String, CompletableFuture<String>> futures) {
+        CompletableFuture<String> existing = futures.get(name);
+        if (existing != null) {
+            return existing;
+        }
+        
+        CompletableFuture<String> future;
+        if (completed.containsKey(name)) {
+            future = CompletableFuture.completedFuture(completed.get(name));
+        } else {
+            SectionTask task = tasksByName.get(name);
+            List<String> dependencies = new ArrayList<>(task.dependsOn());
+            List<CompletableFuture<String>> upstream = new ArrayList<>();
+            for (String dependency : dependencies) {
+                upstream.add(schedule(dependency, tasksByName, completed, futures));
+            }
+            
+            future = CompletableFuture.allOf(upstream.toArray(new CompletableFuture[0]))
+                    .thenComposeAsync(ignored -> {
+                        Map<String, String> inputs = new HashMap<>();
+                        for (int i = 0; i < dependencies.size(); i++) {
+                            inputs.put(dependencies.get(i), upstream.get(i).join());
+                        }
+                        log.debug("Generating section: {}", name);
+                        return task.generator().apply(inputs);
+                    }, executor);
+        }
+        futures.put(name, future);
+        return future;
+    }
+    
+    private Map<String, SectionTask> index(List<SectionTask> tasks) {
+        Map<String, SectionTask> tasksByName = new LinkedHashMap<>();
+        for (SectionTask task : tasks) {
+            if (tasksByName.put(task.name(), task) != null) {
+                throw new IllegalArgumentException("Duplicate section: " + task.name());
+            }
+        }
+        return tasksByName;
+    }
+    
+    /**
+     * Reject unknown dependencies and cycles before anything is submitted
+     */
+    private void validate(Map<String, SectionTask> tasksByName, Map<String, String> completed) {
+        Set<String> visited = new HashSet<>();
+        Set<String> inProgress = new HashSet<>();
+        for (String name : tasksByName.keySet()) {
+            visit(name, tasksByName, completed, visited, inProgress);
+        }
+    }
+    
+    private void visit(String name, Map<String, SectionTask> tasksByName, Map<String, String> completed,
+                       Set<String> visited, Set<String> inProgress) {
+        if (visited.contains(name) || completed.containsKey(name)) {
+            return;
+        }
+        SectionTask task = tasksByName.get(name);
+        if (task == null) {
+            throw new IllegalArgumentException("Unknown section dependency: " + name);
+        }
+        if (!inProgress.add(name)) {
+            throw new IllegalArgumentException("Cyclic section dependency at: " + name);
+        }
+        for (String dependency : task.dependsOn()) {
+            visit(dependency, tasksByName, completed, visited, inProgress);
+        }
+        inProgress.remove(name);
+        visited.add(name);
+    }
+    
+    /**
+     * A single memo section. The generator receives the outputs of its dependencies
+     * and returns a future, so sections backed by async AI calls do not hold a
+     * section thread while waiting on the agent server.
+     */
+    public record SectionTask(String name, Collection<String> dependsOn,
+                              Function<Map<String, String>, CompletableFuture<String>> generator) {
+        
+        public static SectionTask of(String name, Function<Map<String, String>, String> generator) {
+            return of(name, List.of(), generator);
+        }
+        
+        public static SectionTask of(String name, Collection<String> dependsOn,
+                                     Function<Map<String, String>, String> generator) {
+            return new SectionTask(name, List.copyOf(dependsOn),
+                    inputs -> CompletableFuture.completedFuture(generator.apply(inputs)));
+        }
+        
+        public static SectionTask async(String name, Function<Map<String, String>, CompletableFuture<String>> generator) {
+            return async(name, List.of(), generator);
+        }
+        
+        public static SectionTask async(String name, Collection<String> dependsOn,
+                                        Function<Map<String, String>, CompletableFuture<String>> generator) {
+            return new SectionTask(name, List.copyOf(dependsOn), generator);
+        }
+    }
+}
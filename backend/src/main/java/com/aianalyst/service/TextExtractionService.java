@@ -0,0 +1,142 @@
+package com.aianalyst.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.tika.exception.TikaException;
+import org.apache.tika.exception.WriteLimitReachedException;
+import org.apache.tika.io.TikaInputStream;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.parser.AutoDetectParser;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.parser.Parser;
+import org.apache.tika.parser.pdf.PDFParserConfig;
+import org.apache.tika.sax.BodyContentHandler;
+import org.apache.tika.sax.WriteOutContentHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.xml.sax.SAXException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Text Extraction Service
+ *
+ * Extracts plain text from uploaded documents with Apache Tika. Parsers come from a
+ * fixed pool that is warmed up at startup, so the first documents after a deploy
+ * do not pay for Tika's service loading and no more documents are parsed at once
+ * than there are parsers. Text is written to the caller's writer as it is parsed
+ * and capped at {@code storage.extraction.max-chars}; PDFs may hold at most
+ * {@code max-memory-per-document} on the heap before PDFBox spills to disk. Media
+ * files are skipped because Tika only yields metadata for them.
+ */
+@Service
+@Slf4j
+public class TextExtractionService {
+    
+    private final BlockingQueue<Parser> parsers;
+    private final int maxChars;
+    private final long maxMemoryPerDocument;
+    
+    public TextExtractionService(@Value("${storage.extraction.max-chars:5000000}") int maxChars,
+                                 @Value("${storage.extraction.workers:4}") int parserCount,
+                                 @Value("${storage.extraction.max-memory-per-document:64MB}") DataSize maxMemory) {
+        if (parserCount < 1) {
+            throw new IllegalArgumentException("Invalid extraction parser count: " + parserCount);
+        }
+        this.maxChars = maxChars;
+        this.maxMemoryPerDocument = maxMemory.toBytes();
+        this.parsers = new ArrayBlockingQueue<>(parserCount);
+        for (int i = 0; i < parserCount; i++) {
+            parsers.add(warmUp(new AutoDetectParser()));
+        }
+        log.info("Text extraction ready with {} parsers", parserCount);
+    }
+    
+    /**
+     * Whether documents of this content type carry extractable text
+     */
+    public boolean isExtractable(String contentType) {
+        return contentType == null
+                || !(contentType.startsWith("video/") || contentType.startsWith("audio/")
+                || contentType.startsWith("image/"));
+    }
+    
+    /**
+     * Extract the text of a document, truncated at the character limit
+     */
+    public String extract(InputStream stream, String filename, String contentType) throws IOException {
+        StringWriter text = new StringWriter();
+        extractTo(stream, filename, contentType, text);
+        return text.toString();
+    }
+    
+    /**
+     * Write the text of a document to {@code out} as it is parsed, stopping at the
+     * character limit. Waits for a free parser; returns whether the text was truncated.
+     */
+    public boolean extractTo(InputStream stream, String filename, String contentType, Writer out)
+            throws IOException {
+        Parser parser;
+        try {
+            parser = parsers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for a parser");
+        }
+        try {
+            return parse(parser, stream, filename, contentType, out);
+        } finally {
+            parsers.add(parser);
+        }
+    }
+    
+    private boolean parse(Parser parser, InputStream stream, String filename, String contentType, Writer out)
+            throws IOException {
+        BodyContentHandler handler = new BodyContentHandler(new WriteOutContentHandler(out, maxChars));
+        Metadata metadata = new Metadata();
+        if (filename != null) {
+            metadata.set(TikaCoreProperties.RESOURCE_NAME_KEY, filename);
+        }
+        if (contentType != null) {
+            metadata.set(Metadata.CONTENT_TYPE, contentType);
+        }
+        PDFParserConfig pdfConfig = new PDFParserConfig();
+        pdfConfig.setMaxMainMemoryBytes(maxMemoryPerDocument);
+        ParseContext context = new ParseContext();
+        context.set(PDFParserConfig.class, pdfConfig);
+        try {
+            parser.parse(TikaInputStream.get(stream), handler, metadata, context);
+            return false;
+        } catch (SAXException e) {
+            if (!WriteLimitReachedException.isWriteLimitReached(e)) {
+                throw new IOException("Failed to extract text from " + filename + ": " + e.getMessage(), e);
+            }
+            log.debug("Extracted text of {} truncated at {} characters", filename, maxChars);
+            return true;
+        } catch (TikaException e) {
+            throw new IOException("Failed to extract text from " + filename + ": " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Run a parser once so detection and its parser classes are loaded before real documents arrive
+     */
+    private Parser warmUp(Parser parser) {
+        try {
+            parse(parser, new ByteArrayInputStream("warm-up".getBytes(StandardCharsets.UTF_8)), "warm-up.txt",
+                    "text/plain", Writer.nullWriter());
+        } catch (IOException e) {
+            log.warn("Parser warm-up failed: {}", e.getMessage());
+        }
+        return parser;
+    }
+}
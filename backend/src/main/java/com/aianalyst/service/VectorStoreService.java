@@ -1,36 +1,115 @@
 package com.aianalyst.service;
 
-import lombok.RequiredArgsConstructor;
+import com.aianalyst.ingestion.StreamingChunker;
+import com.aianalyst.ingestion.TextChunk;
+import com.aianalyst.ingestion.TokenCounter;
+import com.aianalyst.vector.Chunk;
+import com.aianalyst.vector.Quantization;
+import com.aianalyst.vector.VectorSegmentStore;
+import com.aianalyst.vector.VectorSegmentStore.ScoredChunk;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
 /**
  * Vector Store Service
- * 
+ *
  * Service for storing and retrieving processed data in vector database.
  * Handles embeddings and similarity search for RAG operations.
+ * Chunks are indexed in an embedded HNSW graph, so retrieval needs no
+ * network hop to an external vector database. Embeddings and their graph
+ * are persisted in memory-mapped segment files and reopen without
+ * re-embedding the corpus.
  */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class VectorStoreService {
     
-    private final AIService aiService;
+    private static final String COSINE_DISTANCE = "COSINE_DISTANCE";
+    private static final int EMBEDDING_BATCH_SIZE = 32;
+    // Chunks fetched per requested document before a document search gives up on filling its limit
+    private static final int MAX_DOCUMENT_OVERSAMPLING = 32;
+    
+    private final EmbeddingService embeddingService;
+    private final EmbeddingBatcher embeddingBatcher;
+    private final StreamingChunker chunker;
+    private final VectorSegmentStore store;
+    private final int efSearch;
+    private final Timer searchTimer;
+    
+    @Value("${ai.vectorstore.segments.flush-threshold:50000}")
+    private int flushThreshold;
+    
+    @Value("${ai.vectorstore.segments.merge-factor:8}")
+    private int mergeFactor;
+    
+    @Value("${ai.vectorstore.segments.max-segment-chunks:250000}")
+    private int maxSegmentChunks;
+    
+    public VectorStoreService(EmbeddingService embeddingService, EmbeddingBatcher embeddingBatcher,
+                              @Value("${ai.vectorstore.mongodb.distance-type:COSINE_DISTANCE}") String distanceType,
+                              @Value("${ai.vectorstore.segments.path:./uploads/vector-store}") String storePath,
+                              @Value("${ai.vectorstore.hnsw.m:16}") int m,
+                              @Value("${ai.vectorstore.hnsw.ef-construction:200}") int efConstruction,
+                              @Value("${ai.vectorstore.hnsw.ef-search:64}") int efSearch,
+                              @Value("${ai.vectorstore.quantization.mode:NONE}") Quantization.Mode quantizationMode,
+                              @Value("${ai.vectorstore.quantization.subvector-dimension:4}") int subvectorDimension,
+                              @Value("${ai.vectorstore.quantization.rerank-factor:4}") int rerankFactor,
+                              @Value("${ai.vectorstore.chunking.max-tokens:512}") int chunkTokens,
+                              @Value("${ai.vectorstore.chunking.overlap-tokens:64}") int chunkOverlapTokens,
+                              MeterRegistry meterRegistry) {
+        if (!COSINE_DISTANCE.equals(distanceType)) {
+            throw new IllegalStateException("Unsupported vector store distance type: " + distanceType);
+        }
+        this.embeddingService = embeddingService;
+        this.embeddingBatcher = embeddingBatcher;
+        this.chunker = new StreamingChunker(TokenCounter.approximate(), chunkTokens, chunkOverlapTokens);
+        try {
+            Quantization quantization = new Quantization(quantizationMode, subvectorDimension, rerankFactor);
+            this.store = VectorSegmentStore.open(Paths.get(storePath), embeddingService.dimension(), m, efConstruction,
+                    quantization);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to open vector store at " + storePath + ": " + e.getMessage(), e);
+        }
+        this.efSearch = efSearch;
+        this.searchTimer = Timer.builder("vectorstore.search")
+                .description("HNSW top-k search latency")
+                .register(meterRegistry);
+        Gauge.builder("vectorstore.chunks", store, VectorSegmentStore::chunkCount)
+                .description("Live chunks in the vector index")
+                .register(meterRegistry);
+        Gauge.builder("vectorstore.segments", store, VectorSegmentStore::segmentCount)
+                .description("Sealed vector segment files")
+                .register(meterRegistry);
+    }
     
     /**
-     * Store processed data
+     * Store processed data and return the ID it can be retrieved by
      */
-    public void storeProcessedData(String data) {
+    public String storeProcessedData(String data) {
         log.info("Storing processed data in vector store, length: {}", data.length());
         
         try {
-            // In a real implementation, this would:
-            // 1. Generate embeddings for the data
-            // 2. Store in vector database (e.g., Pinecone, Weaviate, or FAISS)
-            // 3. Create metadata for retrieval
-            
-            log.info("Processed data stored successfully in vector store");
+            String id = UUID.randomUUID().toString();
+            storeDocument(id, data);
             
+            log.info("Processed data stored successfully in vector store: {}", id);
+            return id;
+        
         } catch (Exception e) {
             log.error("Error storing processed data: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to store processed data: " + e.getMessage());
@@ -44,21 +123,57 @@ public class VectorStoreService {
         log.debug("Searching similar data for query: {} with limit: {}", query, limit);
         
         try {
-            // In a real implementation, this would:
-            // 1. Generate embedding for the query
-            // 2. Search vector database for similar embeddings
-            // 3. Return ranked results with similarity scores
-            
-            String results = "Simulated similar data search results for query: " + query;
+            String results = search(query, limit).stream()
+                    .map(hit -> String.format("[%.3f] %s", hit.score(), hit.text()))
+                    .collect(Collectors.joining("\n\n"));
             log.debug("Similar data search completed, results length: {}", results.length());
             return results;
-            
+        
         } catch (Exception e) {
             log.error("Error searching similar data: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to search similar data: " + e.getMessage());
         }
     }
     
+    /**
+     * Top-k chunks most similar to the query, best match first
+     */
+    public List<SearchHit> search(String query, int limit) {
+        float[] embedding = embeddingService.embed(query);
+        return searchTimer.record(() -> store.search(embedding, limit, efSearch).stream()
+                .map(match -> new SearchHit(match.chunk().documentId(), match.chunk().text(), match.score()))
+                .collect(Collectors.toList()));
+    }
+    
+    /**
+     * IDs of up to {@code limit} documents accepted by {@code documents} whose chunks
+     * best match the query, best first. The filter is applied inside the index search;
+     * if the best chunks repeat documents, more chunks are fetched until {@code limit}
+     * distinct documents are found or no more matching chunks exist.
+     */
+    public List<String> searchDocuments(String query, int limit, Predicate<String> documents) {
+        float[] embedding = embeddingService.embed(query);
+        return searchTimer.record(() -> {
+            int k = limit;
+            while (true) {
+                List<ScoredChunk> chunks = store.search(embedding, k, Math.max(efSearch, k), documents);
+                List<String> ids = chunks.stream()
+                        .map(match -> match.chunk().documentId())
+                        .distinct()
+                        .limit(limit)
+                        .collect(Collectors.toList());
+                if (ids.size() == limit || chunks.size() < k || k >= limit * MAX_DOCUMENT_OVERSAMPLING) {
+                    return ids;
+                }
+                k *= 2;
+            }
+        });
+    }
+    
+    public boolean containsData(String id) {
+        return store.contains(id);
+    }
+    
     /**
      * Retrieve data by ID
      */
@@ -66,11 +181,14 @@ public class VectorStoreService {
         log.debug("Retrieving data by ID: {}", id);
         
         try {
-            // In a real implementation, this would retrieve from vector database
-            String data = "Simulated retrieved data for ID: " + id;
+            String data = store.get(id)
+                    .orElseThrow(() -> new RuntimeException("Vector data not found: " + id))
+                    .stream()
+                    .map(Chunk::text)
+                    .collect(Collectors.joining("\n\n"));
             log.debug("Data retrieved successfully for ID: {}", id);
             return data;
-            
+        
         } catch (Exception e) {
             log.error("Error retrieving data by ID {}: {}", id, e.getMessage(), e);
             throw new RuntimeException("Failed to retrieve data: " + e.getMessage());
@@ -84,9 +202,9 @@ public class VectorStoreService {
         log.info("Deleting data by ID: {}", id);
         
         try {
-            // In a real implementation, this would delete from vector database
+            store.delete(id);
             log.info("Data deleted successfully for ID: {}", id);
-            
+        
         } catch (Exception e) {
             log.error("Error deleting data by ID {}: {}", id, e.getMessage(), e);
             throw new RuntimeException("Failed to delete data: " + e.getMessage());
@@ -100,16 +218,100 @@ public class VectorStoreService {
         log.info("Updating data by ID: {} with length: {}", id, data.length());
         
         try {
-            // In a real implementation, this would:
-            // 1. Generate new embeddings
-            // 2. Update in vector database
-            // 3. Update metadata
+            // Storing under the same ID tombstones the previous chunks
+            storeDocument(id, data);
             
             log.info("Data updated successfully for ID: {}", id);
-            
+        
         } catch (Exception e) {
             log.error("Error updating data by ID {}: {}", id, e.getMessage(), e);
             throw new RuntimeException("Failed to update data: " + e.getMessage());
         }
     }
+    
+    /**
+     * Store a copy of another document's chunks and embeddings under {@code id}.
+     * Returns false, storing nothing, if the source document is not stored.
+     */
+    public boolean copyData(String sourceId, String id) {
+        try {
+            return store.copy(sourceId, id);
+        } catch (IOException e) {
+            log.error("Error copying data {} to {}: {}", sourceId, id, e.getMessage(), e);
+            throw new RuntimeException("Failed to copy data: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Seal the in-memory segment once it is large enough and merge small segments
+     */
+    @Scheduled(fixedDelayString = "${ai.vectorstore.segments.maintenance-interval:30000}")
+    public void maintainSegments() {
+        try {
+            store.flushIfLarger(flushThreshold);
+            store.merge(mergeFactor, maxSegmentChunks);
+        } catch (IOException e) {
+            log.error("Vector segment maintenance failed: {}", e.getMessage(), e);
+        }
+    }
+    
+    @PreDestroy
+    public void close() throws IOException {
+        store.close();
+    }
+    
+    /**
+     * Writer that stores a document under {@code id} as it is written, replacing any
+     * earlier version. Text is chunked and embedded in batches, so the whole document
+     * is never held in memory. Closing the writer stores the last batch.
+     */
+    public Writer openDocument(String id) throws IOException {
+        store.delete(id);
+        List<String> batch = new ArrayList<>(EMBEDDING_BATCH_SIZE);
+        Writer chunks = chunker.open(chunk -> {
+            batch.add(chunk.text());
+            if (batch.size() == EMBEDDING_BATCH_SIZE) {
+                appendBatch(id, batch);
+            }
+        });
+        return new Writer() {
+            @Override
+            public void write(char[] buffer, int offset, int length) throws IOException {
+                chunks.write(buffer, offset, length);
+            }
+            
+            @Override
+            public void flush() {
+            }
+            
+            @Override
+            public void close() throws IOException {
+                chunks.close();
+                if (!batch.isEmpty()) {
+                    appendBatch(id, batch);
+                }
+            }
+        };
+    }
+    
+    private void storeDocument(String id, String data) throws IOException {
+        List<String> pieces = chunker.chunk(data).stream().map(TextChunk::text).collect(Collectors.toList());
+        store.put(id, pieces, embed(pieces));
+    }
+    
+    private void appendBatch(String id, List<String> batch) throws IOException {
+        store.append(id, List.copyOf(batch), embed(batch));
+        batch.clear();
+    }
+    
+    /**
+     * Document chunks go through the shared batcher so concurrent ingestion jobs fill
+     * batches together; queries are embedded directly
+     */
+    private List<float[]> embed(List<String> pieces) {
+        return embeddingBatcher.embedAll(pieces);
+    }
+    
+    public record SearchHit(String documentId, String text, float score) {
+    }
 }
@@ -4,6 +4,8 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Visualization Service
  * 
@@ -21,103 +23,130 @@ public class VisualizationService {
      * Generate chart data
      */
     public String generateChartData(String data, String chartType) {
+        try {
+            return generateChartDataAsync(data, chartType).join();
+        } catch (Exception e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            log.error("Error generating chart data: {}", cause.getMessage(), cause);
+            throw new RuntimeException("Failed to generate chart data: " + cause.getMessage());
+        }
+    }
+    
+    /**
+     * Generate chart data without blocking the caller
+     */
+    public CompletableFuture<String> generateChartDataAsync(String data, String chartType) {
         log.debug("Generating chart data for type: {}", chartType);
         
-        try {
-            String prompt = String.format("""
-                Generate chart data for the following data using %s chart type:
-                
-                %s
-                
-                Please provide:
-                1. Chart configuration (type, colors, labels)
-                2. Data points and values
-                3. Axis labels and scales
-                4. Chart title and description
-                5. Legend information
-                6. Data source attribution
-                7. Chart dimensions and styling
-                
-                Format as structured chart configuration data.
-                """, chartType, data);
+        String prompt = String.format("""
+            Generate chart data for the following data using %s chart type:
             
-            String chartData = aiService.generateText(prompt);
-            log.debug("Chart data generated successfully for type: {}", chartType);
-            return chartData;
+            %s
             
-        } catch (Exception e) {
-            log.error("Error generating chart data: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to generate chart data: " + e.getMessage());
-        }
+            Please provide:
+            1. Chart configuration (type, colors, labels)
+            2. Data points and values
+            3. Axis labels and scales
+            4. Chart title and description
+            5. Legend information
+            6. Data source attribution
+            7. Chart dimensions and styling
+            
+            Format as structured chart configuration data.
+            """, chartType, data);
+        
+        return aiService.generateTextAsync(prompt, AIResponseCache.CHART)
+                .thenApply(chartData -> {
+                    log.debug("Chart data generated successfully for type: {}", chartType);
+                    return chartData;
+                });
     }
     
     /**
      * Generate dashboard data
      */
     public String generateDashboardData(String data) {
+        try {
+            return generateDashboardDataAsync(data).join();
+        } catch (Exception e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            log.error("Error generating dashboard data: {}", cause.getMessage(), cause);
+            throw new RuntimeException("Failed to generate dashboard data: " + cause.getMessage());
+        }
+    }
+    
+    /**
+     * Generate dashboard data without blocking the caller
+     */
+    public CompletableFuture<String> generateDashboardDataAsync(String data) {
         log.info("Generating dashboard data");
         
-        try {
-            String prompt = String.format("""
-                Generate dashboard data for the following information:
-                
-                %s
-                
-                Please create:
-                1. Key metrics cards
-                2. Growth charts
-                3. Performance indicators
-                4. Risk assessment visualizations
-                5. Market analysis charts
-                6. Financial summary charts
-                7. Competitive positioning matrix
-                8. Timeline visualizations
-                
-                Format as a comprehensive dashboard configuration.
-                """, data);
+        String prompt = String.format("""
+            Generate dashboard data for the following information:
             
-            String dashboardData = aiService.generateText(prompt);
-            log.info("Dashboard data generated successfully");
-            return dashboardData;
+            %s
             
-        } catch (Exception e) {
-            log.error("Error generating dashboard data: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to generate dashboard data: " + e.getMessage());
-        }
+            Please create:
+            1. Key metrics cards
+            2. Growth charts
+            3. Performance indicators
+            4. Risk assessment visualizations
+            5. Market analysis charts
+            6. Financial summary charts
+            7. Competitive positioning matrix
+            8. Timeline visualizations
+            
+            Format as a comprehensive dashboard configuration.
+            """, data);
+        
+        return aiService.generateTextAsync(prompt, AIResponseCache.CHART)
+                .thenApply(dashboardData -> {
+                    log.info("Dashboard data generated successfully");
+                    return dashboardData;
+                });
     }
     
     /**
      * Generate risk matrix
      */
     public String generateRiskMatrix(String riskData) {
+        try {
+            return generateRiskMatrixAsync(riskData).join();
+        } catch (Exception e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            log.error("Error generating risk matrix: {}", cause.getMessage(), cause);
+            throw new RuntimeException("Failed to generate risk matrix: " + cause.getMessage());
+        }
+    }
+    
+    /**
+     * Generate risk matrix without blocking the caller
+     */
+    public CompletableFuture<String> generateRiskMatrixAsync(String riskData) {
         log.debug("Generating risk matrix");
         
-        try {
-            String prompt = String.format("""
-                Generate a risk matrix for the following risk data:
-                
-                %s
-                
-                Please create:
-                1. Risk probability vs impact matrix
-                2. Risk categories and classifications
-                3. Risk mitigation strategies visualization
-                4. Risk monitoring dashboard
-                5. Risk trend analysis
-                6. Risk heat map
-                7. Risk score calculations
-                8. Risk priority rankings
-                
-                Format as a structured risk matrix configuration.
-                """, riskData);
+        String prompt = String.format("""
+            Generate a risk matrix for the following risk data:
             
-            String riskMatrix = aiService.generateText(prompt);
-            log.debug("Risk matrix generated successfully");
-            return riskMatrix;
+            %s
             
-        } catch (Exception e) {
-            log.error("Error generating risk matrix: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to generate risk matrix: " + e.getMessage());
-        }
+            Please create:
+            1. Risk probability vs impact matrix
+            2. Risk categories and classifications
+            3. Risk mitigation strategies visualization
+            4. Risk monitoring dashboard
+            5. Risk trend analysis
+            6. Risk heat map
+            7. Risk score calculations
+            8. Risk priority rankings
+            
+            Format as a structured risk matrix configuration.
+            """, riskData);
+        
+        return aiService.generateTextAsync(prompt, AIResponseCache.CHART)
+                .thenApply(riskMatrix -> {
+                    log.debug("Risk matrix generated successfully");
+                    return riskMatrix;
+                });
     }
 }
@@ -0,0 +1,7 @@
+package com.aianalyst.vector;
+
+/**
+ * A stored text chunk and the document it was split from
+ */
+public record Chunk(String documentId, String text) {
+}
@@ -0,0 +1,28 @@
+package com.aianalyst.vector;
+
+/**
+ * HNSW Graph
+ *
+ * Read access to an HNSW layer graph, independent of where it is stored. Implemented
+ * by the in-memory index that takes new inserts and by immutable memory-mapped
+ * segments, so both are searched by the same code.
+ */
+interface HnswGraph {
+    
+    int dimension();
+    
+    /**
+     * Largest number of neighbours a node can hold on {@code level}
+     */
+    int maxConnections(int level);
+    
+    /**
+     * Cosine distance between a normalized query and a stored node
+     */
+    float distance(float[] query, int node);
+    
+    /**
+     * Copy the neighbours of {@code node} on {@code level} into {@code into} and return how many there are
+     */
+    int neighbors(int node, int level, int[] into);
+}
@@ -0,0 +1,414 @@
+package com.aianalyst.vector;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntPredicate;
+
+/**
+ * HNSW Index
+ *
+ * In-process approximate nearest neighbour index using a Hierarchical Navigable
+ * Small World graph (Malkov and Yashunin) under cosine distance.
+ *
+ * Vectors are normalized on insert and stored in paged primitive {@code float[]}
+ * arrays, unless the index is built over vectors that are already stored
+ * elsewhere, such as the mapped segments a merge reads from. Neighbour lists are
+ * immutable {@code int[]} snapshots swapped through atomic references, so searches
+ * never lock; concurrent inserts only lock the single node whose neighbour list
+ * they are rewriting.
+ */
+public final class HnswIndex implements HnswGraph {
+    
+    private static final int PAGE_SHIFT = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final int MAX_LEVEL = 16;
+    
+    private final int dimension;
+    private final int maxConnections;
+    private final int maxConnectionsLevel0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final Vectors vectors;
+    
+    private final AtomicInteger nodeCount = new AtomicInteger();
+    private final AtomicReference<EntryPoint> entryPoint = new AtomicReference<>();
+    private final Object growLock = new Object();
+    private volatile Node[][] nodePages = new Node[0][];
+    
+    /**
+     * @param dimension      length of every stored vector
+     * @param m              neighbours kept per node on the upper layers; layer 0 keeps twice as many
+     * @param efConstruction candidate list size used while linking new nodes
+     */
+    public HnswIndex(int dimension, int m, int efConstruction) {
+        this(dimension, m, efConstruction, new HeapVectors(dimension));
+    }
+    
+    /**
+     * Index over vectors kept by {@code vectors}
+     */
+    HnswIndex(int dimension, int m, int efConstruction, Vectors vectors) {
+        if (dimension <= 0 || m < 2 || efConstruction < m) {
+            throw new IllegalArgumentException("Invalid HNSW parameters: dimension=" + dimension
+                    + ", m=" + m + ", efConstruction=" + efConstruction);
+        }
+        this.dimension = dimension;
+        this.maxConnections = m;
+        this.maxConnectionsLevel0 = 2 * m;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1 / Math.log(m);
+        this.vectors = vectors;
+    }
+    
+    /**
+     * Insert a vector and return its node id. Safe to call from many threads at once.
+     */
+    public int add(float[] vector) {
+        int id = reserve(vector);
+        link(id);
+        return id;
+    }
+    
+    /**
+     * Store a vector under the next node id without linking it into the graph yet,
+     * so callers can assign ids in order and do the expensive linking afterwards.
+     * Searches do not reach the node until {@link #link} has run for it.
+     */
+    public int reserve(float[] vector) {
+        checkDimension(vector);
+        int id = nodeCount.getAndIncrement();
+        ensureCapacity(id);
+        
+        float[] normalized = Arrays.copyOf(vector, dimension);
+        HnswSearch.normalize(normalized, 0, dimension);
+        vectors.set(id, normalized);
+        // Published to readers by the atomic neighbour-list writes that first link to it
+        nodePages[id >>> PAGE_SHIFT][id & PAGE_MASK] = new Node(randomLevel());
+        return id;
+    }
+    
+    /**
+     * Link a reserved node into the graph. Safe to call from many threads at once,
+     * once per node, from the thread that reserved it.
+     */
+    public void link(int id) {
+        Node node = node(id);
+        int level = node.links.length() - 1;
+        float[] query = vectors.get(id);
+        
+        EntryPoint entry = entryPoint.get();
+        if (entry == null) {
+            synchronized (entryPoint) {
+                entry = entryPoint.get();
+                if (entry == null) {
+                    entryPoint.set(new EntryPoint(id, level));
+                    return;
+                }
+            }
+        }
+        
+        int current = entry.id();
+        float currentDistance = distance(query, current);
+        for (int l = entry.level(); l > level; l--) {
+            current = HnswSearch.greedyClosest(this, query, current, l);
+            currentDistance = distance(query, current);
+        }
+        
+        for (int l = Math.min(level, entry.level()); l >= 0; l--) {
+            NodeHeap candidates = HnswSearch.searchLayer(this, query, current, currentDistance, efConstruction, l);
+            int[] ids = new int[candidates.size()];
+            float[] distances = new float[candidates.size()];
+            HnswSearch.drainAscending(candidates, ids, distances);
+            current = ids[0];
+            currentDistance = distances[0];
+            connect(id, node, l, selectNeighbors(ids, distances, maxConnections));
+        }
+        
+        if (level > entry.level()) {
+            synchronized (entryPoint) {
+                if (level > entryPoint.get().level()) {
+                    entryPoint.set(new EntryPoint(id, level));
+                }
+            }
+        }
+    }
+    
+    /**
+     * Find the {@code k} nearest live vectors to {@code query}, closest first.
+     * A larger {@code ef} trades latency for recall.
+     */
+    public List<Neighbor> search(float[] query, int k, int ef) {
+        return search(query, k, ef, id -> false);
+    }
+    
+    /**
+     * Find the {@code k} nearest live vectors to {@code query} that are not {@code excluded}
+     */
+    public List<Neighbor> search(float[] query, int k, int ef, IntPredicate excluded) {
+        checkDimension(query);
+        EntryPoint entry = entryPoint.get();
+        if (entry == null || k <= 0) {
+            return List.of();
+        }
+        
+        float[] normalized = Arrays.copyOf(query, dimension);
+        HnswSearch.normalize(normalized, 0, dimension);
+        return HnswSearch.search(this, normalized, entry.id(), entry.level(), k, ef,
+                id -> isDeleted(id) || excluded.test(id));
+    }
+    
+    /**
+     * Hide a node from search results. It stays in the graph as a routing hop.
+     */
+    public void markDeleted(int id) {
+        node(id).deleted = true;
+    }
+    
+    public boolean isDeleted(int id) {
+        return node(id).deleted;
+    }
+    
+    /**
+     * Copy of the normalized vector stored for a node
+     */
+    public float[] vector(int id) {
+        return vectors.get(id);
+    }
+    
+    /**
+     * Number of nodes ever inserted, including deleted ones
+     */
+    public int size() {
+        return nodeCount.get();
+    }
+    
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+    
+    @Override
+    public int maxConnections(int level) {
+        return level == 0 ? maxConnectionsLevel0 : maxConnections;
+    }
+    
+    @Override
+    public int neighbors(int node, int level, int[] into) {
+        int[] links = node(node).links.get(level);
+        System.arraycopy(links, 0, into, 0, links.length);
+        return links.length;
+    }
+    
+    /**
+     * Top layer of a node
+     */
+    int level(int id) {
+        return node(id).links.length() - 1;
+    }
+    
+    /**
+     * Current entry point, or null while the index is empty
+     */
+    EntryPoint entryPoint() {
+        return entryPoint.get();
+    }
+    
+    /**
+     * Neighbour selection heuristic: keep a candidate only if it is closer to the
+     * base node than to every neighbour already kept, which preserves links that
+     * bridge clusters. Candidates must be sorted by ascending distance.
+     */
+    private int[] selectNeighbors(int[] ids, float[] distances, int max) {
+        int[] selected = new int[Math.min(max, ids.length)];
+        int count = 0;
+        for (int i = 0; i < ids.length && count < selected.length; i++) {
+            boolean keep = true;
+            for (int j = 0; j < count; j++) {
+                if (distanceBetween(ids[i], selected[j]) < distances[i]) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep) {
+                selected[count++] = ids[i];
+            }
+        }
+        return Arrays.copyOf(selected, count);
+    }
+    
+    /**
+     * Link a new node to its selected neighbours on one layer, and each neighbour back to it
+     */
+    private void connect(int id, Node node, int level, int[] selected) {
+        int max = maxConnections(level);
+        synchronized (node) {
+            // Concurrent inserts may already have linked to this node on lower layers
+            int[] existing = node.links.get(level);
+            int[] merged = Arrays.copyOf(existing, existing.length + selected.length);
+            System.arraycopy(selected, 0, merged, existing.length, selected.length);
+            node.links.set(level, merged.length > max ? prune(id, merged, max) : merged);
+        }
+        for (int neighborId : selected) {
+            Node neighbor = node(neighborId);
+            synchronized (neighbor) {
+                int[] links = neighbor.links.get(level);
+                if (contains(links, id)) {
+                    continue;
+                }
+                int[] updated = Arrays.copyOf(links, links.length + 1);
+                updated[links.length] = id;
+                neighbor.links.set(level, updated.length > max ? prune(neighborId, updated, max) : updated);
+            }
+        }
+    }
+    
+    /**
+     * Shrink an over-full neighbour list back to {@code max} with the selection heuristic
+     */
+    private int[] prune(int base, int[] links, int max) {
+        NodeHeap byDistance = NodeHeap.min(links.length);
+        for (int link : links) {
+            byDistance.push(link, distanceBetween(base, link));
+        }
+        int[] sortedIds = new int[links.length];
+        float[] sortedDistances = new float[links.length];
+        for (int i = 0; i < links.length; i++) {
+            sortedDistances[i] = byDistance.topDistance();
+            sortedIds[i] = byDistance.pop();
+        }
+        return selectNeighbors(sortedIds, sortedDistances, max);
+    }
+    
+    @Override
+    public float distance(float[] query, int id) {
+        return 1 - vectors.dot(query, id);
+    }
+    
+    private float distanceBetween(int a, int b) {
+        return 1 - vectors.dot(a, b);
+    }
+    
+    private Node node(int id) {
+        return nodePages[id >>> PAGE_SHIFT][id & PAGE_MASK];
+    }
+    
+    private void ensureCapacity(int id) {
+        int page = id >>> PAGE_SHIFT;
+        if (page < nodePages.length) {
+            return;
+        }
+        synchronized (growLock) {
+            while (nodePages.length <= page) {
+                int pages = nodePages.length;
+                Node[][] nodes = Arrays.copyOf(nodePages, pages + 1);
+                nodes[pages] = new Node[PAGE_SIZE];
+                nodePages = nodes;
+            }
+        }
+    }
+    
+    private int randomLevel() {
+        double r = 1 - ThreadLocalRandom.current().nextDouble();
+        return Math.min((int) (-Math.log(r) * levelMultiplier), MAX_LEVEL);
+    }
+    
+    private void checkDimension(float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("Expected vector of dimension " + dimension + " but got " + vector.length);
+        }
+    }
+    
+    private static boolean contains(int[] values, int value) {
+        for (int v : values) {
+            if (v == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Normalized vectors of an index's nodes, by node id
+     */
+    interface Vectors {
+        
+        /**
+         * Store the vector of a new node before it is linked into the graph
+         */
+        void set(int id, float[] normalized);
+        
+        float[] get(int id);
+        
+        float dot(float[] query, int id);
+        
+        float dot(int a, int b);
+    }
+    
+    /**
+     * Vectors in paged {@code float[]} arrays on the heap
+     */
+    private static final class HeapVectors implements Vectors {
+        
+        private final int dimension;
+        private final VectorKernels kernels = VectorKernels.preferred();
+        private final Object growLock = new Object();
+        private volatile float[][] pages = new float[0][];
+        
+        HeapVectors(int dimension) {
+            this.dimension = dimension;
+        }
+        
+        @Override
+        public void set(int id, float[] normalized) {
+            int page = id >>> PAGE_SHIFT;
+            if (page >= pages.length) {
+                synchronized (growLock) {
+                    while (pages.length <= page) {
+                        float[][] grown = Arrays.copyOf(pages, pages.length + 1);
+                        grown[grown.length - 1] = new float[PAGE_SIZE * dimension];
+                        pages = grown;
+                    }
+                }
+            }
+            System.arraycopy(normalized, 0, pages[page], (id & PAGE_MASK) * dimension, dimension);
+        }
+        
+        @Override
+        public float[] get(int id) {
+            int offset = (id & PAGE_MASK) * dimension;
+            return Arrays.copyOfRange(pages[id >>> PAGE_SHIFT], offset, offset + dimension);
+        }
+        
+        @Override
+        public float dot(float[] query, int id) {
+            return kernels.dot(query, 0, pages[id >>> PAGE_SHIFT], (id & PAGE_MASK) * dimension, dimension);
+        }
+        
+        @Override
+        public float dot(int a, int b) {
+            return kernels.dot(pages[a >>> PAGE_SHIFT], (a & PAGE_MASK) * dimension,
+                    pages[b >>> PAGE_SHIFT], (b & PAGE_MASK) * dimension, dimension);
+        }
+    }
+    
+    private static final class Node {
+        
+        final AtomicReferenceArray<int[]> links;
+        volatile boolean deleted;
+        
+        Node(int level) {
+            links = new AtomicReferenceArray<>(level + 1);
+            for (int l = 0; l <= level; l++) {
+                links.set(l, new int[0]);
+            }
+        }
+    }
+    
+    record EntryPoint(int id, int level) {
+    }
+}
@@ -0,0 +1,140 @@
+package com.aianalyst.vector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * HNSW Search
+ *
+ * Greedy descent and best-first layer search shared by every {@link HnswGraph}.
+ * Queries must already be normalized.
+ */
+final class HnswSearch {
+    
+    private static final ThreadLocal<VisitedSet> VISITED = ThreadLocal.withInitial(VisitedSet::new);
+    
+    private HnswSearch() {
+    }
+    
+    /**
+     * Find the {@code k} nearest nodes that are not {@code excluded}, closest first.
+     * Excluded nodes are still walked through, but never take a result slot, so the
+     * search keeps going until it has {@code ef} accepted candidates or runs out of graph.
+     */
+    static List<Neighbor> search(HnswGraph graph, float[] query, int entry, int entryLevel, int k, int ef,
+                                 IntPredicate excluded) {
+        int current = entry;
+        for (int l = entryLevel; l > 0; l--) {
+            current = greedyClosest(graph, query, current, l);
+        }
+        NodeHeap results = searchLayer(graph, query, current, graph.distance(query, current), Math.max(ef, k), 0,
+                excluded);
+        
+        int[] ids = new int[results.size()];
+        float[] distances = new float[results.size()];
+        drainAscending(results, ids, distances);
+        List<Neighbor> neighbors = new ArrayList<>(Math.min(k, ids.length));
+        for (int i = 0; i < ids.length && neighbors.size() < k; i++) {
+            neighbors.add(new Neighbor(ids[i], 1 - distances[i]));
+        }
+        return neighbors;
+    }
+    
+    /**
+     * Walk layer {@code level} towards the query until no neighbour is closer
+     */
+    static int greedyClosest(HnswGraph graph, float[] query, int start, int level) {
+        int[] scratch = new int[graph.maxConnections(level)];
+        int current = start;
+        float currentDistance = graph.distance(query, current);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int count = graph.neighbors(current, level, scratch);
+            for (int i = 0; i < count; i++) {
+                float d = graph.distance(query, scratch[i]);
+                if (d < currentDistance) {
+                    currentDistance = d;
+                    current = scratch[i];
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+    
+    /**
+     * Best-first search of one layer. Returns up to {@code ef} closest nodes as a max-heap.
+     */
+    static NodeHeap searchLayer(HnswGraph graph, float[] query, int entry, float entryDistance, int ef, int level) {
+        return searchLayer(graph, query, entry, entryDistance, ef, level, null);
+    }
+    
+    /**
+     * Best-first search of one layer that leaves {@code excluded} nodes, if given, out
+     * of the results while still expanding through them
+     */
+    private static NodeHeap searchLayer(HnswGraph graph, float[] query, int entry, float entryDistance, int ef,
+                                        int level, IntPredicate excluded) {
+        VisitedSet visited = VISITED.get();
+        visited.clear();
+        int[] scratch = new int[graph.maxConnections(level)];
+        NodeHeap candidates = NodeHeap.min(ef * 2);
+        NodeHeap results = NodeHeap.max(ef + 1);
+        
+        visited.add(entry);
+        candidates.push(entry, entryDistance);
+        if (excluded == null || !excluded.test(entry)) {
+            results.push(entry, entryDistance);
+        }
+        
+        while (!candidates.isEmpty()) {
+            if (results.size() >= ef && candidates.topDistance() > results.topDistance()) {
+                break;
+            }
+            int count = graph.neighbors(candidates.pop(), level, scratch);
+            for (int i = 0; i < count; i++) {
+                int neighbor = scratch[i];
+                if (!visited.add(neighbor)) {
+                    continue;
+                }
+                float d = graph.distance(query, neighbor);
+                if (results.size() < ef || d < results.topDistance()) {
+                    candidates.push(neighbor, d);
+                    if (excluded == null || !excluded.test(neighbor)) {
+                        results.push(neighbor, d);
+                        if (results.size() > ef) {
+                            results.pop();
+                        }
+                    }
+                }
+            }
+        }
+        return results;
+    }
+    
+    /**
+     * Empty a max-heap into parallel arrays sorted by ascending distance
+     */
+    static void drainAscending(NodeHeap heap, int[] ids, float[] distances) {
+        for (int i = ids.length - 1; i >= 0; i--) {
+            distances[i] = heap.topDistance();
+            ids[i] = heap.pop();
+        }
+    }
+    
+    static void normalize(float[] vector, int offset, int length) {
+        double norm = 0;
+        for (int i = offset; i < offset + length; i++) {
+            norm += vector[i] * vector[i];
+        }
+        if (norm == 0) {
+            return;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = offset; i < offset + length; i++) {
+            vector[i] *= scale;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.aianalyst.vector;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Picks the kernels behind {@link VectorKernels#preferred()}. The SIMD kernels are only
+ * loaded when the JVM was started with {@code --add-modules jdk.incubator.vector}. They are
+ * compiled separately from the rest of the module, so they are looked up by name.
+ */
+@Slf4j
+final class KernelSelection {
+    
+    static final VectorKernels PREFERRED = select();
+    
+    private static final String SIMD_KERNELS = "com.aianalyst.vector.SimdKernels";
+    
+    private KernelSelection() {
+    }
+    
+    private static VectorKernels select() {
+        String requested = System.getProperty(VectorKernels.KERNELS_PROPERTY, "auto");
+        if (requested.equals("scalar")) {
+            return ScalarKernels.INSTANCE;
+        }
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                VectorKernels simd = (VectorKernels) Class.forName(SIMD_KERNELS).getDeclaredMethod("create").invoke(null);
+                log.info("Using {} vector kernels", simd.name());
+                return simd;
+            } catch (ReflectiveOperationException | LinkageError e) {
+                log.warn("Vector API kernels unavailable, using scalar kernels: {}", e.getMessage());
+            }
+        } else if (requested.equals("simd")) {
+            log.warn("{}=simd needs --add-modules jdk.incubator.vector, using scalar kernels",
+                    VectorKernels.KERNELS_PROPERTY);
+        }
+        return ScalarKernels.INSTANCE;
+    }
+}
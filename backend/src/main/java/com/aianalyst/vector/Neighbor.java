@@ -0,0 +1,7 @@
+package com.aianalyst.vector;
+
+/**
+ * A search hit: node id within its graph and cosine similarity to the query
+ */
+public record Neighbor(int id, float score) {
+}
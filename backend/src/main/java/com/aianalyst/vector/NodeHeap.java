@@ -0,0 +1,98 @@
+package com.aianalyst.vector;
+
+import java.util.Arrays;
+
+/**
+ * Node Heap
+ *
+ * Binary heap of (node id, distance) pairs backed by primitive arrays, so graph
+ * searches do not box an object per visited node. Ordered as a min-heap or a
+ * max-heap on distance.
+ */
+final class NodeHeap {
+    
+    private final boolean maxHeap;
+    private int[] ids;
+    private float[] distances;
+    private int size;
+    
+    private NodeHeap(int capacity, boolean maxHeap) {
+        this.maxHeap = maxHeap;
+        this.ids = new int[Math.max(capacity, 4)];
+        this.distances = new float[Math.max(capacity, 4)];
+    }
+    
+    static NodeHeap min(int capacity) {
+        return new NodeHeap(capacity, false);
+    }
+    
+    static NodeHeap max(int capacity) {
+        return new NodeHeap(capacity, true);
+    }
+    
+    void push(int id, float distance) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+            distances = Arrays.copyOf(distances, size * 2);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!before(distance, distances[parent])) {
+                break;
+            }
+            ids[i] = ids[parent];
+            distances[i] = distances[parent];
+            i = parent;
+        }
+        ids[i] = id;
+        distances[i] = distance;
+    }
+    
+    /**
+     * Remove the top entry and return its id
+     */
+    int pop() {
+        int top = ids[0];
+        int lastId = ids[--size];
+        float lastDistance = distances[size];
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < size && before(distances[right], distances[child])) {
+                child = right;
+            }
+            if (!before(distances[child], lastDistance)) {
+                break;
+            }
+            ids[i] = ids[child];
+            distances[i] = distances[child];
+            i = child;
+        }
+        ids[i] = lastId;
+        distances[i] = lastDistance;
+        return top;
+    }
+    
+    int topId() {
+        return ids[0];
+    }
+    
+    float topDistance() {
+        return distances[0];
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    boolean isEmpty() {
+        return size == 0;
+    }
+    
+    private boolean before(float a, float b) {
+        return maxHeap ? a > b : a < b;
+    }
+}
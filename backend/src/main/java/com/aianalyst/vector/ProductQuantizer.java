@@ -0,0 +1,168 @@
+package com.aianalyst.vector;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.Random;
+import java.util.function.IntFunction;
+
+/**
+ * Product Quantizer
+ *
+ * Splits a vector into subspaces of {@code subvectorDimension} dimensions and stores
+ * each as the index of its nearest centroid, trained by k-means on a sample of the
+ * segment. A query is scored by table lookup: the dot product of each query
+ * subvector with every centroid is computed once, then a code costs one lookup
+ * per subspace.
+ */
+final class ProductQuantizer implements VectorQuantizer {
+    
+    static final int MAX_CENTROIDS = 256;
+    private static final int TRAINING_SAMPLE = 5000;
+    private static final int KMEANS_ITERATIONS = 6;
+    
+    private final int subvectorDimension;
+    private final int subspaces;
+    private final int centroids;
+    // Centroid c of subspace s starts at (s * centroids + c) * subvectorDimension
+    private final float[] codebook;
+    
+    private ProductQuantizer(int subvectorDimension, int subspaces, int centroids, float[] codebook) {
+        this.subvectorDimension = subvectorDimension;
+        this.subspaces = subspaces;
+        this.centroids = centroids;
+        this.codebook = codebook;
+    }
+    
+    static ProductQuantizer train(IntFunction<float[]> vectors, int count, int dimension, int subvectorDimension) {
+        int subspaces = dimension / subvectorDimension;
+        int sampleSize = Math.min(count, TRAINING_SAMPLE);
+        if (sampleSize == 0) {
+            return new ProductQuantizer(subvectorDimension, subspaces, 1, new float[dimension]);
+        }
+        float[][] sample = new float[sampleSize][];
+        for (int i = 0; i < sampleSize; i++) {
+            sample[i] = vectors.apply((int) ((long) i * count / sampleSize));
+        }
+        int centroids = Math.min(MAX_CENTROIDS, sampleSize);
+        float[] codebook = new float[subspaces * centroids * subvectorDimension];
+        Random random = new Random(42);
+        int[] assignment = new int[sampleSize];
+        for (int s = 0; s < subspaces; s++) {
+            int from = s * subvectorDimension;
+            int base = s * centroids * subvectorDimension;
+            for (int c = 0; c < centroids; c++) {
+                System.arraycopy(sample[random.nextInt(sampleSize)], from, codebook, base + c * subvectorDimension,
+                        subvectorDimension);
+            }
+            for (int iteration = 0; iteration < KMEANS_ITERATIONS; iteration++) {
+                for (int n = 0; n < sampleSize; n++) {
+                    assignment[n] = nearest(codebook, base, centroids, subvectorDimension, sample[n], from);
+                }
+                float[] sums = new float[centroids * subvectorDimension];
+                int[] sizes = new int[centroids];
+                for (int n = 0; n < sampleSize; n++) {
+                    sizes[assignment[n]]++;
+                    for (int d = 0; d < subvectorDimension; d++) {
+                        sums[assignment[n] * subvectorDimension + d] += sample[n][from + d];
+                    }
+                }
+                for (int c = 0; c < centroids; c++) {
+                    if (sizes[c] == 0) {
+                        // Reseed an empty cluster from a random sample
+                        System.arraycopy(sample[random.nextInt(sampleSize)], from, codebook,
+                                base + c * subvectorDimension, subvectorDimension);
+                        continue;
+                    }
+                    for (int d = 0; d < subvectorDimension; d++) {
+                        codebook[base + c * subvectorDimension + d] = sums[c * subvectorDimension + d] / sizes[c];
+                    }
+                }
+            }
+        }
+        return new ProductQuantizer(subvectorDimension, subspaces, centroids, codebook);
+    }
+    
+    static ProductQuantizer read(ByteBuffer parameters, int dimension) {
+        int subvectorDimension = parameters.getInt(0);
+        int centroids = parameters.getInt(4);
+        int subspaces = dimension / subvectorDimension;
+        float[] codebook = new float[subspaces * centroids * subvectorDimension];
+        FloatBuffer floats = parameters.slice(8, codebook.length * 4).order(parameters.order()).asFloatBuffer();
+        floats.get(0, codebook);
+        return new ProductQuantizer(subvectorDimension, subspaces, centroids, codebook);
+    }
+    
+    @Override
+    public int type() {
+        return PRODUCT;
+    }
+    
+    @Override
+    public int codeBytes() {
+        return subspaces;
+    }
+    
+    @Override
+    public void encode(float[] vector, byte[] code) {
+        for (int s = 0; s < subspaces; s++) {
+            code[s] = (byte) nearest(codebook, s * centroids * subvectorDimension, centroids, subvectorDimension,
+                    vector, s * subvectorDimension);
+        }
+    }
+    
+    @Override
+    public int parameterBytes() {
+        return 8 + codebook.length * 4;
+    }
+    
+    @Override
+    public void writeParameters(ByteBuffer out) {
+        out.putInt(subvectorDimension).putInt(centroids);
+        for (float v : codebook) {
+            out.putFloat(v);
+        }
+    }
+    
+    @Override
+    public Scorer scorer(float[] query) {
+        float[] table = new float[subspaces * centroids];
+        for (int s = 0; s < subspaces; s++) {
+            for (int c = 0; c < centroids; c++) {
+                int centroid = (s * centroids + c) * subvectorDimension;
+                float dot = 0;
+                for (int d = 0; d < subvectorDimension; d++) {
+                    dot += query[s * subvectorDimension + d] * codebook[centroid + d];
+                }
+                table[s * centroids + c] = dot;
+            }
+        }
+        byte[] code = new byte[subspaces];
+        return (codes, offset) -> {
+            codes.get(offset, code);
+            float dot = 0;
+            for (int s = 0; s < subspaces; s++) {
+                dot += table[s * centroids + (code[s] & 0xff)];
+            }
+            return 1 - dot;
+        };
+    }
+    
+    private static int nearest(float[] codebook, int base, int centroids, int subvectorDimension,
+                               float[] vector, int from) {
+        int best = 0;
+        float bestDistance = Float.MAX_VALUE;
+        for (int c = 0; c < centroids; c++) {
+            int centroid = base + c * subvectorDimension;
+            float distance = 0;
+            for (int d = 0; d < subvectorDimension; d++) {
+                float diff = vector[from + d] - codebook[centroid + d];
+                distance += diff * diff;
+            }
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = c;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,83 @@
+package com.aianalyst.vector;
+
+import java.util.function.IntFunction;
+
+/**
+ * Quantization
+ *
+ * How sealed segments compress their vectors for graph traversal. Compressed codes
+ * are small enough to stay resident in memory; the full-precision vectors stay in
+ * the segment file and are only read to re-rank the best {@code k * rerankFactor}
+ * candidates of a search.
+ *
+ * @param mode               compression applied to new segments
+ * @param subvectorDimension dimensions per product-quantization subspace
+ * @param rerankFactor       candidates re-ranked at full precision per requested result
+ */
+public record Quantization(Mode mode, int subvectorDimension, int rerankFactor) {
+    
+    public enum Mode {
+        /** Search full-precision float vectors */
+        NONE,
+        /** One signed byte per dimension, 4x smaller */
+        INT8,
+        /** One byte per subspace of {@code subvectorDimension} dimensions */
+        PRODUCT
+    }
+    
+    public Quantization {
+        if (mode == Mode.PRODUCT && subvectorDimension < 1) {
+            throw new IllegalArgumentException("Product quantization needs a positive subvector dimension");
+        }
+        if (rerankFactor < 1) {
+            throw new IllegalArgumentException("Rerank factor must be at least 1");
+        }
+    }
+    
+    public static Quantization none() {
+        return new Quantization(Mode.NONE, 0, 1);
+    }
+    
+    /**
+     * Check that vectors of {@code dimension} can be quantized in this mode
+     */
+    public void validate(int dimension) {
+        if (mode == Mode.PRODUCT && dimension % subvectorDimension != 0) {
+            throw new IllegalArgumentException("Dimension " + dimension
+                    + " is not a multiple of the subvector dimension " + subvectorDimension);
+        }
+    }
+    
+    /**
+     * Bytes per encoded vector of {@code dimension}
+     */
+    int codeBytes(int dimension) {
+        return switch (mode) {
+            case NONE -> 0;
+            case INT8 -> dimension;
+            case PRODUCT -> dimension / subvectorDimension;
+        };
+    }
+    
+    /**
+     * Largest quantizer parameters a segment of vectors of {@code dimension} can hold
+     */
+    long maxParameterBytes(int dimension) {
+        return switch (mode) {
+            case NONE -> 0;
+            case INT8 -> dimension * 2L * 4;
+            case PRODUCT -> 8 + (long) dimension * ProductQuantizer.MAX_CENTROIDS * 4;
+        };
+    }
+    
+    /**
+     * Fit a quantizer to {@code count} normalized vectors, or return null when vectors are kept as floats
+     */
+    VectorQuantizer train(IntFunction<float[]> vectors, int count, int dimension) {
+        return switch (mode) {
+            case NONE -> null;
+            case INT8 -> ScalarQuantizer.train(vectors, count, dimension);
+            case PRODUCT -> ProductQuantizer.train(vectors, count, dimension, subvectorDimension);
+        };
+    }
+}
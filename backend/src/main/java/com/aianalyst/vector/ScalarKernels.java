@@ -0,0 +1,78 @@
+package com.aianalyst.vector;
+
+/**
+ * Scalar Kernels
+ *
+ * Portable kernels. Loops keep four independent accumulators so the JIT can overlap
+ * the multiply-adds instead of waiting on one running sum.
+ */
+final class ScalarKernels implements VectorKernels {
+    
+    static final ScalarKernels INSTANCE = new ScalarKernels();
+    
+    private ScalarKernels() {
+    }
+    
+    @Override
+    public String name() {
+        return "scalar";
+    }
+    
+    @Override
+    public float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        float s0 = 0;
+        float s1 = 0;
+        float s2 = 0;
+        float s3 = 0;
+        int i = 0;
+        for (int bound = length & ~3; i < bound; i += 4) {
+            s0 += a[aOffset + i] * b[bOffset + i];
+            s1 += a[aOffset + i + 1] * b[bOffset + i + 1];
+            s2 += a[aOffset + i + 2] * b[bOffset + i + 2];
+            s3 += a[aOffset + i + 3] * b[bOffset + i + 3];
+        }
+        for (; i < length; i++) {
+            s0 += a[aOffset + i] * b[bOffset + i];
+        }
+        return s0 + s1 + s2 + s3;
+    }
+    
+    @Override
+    public float squaredDistance(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        float s0 = 0;
+        float s1 = 0;
+        float s2 = 0;
+        float s3 = 0;
+        int i = 0;
+        for (int bound = length & ~3; i < bound; i += 4) {
+            float d0 = a[aOffset + i] - b[bOffset + i];
+            float d1 = a[aOffset + i + 1] - b[bOffset + i + 1];
+            float d2 = a[aOffset + i + 2] - b[bOffset + i + 2];
+            float d3 = a[aOffset + i + 3] - b[bOffset + i + 3];
+            s0 += d0 * d0;
+            s1 += d1 * d1;
+            s2 += d2 * d2;
+            s3 += d3 * d3;
+        }
+        for (; i < length; i++) {
+            float d = a[aOffset + i] - b[bOffset + i];
+            s0 += d * d;
+        }
+        return s0 + s1 + s2 + s3;
+    }
+    
+    @Override
+    public float cosine(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        float dot = 0;
+        float normA = 0;
+        float normB = 0;
+        for (int i = 0; i < length; i++) {
+            float x = a[aOffset + i];
+            float y = b[bOffset + i];
+            dot += x * y;
+            normA += x * x;
+            normB += y * y;
+        }
+        return normA == 0 || normB == 0 ? 0 : (float) (dot / Math.sqrt((double) normA * normB));
+    }
+}
@@ -0,0 +1,108 @@
+package com.aianalyst.vector;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * Scalar Quantizer
+ *
+ * Maps each dimension linearly onto 256 levels between the smallest and largest
+ * value seen for that dimension, so a vector costs one byte per dimension.
+ * A query is scored against codes without decoding them: the per-dimension offset
+ * folds into one constant and the scale into a pre-multiplied query.
+ */
+final class ScalarQuantizer implements VectorQuantizer {
+    
+    private final float[] minimum;
+    private final float[] scale;
+    
+    private ScalarQuantizer(float[] minimum, float[] scale) {
+        this.minimum = minimum;
+        this.scale = scale;
+    }
+    
+    static ScalarQuantizer train(IntFunction<float[]> vectors, int count, int dimension) {
+        float[] minimum = new float[dimension];
+        float[] maximum = new float[dimension];
+        Arrays.fill(minimum, Float.MAX_VALUE);
+        Arrays.fill(maximum, -Float.MAX_VALUE);
+        for (int n = 0; n < count; n++) {
+            float[] vector = vectors.apply(n);
+            for (int i = 0; i < dimension; i++) {
+                minimum[i] = Math.min(minimum[i], vector[i]);
+                maximum[i] = Math.max(maximum[i], vector[i]);
+            }
+        }
+        float[] scale = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            if (count == 0) {
+                minimum[i] = 0;
+                maximum[i] = 0;
+            }
+            scale[i] = (maximum[i] - minimum[i]) / 255f;
+        }
+        return new ScalarQuantizer(minimum, scale);
+    }
+    
+    static ScalarQuantizer read(ByteBuffer parameters, int dimension) {
+        float[] minimum = new float[dimension];
+        float[] scale = new float[dimension];
+        parameters.asFloatBuffer().get(0, minimum).get(dimension, scale);
+        return new ScalarQuantizer(minimum, scale);
+    }
+    
+    @Override
+    public int type() {
+        return SCALAR;
+    }
+    
+    @Override
+    public int codeBytes() {
+        return minimum.length;
+    }
+    
+    @Override
+    public void encode(float[] vector, byte[] code) {
+        for (int i = 0; i < minimum.length; i++) {
+            int level = scale[i] == 0 ? 0 : Math.round((vector[i] - minimum[i]) / scale[i]);
+            code[i] = (byte) (Math.max(0, Math.min(255, level)) - 128);
+        }
+    }
+    
+    @Override
+    public int parameterBytes() {
+        return minimum.length * 2 * 4;
+    }
+    
+    @Override
+    public void writeParameters(ByteBuffer out) {
+        for (float v : minimum) {
+            out.putFloat(v);
+        }
+        for (float v : scale) {
+            out.putFloat(v);
+        }
+    }
+    
+    @Override
+    public Scorer scorer(float[] query) {
+        // dot(q, min + scale * (code + 128)) = sum(q * (min + 128 * scale)) + sum(q * scale * code)
+        float[] scaled = new float[minimum.length];
+        float bias = 0;
+        for (int i = 0; i < minimum.length; i++) {
+            scaled[i] = query[i] * scale[i];
+            bias += query[i] * (minimum[i] + 128 * scale[i]);
+        }
+        float constant = bias;
+        byte[] code = new byte[minimum.length];
+        return (codes, offset) -> {
+            codes.get(offset, code);
+            float dot = constant;
+            for (int i = 0; i < code.length; i++) {
+                dot += scaled[i] * code[i];
+            }
+            return 1 - dot;
+        };
+    }
+}
@@ -0,0 +1,88 @@
+package com.aianalyst.vector;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD Kernels
+ *
+ * Kernels on the JDK Vector API, using the widest float lanes the CPU offers.
+ * Only referenced through {@link #create()} once the incubator module is known to
+ * be present, so JVMs started without it never load this class.
+ */
+final class SimdKernels implements VectorKernels {
+    
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+    
+    private SimdKernels() {
+    }
+    
+    static VectorKernels create() {
+        return new SimdKernels();
+    }
+    
+    @Override
+    public String name() {
+        return "simd-" + SPECIES.vectorBitSize();
+    }
+    
+    @Override
+    public float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        FloatVector sum = FloatVector.zero(SPECIES);
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            FloatVector x = FloatVector.fromArray(SPECIES, a, aOffset + i);
+            FloatVector y = FloatVector.fromArray(SPECIES, b, bOffset + i);
+            sum = x.fma(y, sum);
+        }
+        float result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            result += a[aOffset + i] * b[bOffset + i];
+        }
+        return result;
+    }
+    
+    @Override
+    public float squaredDistance(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        FloatVector sum = FloatVector.zero(SPECIES);
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            FloatVector diff = FloatVector.fromArray(SPECIES, a, aOffset + i)
+                    .sub(FloatVector.fromArray(SPECIES, b, bOffset + i));
+            sum = diff.fma(diff, sum);
+        }
+        float result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            float d = a[aOffset + i] - b[bOffset + i];
+            result += d * d;
+        }
+        return result;
+    }
+    
+    @Override
+    public float cosine(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        FloatVector dot = FloatVector.zero(SPECIES);
+        FloatVector normA = FloatVector.zero(SPECIES);
+        FloatVector normB = FloatVector.zero(SPECIES);
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            FloatVector x = FloatVector.fromArray(SPECIES, a, aOffset + i);
+            FloatVector y = FloatVector.fromArray(SPECIES, b, bOffset + i);
+            dot = x.fma(y, dot);
+            normA = x.fma(x, normA);
+            normB = y.fma(y, normB);
+        }
+        float d = dot.reduceLanes(VectorOperators.ADD);
+        float na = normA.reduceLanes(VectorOperators.ADD);
+        float nb = normB.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            float x = a[aOffset + i];
+            float y = b[bOffset + i];
+            d += x * y;
+            na += x * x;
+            nb += y * y;
+        }
+        return na == 0 || nb == 0 ? 0 : (float) (d / Math.sqrt((double) na * nb));
+    }
+}
@@ -0,0 +1,86 @@
+package com.aianalyst.vector;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Tombstones
+ *
+ * Deleted nodes of an immutable segment. Deletes are appended to a sidecar file
+ * as node ordinals and mirrored in an atomic bitset that searches read without
+ * locking. Tombstoned nodes are dropped when the segment is merged.
+ */
+public final class Tombstones implements AutoCloseable {
+    
+    private final AtomicLongArray bits;
+    private final AtomicInteger deleted = new AtomicInteger();
+    private final FileChannel log;
+    
+    private Tombstones(int size, FileChannel log) {
+        this.bits = new AtomicLongArray((size + 63) >>> 6);
+        this.log = log;
+    }
+    
+    /**
+     * Load the tombstones recorded for a segment of {@code size} nodes
+     */
+    public static Tombstones open(Path path, int size) throws IOException {
+        Tombstones tombstones = new Tombstones(size, FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND));
+        if (Files.size(path) > 0) {
+            try (InputStream in = Files.newInputStream(path);
+                 DataInputStream data = new DataInputStream(new BufferedInputStream(in))) {
+                while (true) {
+                    tombstones.set(data.readInt());
+                }
+            } catch (EOFException e) {
+                // End of log; a torn trailing write is simply ignored
+            }
+        }
+        return tombstones;
+    }
+    
+    /**
+     * Delete a node, persisting the tombstone before it becomes visible
+     */
+    public synchronized void delete(int node) throws IOException {
+        if (isDeleted(node)) {
+            return;
+        }
+        log.write(ByteBuffer.allocate(4).putInt(0, node));
+        log.force(false);
+        set(node);
+    }
+    
+    public boolean isDeleted(int node) {
+        return (bits.get(node >>> 6) & (1L << node)) != 0;
+    }
+    
+    public int count() {
+        return deleted.get();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        log.close();
+    }
+    
+    private void set(int node) {
+        long mask = 1L << node;
+        int word = node >>> 6;
+        long previous = bits.getAndAccumulate(word, mask, (current, bit) -> current | bit);
+        if ((previous & mask) == 0) {
+            deleted.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.aianalyst.vector;
+
+/**
+ * Vector Kernels
+ *
+ * Similarity kernels over float vectors. Vectors are addressed as an array plus an
+ * offset so vectors packed into larger pages are scored without copying.
+ * {@link #preferred()} uses the JDK Vector API when the {@code jdk.incubator.vector}
+ * module is present and falls back to scalar code otherwise.
+ */
+public interface VectorKernels {
+    
+    /**
+     * System property that forces a kernel implementation: {@code scalar} or {@code simd}
+     */
+    String KERNELS_PROPERTY = "aianalyst.vector.kernels";
+    
+    String name();
+    
+    float dot(float[] a, int aOffset, float[] b, int bOffset, int length);
+    
+    float squaredDistance(float[] a, int aOffset, float[] b, int bOffset, int length);
+    
+    /**
+     * Cosine similarity of two vectors that need not be normalized
+     */
+    float cosine(float[] a, int aOffset, float[] b, int bOffset, int length);
+    
+    default float dot(float[] a, float[] b) {
+        return dot(a, 0, b, 0, a.length);
+    }
+    
+    /**
+     * Fastest kernels available in this JVM, chosen once at startup
+     */
+    static VectorKernels preferred() {
+        return KernelSelection.PREFERRED;
+    }
+    
+    static VectorKernels scalar() {
+        return ScalarKernels.INSTANCE;
+    }
+}
@@ -0,0 +1,55 @@
+package com.aianalyst.vector;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Vector Quantizer
+ *
+ * Lossy fixed-size encoding of normalized vectors, stored in a segment next to the
+ * full-precision vectors. The quantizer's parameters are written to the segment so
+ * codes decode against the same codebook they were encoded with.
+ */
+interface VectorQuantizer {
+    
+    int SCALAR = 1;
+    int PRODUCT = 2;
+    
+    /**
+     * Identifier written to the segment header
+     */
+    int type();
+    
+    /**
+     * Bytes per encoded vector
+     */
+    int codeBytes();
+    
+    void encode(float[] vector, byte[] code);
+    
+    int parameterBytes();
+    
+    void writeParameters(ByteBuffer out);
+    
+    /**
+     * Prepare the per-query state for scoring codes against a normalized query.
+     * A scorer is used by one thread at a time.
+     */
+    Scorer scorer(float[] query);
+    
+    interface Scorer {
+        
+        /**
+         * Approximate cosine distance to the code starting at {@code offset}
+         */
+        float distance(ByteBuffer codes, int offset);
+    }
+    
+    static VectorQuantizer read(int type, ByteBuffer parameters, int dimension) throws IOException {
+        return switch (type) {
+            case SCALAR -> ScalarQuantizer.read(parameters, dimension);
+            case PRODUCT -> ProductQuantizer.read(parameters, dimension);
+            default -> throw new IOException("Unknown vector quantizer: " + type);
+        };
+    }
+}
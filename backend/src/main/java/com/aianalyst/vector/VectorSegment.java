@@ -0,0 +1,399 @@
+package com.aianalyst.vector;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * Vector Segment
+ *
+ * Immutable segment file holding normalized vectors, the HNSW adjacency and the
+ * chunk each node belongs to. The file is memory-mapped read-only, so a segment
+ * opens without parsing or re-embedding and its data stays off the Java heap.
+ *
+ * Layout (little-endian): a 64-byte header, then vectors ({@code count * dimension}
+ * floats), level-0 adjacency ({@code count * (1 + maxM0)} ints), node levels, the
+ * start of each node's upper-layer adjacency, the upper-layer adjacency itself
+ * ({@code 1 + maxM} ints per layer), the quantizer parameters and codes when the
+ * segment is quantized, payload offsets ({@code count + 1} longs) and the payloads
+ * (document id length, document id, chunk text, all UTF-8).
+ *
+ * A quantized segment walks its graph over the compressed codes and re-ranks the
+ * best candidates against the full-precision vectors, so only the codes and the
+ * adjacency need to stay in the page cache.
+ */
+public final class VectorSegment implements HnswGraph {
+    
+    private static final int MAGIC = 0x41495653;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    // A segment is mapped as one buffer, so its file must fit an int offset
+    static final long MAX_BYTES = Integer.MAX_VALUE;
+    // Mapped vectors are copied here in bulk so the array kernels can score them
+    private static final ThreadLocal<float[]> SCRATCH = ThreadLocal.withInitial(() -> new float[0]);
+    
+    private final Path path;
+    private final int dimension;
+    private final int count;
+    private final int entryPoint;
+    private final int entryLevel;
+    private final int maxConnections;
+    private final int maxConnectionsLevel0;
+    private final FloatBuffer vectors;
+    private final IntBuffer level0;
+    private final IntBuffer upperStart;
+    private final IntBuffer upper;
+    private final VectorQuantizer quantizer;
+    private final ByteBuffer codes;
+    private final LongBuffer payloadOffsets;
+    private final ByteBuffer payloads;
+    private final VectorKernels kernels = VectorKernels.preferred();
+    
+    private VectorSegment(Path path, MappedByteBuffer buffer) throws IOException {
+        this.path = path;
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a vector segment: " + path);
+        }
+        this.dimension = buffer.getInt(8);
+        this.count = buffer.getInt(12);
+        this.entryPoint = buffer.getInt(16);
+        this.entryLevel = buffer.getInt(20);
+        this.maxConnections = buffer.getInt(24);
+        this.maxConnectionsLevel0 = buffer.getInt(28);
+        int upperInts = buffer.getInt(32);
+        int quantizerType = buffer.getInt(36);
+        int codeBytes = buffer.getInt(40);
+        int parameterBytes = buffer.getInt(44);
+        
+        int position = HEADER_BYTES;
+        this.vectors = slice(buffer, position, count * dimension * 4).asFloatBuffer();
+        position += count * dimension * 4;
+        this.level0 = slice(buffer, position, count * (1 + maxConnectionsLevel0) * 4).asIntBuffer();
+        position += count * (1 + maxConnectionsLevel0) * 4;
+        position += count * 4; // node levels, kept so the file fully describes the graph
+        this.upperStart = slice(buffer, position, count * 4).asIntBuffer();
+        position += count * 4;
+        this.upper = slice(buffer, position, upperInts * 4).asIntBuffer();
+        position += upperInts * 4;
+        if (quantizerType == 0) {
+            this.quantizer = null;
+            this.codes = null;
+        } else {
+            this.quantizer = VectorQuantizer.read(quantizerType, slice(buffer, position, parameterBytes), dimension);
+            position += parameterBytes;
+            this.codes = slice(buffer, position, count * codeBytes);
+            position += count * codeBytes;
+        }
+        this.payloadOffsets = slice(buffer, position, (count + 1) * 8).asLongBuffer();
+        position += (count + 1) * 8;
+        this.payloads = slice(buffer, position, buffer.capacity() - position);
+    }
+    
+    /**
+     * Map an existing segment file
+     */
+    public static VectorSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new VectorSegment(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+    
+    /**
+     * Write an index and its chunks (one per node, in node order) as a new segment,
+     * training a quantizer for its vectors unless {@code quantization} keeps them as floats.
+     * The file is written under a temporary name and moved into place once synced.
+     * The index must not take inserts while it is being written.
+     */
+    public static VectorSegment write(Path path, HnswIndex index, List<Chunk> chunks, Quantization quantization)
+            throws IOException {
+        int count = index.size();
+        if (chunks.size() != count) {
+            throw new IllegalArgumentException("Expected " + count + " chunks but got " + chunks.size());
+        }
+        int dimension = index.dimension();
+        int maxM = index.maxConnections(1);
+        int maxM0 = index.maxConnections(0);
+        HnswIndex.EntryPoint entry = index.entryPoint();
+        VectorQuantizer quantizer = quantization.train(index::vector, count, dimension);
+        int codeBytes = quantizer == null ? 0 : quantizer.codeBytes();
+        int parameterBytes = quantizer == null ? 0 : quantizer.parameterBytes();
+        
+        int[] levels = new int[count];
+        int[] upperStart = new int[count];
+        int upperInts = 0;
+        for (int i = 0; i < count; i++) {
+            levels[i] = index.level(i);
+            upperStart[i] = levels[i] == 0 ? -1 : upperInts;
+            upperInts += levels[i] * (1 + maxM);
+        }
+        // Chunks may be decoded on demand from other segments, so payloads are encoded
+        // once to size the file and again as they are written rather than held at once
+        long payloadBytes = 0;
+        for (int i = 0; i < count; i++) {
+            payloadBytes += payloadLength(chunks.get(i));
+        }
+        
+        long size = HEADER_BYTES + (long) count * dimension * 4 + (long) count * (1 + maxM0) * 4
+                + (long) count * 8 + (long) upperInts * 4 + parameterBytes + (long) count * codeBytes
+                + (long) (count + 1) * 8 + payloadBytes;
+        if (size > MAX_BYTES) {
+            throw new IOException("Segment of " + count + " chunks exceeds the 2 GB mapping limit");
+        }
+        
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            out.order(ByteOrder.LITTLE_ENDIAN);
+            out.putInt(MAGIC).putInt(VERSION).putInt(dimension).putInt(count)
+                    .putInt(entry == null ? -1 : entry.id()).putInt(entry == null ? -1 : entry.level())
+                    .putInt(maxM).putInt(maxM0).putInt(upperInts)
+                    .putInt(quantizer == null ? 0 : quantizer.type()).putInt(codeBytes).putInt(parameterBytes);
+            out.position(HEADER_BYTES);
+            
+            for (int i = 0; i < count; i++) {
+                for (float v : index.vector(i)) {
+                    out.putFloat(v);
+                }
+            }
+            int[] neighbors = new int[maxM0];
+            for (int i = 0; i < count; i++) {
+                putNeighbors(out, neighbors, index.neighbors(i, 0, neighbors), maxM0);
+            }
+            for (int level : levels) {
+                out.putInt(level);
+            }
+            for (int start : upperStart) {
+                out.putInt(start);
+            }
+            for (int i = 0; i < count; i++) {
+                for (int l = 1; l <= levels[i]; l++) {
+                    putNeighbors(out, neighbors, index.neighbors(i, l, neighbors), maxM);
+                }
+            }
+            if (quantizer != null) {
+                quantizer.writeParameters(out);
+                byte[] code = new byte[codeBytes];
+                for (int i = 0; i < count; i++) {
+                    quantizer.encode(index.vector(i), code);
+                    out.put(code);
+                }
+            }
+            int offsets = out.position();
+            out.position(offsets + (count + 1) * 8);
+            long offset = 0;
+            for (int i = 0; i < count; i++) {
+                out.putLong(offsets + i * 8, offset);
+                byte[] documentId = chunks.get(i).documentId().getBytes(StandardCharsets.UTF_8);
+                byte[] text = chunks.get(i).text().getBytes(StandardCharsets.UTF_8);
+                out.putInt(documentId.length).put(documentId).put(text);
+                offset += 4 + documentId.length + text.length;
+            }
+            out.putLong(offsets + count * 8, offset);
+            out.force();
+        }
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return open(path);
+    }
+    
+    /**
+     * Upper bound on the file size of a segment of {@code count} nodes whose payloads
+     * take {@code payloadBytes}, so a merge can be sized before its graph is built
+     */
+    static long estimateBytes(int count, int dimension, int m, long payloadBytes, Quantization quantization) {
+        // Counts every node as if it had one upper layer; on average far fewer do
+        long perNode = (long) dimension * 4 + (1 + 2L * m) * 4 + 8 + (1 + m) * 4L
+                + quantization.codeBytes(dimension) + 8;
+        return HEADER_BYTES + (long) count * perNode + quantization.maxParameterBytes(dimension) + 8 + payloadBytes;
+    }
+    
+    /**
+     * Find the {@code k} nearest nodes to a normalized query, skipping tombstoned ones.
+     * A quantized segment re-ranks its best {@code k * rerankFactor} candidates at full precision.
+     */
+    public List<Neighbor> search(float[] query, int k, int ef, int rerankFactor, Tombstones tombstones) {
+        return search(query, k, ef, rerankFactor, tombstones::isDeleted);
+    }
+    
+    /**
+     * Find the {@code k} nearest nodes to a normalized query that are not {@code excluded}
+     */
+    public List<Neighbor> search(float[] query, int k, int ef, int rerankFactor, IntPredicate excluded) {
+        if (count == 0 || entryPoint < 0) {
+            return List.of();
+        }
+        if (quantizer == null) {
+            return HnswSearch.search(this, query, entryPoint, entryLevel, k, ef, excluded);
+        }
+        int candidates = k * rerankFactor;
+        QuantizedGraph graph = new QuantizedGraph(quantizer.scorer(query), quantizer.codeBytes());
+        List<Neighbor> reranked = new ArrayList<>(candidates);
+        for (Neighbor candidate : HnswSearch.search(graph, query, entryPoint, entryLevel, candidates,
+                Math.max(ef, candidates), excluded)) {
+            reranked.add(new Neighbor(candidate.id(), 1 - distance(query, candidate.id())));
+        }
+        reranked.sort(Comparator.comparingDouble(Neighbor::score).reversed());
+        return reranked.size() > k ? reranked.subList(0, k) : reranked;
+    }
+    
+    public boolean isQuantized() {
+        return quantizer != null;
+    }
+    
+    /**
+     * Copy of the normalized vector stored for a node
+     */
+    public float[] vector(int node) {
+        float[] vector = new float[dimension];
+        vectors.get(node * dimension, vector);
+        return vector;
+    }
+    
+    /**
+     * Copy the normalized vector stored for a node into {@code into}
+     */
+    void vector(int node, float[] into) {
+        vectors.get(node * dimension, into, 0, dimension);
+    }
+    
+    /**
+     * Bytes of document ids and chunk text stored in the segment, deleted nodes included
+     */
+    long payloadBytes() {
+        return payloads.capacity();
+    }
+    
+    /**
+     * Chunk a node belongs to, decoded from the mapped payload region
+     */
+    public Chunk chunk(int node) {
+        int start = (int) payloadOffsets.get(node);
+        int end = (int) payloadOffsets.get(node + 1);
+        int idLength = payloads.getInt(start);
+        byte[] id = new byte[idLength];
+        byte[] text = new byte[end - start - 4 - idLength];
+        payloads.get(start + 4, id);
+        payloads.get(start + 4 + idLength, text);
+        return new Chunk(new String(id, StandardCharsets.UTF_8), new String(text, StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Document a node belongs to, without decoding its text
+     */
+    public String documentId(int node) {
+        int start = (int) payloadOffsets.get(node);
+        byte[] id = new byte[payloads.getInt(start)];
+        payloads.get(start + 4, id);
+        return new String(id, StandardCharsets.UTF_8);
+    }
+    
+    public int size() {
+        return count;
+    }
+    
+    public Path path() {
+        return path;
+    }
+    
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+    
+    @Override
+    public int maxConnections(int level) {
+        return level == 0 ? maxConnectionsLevel0 : maxConnections;
+    }
+    
+    @Override
+    public float distance(float[] query, int node) {
+        float[] scratch = SCRATCH.get();
+        if (scratch.length < dimension) {
+            scratch = new float[dimension];
+            SCRATCH.set(scratch);
+        }
+        vectors.get(node * dimension, scratch, 0, dimension);
+        return 1 - kernels.dot(query, 0, scratch, 0, dimension);
+    }
+    
+    @Override
+    public int neighbors(int node, int level, int[] into) {
+        IntBuffer adjacency;
+        int base;
+        if (level == 0) {
+            adjacency = level0;
+            base = node * (1 + maxConnectionsLevel0);
+        } else {
+            adjacency = upper;
+            base = upperStart.get(node) + (level - 1) * (1 + maxConnections);
+        }
+        int size = adjacency.get(base);
+        adjacency.get(base + 1, into, 0, size);
+        return size;
+    }
+    
+    /**
+     * The segment's graph with distances scored against the quantized codes
+     */
+    private final class QuantizedGraph implements HnswGraph {
+        
+        private final VectorQuantizer.Scorer scorer;
+        private final int codeBytes;
+        
+        QuantizedGraph(VectorQuantizer.Scorer scorer, int codeBytes) {
+            this.scorer = scorer;
+            this.codeBytes = codeBytes;
+        }
+        
+        @Override
+        public int dimension() {
+            return dimension;
+        }
+        
+        @Override
+        public int maxConnections(int level) {
+            return VectorSegment.this.maxConnections(level);
+        }
+        
+        @Override
+        public float distance(float[] query, int node) {
+            return scorer.distance(codes, node * codeBytes);
+        }
+        
+        @Override
+        public int neighbors(int node, int level, int[] into) {
+            return VectorSegment.this.neighbors(node, level, into);
+        }
+    }
+    
+    private static long payloadLength(Chunk chunk) {
+        return 4 + chunk.documentId().getBytes(StandardCharsets.UTF_8).length
+                + chunk.text().getBytes(StandardCharsets.UTF_8).length;
+    }
+    
+    private static void putNeighbors(ByteBuffer out, int[] neighbors, int size, int width) {
+        out.putInt(size);
+        for (int i = 0; i < width; i++) {
+            out.putInt(i < size ? neighbors[i] : -1);
+        }
+    }
+    
+    private static ByteBuffer slice(ByteBuffer buffer, int position, int length) {
+        return buffer.slice(position, length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
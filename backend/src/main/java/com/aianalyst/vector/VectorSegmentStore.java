@@ -0,0 +1,783 @@
+package com.aianalyst.vector;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Vector Segment Store
+ *
+ * Durable vector store built from immutable, memory-mapped {@link VectorSegment}
+ * files plus one in-memory HNSW segment that takes new inserts.
+ *
+ * Inserts and deletes are written to a write-ahead log before they are applied.
+ * A flush seals the in-memory segment into a new segment file; a merge rewrites
+ * several small segments into one and drops their tombstoned nodes. A manifest,
+ * replaced atomically, names the live segments and the newest write-ahead log
+ * they already cover, so a crash at any point reopens to a consistent state.
+ *
+ * Searches read an immutable snapshot of the segment list and never lock.
+ * Writers are serialized only while they log and reserve node ids; linking the
+ * nodes into the graph, and the heavy work of flush and merge, happen outside the
+ * write lock.
+ */
+@Slf4j
+public final class VectorSegmentStore implements AutoCloseable {
+    
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String TOMBSTONE_SUFFIX = ".del";
+    private static final String WAL_SUFFIX = ".wal";
+    private static final String MANIFEST = "MANIFEST";
+    
+    private final Path directory;
+    private final int dimension;
+    private final int m;
+    private final int efConstruction;
+    private final Quantization quantization;
+    private final AtomicLong sequence;
+    private final Object writeLock = new Object();
+    private final Object maintenanceLock = new Object();
+    // Chunks of every live document; replaced whole under the write lock, read without it
+    private final Map<String, List<ChunkRef>> documents = new ConcurrentHashMap<>();
+    private volatile State state;
+    private long walWatermark;
+    
+    private VectorSegmentStore(Path directory, int dimension, int m, int efConstruction, Quantization quantization,
+                               long nextSequence) {
+        this.directory = directory;
+        this.dimension = dimension;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.quantization = quantization;
+        this.sequence = new AtomicLong(nextSequence);
+    }
+    
+    /**
+     * Open the store in {@code directory}: map the segments named by the manifest,
+     * remove files a crash left behind and replay the write-ahead logs not yet flushed.
+     * Segments written from now on are compressed as {@code quantization} says; existing
+     * segments keep the encoding they were written with until they are merged.
+     */
+    public static VectorSegmentStore open(Path directory, int dimension, int m, int efConstruction,
+                                          Quantization quantization) throws IOException {
+        quantization.validate(dimension);
+        Files.createDirectories(directory);
+        List<Long> manifestSegments = new ArrayList<>();
+        long watermark = -1;
+        Path manifestPath = directory.resolve(MANIFEST);
+        if (Files.exists(manifestPath)) {
+            for (String line : Files.readAllLines(manifestPath, StandardCharsets.UTF_8)) {
+                String[] parts = line.trim().split("\\s+");
+                if (parts.length == 2 && parts[0].equals("segment")) {
+                    manifestSegments.add(Long.parseLong(parts[1]));
+                } else if (parts.length == 2 && parts[0].equals("watermark")) {
+                    watermark = Long.parseLong(parts[1]);
+                }
+            }
+        }
+        
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(path -> !path.getFileName().toString().equals(MANIFEST)).sorted().toList();
+        }
+        long maxSequence = watermark;
+        for (Path file : files) {
+            maxSequence = Math.max(maxSequence, sequenceOf(file));
+        }
+        
+        VectorSegmentStore store = new VectorSegmentStore(directory, dimension, m, efConstruction, quantization,
+                maxSequence + 1);
+        store.walWatermark = watermark;
+        
+        List<Path> pendingLogs = new ArrayList<>();
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            long seq = sequenceOf(file);
+            boolean live = (name.endsWith(SEGMENT_SUFFIX) || name.endsWith(TOMBSTONE_SUFFIX))
+                    && manifestSegments.contains(seq);
+            if (name.endsWith(WAL_SUFFIX) && seq > watermark) {
+                pendingLogs.add(file);
+            } else if (!live) {
+                log.info("Removing obsolete vector store file: {}", file);
+                Files.deleteIfExists(file);
+            }
+        }
+        
+        List<SealedSegment> sealed = new ArrayList<>();
+        for (long seq : manifestSegments) {
+            SealedSegment segment = store.openSegment(seq);
+            if (segment.segment.dimension() != dimension) {
+                throw new IOException("Segment " + seq + " has dimension " + segment.segment.dimension()
+                        + " but the store expects " + dimension);
+            }
+            Map<String, List<ChunkRef>> refs = new HashMap<>();
+            for (int node = 0; node < segment.segment.size(); node++) {
+                if (!segment.tombstones.isDeleted(node)) {
+                    refs.computeIfAbsent(segment.segment.documentId(node), id -> new ArrayList<>())
+                            .add(new ChunkRef(segment, node));
+                }
+            }
+            refs.forEach((id, chunks) -> store.documents.put(id, List.copyOf(chunks)));
+            sealed.add(segment);
+        }
+        
+        ActiveSegment active = store.newActive(pendingLogs);
+        store.state = new State(List.copyOf(sealed), active, null);
+        synchronized (store.writeLock) {
+            for (Path pending : pendingLogs) {
+                WriteAheadLog.replay(pending, new WriteAheadLog.Replay() {
+                    @Override
+                    public void insert(String documentId, List<String> texts, List<float[]> vectors) throws IOException {
+                        store.insertLocked(active, documentId, texts, vectors).link();
+                    }
+                    
+                    @Override
+                    public void append(String documentId, List<String> texts, List<float[]> vectors) {
+                        store.appendLocked(active, documentId, texts, vectors).link();
+                    }
+                    
+                    @Override
+                    public void delete(String documentId) throws IOException {
+                        store.deleteLocked(documentId);
+                    }
+                });
+            }
+        }
+        log.info("Opened vector store {}: {} segments, {} documents, {} chunks replayed from {} logs",
+                directory, sealed.size(), store.documents.size(), active.index.size(), pendingLogs.size());
+        return store;
+    }
+    
+    /**
+     * Store a document's chunks and their vectors, replacing any earlier version of the
+     * document. Only the log record and the document's node ids are written under the
+     * write lock; the nodes are linked into the graph after it is released, so inserts
+     * from many threads link concurrently.
+     */
+    public void put(String documentId, List<String> texts, List<float[]> vectors) throws IOException {
+        checkVectors(texts, vectors);
+        PendingLinks pending;
+        synchronized (writeLock) {
+            ActiveSegment active = state.active;
+            active.wal.logInsert(documentId, texts, vectors);
+            pending = insertLocked(active, documentId, texts, vectors);
+        }
+        pending.link();
+    }
+    
+    /**
+     * Add chunks to the end of a document, creating it if it is not stored yet.
+     * Lets a large document be stored batch by batch as it is chunked.
+     */
+    public void append(String documentId, List<String> texts, List<float[]> vectors) throws IOException {
+        checkVectors(texts, vectors);
+        PendingLinks pending;
+        synchronized (writeLock) {
+            ActiveSegment active = state.active;
+            active.wal.logAppend(documentId, texts, vectors);
+            pending = appendLocked(active, documentId, texts, vectors);
+        }
+        pending.link();
+    }
+    
+    /**
+     * Store a copy of a document's chunks and vectors under another ID, replacing any
+     * earlier version of it, without re-embedding. Returns false if the source is not stored.
+     */
+    public boolean copy(String sourceId, String targetId) throws IOException {
+        PendingLinks pending;
+        synchronized (writeLock) {
+            List<ChunkRef> refs = documents.get(sourceId);
+            if (refs == null) {
+                return false;
+            }
+            List<String> texts = new ArrayList<>(refs.size());
+            List<float[]> vectors = new ArrayList<>(refs.size());
+            for (ChunkRef ref : refs) {
+                texts.add(ref.segment().chunk(ref.node()).text());
+                vectors.add(ref.segment().vector(ref.node()));
+            }
+            ActiveSegment active = state.active;
+            active.wal.logInsert(targetId, texts, vectors);
+            pending = insertLocked(active, targetId, texts, vectors);
+        }
+        pending.link();
+        return true;
+    }
+    
+    /**
+     * Delete a document, returning false if it was not stored
+     */
+    public boolean delete(String documentId) throws IOException {
+        synchronized (writeLock) {
+            if (!documents.containsKey(documentId)) {
+                return false;
+            }
+            state.active.wal.logDelete(documentId);
+            deleteLocked(documentId);
+            return true;
+        }
+    }
+    
+    public boolean contains(String documentId) {
+        return documents.containsKey(documentId);
+    }
+    
+    /**
+     * Chunks of a document in insertion order
+     */
+    public Optional<List<Chunk>> get(String documentId) {
+        List<ChunkRef> refs = documents.get(documentId);
+        if (refs == null) {
+            return Optional.empty();
+        }
+        return Optional.of(refs.stream().map(ref -> ref.segment().chunk(ref.node())).collect(Collectors.toList()));
+    }
+    
+    /**
+     * Top-k chunks across all segments, best match first
+     */
+    public List<ScoredChunk> search(float[] query, int k, int ef) {
+        return search(query, k, ef, null);
+    }
+    
+    /**
+     * Top-k chunks of the documents {@code documents} accepts, best match first. The
+     * filter is applied while each segment's graph is searched, so a selective filter
+     * still fills all {@code k} results when enough matching chunks exist; it is
+     * called with document IDs and should be cheap.
+     */
+    public List<ScoredChunk> search(float[] query, int k, int ef, Predicate<String> documents) {
+        float[] normalized = Arrays.copyOf(query, dimension);
+        HnswSearch.normalize(normalized, 0, dimension);
+        
+        State snapshot = state;
+        List<Segment> segments = new ArrayList<>(snapshot.sealed());
+        segments.add(snapshot.active());
+        if (snapshot.sealing() != null) {
+            segments.add(snapshot.sealing());
+        }
+        
+        List<ChunkHit> hits = new ArrayList<>();
+        for (Segment segment : segments) {
+            for (Neighbor neighbor : segment.search(normalized, k, ef, documents)) {
+                hits.add(new ChunkHit(segment, neighbor));
+            }
+        }
+        hits.sort(Comparator.comparingDouble((ChunkHit hit) -> hit.neighbor().score()).reversed());
+        return hits.stream()
+                .limit(k)
+                .map(hit -> new ScoredChunk(hit.segment().chunk(hit.neighbor().id()), hit.neighbor().score()))
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Seal the in-memory segment into a segment file if it holds at least {@code threshold} chunks
+     */
+    public boolean flushIfLarger(int threshold) throws IOException {
+        return state.active.index.size() >= threshold && flush();
+    }
+    
+    /**
+     * Seal the in-memory segment into a new segment file. Inserts continue into a
+     * fresh in-memory segment while the file is written.
+     */
+    public boolean flush() throws IOException {
+        synchronized (maintenanceLock) {
+            ActiveSegment sealing;
+            synchronized (writeLock) {
+                if (state.active.index.size() == 0) {
+                    return false;
+                }
+                sealing = state.active;
+                state = new State(state.sealed(), newActive(List.of()), sealing);
+                sealing.wal.close();
+            }
+            // Inserts that reserved nodes in the sealed segment may still be linking them
+            sealing.linking.writeLock().lock();
+            sealing.linking.writeLock().unlock();
+            
+            long seq = sequence.getAndIncrement();
+            SealedSegment sealed = new SealedSegment(seq,
+                    VectorSegment.write(segmentPath(seq), sealing.index, sealing.chunkList(), quantization),
+                    Tombstones.open(tombstonePath(seq), sealing.index.size()));
+            
+            synchronized (writeLock) {
+                for (int node = 0; node < sealing.index.size(); node++) {
+                    if (sealing.index.isDeleted(node)) {
+                        sealed.tombstones.delete(node);
+                    }
+                }
+                remapRefs(ref -> ref.segment() == sealing ? new ChunkRef(sealed, ref.node()) : ref);
+                List<SealedSegment> segments = new ArrayList<>(state.sealed());
+                segments.add(sealed);
+                walWatermark = sealing.walSequence;
+                writeManifest(segments);
+                state = new State(List.copyOf(segments), state.active(), null);
+            }
+            for (Path logFile : sealing.logFiles) {
+                Files.deleteIfExists(logFile);
+            }
+            log.info("Flushed {} chunks to vector segment {}", sealed.segment.size(), seq);
+            return true;
+        }
+    }
+    
+    /**
+     * Merge the smallest segments into one once there are more than {@code mergeFactor},
+     * dropping tombstoned nodes. A merged segment holds at most {@code maxSegmentChunks}
+     * chunks and fits the mapping limit; sources that would take it past either are
+     * left out, and nothing is merged unless at least two sources fit. The merged graph
+     * is built over the mapped source vectors, so they are not copied onto the heap.
+     */
+    public boolean merge(int mergeFactor, int maxSegmentChunks) throws IOException {
+        synchronized (maintenanceLock) {
+            if (state.sealed().size() <= mergeFactor) {
+                return false;
+            }
+            List<SealedSegment> sources = new ArrayList<>();
+            int total = 0;
+            long payloadBytes = 0;
+            for (SealedSegment segment : state.sealed().stream()
+                    .sorted(Comparator.comparingInt(SealedSegment::liveCount)).toList()) {
+                int count = total + segment.liveCount();
+                long bytes = VectorSegment.estimateBytes(count, dimension, m,
+                        payloadBytes + segment.segment.payloadBytes(), quantization);
+                // Sources are sorted by size, so once one does not fit no later one does
+                if (sources.size() == mergeFactor || count > maxSegmentChunks || bytes > VectorSegment.MAX_BYTES) {
+                    break;
+                }
+                sources.add(segment);
+                total = count;
+                payloadBytes += segment.segment.payloadBytes();
+            }
+            if (sources.size() < 2) {
+                return false;
+            }
+            
+            MergeSources merging = new MergeSources(sources, total);
+            HnswIndex merged = new HnswIndex(dimension, m, efConstruction, merging);
+            for (int node = 0; node < total; node++) {
+                merged.add(merging.get(node));
+            }
+            int[][] remap = merging.remap();
+            
+            long seq = sequence.getAndIncrement();
+            SealedSegment result = new SealedSegment(seq,
+                    VectorSegment.write(segmentPath(seq), merged, merging.chunks(), quantization),
+                    Tombstones.open(tombstonePath(seq), merged.size()));
+            
+            synchronized (writeLock) {
+                // Carry over deletes that landed while the merge was running
+                for (int s = 0; s < sources.size(); s++) {
+                    for (int node = 0; node < remap[s].length; node++) {
+                        if (remap[s][node] >= 0 && sources.get(s).tombstones.isDeleted(node)) {
+                            result.tombstones.delete(remap[s][node]);
+                        }
+                    }
+                }
+                remapRefs(ref -> {
+                    int s = sources.indexOf(ref.segment());
+                    return s < 0 ? ref : new ChunkRef(result, remap[s][ref.node()]);
+                });
+                List<SealedSegment> segments = new ArrayList<>(state.sealed());
+                segments.removeAll(sources);
+                segments.add(result);
+                writeManifest(segments);
+                state = new State(List.copyOf(segments), state.active(), state.sealing());
+            }
+            for (SealedSegment source : sources) {
+                source.tombstones.close();
+                Files.deleteIfExists(segmentPath(source.sequence));
+                Files.deleteIfExists(tombstonePath(source.sequence));
+            }
+            log.info("Merged {} vector segments into segment {} with {} chunks", sources.size(), seq, merged.size());
+            return true;
+        }
+    }
+    
+    /**
+     * Live chunks across all segments
+     */
+    public int chunkCount() {
+        State snapshot = state;
+        int count = snapshot.active().liveCount();
+        if (snapshot.sealing() != null) {
+            count += snapshot.sealing().liveCount();
+        }
+        for (SealedSegment segment : snapshot.sealed()) {
+            count += segment.liveCount();
+        }
+        return count;
+    }
+    
+    public int segmentCount() {
+        return state.sealed().size();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        synchronized (maintenanceLock) {
+            synchronized (writeLock) {
+                state.active().wal.close();
+                for (SealedSegment segment : state.sealed()) {
+                    segment.tombstones.close();
+                }
+            }
+        }
+    }
+    
+    private PendingLinks insertLocked(ActiveSegment active, String documentId, List<String> texts,
+                                      List<float[]> vectors) throws IOException {
+        deleteLocked(documentId);
+        return appendLocked(active, documentId, texts, vectors);
+    }
+    
+    /**
+     * Reserve nodes for the chunks and add them to the document; the caller links
+     * them once it has released the write lock
+     */
+    private PendingLinks appendLocked(ActiveSegment active, String documentId, List<String> texts,
+                                      List<float[]> vectors) {
+        List<ChunkRef> refs = new ArrayList<>(documents.getOrDefault(documentId, List.of()));
+        int first = active.index.size();
+        for (int i = 0; i < texts.size(); i++) {
+            refs.add(new ChunkRef(active, active.append(new Chunk(documentId, texts.get(i)), vectors.get(i))));
+        }
+        documents.put(documentId, List.copyOf(refs));
+        active.linking.readLock().lock();
+        return new PendingLinks(active, first, active.index.size());
+    }
+    
+    private void checkVectors(List<String> texts, List<float[]> vectors) {
+        if (texts.size() != vectors.size()) {
+            throw new IllegalArgumentException("Expected one vector per chunk");
+        }
+        for (float[] vector : vectors) {
+            if (vector.length != dimension) {
+                throw new IllegalArgumentException("Expected vector of dimension " + dimension + " but got " + vector.length);
+            }
+        }
+    }
+    
+    private void deleteLocked(String documentId) throws IOException {
+        List<ChunkRef> refs = documents.remove(documentId);
+        if (refs == null) {
+            return;
+        }
+        for (ChunkRef ref : refs) {
+            ref.segment().delete(ref.node());
+        }
+    }
+    
+    private void remapRefs(UnaryOperator<ChunkRef> mapping) {
+        documents.replaceAll((id, refs) -> refs.stream().map(mapping).toList());
+    }
+    
+    private ActiveSegment newActive(List<Path> replayedLogs) throws IOException {
+        long seq = sequence.getAndIncrement();
+        return new ActiveSegment(seq, new HnswIndex(dimension, m, efConstruction),
+                new WriteAheadLog(directory.resolve(fileName(seq, WAL_SUFFIX))), replayedLogs);
+    }
+    
+    private SealedSegment openSegment(long seq) throws IOException {
+        VectorSegment segment = VectorSegment.open(segmentPath(seq));
+        return new SealedSegment(seq, segment, Tombstones.open(tombstonePath(seq), segment.size()));
+    }
+    
+    private void writeManifest(List<SealedSegment> segments) throws IOException {
+        StringBuilder manifest = new StringBuilder("watermark " + walWatermark + "\n");
+        for (SealedSegment segment : segments) {
+            manifest.append("segment ").append(segment.sequence).append('\n');
+        }
+        Path temp = directory.resolve(MANIFEST + ".tmp");
+        Files.writeString(temp, manifest, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE, StandardOpenOption.SYNC);
+        Files.move(temp, directory.resolve(MANIFEST), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+    
+    private Path segmentPath(long seq) {
+        return directory.resolve(fileName(seq, SEGMENT_SUFFIX));
+    }
+    
+    private Path tombstonePath(long seq) {
+        return directory.resolve(fileName(seq, TOMBSTONE_SUFFIX));
+    }
+    
+    private static String fileName(long seq, String suffix) {
+        return String.format("%020d%s", seq, suffix);
+    }
+    
+    private static long sequenceOf(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.indexOf('.');
+        try {
+            return Long.parseLong(dot < 0 ? name : name.substring(0, dot));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+    
+    /**
+     * A segment as seen by search and document lookups
+     */
+    private interface Segment {
+        
+        /**
+         * Nearest live nodes whose document {@code documents} accepts, or any live nodes if it is null
+         */
+        List<Neighbor> search(float[] query, int k, int ef, Predicate<String> documents);
+        
+        Chunk chunk(int node);
+        
+        float[] vector(int node);
+        
+        void delete(int node) throws IOException;
+    }
+    
+    private final class SealedSegment implements Segment {
+        
+        final long sequence;
+        final VectorSegment segment;
+        final Tombstones tombstones;
+        
+        SealedSegment(long sequence, VectorSegment segment, Tombstones tombstones) {
+            this.sequence = sequence;
+            this.segment = segment;
+            this.tombstones = tombstones;
+        }
+        
+        @Override
+        public List<Neighbor> search(float[] query, int k, int ef, Predicate<String> documents) {
+            if (documents == null) {
+                return segment.search(query, k, ef, quantization.rerankFactor(), tombstones);
+            }
+            return segment.search(query, k, ef, quantization.rerankFactor(),
+                    node -> tombstones.isDeleted(node) || !documents.test(segment.documentId(node)));
+        }
+        
+        @Override
+        public Chunk chunk(int node) {
+            return segment.chunk(node);
+        }
+        
+        @Override
+        public float[] vector(int node) {
+            return segment.vector(node);
+        }
+        
+        @Override
+        public void delete(int node) throws IOException {
+            tombstones.delete(node);
+        }
+        
+        int liveCount() {
+            return segment.size() - tombstones.count();
+        }
+    }
+    
+    /**
+     * The in-memory segment taking inserts. Chunks are indexed by HNSW node id.
+     */
+    private static final class ActiveSegment implements Segment {
+        
+        final long walSequence;
+        final HnswIndex index;
+        final WriteAheadLog wal;
+        final List<Path> logFiles;
+        final AtomicInteger deleted = new AtomicInteger();
+        // Held shared by inserts until their nodes are linked, exclusively by a flush waiting for them
+        final ReadWriteLock linking = new ReentrantReadWriteLock();
+        volatile Chunk[] chunks = new Chunk[1024];
+        
+        ActiveSegment(long walSequence, HnswIndex index, WriteAheadLog wal, List<Path> replayedLogs) {
+            this.walSequence = walSequence;
+            this.index = index;
+            this.wal = wal;
+            this.logFiles = new ArrayList<>(replayedLogs);
+            this.logFiles.add(wal.path());
+        }
+        
+        /**
+         * Add a chunk and reserve its node, to be linked later; callers hold the store's write lock
+         */
+        int append(Chunk chunk, float[] vector) {
+            int id = index.reserve(vector);
+            Chunk[] current = chunks;
+            if (id == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+            }
+            // Visible to searches before the node is linked into the graph
+            current[id] = chunk;
+            chunks = current;
+            return id;
+        }
+        
+        List<Chunk> chunkList() {
+            return Arrays.asList(Arrays.copyOf(chunks, index.size()));
+        }
+        
+        @Override
+        public List<Neighbor> search(float[] query, int k, int ef, Predicate<String> documents) {
+            if (documents == null) {
+                return index.search(query, k, ef);
+            }
+            return index.search(query, k, ef, node -> !documents.test(chunks[node].documentId()));
+        }
+        
+        @Override
+        public Chunk chunk(int node) {
+            return chunks[node];
+        }
+        
+        @Override
+        public float[] vector(int node) {
+            return index.vector(node);
+        }
+        
+        @Override
+        public void delete(int node) {
+            if (!index.isDeleted(node)) {
+                index.markDeleted(node);
+                deleted.incrementAndGet();
+            }
+        }
+        
+        int liveCount() {
+            return index.size() - deleted.get();
+        }
+    }
+    
+    /**
+     * Live nodes of the segments being merged, numbered in merge order. Serves their
+     * mapped vectors and chunks to the merged index and segment writer.
+     */
+    private final class MergeSources implements HnswIndex.Vectors {
+        
+        private final VectorSegment[] segments;
+        private final int[] segmentOf;
+        private final int[] nodeOf;
+        private final int[][] remap;
+        private final ThreadLocal<float[]> scratch;
+        
+        MergeSources(List<SealedSegment> sources, int total) {
+            this.segments = new VectorSegment[sources.size()];
+            this.segmentOf = new int[total];
+            this.nodeOf = new int[total];
+            this.remap = new int[sources.size()][];
+            this.scratch = ThreadLocal.withInitial(() -> new float[dimension]);
+            int merged = 0;
+            for (int s = 0; s < sources.size(); s++) {
+                SealedSegment source = sources.get(s);
+                segments[s] = source.segment;
+                remap[s] = new int[source.segment.size()];
+                Arrays.fill(remap[s], -1);
+                for (int node = 0; node < source.segment.size() && merged < total; node++) {
+                    if (!source.tombstones.isDeleted(node)) {
+                        segmentOf[merged] = s;
+                        nodeOf[merged] = node;
+                        remap[s][node] = merged++;
+                    }
+                }
+            }
+        }
+        
+        /**
+         * Merged node of each source node, -1 for nodes left out as deleted
+         */
+        int[][] remap() {
+            return remap;
+        }
+        
+        List<Chunk> chunks() {
+            return new AbstractList<>() {
+                @Override
+                public Chunk get(int node) {
+                    return segments[segmentOf[node]].chunk(nodeOf[node]);
+                }
+                
+                @Override
+                public int size() {
+                    return nodeOf.length;
+                }
+            };
+        }
+        
+        @Override
+        public void set(int id, float[] normalized) {
+            // Already stored, normalized, in the source segment
+        }
+        
+        @Override
+        public float[] get(int id) {
+            return segments[segmentOf[id]].vector(nodeOf[id]);
+        }
+        
+        @Override
+        public float dot(float[] query, int id) {
+            return 1 - segments[segmentOf[id]].distance(query, nodeOf[id]);
+        }
+        
+        @Override
+        public float dot(int a, int b) {
+            float[] vector = scratch.get();
+            segments[segmentOf[a]].vector(nodeOf[a], vector);
+            return dot(vector, b);
+        }
+    }
+    
+    /**
+     * Nodes {@code from} to {@code to} of an active segment, reserved under the write
+     * lock and still to be linked into its graph
+     */
+    private record PendingLinks(ActiveSegment segment, int from, int to) {
+        
+        void link() {
+            try {
+                for (int id = from; id < to; id++) {
+                    segment.index.link(id);
+                }
+            } finally {
+                segment.linking.readLock().unlock();
+            }
+        }
+    }
+    
+    private record ChunkRef(Segment segment, int node) {
+    }
+    
+    private record ChunkHit(Segment segment, Neighbor neighbor) {
+    }
+    
+    private record State(List<SealedSegment> sealed, ActiveSegment active, ActiveSegment sealing) {
+    }
+    
+    /**
+     * A retrieved chunk with its cosine similarity to the query
+     */
+    public record ScoredChunk(Chunk chunk, float score) {
+    }
+}
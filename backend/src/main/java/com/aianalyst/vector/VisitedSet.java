@@ -0,0 +1,37 @@
+package com.aianalyst.vector;
+
+import java.util.Arrays;
+
+/**
+ * Visited Set
+ *
+ * Per-thread record of the nodes touched by one graph search. Clearing bumps a
+ * generation stamp instead of zeroing the array, so a search costs nothing in
+ * proportion to the size of the index.
+ */
+final class VisitedSet {
+    
+    private int[] marks = new int[1024];
+    private int generation;
+    
+    void clear() {
+        if (++generation == 0) {
+            Arrays.fill(marks, 0);
+            generation = 1;
+        }
+    }
+    
+    /**
+     * Mark a node as visited, returning false if it already was
+     */
+    boolean add(int id) {
+        if (id >= marks.length) {
+            marks = Arrays.copyOf(marks, Math.max(id + 1, marks.length * 2));
+        }
+        if (marks[id] == generation) {
+            return false;
+        }
+        marks[id] = generation;
+        return true;
+    }
+}
@@ -0,0 +1,135 @@
+package com.aianalyst.vector;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Write-Ahead Log
+ *
+ * Durable record of the inserts, appends and deletes applied to the in-memory segment
+ * since it was last flushed. Inserts carry their vectors, so replaying the log
+ * after a restart rebuilds the segment without calling the embedder again.
+ */
+final class WriteAheadLog implements AutoCloseable {
+    
+    private static final byte INSERT = 1;
+    private static final byte DELETE = 2;
+    private static final byte APPEND = 3;
+    
+    private final Path path;
+    private final FileOutputStream file;
+    private final DataOutputStream out;
+    
+    WriteAheadLog(Path path) throws IOException {
+        this.path = path;
+        this.file = new FileOutputStream(path.toFile(), true);
+        this.out = new DataOutputStream(new BufferedOutputStream(file));
+    }
+    
+    /**
+     * Log the chunks of a document, syncing before returning
+     */
+    void logInsert(String documentId, List<String> texts, List<float[]> vectors) throws IOException {
+        logChunks(INSERT, documentId, texts, vectors);
+    }
+    
+    /**
+     * Log chunks added to the end of a document, syncing before returning
+     */
+    void logAppend(String documentId, List<String> texts, List<float[]> vectors) throws IOException {
+        logChunks(APPEND, documentId, texts, vectors);
+    }
+    
+    private synchronized void logChunks(byte type, String documentId, List<String> texts, List<float[]> vectors)
+            throws IOException {
+        out.writeByte(type);
+        out.writeUTF(documentId);
+        out.writeInt(texts.size());
+        for (int i = 0; i < texts.size(); i++) {
+            byte[] text = texts.get(i).getBytes(StandardCharsets.UTF_8);
+            out.writeInt(text.length);
+            out.write(text);
+            float[] vector = vectors.get(i);
+            out.writeInt(vector.length);
+            for (float v : vector) {
+                out.writeFloat(v);
+            }
+        }
+        sync();
+    }
+    
+    synchronized void logDelete(String documentId) throws IOException {
+        out.writeByte(DELETE);
+        out.writeUTF(documentId);
+        sync();
+    }
+    
+    Path path() {
+        return path;
+    }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+    
+    /**
+     * Replay a log in order. A record torn by a crash ends the replay.
+     */
+    static void replay(Path path, Replay replay) throws IOException {
+        try (InputStream in = Files.newInputStream(path);
+             DataInputStream data = new DataInputStream(new BufferedInputStream(in))) {
+            while (true) {
+                byte type = data.readByte();
+                String documentId = data.readUTF();
+                if (type == DELETE) {
+                    replay.delete(documentId);
+                    continue;
+                }
+                int chunks = data.readInt();
+                String[] texts = new String[chunks];
+                float[][] vectors = new float[chunks][];
+                for (int i = 0; i < chunks; i++) {
+                    byte[] text = new byte[data.readInt()];
+                    data.readFully(text);
+                    texts[i] = new String(text, StandardCharsets.UTF_8);
+                    vectors[i] = new float[data.readInt()];
+                    for (int j = 0; j < vectors[i].length; j++) {
+                        vectors[i][j] = data.readFloat();
+                    }
+                }
+                if (type == APPEND) {
+                    replay.append(documentId, List.of(texts), List.of(vectors));
+                } else {
+                    replay.insert(documentId, List.of(texts), List.of(vectors));
+                }
+            }
+        } catch (EOFException e) {
+            // End of log
+        }
+    }
+    
+    private void sync() throws IOException {
+        out.flush();
+        file.getChannel().force(false);
+    }
+    
+    interface Replay {
+        
+        void insert(String documentId, List<String> texts, List<float[]> vectors) throws IOException;
+        
+        void append(String documentId, List<String> texts, List<float[]> vectors) throws IOException;
+        
+        void delete(String documentId) throws IOException;
+    }
+}
@@ -0,0 +1,22 @@
+-- Durable queue of memo generation jobs, claimed by workers under a lease
+
+CREATE TABLE memo_generation_jobs (
+    id              VARCHAR(255) NOT NULL,
+    memo_id         VARCHAR(255) NOT NULL,
+    user_id         VARCHAR(255) NOT NULL,
+    job_type        VARCHAR(32)  NOT NULL,
+    status          VARCHAR(32)  NOT NULL,
+    payload         TEXT,
+    attempts        INT          NOT NULL DEFAULT 0,
+    max_attempts    INT          NOT NULL,
+    next_attempt_at DATETIME(6)  NOT NULL,
+    locked_by       VARCHAR(255),
+    locked_at       DATETIME(6),
+    completed_at    DATETIME(6),
+    last_error      TEXT,
+    created_at      DATETIME(6)  NOT NULL,
+    updated_at      DATETIME(6)  NOT NULL,
+    PRIMARY KEY (id),
+    INDEX idx_memo_jobs_status_next_attempt (status, next_attempt_at),
+    INDEX idx_memo_jobs_memo (memo_id)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
@@ -0,0 +1,19 @@
+-- Content-addressed store of uploaded files, shared by data sources with the same content
+
+CREATE TABLE blobs (
+    sha256          VARCHAR(64)  NOT NULL,
+    file_path       VARCHAR(255) NOT NULL,
+    file_size       BIGINT       NOT NULL,
+    content_type    VARCHAR(255),
+    reference_count INT          NOT NULL,
+    text_path       VARCHAR(255),
+    extraction      LONGTEXT,
+    created_at      DATETIME(6)  NOT NULL,
+    updated_at      DATETIME(6)  NOT NULL,
+    PRIMARY KEY (sha256)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+-- Uploads stored before deduplication keep their own file_path and no blob
+ALTER TABLE data_sources ADD COLUMN content_sha256 VARCHAR(64);
+
+CREATE INDEX idx_data_sources_content_sha256 ON data_sources (content_sha256);
@@ -0,0 +1,29 @@
+-- Resumable chunked uploads; chunks are tracked until the session completes or expires
+
+CREATE TABLE upload_sessions (
+    id             VARCHAR(255) NOT NULL,
+    user_id        VARCHAR(255) NOT NULL,
+    file_name      VARCHAR(255) NOT NULL,
+    content_type   VARCHAR(255),
+    total_size     BIGINT       NOT NULL,
+    chunk_size     INT          NOT NULL,
+    file_path      VARCHAR(255) NOT NULL,
+    status         VARCHAR(32)  NOT NULL,
+    data_source_id VARCHAR(255),
+    expires_at     DATETIME(6)  NOT NULL,
+    created_at     DATETIME(6)  NOT NULL,
+    updated_at     DATETIME(6)  NOT NULL,
+    PRIMARY KEY (id),
+    INDEX idx_upload_sessions_status_expires (status, expires_at)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+CREATE TABLE upload_chunks (
+    session_id  VARCHAR(255) NOT NULL,
+    chunk_index INT          NOT NULL,
+    size        INT          NOT NULL,
+    sha256      VARCHAR(64)  NOT NULL,
+    created_at  DATETIME(6)  NOT NULL,
+    PRIMARY KEY (session_id, chunk_index),
+    CONSTRAINT fk_upload_chunks_session FOREIGN KEY (session_id)
+        REFERENCES upload_sessions (id) ON DELETE CASCADE
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
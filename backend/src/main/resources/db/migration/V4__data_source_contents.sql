@@ -0,0 +1,14 @@
+-- Text of data sources moves out of data_sources, so lists no longer read it
+
+CREATE TABLE data_source_contents (
+    data_source_id VARCHAR(255) NOT NULL,
+    content        LONGTEXT,
+    PRIMARY KEY (data_source_id),
+    CONSTRAINT fk_data_source_contents_data_source FOREIGN KEY (data_source_id)
+        REFERENCES data_sources (id) ON DELETE CASCADE
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+INSERT INTO data_source_contents (data_source_id, content)
+    SELECT id, content FROM data_sources WHERE content IS NOT NULL;
+
+ALTER TABLE data_sources DROP COLUMN content;
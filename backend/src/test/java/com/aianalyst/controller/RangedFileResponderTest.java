@@ -0,0 +1,103 @@
+package com.aianalyst.controller;
+
+import com.aianalyst.service.FileStorageService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RangedFileResponderTest {
+    
+    private static final String ETAG = "\"abc123\"";
+    
+    @TempDir
+    Path storageDir;
+    
+    private final RangedFileResponder responder = new RangedFileResponder(new FileStorageService());
+    
+    @Test
+    void respond_ShouldStreamRequestedRange() throws Exception {
+        // Given
+        Path file = write("0123456789");
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/data-sources/1/file");
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+        
+        // When
+        ResponseEntity<StreamingResponseBody> response = respond(request, file);
+        
+        // Then
+        assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+        assertEquals("bytes 2-5/10", response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        assertEquals(4, response.getHeaders().getContentLength());
+        assertEquals("2345", body(response));
+    }
+    
+    @Test
+    void respond_ShouldHandConnectorTheRegionWhenSendfileIsSupported() throws Exception {
+        // Given
+        Path file = write("0123456789");
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/data-sources/1/file");
+        request.setAttribute(RangedFileResponder.SENDFILE_SUPPORTED, Boolean.TRUE);
+        request.addHeader(HttpHeaders.RANGE, "bytes=-3");
+        
+        // When
+        ResponseEntity<StreamingResponseBody> response = respond(request, file);
+        
+        // Then
+        assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+        assertNull(response.getBody());
+        assertEquals(7L, request.getAttribute(RangedFileResponder.SENDFILE_START));
+        assertEquals(10L, request.getAttribute(RangedFileResponder.SENDFILE_END));
+    }
+    
+    @Test
+    void respond_ShouldHonourConditionalHeaders() throws Exception {
+        // Given
+        Path file = write("0123456789");
+        MockHttpServletRequest cached = new MockHttpServletRequest("GET", "/data-sources/1/file");
+        cached.addHeader(HttpHeaders.IF_NONE_MATCH, "\"other\", W/" + ETAG);
+        MockHttpServletRequest stale = new MockHttpServletRequest("GET", "/data-sources/1/file");
+        stale.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+        stale.addHeader(HttpHeaders.IF_RANGE, "\"other\"");
+        MockHttpServletRequest beyond = new MockHttpServletRequest("GET", "/data-sources/1/file");
+        beyond.addHeader(HttpHeaders.RANGE, "bytes=20-30");
+        
+        // When
+        ResponseEntity<StreamingResponseBody> notModified = respond(cached, file);
+        ResponseEntity<StreamingResponseBody> whole = respond(stale, file);
+        ResponseEntity<StreamingResponseBody> unsatisfiable = respond(beyond, file);
+        
+        // Then
+        assertEquals(HttpStatus.NOT_MODIFIED, notModified.getStatusCode());
+        assertEquals(HttpStatus.OK, whole.getStatusCode());
+        assertEquals("0123456789", body(whole));
+        assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE, unsatisfiable.getStatusCode());
+        assertEquals("bytes */10", unsatisfiable.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+    }
+    
+    private Path write(String content) throws Exception {
+        return Files.writeString(storageDir.resolve("file.txt"), content, StandardCharsets.UTF_8);
+    }
+    
+    private ResponseEntity<StreamingResponseBody> respond(MockHttpServletRequest request, Path file)
+            throws Exception {
+        return responder.respond(request, file, ETAG, MediaType.TEXT_PLAIN, "file.txt");
+    }
+    
+    private static String body(ResponseEntity<StreamingResponseBody> response) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
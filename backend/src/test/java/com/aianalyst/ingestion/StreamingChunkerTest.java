@@ -0,0 +1,103 @@
+package com.aianalyst.ingestion;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingChunkerTest {
+    
+    private final TokenCounter tokens = TokenCounter.approximate();
+    
+    @Test
+    void chunk_ShouldKeepWindowsWithinBudgetAndOverlap() {
+        // Given
+        StreamingChunker chunker = new StreamingChunker(tokens, 50, 15);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 60; i++) {
+            text.append("Sentence number ").append(i).append(" talks about revenue. ");
+        }
+        
+        // When
+        List<TextChunk> chunks = chunker.chunk(text.toString());
+        
+        // Then
+        assertTrue(chunks.size() > 1);
+        for (int i = 0; i < chunks.size(); i++) {
+            assertEquals(i, chunks.get(i).index());
+            assertTrue(chunks.get(i).tokens() <= 50, "chunk " + i + " has " + chunks.get(i).tokens() + " tokens");
+        }
+        String firstEnd = chunks.get(0).text().substring(chunks.get(0).text().lastIndexOf("Sentence"));
+        assertTrue(chunks.get(1).text().startsWith(firstEnd.trim()));
+    }
+    
+    @Test
+    void chunk_ShouldStartNewChunkAtHeading() {
+        // Given
+        StreamingChunker chunker = new StreamingChunker(tokens, 200, 20);
+        String text = "# Market\n\n" + "The market is large and growing quickly. ".repeat(10)
+                + "\n\n# Team\n\nThe founders previously built two companies.";
+        
+        // When
+        List<TextChunk> chunks = chunker.chunk(text);
+        
+        // Then
+        assertEquals(2, chunks.size());
+        assertTrue(chunks.get(1).text().startsWith("# Team"));
+        assertFalse(chunks.get(0).text().contains("founders"));
+    }
+    
+    @Test
+    void chunk_ShouldSplitSentenceLongerThanWindow() {
+        // Given
+        StreamingChunker chunker = new StreamingChunker(tokens, 20, 0);
+        String text = "word ".repeat(100);
+        
+        // When
+        List<TextChunk> chunks = chunker.chunk(text);
+        
+        // Then
+        assertTrue(chunks.size() >= 5);
+        chunks.forEach(chunk -> assertTrue(chunk.tokens() <= 20));
+        assertEquals(100, chunks.stream().mapToInt(chunk -> chunk.text().split("\\s+").length).sum());
+    }
+    
+    @Test
+    void chunk_ShouldCutWordLongerThanWindowByCharacters() {
+        // Given - a run without whitespace, such as inline base64
+        StreamingChunker chunker = new StreamingChunker(tokens, 50, 10);
+        String text = "Intro sentence. " + "x".repeat(5000) + " end.";
+        
+        // When
+        List<TextChunk> chunks = chunker.chunk(text);
+        
+        // Then
+        chunks.forEach(chunk -> assertTrue(chunk.tokens() <= 50));
+        assertEquals(5000, chunks.stream().mapToLong(chunk -> chunk.text().chars().filter(c -> c == 'x').count()).sum());
+        assertTrue(chunks.get(chunks.size() - 1).text().endsWith("end."));
+    }
+    
+    @Test
+    void chunk_ShouldStreamReaderInSmallReads() throws Exception {
+        // Given - a reader that hands out three characters at a time
+        StreamingChunker chunker = new StreamingChunker(tokens, 40, 0);
+        String text = "Alpha beta gamma delta. ".repeat(40);
+        Reader reader = new StringReader(text) {
+            @Override
+            public int read(char[] buffer, int offset, int length) throws java.io.IOException {
+                return super.read(buffer, offset, Math.min(length, 3));
+            }
+        };
+        
+        // When
+        List<TextChunk> chunks = new ArrayList<>();
+        chunker.chunk(reader, chunks::add);
+        
+        // Then
+        assertEquals(chunker.chunk(text), chunks);
+    }
+}
@@ -0,0 +1,70 @@
+package com.aianalyst.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Bm25IndexTest {
+    
+    private static final Map<String, Float> FIELDS = Map.of("name", 3f, "content", 1f);
+    
+    @Test
+    void search_ShouldRankExactTickerAndNameMatchesFirst() {
+        // Given
+        Bm25Index index = new Bm25Index(FIELDS);
+        index.put("a", Map.of("name", "Acme Robotics deck", "content", "Warehouse robots for retailers"));
+        index.put("b", Map.of("name", "Market notes", "content", "Acme competes with NVDA on inference chips"));
+        index.put("c", Map.of("name", "Team bios", "content", "Founders previously built robots at Acme"));
+        
+        // When
+        List<ScoredDocument> acme = index.search("acme", 10);
+        List<ScoredDocument> ticker = index.search("NVDA", 10);
+        
+        // Then
+        assertEquals(3, acme.size());
+        assertEquals("a", acme.get(0).id());
+        assertEquals(List.of("b"), ticker.stream().map(ScoredDocument::id).toList());
+    }
+    
+    @Test
+    void search_ShouldMatchLastTermAsPrefix() {
+        // Given
+        Bm25Index index = new Bm25Index(FIELDS);
+        index.put("a", Map.of("name", "Acme Robotics"));
+        index.put("b", Map.of("name", "Globex"));
+        
+        // When / Then
+        assertEquals("a", index.search("acm", 10).get(0).id());
+        assertTrue(index.search("robotics acm", 10).stream().allMatch(hit -> hit.id().equals("a")));
+    }
+    
+    @Test
+    void put_ShouldReplaceAndRemoveDocuments() {
+        // Given
+        Bm25Index index = new Bm25Index(FIELDS);
+        index.put("a", Map.of("name", "Initech"));
+        
+        // When
+        index.put("a", Map.of("name", "Hooli"));
+        
+        // Then
+        assertTrue(index.search("initech", 10).isEmpty());
+        assertEquals(1, index.search("hooli", 10).size());
+        index.remove("a");
+        assertTrue(index.search("hooli", 10).isEmpty());
+        assertEquals(0, index.size());
+    }
+    
+    @Test
+    void reciprocalRank_ShouldFavourDocumentsRankedByBothLists() {
+        // When
+        List<ScoredDocument> fused = RankFusion.reciprocalRank(
+                List.of(List.of("x", "y", "z"), List.of("y", "w")), RankFusion.DEFAULT_K, 3);
+        
+        // Then
+        assertEquals(List.of("y", "x", "w"), fused.stream().map(ScoredDocument::id).toList());
+    }
+}
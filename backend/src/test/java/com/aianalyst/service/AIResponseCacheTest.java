@@ -0,0 +1,51 @@
+package com.aianalyst.service;
+
+import com.aianalyst.config.AICacheProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AIResponseCacheTest {
+    
+    private final AIResponseCache cache = cache();
+    
+    @Test
+    void keyFor_ShouldIgnoreWhitespaceDifferences() {
+        // When
+        String key = cache.keyFor("Summarize  the\n\tdeck.", "gpt", 0.2, 500);
+        
+        // Then
+        assertEquals(key, cache.keyFor("  Summarize the deck.\n", "gpt", 0.2, 500));
+        assertNotEquals(key, cache.keyFor("Summarize the deck.", "gpt", 0.7, 500));
+        assertNotEquals(key, cache.keyFor("Summarize thedeck.", "gpt", 0.2, 500));
+    }
+    
+    @Test
+    void put_ShouldOnlyCacheFamiliesWithTtl() {
+        // Given
+        String key = cache.keyFor("Write a tagline.", null, null, null);
+        
+        // When
+        cache.put(key, AIResponseCache.DEFAULT_FAMILY, "Fast money.");
+        cache.put(key, AIResponseCache.CHART, "{\"type\":\"bar\"}");
+        
+        // Then
+        assertFalse(cache.caches(AIResponseCache.DEFAULT_FAMILY));
+        assertTrue(cache.get(key, AIResponseCache.DEFAULT_FAMILY).isEmpty());
+        assertEquals("{\"type\":\"bar\"}", cache.get(key, AIResponseCache.CHART).orElseThrow());
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static AIResponseCache cache() {
+        AICacheProperties properties = new AICacheProperties();
+        properties.setTtl(Map.of(AIResponseCache.CHART, Duration.ofHours(1)));
+        return new AIResponseCache(properties, mock(ObjectProvider.class), new SimpleMeterRegistry());
+    }
+}
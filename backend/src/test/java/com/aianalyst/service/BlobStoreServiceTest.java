@@ -0,0 +1,170 @@
+package com.aianalyst.service;
+
+import com.aianalyst.entity.BlobEntity;
+import com.aianalyst.repository.BlobRepository;
+import com.aianalyst.service.FileStorageService.StoredFile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BlobStoreServiceTest {
+    
+    private static final String SHA256 = "a".repeat(64);
+    
+    private final BlobRepository blobRepository = mock(BlobRepository.class);
+    private final FileStorageService fileStorageService = mock(FileStorageService.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private BlobStoreService blobStoreService;
+    
+    @BeforeEach
+    void setUp() throws Exception {
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(fileStorageService.storeStream(any(), eq("deck.pdf"), anyLong()))
+                .thenReturn(new StoredFile("uploads/tmp-1", 10, SHA256));
+        when(fileStorageService.moveToBlob("uploads/tmp-1", SHA256)).thenReturn("uploads/blobs/" + SHA256);
+        when(blobRepository.saveAndFlush(any(BlobEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        blobStoreService = new BlobStoreService(blobRepository, fileStorageService, transactionManager, meterRegistry);
+    }
+    
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+    
+    @Test
+    void store_ShouldCreateBlobWithOneReference() throws Exception {
+        // Given
+        when(blobRepository.acquire(eq(SHA256), any())).thenReturn(0);
+        
+        // When
+        BlobEntity blob = blobStoreService.store(body(), "deck.pdf", "application/pdf", 10);
+        
+        // Then
+        assertEquals(1, blob.getReferenceCount());
+        assertEquals("uploads/blobs/" + SHA256, blob.getFilePath());
+        verify(fileStorageService, never()).deleteFile(anyString());
+        ArgumentCaptor<TransactionDefinition> definitions = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager, atLeastOnce()).getTransaction(definitions.capture());
+        definitions.getAllValues().forEach(definition ->
+                assertEquals(TransactionDefinition.PROPAGATION_REQUIRES_NEW, definition.getPropagationBehavior()));
+    }
+    
+    @Test
+    void store_ShouldDeduplicateAgainstExistingBlob() throws Exception {
+        // Given
+        BlobEntity existing = blob();
+        when(blobRepository.acquire(eq(SHA256), any())).thenReturn(1);
+        when(blobRepository.findById(SHA256)).thenReturn(Optional.of(existing));
+        
+        // When
+        BlobEntity blob = blobStoreService.store(body(), "deck.pdf", "application/pdf", 10);
+        
+        // Then
+        assertSame(existing, blob);
+        verify(fileStorageService).deleteFile("uploads/tmp-1");
+        verify(fileStorageService, never()).moveToBlob(anyString(), anyString());
+        verify(blobRepository, never()).saveAndFlush(any());
+        assertEquals(1.0, meterRegistry.counter("storage.blobs.deduplicated").count());
+    }
+    
+    @Test
+    void store_ShouldTakeReferenceWhenConcurrentUploadCreatedBlob() throws Exception {
+        // Given - the insert loses the race, and the retry finds the winner's blob
+        BlobEntity existing = blob();
+        when(blobRepository.acquire(eq(SHA256), any())).thenReturn(0, 1);
+        when(blobRepository.findById(SHA256)).thenReturn(Optional.of(existing));
+        when(blobRepository.saveAndFlush(any(BlobEntity.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"));
+        
+        // When
+        BlobEntity blob = blobStoreService.store(body(), "deck.pdf", "application/pdf", 10);
+        
+        // Then
+        assertSame(existing, blob);
+        verify(fileStorageService, times(1)).moveToBlob("uploads/tmp-1", SHA256);
+        verify(fileStorageService).deleteFile("uploads/blobs/" + SHA256);
+        verify(blobRepository, times(2)).acquire(eq(SHA256), any());
+    }
+    
+    @Test
+    void store_ShouldDeleteStoredFileWhenRetriesRunOut() throws Exception {
+        // Given
+        when(blobRepository.acquire(eq(SHA256), any())).thenReturn(0);
+        when(blobRepository.saveAndFlush(any(BlobEntity.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"));
+        
+        // When / Then
+        assertThrows(DataIntegrityViolationException.class,
+                () -> blobStoreService.store(body(), "deck.pdf", "application/pdf", 10));
+        verify(blobRepository, times(3)).saveAndFlush(any());
+        verify(fileStorageService).deleteFile("uploads/blobs/" + SHA256);
+    }
+    
+    @Test
+    void release_ShouldDeleteFilesOfLastReferenceAfterCommit() {
+        // Given
+        TransactionSynchronizationManager.initSynchronization();
+        BlobEntity blob = blob();
+        blob.setTextPath("uploads/blobs/" + SHA256 + ".txt");
+        when(blobRepository.findById(SHA256)).thenReturn(Optional.of(blob));
+        when(blobRepository.release(eq(SHA256), any())).thenReturn(1);
+        when(blobRepository.deleteUnreferenced(SHA256)).thenReturn(1);
+        
+        // When
+        blobStoreService.release(SHA256);
+        
+        // Then - nothing is deleted until the transaction commits
+        verify(fileStorageService, never()).deleteFile(anyString());
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        verify(fileStorageService).deleteFile("uploads/blobs/" + SHA256);
+        verify(fileStorageService).deleteFile("uploads/blobs/" + SHA256 + ".txt");
+    }
+    
+    @Test
+    void release_ShouldKeepBlobWithRemainingReferences() {
+        // Given
+        TransactionSynchronizationManager.initSynchronization();
+        when(blobRepository.findById(SHA256)).thenReturn(Optional.of(blob()));
+        when(blobRepository.release(eq(SHA256), any())).thenReturn(1);
+        when(blobRepository.deleteUnreferenced(SHA256)).thenReturn(0);
+        
+        // When
+        blobStoreService.release(SHA256);
+        
+        // Then
+        assertTrue(TransactionSynchronizationManager.getSynchronizations().isEmpty());
+        verify(fileStorageService, never()).deleteFile(anyString());
+    }
+    
+    private static InputStream body() {
+        return new ByteArrayInputStream(new byte[10]);
+    }
+    
+    private static BlobEntity blob() {
+        BlobEntity blob = new BlobEntity();
+        blob.setSha256(SHA256);
+        blob.setFilePath("uploads/blobs/" + SHA256);
+        blob.setFileSize(10L);
+        blob.setReferenceCount(2);
+        return blob;
+    }
+}
@@ -0,0 +1,272 @@
+package com.aianalyst.service;
+
+import com.aianalyst.dto.DataSourceDTO;
+import com.aianalyst.entity.BlobEntity;
+import com.aianalyst.entity.UploadChunkEntity;
+import com.aianalyst.entity.UploadChunkEntity.ChunkId;
+import com.aianalyst.entity.UploadSessionEntity;
+import com.aianalyst.entity.UploadSessionEntity.UploadStatus;
+import com.aianalyst.repository.UploadChunkRepository;
+import com.aianalyst.repository.UploadSessionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ChunkedUploadServiceTest {
+    
+    private static final byte[] CONTENT = "0123456789".getBytes(StandardCharsets.UTF_8);
+    
+    @TempDir
+    Path storageDir;
+    
+    // In-memory stand-ins for the session and chunk tables
+    private final Map<String, UploadSessionEntity> sessions = new ConcurrentHashMap<>();
+    private final Map<ChunkId, UploadChunkEntity> chunks = new ConcurrentHashMap<>();
+    private final AtomicReference<byte[]> assembled = new AtomicReference<>();
+    
+    private final UploadSessionRepository sessionRepository = mock(UploadSessionRepository.class);
+    private final UploadChunkRepository chunkRepository = mock(UploadChunkRepository.class);
+    private final BlobStoreService blobStoreService = mock(BlobStoreService.class);
+    private final DataSourceService dataSourceService = mock(DataSourceService.class);
+    private final FileStorageService fileStorageService = new FileStorageService();
+    private ChunkedUploadService uploadService;
+    
+    @BeforeEach
+    void setUp() throws Exception {
+        ReflectionTestUtils.setField(fileStorageService, "storagePath", storageDir.toString());
+        ReflectionTestUtils.setField(fileStorageService, "maxFileSize", DataSize.ofKilobytes(64));
+        uploadService = new ChunkedUploadService(sessionRepository, chunkRepository, fileStorageService,
+                blobStoreService, dataSourceService, DataSize.ofBytes(4), DataSize.ofKilobytes(64), Duration.ofHours(1));
+        
+        when(sessionRepository.save(any())).thenAnswer(invocation -> {
+            UploadSessionEntity session = invocation.getArgument(0);
+            sessions.put(session.getId(), session);
+            return session;
+        });
+        when(sessionRepository.findById(anyString()))
+                .thenAnswer(invocation -> Optional.ofNullable(sessions.get(invocation.<String>getArgument(0))));
+        when(sessionRepository.claimCompletion(anyString(), any()))
+                .thenAnswer(invocation -> transition(invocation.getArgument(0), UploadStatus.OPEN, UploadStatus.COMPLETING));
+        when(sessionRepository.reopen(anyString(), any()))
+                .thenAnswer(invocation -> transition(invocation.getArgument(0), UploadStatus.COMPLETING, UploadStatus.OPEN));
+        when(sessionRepository.markCompleted(anyString(), anyString(), any())).thenAnswer(invocation -> {
+            sessions.get(invocation.<String>getArgument(0)).setDataSourceId(invocation.getArgument(1));
+            return transition(invocation.getArgument(0), UploadStatus.COMPLETING, UploadStatus.COMPLETED);
+        });
+        doAnswer(invocation -> sessions.remove(invocation.<String>getArgument(0)))
+                .when(sessionRepository).deleteById(anyString());
+        when(sessionRepository.findExpiredIds(any(), any())).thenAnswer(invocation -> sessions.values().stream()
+                .filter(session -> session.getStatus() != UploadStatus.COMPLETING)
+                .filter(session -> session.getExpiresAt().isBefore(invocation.getArgument(0)))
+                .map(UploadSessionEntity::getId)
+                .toList());
+        
+        when(chunkRepository.save(any())).thenAnswer(invocation -> {
+            UploadChunkEntity chunk = invocation.getArgument(0);
+            chunks.put(new ChunkId(chunk.getSessionId(), chunk.getChunkIndex()), chunk);
+            return chunk;
+        });
+        doAnswer(invocation -> chunks.remove(invocation.<ChunkId>getArgument(0)))
+                .when(chunkRepository).deleteById(any(ChunkId.class));
+        when(chunkRepository.findChunkIndexes(anyString())).thenAnswer(invocation -> chunks.keySet().stream()
+                .filter(id -> id.getSessionId().equals(invocation.getArgument(0)))
+                .map(ChunkId::getChunkIndex)
+                .sorted()
+                .toList());
+        when(chunkRepository.countBySessionId(anyString())).thenAnswer(invocation -> chunks.keySet().stream()
+                .filter(id -> id.getSessionId().equals(invocation.getArgument(0)))
+                .count());
+        when(chunkRepository.deleteBySessionId(anyString())).thenAnswer(invocation -> {
+            chunks.keySet().removeIf(id -> id.getSessionId().equals(invocation.getArgument(0)));
+            return 0;
+        });
+        
+        when(blobStoreService.storeFile(anyString(), anyString(), any())).thenAnswer(invocation -> {
+            assembled.set(Files.readAllBytes(Paths.get(invocation.<String>getArgument(0))));
+            BlobEntity blob = new BlobEntity();
+            blob.setSha256("b".repeat(64));
+            return blob;
+        });
+        when(dataSourceService.createFileDataSource(any(), anyString(), any(), anyString(), any()))
+                .thenReturn(DataSourceDTO.builder().id("ds-1").build());
+    }
+    
+    @Test
+    void writeChunk_ShouldResumeAndAssembleOutOfOrderAndDuplicateChunks() throws Exception {
+        // Given - a client that sent the last and first chunks before losing its connection
+        String uploadId = open();
+        write(uploadId, 2);
+        write(uploadId, 0);
+        assertEquals(List.of(0, 2), uploadService.getSession(uploadId, "user-1").getReceivedChunks());
+        
+        // When - it resumes with the missing chunk and sends the first one again
+        write(uploadId, 1);
+        write(uploadId, 0);
+        DataSourceDTO dataSource = uploadService.complete(uploadId, "user-1");
+        
+        // Then
+        assertEquals("ds-1", dataSource.getId());
+        assertArrayEquals(CONTENT, assembled.get());
+        assertEquals(UploadStatus.COMPLETED, sessions.get(uploadId).getStatus());
+        assertTrue(chunks.isEmpty());
+    }
+    
+    @Test
+    void writeChunk_ShouldNotCountChunkThatFailsItsHash() throws Exception {
+        // Given
+        String uploadId = open();
+        write(uploadId, 1);
+        
+        // When / Then - a bad resend also drops the copy received earlier
+        assertThrows(IllegalArgumentException.class, () -> uploadService.writeChunk(uploadId, 1,
+                new ByteArrayInputStream(CONTENT, 4, 4), "0".repeat(64), "user-1"));
+        assertEquals(List.of(), uploadService.getSession(uploadId, "user-1").getReceivedChunks());
+    }
+    
+    @Test
+    void writeChunk_ShouldNotLockUploadsTheCallerCannotWriteTo() throws Exception {
+        // Given
+        String uploadId = open();
+        write(uploadId, 0);
+        write(uploadId, 1);
+        write(uploadId, 2);
+        uploadService.complete(uploadId, "user-1");
+        String foreign = open();
+        
+        // When - chunks for unknown, foreign and completed uploads are rejected
+        assertThrows(RuntimeException.class, () -> write("missing", 0));
+        assertThrows(RuntimeException.class, () -> uploadService.writeChunk(foreign, 0,
+                new ByteArrayInputStream(CONTENT, 0, 4), null, "user-2"));
+        assertThrows(IllegalArgumentException.class, () -> write(uploadId, 0));
+        
+        // Then - none of them left a lock behind
+        Map<?, ?> sessionLocks = (Map<?, ?>) ReflectionTestUtils.getField(uploadService, "sessionLocks");
+        assertTrue(sessionLocks.isEmpty());
+    }
+    
+    @Test
+    void complete_ShouldBeClaimedOnceAndCloseTheSessionToChunks() throws Exception {
+        // Given
+        String uploadId = open();
+        write(uploadId, 0);
+        write(uploadId, 1);
+        
+        // When / Then - completion needs every chunk
+        assertThrows(IllegalArgumentException.class, () -> uploadService.complete(uploadId, "user-1"));
+        write(uploadId, 2);
+        
+        // When / Then - a completion already in progress on another request wins
+        sessions.get(uploadId).setStatus(UploadStatus.COMPLETING);
+        IllegalArgumentException concurrent = assertThrows(IllegalArgumentException.class,
+                () -> uploadService.complete(uploadId, "user-1"));
+        assertTrue(concurrent.getMessage().contains("already being completed"));
+        assertThrows(IllegalArgumentException.class, () -> write(uploadId, 0));
+        verify(blobStoreService, never()).storeFile(anyString(), anyString(), any());
+    }
+    
+    @Test
+    void complete_ShouldWaitForChunkWriteInProgress() throws Exception {
+        // Given - every chunk arrived, and a resend of the first one is still being written
+        String uploadId = open();
+        write(uploadId, 0);
+        write(uploadId, 1);
+        write(uploadId, 2);
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        InputStream slowBody = new ByteArrayInputStream(CONTENT, 0, 4) {
+            @Override
+            public synchronized int read(byte[] buffer, int offset, int length) {
+                writing.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.read(buffer, offset, length);
+            }
+        };
+        CompletableFuture<Void> resend = CompletableFuture.runAsync(() -> {
+            try {
+                uploadService.writeChunk(uploadId, 0, slowBody, null, "user-1");
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        
+        // When
+        CompletableFuture<DataSourceDTO> completion = CompletableFuture.supplyAsync(
+                () -> uploadService.complete(uploadId, "user-1"));
+        Thread.sleep(100);
+        
+        // Then - the session is only claimed once the write has finished
+        assertEquals(UploadStatus.OPEN, sessions.get(uploadId).getStatus());
+        release.countDown();
+        resend.get(5, TimeUnit.SECONDS);
+        assertEquals("ds-1", completion.get(5, TimeUnit.SECONDS).getId());
+        assertArrayEquals(CONTENT, assembled.get());
+    }
+    
+    @Test
+    void purgeExpiredSessions_ShouldDeleteExpiredUploadsAndTheirFiles() throws Exception {
+        // Given
+        String expired = open();
+        write(expired, 0);
+        sessions.get(expired).setExpiresAt(LocalDateTime.now().minusMinutes(1));
+        String live = open();
+        String expiredPath = sessions.get(expired).getFilePath();
+        
+        // When
+        uploadService.purgeExpiredSessions();
+        
+        // Then
+        assertFalse(sessions.containsKey(expired));
+        assertFalse(Files.exists(Paths.get(expiredPath)));
+        assertTrue(chunks.isEmpty());
+        assertTrue(sessions.containsKey(live));
+        assertTrue(Files.exists(Paths.get(sessions.get(live).getFilePath())));
+    }
+    
+    private String open() throws IOException {
+        return uploadService.createSession("deck.pdf", "application/pdf", CONTENT.length, "user-1").getUploadId();
+    }
+    
+    private void write(String uploadId, int index) throws IOException {
+        int offset = index * 4;
+        uploadService.writeChunk(uploadId, index,
+                new ByteArrayInputStream(CONTENT, offset, Math.min(4, CONTENT.length - offset)), null, "user-1");
+    }
+    
+    private int transition(String uploadId, UploadStatus from, UploadStatus to) {
+        UploadSessionEntity session = sessions.get(uploadId);
+        if (session == null || session.getStatus() != from) {
+            return 0;
+        }
+        session.setStatus(to);
+        return 1;
+    }
+}
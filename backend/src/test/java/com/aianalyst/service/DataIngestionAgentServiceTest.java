@@ -0,0 +1,108 @@
+package com.aianalyst.service;
+
+import com.aianalyst.service.DataSourceService.DataSourceContent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.StringReader;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class DataIngestionAgentServiceTest {
+    
+    private final AIService aiService = mock(AIService.class);
+    private final DataSourceService dataSourceService = mock(DataSourceService.class);
+    private final VectorStoreService vectorStoreService = mock(VectorStoreService.class);
+    private final BlobStoreService blobStoreService = mock(BlobStoreService.class);
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+    
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    @Test
+    void execute_ShouldIsolateFailingAndTimedOutSources() throws Exception {
+        // Given
+        CountDownLatch hang = new CountDownLatch(1);
+        when(dataSourceService.openContent("good")).thenAnswer(invocation -> content("good", "Revenue grew."));
+        when(dataSourceService.openContent("broken")).thenThrow(new RuntimeException("Corrupt PDF"));
+        when(dataSourceService.openContent("slow")).thenAnswer(invocation -> {
+            hang.await(10, TimeUnit.SECONDS);
+            return content("slow", "Too late.");
+        });
+        when(aiService.generateText(anyString())).thenAnswer(invocation -> invocation.getArgument(0));
+        DataIngestionAgentService service = newService(4, 1);
+        
+        // When
+        service.execute(Map.of("dataSourceIds", "good, broken, slow"));
+        hang.countDown();
+        
+        // Then - the structured output (the echoed prompt) keeps the good extraction and names both failures
+        ArgumentCaptor<String> output = ArgumentCaptor.forClass(String.class);
+        verify(vectorStoreService).storeProcessedData(output.capture());
+        assertTrue(output.getValue().contains("Revenue grew."));
+        assertTrue(output.getValue().contains("- broken: Corrupt PDF"));
+        assertTrue(output.getValue().contains("- slow: timed out after 1s"));
+    }
+    
+    @Test
+    void execute_ShouldBoundConcurrentSources() throws Exception {
+        // Given
+        int[] running = new int[2];
+        when(dataSourceService.openContent(anyString())).thenAnswer(invocation -> {
+            synchronized (running) {
+                running[1] = Math.max(running[1], ++running[0]);
+            }
+            Thread.sleep(50);
+            synchronized (running) {
+                running[0]--;
+            }
+            return content(invocation.getArgument(0), "Some text.");
+        });
+        when(aiService.generateText(anyString())).thenReturn("extracted");
+        DataIngestionAgentService service = newService(2, 30);
+        
+        // When
+        service.execute(Map.of("dataSourceIds", "a,b,c,d,e,f"));
+        
+        // Then
+        assertEquals(2, running[1]);
+        verify(dataSourceService, times(6)).openContent(anyString());
+    }
+    
+    @Test
+    void execute_ShouldReuseIngestionOfDuplicateBlob() throws Exception {
+        // Given - another data source with the same content was already ingested
+        when(dataSourceService.openContent("copy")).thenReturn(
+                new DataSourceContent("copy", "application/pdf", "abc123", new StringReader("Deck text.")));
+        when(blobStoreService.findExtraction("abc123")).thenReturn(Optional.of("cached extraction"));
+        when(aiService.generateText(anyString())).thenReturn("structured");
+        DataIngestionAgentService service = newService(4, 30);
+        
+        // When
+        service.execute(Map.of("dataSourceIds", "copy"));
+        
+        // Then - only the final structured-output prompt reaches the model, and search indexing owns the embeddings
+        verify(aiService, times(1)).generateText(contains("cached extraction"));
+        verify(vectorStoreService, never()).openDocument(anyString());
+    }
+    
+    private DataIngestionAgentService newService(int maxConcurrentSources, long sourceTimeoutSeconds) {
+        return new DataIngestionAgentService(aiService, dataSourceService, vectorStoreService, blobStoreService, executor,
+                3000, 200, maxConcurrentSources, sourceTimeoutSeconds);
+    }
+    
+    private static DataSourceContent content(String id, String text) {
+        return new DataSourceContent(id, "text/plain", null, new StringReader(text));
+    }
+}
@@ -0,0 +1,170 @@
+package com.aianalyst.service;
+
+import com.aianalyst.dto.DataSourceDTO;
+import com.aianalyst.entity.DataSourceContentEntity;
+import com.aianalyst.entity.DataSourceEntity;
+import com.aianalyst.entity.DataSourceEntity.DataSourceStatus;
+import com.aianalyst.entity.DataSourceEntity.DataSourceType;
+import com.aianalyst.repository.DataSourceContentRepository;
+import com.aianalyst.repository.DataSourceRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=create-drop")
+@Import(DataSourceService.class)
+class DataSourceServiceTest {
+    
+    @Autowired
+    private DataSourceService dataSourceService;
+    
+    @Autowired
+    private DataSourceRepository dataSourceRepository;
+    
+    @Autowired
+    private DataSourceContentRepository dataSourceContentRepository;
+    
+    @Autowired
+    private TestEntityManager entityManager;
+    
+    @MockBean
+    private FileStorageService fileStorageService;
+    
+    @MockBean
+    private HybridSearchService hybridSearchService;
+    
+    @MockBean
+    private BlobStoreService blobStoreService;
+    
+    @MockBean
+    private ExtractionPipeline extractionPipeline;
+    
+    @Test
+    void getDataSources_ShouldListSummariesWithTheirMetadataButNoContent() {
+        // Given
+        String notes = save("Notes", "user-1", Map.of("stage", "seed", "sector", "fintech"), "quarterly revenue");
+        String deck = save("Deck", "user-1", Map.of("stage", "series-a"), null);
+        String plain = save("Plain", "user-1", Map.of(), "no metadata");
+        save("Other", "user-2", Map.of("stage", "seed"), "someone else's");
+        entityManager.flush();
+        entityManager.clear();
+        
+        // When
+        List<DataSourceDTO> dataSources = dataSourceService.getDataSources("user-1");
+        
+        // Then
+        assertEquals(3, dataSources.size());
+        Map<String, DataSourceDTO> byId = dataSources.stream()
+                .collect(Collectors.toMap(DataSourceDTO::getId, Function.identity()));
+        assertEquals(Map.of("stage", "seed", "sector", "fintech"), byId.get(notes).getMetadata());
+        assertEquals(Map.of("stage", "series-a"), byId.get(deck).getMetadata());
+        assertEquals(Map.of(), byId.get(plain).getMetadata());
+        assertEquals("Notes", byId.get(notes).getName());
+        assertEquals(DataSourceStatus.COMPLETED, byId.get(notes).getStatus());
+        dataSources.forEach(dto -> assertNull(dto.getContent()));
+    }
+    
+    @Test
+    void getDataSources_ShouldLoadMetadataOfOnePageOnly() {
+        // Given
+        save("First", "user-1", Map.of("page", "1"), null);
+        save("Second", "user-1", Map.of("page", "1"), null);
+        save("Third", "user-1", Map.of("page", "2"), null);
+        entityManager.flush();
+        entityManager.clear();
+        
+        // When
+        Page<DataSourceDTO> page = dataSourceService.getDataSources("user-1", PageRequest.of(0, 2));
+        
+        // Then
+        assertEquals(3, page.getTotalElements());
+        assertEquals(2, page.getContent().size());
+        page.getContent().forEach(dto -> assertEquals(1, dto.getMetadata().size()));
+    }
+    
+    @Test
+    void getDataSource_ShouldReadContentFromItsOwnTable() {
+        // Given
+        String id = save("Notes", "user-1", Map.of(), "quarterly revenue");
+        entityManager.flush();
+        entityManager.clear();
+        
+        // When
+        DataSourceDTO dataSource = dataSourceService.getDataSource(id, "user-1");
+        
+        // Then
+        assertEquals("quarterly revenue", dataSource.getContent());
+    }
+    
+    @Test
+    void deleteDataSource_ShouldDeleteItsContentRowAndMetadata() {
+        // Given
+        String id = save("Notes", "user-1", Map.of("stage", "seed"), "quarterly revenue");
+        String kept = save("Kept", "user-1", Map.of(), "still here");
+        entityManager.flush();
+        entityManager.clear();
+        
+        // When
+        dataSourceService.deleteDataSource(id, "user-1");
+        entityManager.flush();
+        entityManager.clear();
+        
+        // Then
+        assertFalse(dataSourceRepository.existsById(id));
+        assertFalse(dataSourceContentRepository.existsById(id));
+        assertTrue(dataSourceRepository.findMetadataByIdIn(List.of(id)).isEmpty());
+        assertEquals("still here", dataSourceContentRepository.findContentByDataSourceId(kept).orElseThrow());
+        verifyNoInteractions(blobStoreService, fileStorageService);
+    }
+    
+    @Test
+    void deleteDataSource_ShouldReleaseBlobOfUpload() {
+        // Given - uploads keep their text with the blob, not in a content row
+        DataSourceEntity upload = entity("deck.pdf", "user-1", Map.of());
+        upload.setType(DataSourceType.FILE_UPLOAD);
+        upload.setContentSha256("a".repeat(64));
+        String id = entityManager.persist(upload).getId();
+        entityManager.flush();
+        entityManager.clear();
+        
+        // When
+        dataSourceService.deleteDataSource(id, "user-1");
+        entityManager.flush();
+        
+        // Then
+        assertFalse(dataSourceRepository.existsById(id));
+        verify(blobStoreService).release("a".repeat(64));
+    }
+    
+    private String save(String name, String userId, Map<String, String> metadata, String content) {
+        String id = entityManager.persist(entity(name, userId, metadata)).getId();
+        if (content != null) {
+            entityManager.persist(new DataSourceContentEntity(id, content));
+        }
+        return id;
+    }
+    
+    private static DataSourceEntity entity(String name, String userId, Map<String, String> metadata) {
+        DataSourceEntity entity = new DataSourceEntity();
+        entity.setName(name);
+        entity.setUserId(userId);
+        entity.setType(DataSourceType.TEXT_INPUT);
+        entity.setStatus(DataSourceStatus.COMPLETED);
+        entity.setMetadata(new HashMap<>(metadata));
+        return entity;
+    }
+}
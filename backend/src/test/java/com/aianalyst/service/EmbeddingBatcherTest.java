@@ -0,0 +1,99 @@
+package com.aianalyst.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmbeddingBatcherTest {
+    
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch entered = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<List<String>> batches = Collections.synchronizedList(new ArrayList<>());
+    private final ExecutorService callers = Executors.newFixedThreadPool(3);
+    
+    // Records every batch; the first one stalls until released
+    private final EmbeddingService embeddingService = new EmbeddingService(16) {
+        @Override
+        public List<float[]> embedAll(List<String> texts) {
+            batches.add(texts);
+            entered.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.embedAll(texts);
+        }
+    };
+    
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        callers.shutdownNow();
+    }
+    
+    @Test
+    void embedAll_ShouldMergeTextsOfConcurrentCallersIntoOneBatch() throws Exception {
+        // Given - one caller is embedding, so the next two have to queue
+        EmbeddingBatcher batcher = new EmbeddingBatcher(embeddingService, 64, 16, 1, meterRegistry);
+        CompletableFuture<List<float[]>> first = embedAsync(batcher, "a");
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        CompletableFuture<List<float[]>> second = embedAsync(batcher, "b1 alpha", "b2 beta");
+        CompletableFuture<List<float[]>> third = embedAsync(batcher, "c1");
+        while (batcher.queueDepth() < 3) {
+            Thread.onSpinWait();
+        }
+        
+        // When
+        release.countDown();
+        
+        // Then - every caller gets its own embeddings, in order, from two batches
+        assertEquals(1, first.get(5, TimeUnit.SECONDS).size());
+        List<float[]> vectors = second.get(5, TimeUnit.SECONDS);
+        assertArrayEquals(new EmbeddingService(16).embed("b2 beta"), vectors.get(1));
+        assertEquals(1, third.get(5, TimeUnit.SECONDS).size());
+        assertEquals(2, batches.size());
+        assertEquals(3, batches.get(1).size());
+        DistributionSummary batchSizes = meterRegistry.get("embedding.batch.size").summary();
+        assertEquals(2, batchSizes.count());
+        assertEquals(4, batchSizes.totalAmount());
+    }
+    
+    @Test
+    void embedAll_ShouldHoldProducersBackWhenQueueIsFull() throws Exception {
+        // Given - a stalled batch and a queue with room for two texts
+        EmbeddingBatcher batcher = new EmbeddingBatcher(embeddingService, 64, 2, 1, meterRegistry);
+        CompletableFuture<List<float[]>> first = embedAsync(batcher, "a");
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        
+        // When
+        CompletableFuture<List<float[]>> burst = embedAsync(batcher, "b1", "b2", "b3", "b4");
+        
+        // Then - the producer waits for room instead of growing the queue
+        Thread.sleep(200);
+        assertFalse(burst.isDone());
+        assertEquals(2, batcher.queueDepth());
+        assertEquals(1.0, meterRegistry.get("embedding.queue.blocked").counter().count());
+        release.countDown();
+        assertEquals(4, burst.get(5, TimeUnit.SECONDS).size());
+        assertEquals(1, first.get(5, TimeUnit.SECONDS).size());
+        assertEquals(0, batcher.queueDepth());
+    }
+    
+    private CompletableFuture<List<float[]>> embedAsync(EmbeddingBatcher batcher, String... texts) {
+        return CompletableFuture.supplyAsync(() -> batcher.embedAll(List.of(texts)), callers);
+    }
+}
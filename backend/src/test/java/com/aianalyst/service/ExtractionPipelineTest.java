@@ -0,0 +1,199 @@
+package com.aianalyst.service;
+
+import com.aianalyst.entity.BlobEntity;
+import com.aianalyst.entity.DataSourceEntity;
+import com.aianalyst.entity.DataSourceEntity.DataSourceStatus;
+import com.aianalyst.repository.DataSourceRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.util.unit.DataSize;
+
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ExtractionPipelineTest {
+    
+    @TempDir
+    Path storageDir;
+    
+    private final TextExtractionService textExtractionService = mock(TextExtractionService.class);
+    private final BlobStoreService blobStoreService = mock(BlobStoreService.class);
+    private final DataSourceRepository dataSourceRepository = mock(DataSourceRepository.class);
+    private final HybridSearchService hybridSearchService = mock(HybridSearchService.class);
+    private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ExtractionPipeline pipeline;
+    
+    @BeforeEach
+    void setUp() {
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(10);
+        executor.initialize();
+        pipeline = new ExtractionPipeline(textExtractionService, Optional.empty(), blobStoreService,
+                dataSourceRepository, hybridSearchService, executor, Duration.ofMillis(300), DataSize.ofMegabytes(1),
+                Duration.ofMinutes(5), meterRegistry);
+        when(textExtractionService.isExtractable(any())).thenReturn(true);
+        when(blobStoreService.saveTextPath(anyString(), anyString())).thenReturn(true);
+        when(dataSourceRepository.finishProcessing(anyString(), any(), any())).thenReturn(1);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        pipeline.stop();
+        executor.shutdown();
+    }
+    
+    @Test
+    void submit_ShouldExtractSharedBlobOnceAndCompleteEveryDataSource() throws Exception {
+        // Given - two uploads of the same content arrive while its extraction is running
+        BlobEntity blob = blob("deck.pdf");
+        CountDownLatch release = new CountDownLatch(1);
+        when(textExtractionService.extractTo(any(), anyString(), anyString(), any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            invocation.getArgument(3, Writer.class).write("Revenue grew 40%.");
+            return false;
+        });
+        
+        // When
+        pipeline.submit("ds-1", blob.getSha256());
+        pipeline.submit("ds-2", blob.getSha256());
+        release.countDown();
+        
+        // Then
+        verify(dataSourceRepository, timeout(5000)).finishProcessing(eq("ds-1"), eq(DataSourceStatus.COMPLETED), any());
+        verify(dataSourceRepository, timeout(5000)).finishProcessing(eq("ds-2"), eq(DataSourceStatus.COMPLETED), any());
+        verify(textExtractionService, times(1)).extractTo(any(), anyString(), anyString(), any());
+        Path text = Path.of(blob.getFilePath() + ".txt");
+        assertEquals("Revenue grew 40%.", Files.readString(text));
+        verify(blobStoreService).saveTextPath(blob.getSha256(), text.toString());
+    }
+    
+    @Test
+    void submit_ShouldIndexDataSourceOnceItsTextIsExtracted() throws Exception {
+        // Given
+        BlobEntity blob = blob("deck.pdf");
+        DataSourceEntity dataSource = new DataSourceEntity();
+        dataSource.setId("ds-1");
+        when(dataSourceRepository.findById("ds-1")).thenReturn(Optional.of(dataSource));
+        when(textExtractionService.extractTo(any(), anyString(), anyString(), any())).thenAnswer(invocation -> {
+            invocation.getArgument(3, Writer.class).write("Revenue grew 40%.");
+            return false;
+        });
+        
+        // When
+        pipeline.submit("ds-1", blob.getSha256());
+        
+        // Then - the status update bypasses the entity listeners, so the pipeline indexes it
+        verify(hybridSearchService, timeout(5000)).indexDataSource(dataSource);
+    }
+    
+    @Test
+    void submit_ShouldKeepRetryPartialFileApartFromTimedOutAttempt() throws Exception {
+        // Given - a first attempt that times out but keeps writing after its interrupt
+        BlobEntity blob = blob("slow.pdf");
+        CountDownLatch retried = new CountDownLatch(1);
+        CountDownLatch firstDone = new CountDownLatch(1);
+        when(textExtractionService.extractTo(any(), anyString(), anyString(), any())).thenAnswer(invocation -> {
+            Writer out = invocation.getArgument(3, Writer.class);
+            try {
+                Thread.sleep(60_000);
+            } catch (InterruptedException e) {
+                retried.await(5, TimeUnit.SECONDS);
+                out.write("stale");
+                Thread.currentThread().interrupt();
+                firstDone.countDown();
+                return false;
+            }
+            return false;
+        }).thenAnswer(invocation -> {
+            retried.countDown();
+            firstDone.await(5, TimeUnit.SECONDS);
+            invocation.getArgument(3, Writer.class).write("Revenue grew 40%.");
+            return false;
+        });
+        pipeline.submit("ds-1", blob.getSha256());
+        verify(dataSourceRepository, timeout(5000)).finishProcessing(eq("ds-1"), eq(DataSourceStatus.FAILED), any());
+        
+        // When - the sweep retries while the first attempt is still running
+        pipeline.submit("ds-2", blob.getSha256());
+        
+        // Then - the first attempt's cleanup leaves the retry's output alone
+        verify(dataSourceRepository, timeout(5000)).finishProcessing(eq("ds-2"), eq(DataSourceStatus.COMPLETED), any());
+        assertEquals("Revenue grew 40%.", Files.readString(Path.of(blob.getFilePath() + ".txt")));
+    }
+    
+    @Test
+    void submit_ShouldFailDataSourceWhenExtractionRunsPastTimeout() throws Exception {
+        // Given - a parser that hangs until interrupted
+        BlobEntity blob = blob("malformed.pdf");
+        when(textExtractionService.extractTo(any(), anyString(), anyString(), any())).thenAnswer(invocation -> {
+            Thread.sleep(60_000);
+            return false;
+        });
+        
+        // When
+        pipeline.submit("ds-1", blob.getSha256());
+        
+        // Then
+        verify(dataSourceRepository, timeout(5000)).finishProcessing(eq("ds-1"), eq(DataSourceStatus.FAILED), any());
+        verify(blobStoreService, after(500).never()).saveTextPath(anyString(), anyString());
+        assertFalse(Files.exists(Path.of(blob.getFilePath() + ".txt")));
+        verify(hybridSearchService, never()).indexDataSource(any());
+    }
+    
+    @Test
+    void submit_ShouldCountWorkerHeldByParserThatIgnoresItsInterrupt() throws Exception {
+        // Given - an in-process parser that keeps running after the timeout interrupts it
+        BlobEntity blob = blob("hostile.pdf");
+        CountDownLatch release = new CountDownLatch(1);
+        when(textExtractionService.extractTo(any(), anyString(), anyString(), any())).thenAnswer(invocation -> {
+            while (release.getCount() > 0) {
+                try {
+                    release.await(10, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException ignored) {
+                    // Like PDFBox, carry on parsing
+                }
+            }
+            return false;
+        });
+        
+        // When
+        pipeline.submit("ds-1", blob.getSha256());
+        
+        // Then - the data source fails on time, and the held worker shows until the parser returns
+        verify(dataSourceRepository, timeout(5000)).finishProcessing(eq("ds-1"), eq(DataSourceStatus.FAILED), any());
+        assertEquals(1.0, meterRegistry.get("extraction.workers.stuck").gauge().value());
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (meterRegistry.get("extraction.workers.stuck").gauge().value() > 0
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0.0, meterRegistry.get("extraction.workers.stuck").gauge().value());
+    }
+    
+    private BlobEntity blob(String name) throws Exception {
+        Path file = Files.writeString(storageDir.resolve(name), "%PDF-1.7");
+        BlobEntity blob = new BlobEntity();
+        blob.setSha256("sha-" + name);
+        blob.setFilePath(file.toString());
+        blob.setFileSize(Files.size(file));
+        blob.setContentType("application/pdf");
+        when(blobStoreService.find(blob.getSha256())).thenReturn(Optional.of(blob));
+        return blob;
+    }
+}
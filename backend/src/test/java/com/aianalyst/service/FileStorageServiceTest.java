@@ -0,0 +1,98 @@
+package com.aianalyst.service;
+
+import com.aianalyst.service.FileStorageService.StoredFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileStorageServiceTest {
+    
+    @TempDir
+    Path storageDir;
+    
+    private final FileStorageService storage = new FileStorageService();
+    
+    @BeforeEach
+    void configure() {
+        ReflectionTestUtils.setField(storage, "storagePath", storageDir.toString());
+        ReflectionTestUtils.setField(storage, "maxFileSize", DataSize.ofKilobytes(64));
+    }
+    
+    @Test
+    void storeStream_ShouldStoreAndHashInOnePass() throws Exception {
+        // Given
+        byte[] body = "Quarterly revenue grew 40%.\n".repeat(500).getBytes(StandardCharsets.UTF_8);
+        
+        // When
+        StoredFile stored = storage.storeStream(new ByteArrayInputStream(body), "notes.txt", body.length);
+        
+        // Then
+        assertArrayEquals(body, Files.readAllBytes(Paths.get(stored.path())));
+        assertEquals(body.length, stored.size());
+        assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body)), stored.sha256());
+        try (var files = Files.list(storageDir)) {
+            assertEquals(1, files.count());
+        }
+    }
+    
+    @Test
+    void storeStream_ShouldRejectOversizedBodyWithoutLeavingFiles() throws Exception {
+        // Given
+        byte[] body = new byte[65 * 1024];
+        
+        // When / Then
+        assertThrows(MaxUploadSizeExceededException.class,
+                () -> storage.storeStream(new ByteArrayInputStream(body), "deck.mp4", -1));
+        try (var files = Files.list(storageDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+    
+    @Test
+    void storeStream_ShouldRejectTruncatedBody() throws Exception {
+        // Given
+        byte[] body = new byte[1000];
+        
+        // When / Then
+        assertThrows(IOException.class,
+                () -> storage.storeStream(new ByteArrayInputStream(body), "deck.pdf", 2000));
+    }
+    
+    @Test
+    void writeAt_ShouldAssembleChunksSentOutOfOrderAndAgain() throws Exception {
+        // Given
+        byte[] body = "Data room index, section ".repeat(100).getBytes(StandardCharsets.UTF_8);
+        int chunkSize = 1000;
+        String upload = storage.createUploadFile("upload-1");
+        
+        // When - chunks arrive last first, and the first one is sent twice
+        for (int index = (body.length - 1) / chunkSize; index >= 0; index--) {
+            int offset = index * chunkSize;
+            int length = Math.min(chunkSize, body.length - offset);
+            storage.writeAt(upload, offset, new ByteArrayInputStream(body, offset, length), length);
+        }
+        storage.writeAt(upload, 0, new ByteArrayInputStream(body, 0, chunkSize), chunkSize);
+        StoredFile stored = storage.adoptFile(upload, "index.txt");
+        
+        // Then
+        assertArrayEquals(body, Files.readAllBytes(Paths.get(stored.path())));
+        assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body)), stored.sha256());
+        assertFalse(Files.exists(Paths.get(upload)));
+        assertThrows(IllegalArgumentException.class, () -> storage.writeAt(
+                storage.createUploadFile("upload-2"), 0, new ByteArrayInputStream(body, 0, 10), chunkSize));
+    }
+}
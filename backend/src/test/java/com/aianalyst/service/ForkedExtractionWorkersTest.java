@@ -0,0 +1,66 @@
+package com.aianalyst.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ForkedExtractionWorkersTest {
+    
+    @TempDir
+    Path storageDir;
+    
+    private final ForkedExtractionWorkers workers = new ForkedExtractionWorkers(1, Duration.ofSeconds(60), 1000,
+            DataSize.ofMegabytes(16), DataSize.ofMegabytes(128), 10, Duration.ofMinutes(10),
+            new SimpleMeterRegistry());
+    
+    @AfterEach
+    void tearDown() {
+        workers.stop();
+    }
+    
+    @Test
+    void extractTo_ShouldStreamTextFromOneWarmWorkerAcrossDocuments() throws Exception {
+        // Given
+        Path notes = Files.writeString(storageDir.resolve("notes.txt"), "Quarterly revenue grew 40%.\n".repeat(100));
+        Path memo = Files.writeString(storageDir.resolve("memo.txt"), "Série A closed at €12M.");
+        StringWriter notesText = new StringWriter();
+        StringWriter memoText = new StringWriter();
+        
+        // When - the text limit of 1000 characters cuts the first document
+        boolean notesTruncated = workers.extractTo(notes, "notes.txt", "text/plain", notesText);
+        boolean memoTruncated = workers.extractTo(memo, "memo.txt", "text/plain", memoText);
+        
+        // Then
+        assertTrue(notesTruncated);
+        assertEquals(1000, notesText.toString().length());
+        assertTrue(notesText.toString().startsWith("Quarterly revenue grew 40%."));
+        assertFalse(memoTruncated);
+        assertEquals("Série A closed at €12M.", memoText.toString().trim());
+        assertEquals(1, workers.runningWorkers());
+    }
+    
+    @Test
+    void extractTo_ShouldKeepWorkerWhenDocumentCannotBeRead() throws Exception {
+        // Given
+        Path missing = storageDir.resolve("missing.pdf");
+        Path notes = Files.writeString(storageDir.resolve("notes.txt"), "Runway of 18 months.");
+        
+        // When / Then
+        assertThrows(IOException.class,
+                () -> workers.extractTo(missing, "missing.pdf", "application/pdf", new StringWriter()));
+        StringWriter text = new StringWriter();
+        workers.extractTo(notes, "notes.txt", "text/plain", text);
+        assertEquals("Runway of 18 months.", text.toString().trim());
+        assertEquals(1, workers.runningWorkers());
+    }
+}
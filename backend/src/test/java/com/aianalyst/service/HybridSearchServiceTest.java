@@ -0,0 +1,116 @@
+package com.aianalyst.service;
+
+import com.aianalyst.entity.DataSourceEntity;
+import com.aianalyst.repository.DataSourceContentRepository;
+import com.aianalyst.repository.DataSourceRepository;
+import com.aianalyst.repository.InvestmentMemoRepository;
+import com.aianalyst.search.ScoredDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class HybridSearchServiceTest {
+    
+    private final DataSourceRepository dataSourceRepository = mock(DataSourceRepository.class);
+    private final DataSourceContentRepository dataSourceContentRepository = mock(DataSourceContentRepository.class);
+    private final VectorStoreService vectorStoreService = mock(VectorStoreService.class);
+    private final BlobStoreService blobStoreService = mock(BlobStoreService.class);
+    private final HybridSearchService searchService = new HybridSearchService(dataSourceRepository,
+            dataSourceContentRepository, mock(InvestmentMemoRepository.class), vectorStoreService,
+            blobStoreService, Runnable::run);
+    
+    @BeforeEach
+    void setUp() throws IOException {
+        when(vectorStoreService.openDocument(anyString())).thenAnswer(invocation -> new StringWriter());
+    }
+    
+    @Test
+    void indexDataSourceAsync_ShouldNotReloadContentWhenOnlyListColumnsChange() throws IOException {
+        // Given
+        DataSourceEntity entity = textSource();
+        when(dataSourceContentRepository.findContentByDataSourceId("ds-1")).thenReturn(Optional.of("quarterly revenue"));
+        searchService.indexDataSourceAsync(entity);
+        
+        // When
+        entity.setIsSelected(true);
+        entity.setStatus(DataSourceEntity.DataSourceStatus.COMPLETED);
+        searchService.indexDataSourceAsync(entity);
+        
+        // Then
+        verify(dataSourceContentRepository, times(1)).findContentByDataSourceId("ds-1");
+        verify(vectorStoreService, times(1)).openDocument("datasource:ds-1");
+        List<ScoredDocument> hits = searchService.searchDataSources("user-1", "revenue", 10);
+        assertEquals(1, hits.size());
+    }
+    
+    @Test
+    void indexDataSourceAsync_ShouldReindexRenamedSourceAndSurviveEmbeddingFailure() throws IOException {
+        // Given
+        DataSourceEntity entity = textSource();
+        when(dataSourceContentRepository.findContentByDataSourceId("ds-1"))
+                .thenReturn(Optional.of("quarterly revenue"), Optional.of("annual revenue"));
+        searchService.indexDataSourceAsync(entity);
+        when(vectorStoreService.openDocument(anyString())).thenThrow(new IllegalStateException("store closed"));
+        
+        // When
+        entity.setName("Acme board deck");
+        searchService.indexDataSourceAsync(entity);
+        
+        // Then
+        verify(dataSourceContentRepository, times(2)).findContentByDataSourceId("ds-1");
+        assertEquals(1, searchService.searchDataSources("user-1", "acme", 10).size());
+    }
+    
+    @Test
+    void searchDataSources_ShouldOnlyAcceptTheUsersDataSourcesInVectorSearch() {
+        // Given
+        when(dataSourceContentRepository.findContentByDataSourceId("ds-1")).thenReturn(Optional.of("quarterly revenue"));
+        searchService.indexDataSource(textSource());
+        when(vectorStoreService.searchDocuments(eq("revenue"), eq(10), any())).thenReturn(List.of("datasource:ds-1"));
+        
+        // When
+        List<ScoredDocument> hits = searchService.searchDataSources("user-1", "revenue", 10);
+        
+        // Then
+        assertEquals("ds-1", hits.get(0).id());
+        verify(vectorStoreService).searchDocuments(eq("revenue"), eq(10), argThat(accepted ->
+                accepted.test("datasource:ds-1") && !accepted.test("datasource:ds-2") && !accepted.test("memo:ds-1")));
+    }
+    
+    @Test
+    void indexDataSource_ShouldCopyEmbeddingsOfUploadStoredAsSameBlob() throws IOException {
+        // Given - the same deck was uploaded and embedded before as another data source
+        DataSourceEntity upload = textSource();
+        upload.setType(DataSourceEntity.DataSourceType.FILE_UPLOAD);
+        upload.setContentSha256("abc123");
+        when(blobStoreService.findText("abc123")).thenReturn(Optional.of("deck text"));
+        when(dataSourceRepository.findIdsByContentSha256("abc123")).thenReturn(List.of("ds-1", "original"));
+        when(vectorStoreService.copyData("datasource:original", "datasource:ds-1")).thenReturn(true);
+        
+        // When
+        searchService.indexDataSource(upload);
+        
+        // Then
+        verify(vectorStoreService).copyData("datasource:original", "datasource:ds-1");
+        verify(vectorStoreService, never()).copyData(eq("datasource:ds-1"), anyString());
+        verify(vectorStoreService, never()).openDocument(anyString());
+    }
+    
+    private static DataSourceEntity textSource() {
+        DataSourceEntity entity = new DataSourceEntity();
+        entity.setId("ds-1");
+        entity.setUserId("user-1");
+        entity.setName("Notes");
+        entity.setType(DataSourceEntity.DataSourceType.TEXT_INPUT);
+        entity.setStatus(DataSourceEntity.DataSourceStatus.PROCESSING);
+        return entity;
+    }
+}
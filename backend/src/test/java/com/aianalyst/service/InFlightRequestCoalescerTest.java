@@ -0,0 +1,90 @@
+package com.aianalyst.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InFlightRequestCoalescerTest {
+    
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final InFlightRequestCoalescer coalescer = new InFlightRequestCoalescer(meterRegistry);
+    
+    @Test
+    void execute_ShouldShareOneCallForIdenticalKeys() {
+        // Given
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<String> source = new CompletableFuture<>();
+        
+        // When
+        CompletableFuture<String> first = coalescer.execute("key", () -> {
+            calls.incrementAndGet();
+            return source;
+        });
+        CompletableFuture<String> second = coalescer.execute("key", () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("other");
+        });
+        source.complete("shared");
+        
+        // Then
+        assertEquals(1, calls.get());
+        assertEquals("shared", first.join());
+        assertEquals("shared", second.join());
+        assertEquals(0, coalescer.inFlightCount());
+        assertEquals(1.0, meterRegistry.counter("ai.requests.coalesced").count());
+    }
+    
+    @Test
+    void execute_ShouldNotCancelSharedCallWhenOneCallerCancels() {
+        // Given
+        CompletableFuture<String> source = new CompletableFuture<>();
+        CompletableFuture<String> first = coalescer.execute("key", () -> source);
+        CompletableFuture<String> second = coalescer.execute("key", () -> source);
+        
+        // When
+        first.cancel(true);
+        source.complete("result");
+        
+        // Then
+        assertFalse(source.isCancelled());
+        assertEquals("result", second.join());
+    }
+    
+    @Test
+    void execute_ShouldCancelSharedCallWhenAllCallersCancel() {
+        // Given
+        CompletableFuture<String> source = new CompletableFuture<>();
+        CompletableFuture<String> first = coalescer.execute("key", () -> source);
+        CompletableFuture<String> second = coalescer.execute("key", () -> source);
+        
+        // When
+        first.cancel(true);
+        second.cancel(true);
+        
+        // Then
+        assertTrue(source.isCancelled());
+        assertEquals(0, coalescer.inFlightCount());
+        
+        // A later caller starts a fresh call
+        CompletableFuture<String> third = coalescer.execute("key", () -> CompletableFuture.completedFuture("fresh"));
+        assertEquals("fresh", third.join());
+    }
+    
+    @Test
+    void execute_ShouldStartNewCallAfterFailure() {
+        // Given
+        CompletableFuture<String> failed = coalescer.execute("key", () ->
+                CompletableFuture.failedFuture(new IllegalStateException("agent down")));
+        
+        // When
+        CompletableFuture<String> retried = coalescer.execute("key", () -> CompletableFuture.completedFuture("ok"));
+        
+        // Then
+        assertTrue(failed.isCompletedExceptionally());
+        assertEquals("ok", retried.join());
+    }
+}
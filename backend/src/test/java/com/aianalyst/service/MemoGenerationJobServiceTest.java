@@ -0,0 +1,137 @@
+package com.aianalyst.service;
+
+import com.aianalyst.entity.MemoGenerationJobEntity;
+import com.aianalyst.entity.MemoGenerationJobEntity.JobStatus;
+import com.aianalyst.entity.MemoGenerationJobEntity.JobType;
+import com.aianalyst.repository.MemoGenerationJobRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class MemoGenerationJobServiceTest {
+    
+    private final MemoGenerationJobRepository jobRepository = mock(MemoGenerationJobRepository.class);
+    private final MemoGenerationWorker worker = mock(MemoGenerationWorker.class);
+    private MemoGenerationJobService jobService;
+    private MemoGenerationJobEntity job;
+    
+    @BeforeEach
+    void setUp() {
+        ThreadPoolTaskExecutor executor = mock(ThreadPoolTaskExecutor.class);
+        when(executor.getMaxPoolSize()).thenReturn(1);
+        doAnswer(invocation -> {
+            new SyncTaskExecutor().execute(invocation.getArgument(0));
+            return null;
+        }).when(executor).execute(any(Runnable.class));
+        
+        jobService = new MemoGenerationJobService(jobRepository, worker, mock(MemoProgressRegistry.class), executor,
+                "node-1", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(jobService, "maxAttempts", 3);
+        ReflectionTestUtils.setField(jobService, "backoffInitialMs", 1000L);
+        ReflectionTestUtils.setField(jobService, "backoffMaxMs", 60000L);
+        ReflectionTestUtils.setField(jobService, "heartbeatIntervalMs", 20L);
+        
+        job = new MemoGenerationJobEntity();
+        job.setId("job-1");
+        job.setMemoId("memo-1");
+        job.setUserId("user-1");
+        job.setJobType(JobType.STAGE_1_MEMO);
+        job.setStatus(JobStatus.RUNNING);
+        job.setAttempts(1);
+        job.setMaxAttempts(3);
+        job.setPayload("{\"dataSourceIds\":[\"ds-1\"]}");
+        
+        when(jobRepository.findDueJobIds(any(), any())).thenReturn(List.of("job-1"), List.of());
+        when(jobRepository.claim(eq("job-1"), eq("node-1"), any())).thenReturn(1);
+        when(jobRepository.findById("job-1")).thenReturn(Optional.of(job));
+        when(jobRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(jobRepository.complete(eq("job-1"), eq("node-1"), eq(1), any())).thenReturn(1);
+        when(jobRepository.retry(eq("job-1"), eq("node-1"), anyInt(), any(), any(), any())).thenReturn(1);
+        when(jobRepository.fail(eq("job-1"), eq("node-1"), anyInt(), any(), any())).thenReturn(1);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        jobService.stop();
+    }
+    
+    @Test
+    void dispatch_ShouldCompleteJobAndQueuePresentation() {
+        // When
+        jobService.dispatch();
+        
+        // Then
+        verify(worker).execute(same(job), argThat(payload -> payload.containsKey("dataSourceIds")));
+        verify(jobRepository).complete(eq("job-1"), eq("node-1"), eq(1), any());
+        verify(jobRepository).save(argThat(saved -> saved.getJobType() == JobType.PPT
+                && saved.getStatus() == JobStatus.QUEUED && "memo-1".equals(saved.getMemoId())));
+    }
+    
+    @Test
+    void dispatch_ShouldRenewLeaseWhileJobRuns() {
+        // Given - a job that outlasts several heartbeats
+        doAnswer(invocation -> {
+            Thread.sleep(200);
+            return null;
+        }).when(worker).execute(any(), any());
+        
+        // When
+        jobService.dispatch();
+        
+        // Then
+        verify(jobRepository, atLeast(2)).renewLease(eq("job-1"), eq("node-1"), eq(1), any());
+    }
+    
+    @Test
+    void dispatch_ShouldDiscardResultWhenLeaseWasLost() {
+        // Given - the lease expired and the job was claimed again
+        when(jobRepository.complete(eq("job-1"), eq("node-1"), eq(1), any())).thenReturn(0);
+        
+        // When
+        jobService.dispatch();
+        
+        // Then
+        verify(jobRepository, never()).save(any());
+    }
+    
+    @Test
+    void dispatch_ShouldRescheduleWithBackoffOnFailure() {
+        // Given
+        doThrow(new RuntimeException("agent timeout")).when(worker).execute(any(), any());
+        LocalDateTime before = LocalDateTime.now();
+        
+        // When
+        jobService.dispatch();
+        
+        // Then
+        verify(jobRepository).retry(eq("job-1"), eq("node-1"), eq(1),
+                argThat(next -> next.isAfter(before.plusNanos(499_000_000))), eq("agent timeout"), any());
+        verify(worker, never()).markFailed(any());
+    }
+    
+    @Test
+    void dispatch_ShouldFailJobAfterLastAttempt() {
+        // Given
+        job.setAttempts(3);
+        doThrow(new RuntimeException("agent timeout")).when(worker).execute(any(), any());
+        
+        // When
+        jobService.dispatch();
+        
+        // Then
+        verify(jobRepository).fail(eq("job-1"), eq("node-1"), eq(3), eq("agent timeout"), any());
+        verify(worker).markFailed(job);
+    }
+}
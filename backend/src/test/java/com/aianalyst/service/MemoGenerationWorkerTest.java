@@ -0,0 +1,124 @@
+package com.aianalyst.service;
+
+import com.aianalyst.entity.InvestmentMemoEntity;
+import com.aianalyst.entity.MemoGenerationJobEntity;
+import com.aianalyst.entity.MemoGenerationJobEntity.JobType;
+import com.aianalyst.entity.MemoSectionEntity;
+import com.aianalyst.entity.MemoSectionEntity.SectionType;
+import com.aianalyst.entity.MemoSubsectionEntity;
+import com.aianalyst.repository.InvestmentMemoRepository;
+import com.aianalyst.repository.MemoGenerationJobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class MemoGenerationWorkerTest {
+    
+    private final InvestmentMemoRepository investmentMemoRepository = mock(InvestmentMemoRepository.class);
+    private final MemoGenerationJobRepository jobRepository = mock(MemoGenerationJobRepository.class);
+    private final AIService aiService = mock(AIService.class);
+    private final CuratedMemoAgentService curatedMemoAgentService = mock(CuratedMemoAgentService.class);
+    private MemoGenerationWorker worker;
+    private MemoGenerationJobEntity job;
+    private InvestmentMemoEntity memo;
+    private MemoSubsectionEntity subsection;
+    
+    @BeforeEach
+    void setUp() {
+        worker = new MemoGenerationWorker(investmentMemoRepository, jobRepository, aiService,
+                curatedMemoAgentService, mock(PresentationExportService.class), mock(MemoProgressRegistry.class),
+                mock(PlatformTransactionManager.class));
+        
+        job = new MemoGenerationJobEntity();
+        job.setId("job-1");
+        job.setMemoId("memo-1");
+        job.setLockedBy("node-1");
+        job.setAttempts(2);
+        
+        subsection = new MemoSubsectionEntity();
+        subsection.setId("sub-1");
+        subsection.setTitle("Thesis");
+        subsection.setContent("old thesis");
+        MemoSectionEntity section = new MemoSectionEntity();
+        section.setId("section-1");
+        section.setType(SectionType.MEMO_BODY);
+        section.setContent("memo body");
+        section.setSubsections(new ArrayList<>(List.of(subsection)));
+        subsection.setSection(section);
+        memo = new InvestmentMemoEntity();
+        memo.setId("memo-1");
+        memo.setCompanyName("Acme");
+        memo.setSections(new ArrayList<>(List.of(section)));
+        when(investmentMemoRepository.findById("memo-1")).thenReturn(Optional.of(memo));
+        when(jobRepository.holdLease(eq("job-1"), eq("node-1"), eq(2), any())).thenReturn(1);
+    }
+    
+    @Test
+    void execute_ShouldNotStoreMemoOnceLeaseIsLost() {
+        // Given - lease recovery handed the job to another run while this one generated
+        job.setJobType(JobType.STAGE_1_MEMO);
+        when(aiService.generateText(anyString())).thenReturn("generated memo");
+        when(jobRepository.holdLease(eq("job-1"), eq("node-1"), eq(2), any())).thenReturn(0);
+        
+        // When
+        assertThrows(IllegalStateException.class, () -> worker.execute(job, Map.of()));
+        
+        // Then
+        verify(investmentMemoRepository, never()).save(any());
+        assertEquals("memo body", memo.getSections().get(0).getContent());
+    }
+    
+    @Test
+    void execute_ShouldKeepSubsectionWhenRegenerationFailsAfterRewritingIt() {
+        // Given - the subsection is rewritten, then regenerating its dependents fails
+        job.setJobType(JobType.REGENERATE_SECTION);
+        when(curatedMemoAgentService.regenerateSubsection(any(), any(), any(), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture("new thesis"));
+        when(curatedMemoAgentService.staleSections(anyString())).thenReturn(new HashSet<>(Set.of("curatedMemo")));
+        when(curatedMemoAgentService.generateSections(any(), any(), any(), any(), anyBoolean()))
+                .thenThrow(new RuntimeException("agent timeout"));
+        
+        // When
+        assertThrows(RuntimeException.class, () -> worker.execute(job,
+                Map.of("stage1MemoId", "memo-0", "subsectionId", "sub-1")));
+        
+        // Then
+        assertEquals("old thesis", subsection.getContent());
+        verify(jobRepository, never()).holdLease(any(), any(), anyInt(), any());
+    }
+    
+    @Test
+    void execute_ShouldStoreRewrittenSubsectionWithDependentSections() {
+        // Given
+        job.setJobType(JobType.REGENERATE_SECTION);
+        when(curatedMemoAgentService.regenerateSubsection(any(), any(), any(), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture("new thesis"));
+        when(curatedMemoAgentService.staleSections(anyString())).thenAnswer(invocation ->
+                new HashSet<>(Set.of((String) invocation.getArgument(0))));
+        when(curatedMemoAgentService.generateSections(any(), any(), any(), any(), anyBoolean()))
+                .thenAnswer(invocation -> invocation.getArgument(3));
+        
+        // When
+        worker.execute(job, Map.of("stage1MemoId", "memo-0", "subsectionId", "sub-1"));
+        
+        // Then - the graph saw the new subsection text before it was stored
+        verify(curatedMemoAgentService).generateSections(eq("memo-0"), eq("Acme"), any(),
+                argThat(reused -> reused.values().stream().anyMatch(text -> text.contains("new thesis"))),
+                eq(true));
+        assertEquals("new thesis", subsection.getContent());
+        assertEquals(InvestmentMemoEntity.MemoStatus.COMPLETED, memo.getStatus());
+        verify(jobRepository).holdLease(eq("job-1"), eq("node-1"), eq(2), any());
+    }
+}
@@ -0,0 +1,80 @@
+package com.aianalyst.service;
+
+import com.aianalyst.controller.WebSocketController;
+import com.aianalyst.service.MemoProgressRegistry.MemoProgress;
+import com.aianalyst.service.MemoProgressRegistry.Phase;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class MemoProgressRegistryTest {
+    
+    private final WebSocketController webSocketController = mock(WebSocketController.class);
+    private final MemoProgressRegistry registry = new MemoProgressRegistry(webSocketController, 900000);
+    
+    @Test
+    void sectionCompleted_ShouldAdvanceProgressAndPushToUser() {
+        // Given
+        registry.start("memo-1", "user-1", 2);
+        registry.sectionStarted("memo-1", "memo");
+        
+        // When
+        registry.sectionCompleted("memo-1", "memo", "x".repeat(400));
+        
+        // Then
+        MemoProgress progress = registry.get("memo-1").orElseThrow();
+        assertEquals(Phase.GENERATING, progress.phase());
+        assertEquals(50, progress.percent());
+        assertEquals(100, progress.tokensProduced());
+        assertNotNull(progress.etaSeconds());
+        verify(webSocketController, times(3)).sendStatusUpdateToUser(eq("user-1"),
+                eq(MemoProgressRegistry.STATUS_TYPE), any(Map.class));
+    }
+    
+    @Test
+    void sectionCompleted_ShouldFinishAfterLastSection() {
+        // Given
+        registry.start("memo-1", "user-1", 2);
+        
+        // When
+        registry.sectionCompleted("memo-1", "memo", "body");
+        registry.sectionCompleted("memo-1", "presentation", null);
+        
+        // Then
+        Map<String, Object> status = registry.get("memo-1").orElseThrow().toMap();
+        assertEquals("completed", status.get("status"));
+        assertEquals(100, status.get("progress"));
+        assertEquals(0L, status.get("etaSeconds"));
+    }
+    
+    @Test
+    void update_ShouldIgnoreUntrackedMemos() {
+        // When
+        registry.sectionCompleted("unknown", "memo", "body");
+        
+        // Then
+        assertTrue(registry.get("unknown").isEmpty());
+        verifyNoInteractions(webSocketController);
+    }
+    
+    @Test
+    void get_ShouldDropEntriesThatStoppedMoving() throws InterruptedException {
+        // Given
+        MemoProgressRegistry shortLived = new MemoProgressRegistry(webSocketController, 0);
+        shortLived.start("memo-1", "user-1", 2);
+        Thread.sleep(5);
+        
+        // When
+        shortLived.evictExpired();
+        
+        // Then
+        assertTrue(shortLived.get("memo-1").isEmpty());
+        shortLived.sectionStarted("memo-1", "memo");
+        verify(webSocketController, times(1)).sendStatusUpdateToUser(eq("user-1"),
+                eq(MemoProgressRegistry.STATUS_TYPE), any(Map.class));
+    }
+}
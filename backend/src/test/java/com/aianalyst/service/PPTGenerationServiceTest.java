@@ -0,0 +1,40 @@
+package com.aianalyst.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PPTGenerationServiceTest {
+    
+    @Test
+    void parseBatchedSections_ShouldSplitOnHeaders() {
+        // Given
+        String response = """
+            ### EXECUTIVE_SUMMARY
+            Strong team in a growing market.
+            
+            ### MARKET_ANALYSIS
+            TAM of $10B.
+            ### RISK_ASSESSMENT
+            """;
+        
+        // When
+        Map<String, String> sections = PPTGenerationService.parseBatchedSections(response);
+        
+        // Then
+        assertEquals("Strong team in a growing market.", sections.get("EXECUTIVE_SUMMARY"));
+        assertEquals("TAM of $10B.", sections.get("MARKET_ANALYSIS"));
+        assertFalse(sections.containsKey("RISK_ASSESSMENT"));
+    }
+    
+    @Test
+    void parseBatchedSections_ShouldReturnEmptyForUnstructuredResponse() {
+        // When
+        Map<String, String> sections = PPTGenerationService.parseBatchedSections("Generated text using AI agents");
+        
+        // Then
+        assertTrue(sections.isEmpty());
+    }
+}
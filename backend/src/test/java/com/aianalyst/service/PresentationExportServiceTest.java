@@ -0,0 +1,66 @@
+package com.aianalyst.service;
+
+import com.aianalyst.service.PresentationExportService.PresentationDeck;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PresentationExportServiceTest {
+    
+    @TempDir
+    Path cacheDir;
+    
+    @Test
+    void trimCache_ShouldEvictLeastRecentlyUsedDecksBeyondSizeBound() throws Exception {
+        // Given - three 400-byte decks in a 1000-byte cache
+        PresentationExportService service = service(DataSize.ofBytes(1000), Duration.ofDays(7));
+        Path oldest = deck("memo-1-aaa", Duration.ofHours(3));
+        Path middle = deck("memo-2-bbb", Duration.ofHours(2));
+        Path newest = deck("memo-3-ccc", Duration.ofHours(1));
+        
+        // When
+        service.trimCache();
+        
+        // Then
+        assertFalse(Files.exists(oldest));
+        assertTrue(Files.exists(middle));
+        assertTrue(Files.exists(newest));
+    }
+    
+    @Test
+    void trimCache_ShouldEvictDecksUnusedForLongerThanTtl() throws Exception {
+        // Given - two decks last used eight days ago, one of them downloaded again now
+        PresentationExportService service = service(DataSize.ofMegabytes(1), Duration.ofDays(7));
+        Path expired = deck("memo-1-aaa", Duration.ofDays(8));
+        String reusedKey = service.prepare("memo-2", "Acme", "Memo body").cacheKey();
+        Path reused = deck(reusedKey, Duration.ofDays(8));
+        
+        // When
+        PresentationDeck deck = service.prepare("memo-2", "Acme", "Memo body");
+        service.trimCache();
+        
+        // Then
+        assertTrue(deck.isCached());
+        assertTrue(Files.exists(reused));
+        assertFalse(Files.exists(expired));
+    }
+    
+    private PresentationExportService service(DataSize maxSize, Duration ttl) {
+        return new PresentationExportService(mock(PPTGenerationService.class), cacheDir.toString(), maxSize, ttl);
+    }
+    
+    private Path deck(String cacheKey, Duration age) throws Exception {
+        Path file = Files.write(cacheDir.resolve(cacheKey + ".pptx"), new byte[400]);
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(age)));
+        return file;
+    }
+}
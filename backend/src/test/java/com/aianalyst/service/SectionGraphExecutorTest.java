@@ -0,0 +1,116 @@
+package com.aianalyst.service;
+
+import com.aianalyst.service.SectionGraphExecutor.SectionTask;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SectionGraphExecutorTest {
+    
+    private final ExecutorService pool = Executors.newFixedThreadPool(4);
+    private final SectionGraphExecutor sectionGraphExecutor = new SectionGraphExecutor(pool);
+    
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+    
+    @Test
+    void execute_ShouldRunIndependentSectionsConcurrently() {
+        // Given - both sections only finish once the other one has started
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        SectionTask first = SectionTask.of("first", inputs -> awaitPeer(bothStarted, "a"));
+        SectionTask second = SectionTask.of("second", inputs -> awaitPeer(bothStarted, "b"));
+        SectionTask combined = SectionTask.of("combined", List.of("first", "second"),
+                inputs -> inputs.get("first") + inputs.get("second"));
+        
+        // When
+        Map<String, String> results = sectionGraphExecutor.execute(List.of(first, second, combined));
+        
+        // Then
+        assertEquals("ab", results.get("combined"));
+        assertEquals("a", results.get("first"));
+    }
+    
+    @Test
+    void execute_ShouldReuseCompletedSections() {
+        // Given
+        AtomicInteger calls = new AtomicInteger();
+        SectionTask first = SectionTask.of("first", inputs -> {
+            calls.incrementAndGet();
+            return "fresh";
+        });
+        SectionTask combined = SectionTask.of("combined", List.of("first"), inputs -> "[" + inputs.get("first") + "]");
+        
+        // When
+        Map<String, String> results = sectionGraphExecutor.execute(List.of(first, combined), Map.of("first", "cached"));
+        
+        // Then
+        assertEquals(0, calls.get());
+        assertEquals("[cached]", results.get("combined"));
+    }
+    
+    @Test
+    void execute_ShouldRejectCycles() {
+        // Given
+        SectionTask first = SectionTask.of("first", List.of("second"), inputs -> "a");
+        SectionTask second = SectionTask.of("second", List.of("first"), inputs -> "b");
+        
+        // When / Then
+        assertThrows(IllegalArgumentException.class, () -> sectionGraphExecutor.execute(List.of(first, second)));
+    }
+    
+    @Test
+    void execute_ShouldPropagateSectionFailure() {
+        // Given
+        SectionTask failing = SectionTask.of("failing", inputs -> {
+            throw new IllegalStateException("LLM unavailable");
+        });
+        SectionTask combined = SectionTask.of("combined", List.of("failing"), inputs -> "never");
+        
+        // When
+        RuntimeException ex = assertThrows(RuntimeException.class,
+                () -> sectionGraphExecutor.execute(List.of(failing, combined)));
+        
+        // Then
+        assertTrue(ex.getMessage().contains("LLM unavailable"));
+    }
+    
+    @Test
+    void dependentsOf_ShouldReturnTransitiveDependentsOnly() {
+        // Given
+        SectionTask founder = SectionTask.of("founder", inputs -> "f");
+        SectionTask risk = SectionTask.of("risk", inputs -> "r");
+        SectionTask review = SectionTask.of("review", List.of("founder"), inputs -> "v");
+        SectionTask summary = SectionTask.of("summary", List.of("review", "risk"), inputs -> "s");
+        
+        // When
+        Set<String> dependents = SectionGraphExecutor.dependentsOf(List.of(founder, risk, review, summary), "founder");
+        
+        // Then
+        assertEquals(Set.of("review", "summary"), dependents);
+    }
+    
+    private String awaitPeer(CountDownLatch latch, String value) {
+        latch.countDown();
+        try {
+            if (!latch.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Sections did not run concurrently");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,122 @@
+package com.aianalyst.vector;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HnswIndexTest {
+    
+    private static final int DIMENSION = 32;
+    
+    @Test
+    void search_ShouldMatchBruteForceRecall() {
+        // Given
+        Random random = new Random(42);
+        HnswIndex index = new HnswIndex(DIMENSION, 16, 100);
+        float[][] vectors = randomVectors(random, 3000);
+        for (float[] vector : vectors) {
+            index.add(vector);
+        }
+        
+        // When
+        int found = 0;
+        int queries = 50;
+        for (int q = 0; q < queries; q++) {
+            float[] query = randomVectors(random, 1)[0];
+            List<Integer> expected = bruteForce(vectors, query, 10);
+            for (Neighbor neighbor : index.search(query, 10, 64)) {
+                if (expected.contains(neighbor.id())) {
+                    found++;
+                }
+            }
+        }
+        
+        // Then
+        double recall = found / (queries * 10.0);
+        assertTrue(recall > 0.9, "recall@10 was " + recall);
+    }
+    
+    @Test
+    void add_ShouldSupportConcurrentInserts() throws Exception {
+        // Given
+        Random random = new Random(7);
+        HnswIndex index = new HnswIndex(DIMENSION, 8, 64);
+        float[][] vectors = randomVectors(random, 2000);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        
+        // When
+        List<Future<Integer>> ids = new ArrayList<>();
+        for (float[] vector : vectors) {
+            ids.add(pool.submit(() -> index.add(vector)));
+        }
+        int[] nodeFor = new int[vectors.length];
+        for (int i = 0; i < vectors.length; i++) {
+            nodeFor[i] = ids.get(i).get();
+        }
+        pool.shutdown();
+        
+        // Then - every vector finds itself as its own nearest neighbour
+        assertEquals(vectors.length, index.size());
+        int selfHits = 0;
+        for (int i = 0; i < vectors.length; i++) {
+            if (index.search(vectors[i], 1, 32).get(0).id() == nodeFor[i]) {
+                selfHits++;
+            }
+        }
+        assertTrue(selfHits > vectors.length * 0.98, "self hits: " + selfHits);
+    }
+    
+    @Test
+    void search_ShouldSkipDeletedNodes() {
+        // Given
+        HnswIndex index = new HnswIndex(DIMENSION, 8, 32);
+        float[][] vectors = randomVectors(new Random(1), 100);
+        for (float[] vector : vectors) {
+            index.add(vector);
+        }
+        
+        // When
+        index.markDeleted(5);
+        
+        // Then
+        assertNotEquals(5, index.search(vectors[5], 1, 32).get(0).id());
+    }
+    
+    private static float[][] randomVectors(Random random, int count) {
+        float[][] vectors = new float[count][DIMENSION];
+        for (float[] vector : vectors) {
+            for (int i = 0; i < DIMENSION; i++) {
+                vector[i] = (float) random.nextGaussian();
+            }
+        }
+        return vectors;
+    }
+    
+    private static List<Integer> bruteForce(float[][] vectors, float[] query, int k) {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < vectors.length; i++) {
+            ids.add(i);
+        }
+        ids.sort((a, b) -> Double.compare(cosine(vectors[b], query), cosine(vectors[a], query)));
+        return ids.subList(0, k);
+    }
+    
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return dot / Math.sqrt(normA * normB);
+    }
+}
@@ -0,0 +1,83 @@
+package com.aianalyst.vector;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VectorKernelsTest {
+    
+    @Test
+    void preferred_ShouldMatchScalarKernelsIncludingTails() {
+        // Given
+        Random random = new Random(5);
+        VectorKernels scalar = VectorKernels.scalar();
+        VectorKernels preferred = VectorKernels.preferred();
+        
+        for (int length : new int[]{1, 3, 7, 16, 33, 1536}) {
+            float[] a = randomVector(random, length + 5);
+            float[] b = randomVector(random, length + 9);
+            
+            // When / Then
+            assertEquals(scalar.dot(a, 5, b, 9, length), preferred.dot(a, 5, b, 9, length), 1e-3);
+            assertEquals(scalar.squaredDistance(a, 5, b, 9, length),
+                    preferred.squaredDistance(a, 5, b, 9, length), 1e-2);
+            assertEquals(scalar.cosine(a, 5, b, 9, length), preferred.cosine(a, 5, b, 9, length), 1e-4);
+        }
+    }
+    
+    /**
+     * Dot-product throughput at the embedding dimension. Prints the speedup of the
+     * preferred kernels over scalar code; not asserted, as it depends on the CPU.
+     * Runs only with {@code mvn test -Pbenchmark}.
+     */
+    @Test
+    @Tag("benchmark")
+    void dot_ShouldReportThroughputAgainstScalar() {
+        // Given
+        Random random = new Random(9);
+        int dimension = 1536;
+        float[] query = randomVector(random, dimension);
+        float[] page = randomVector(random, dimension * 1024);
+        
+        // When
+        double scalar = throughput(VectorKernels.scalar(), query, page, dimension);
+        double preferred = throughput(VectorKernels.preferred(), query, page, dimension);
+        
+        // Then
+        System.out.printf("dot(%d): scalar %.0f ops/s, %s %.0f ops/s, speedup %.2fx%n", dimension, scalar,
+                VectorKernels.preferred().name(), preferred, preferred / scalar);
+        assertTrue(preferred > 0 && scalar > 0);
+    }
+    
+    private static double throughput(VectorKernels kernels, float[] query, float[] page, int dimension) {
+        int vectors = page.length / dimension;
+        float sink = 0;
+        // Warm up, then measure
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            int operations = 0;
+            while (System.nanoTime() - start < 300_000_000L) {
+                for (int v = 0; v < vectors; v++) {
+                    sink += kernels.dot(query, 0, page, v * dimension, dimension);
+                }
+                operations += vectors;
+            }
+            if (round == 1) {
+                assertFalse(Float.isNaN(sink));
+                return operations / ((System.nanoTime() - start) / 1e9);
+            }
+        }
+        throw new IllegalStateException();
+    }
+    
+    private static float[] randomVector(Random random, int length) {
+        float[] vector = new float[length];
+        for (int i = 0; i < length; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,136 @@
+package com.aianalyst.vector;
+
+import com.aianalyst.service.EmbeddingService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.StringJoiner;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Recall and latency of each quantization mode on feature-hashed text embeddings.
+ * Runs small by default and only reports through assertion messages; a full-size report is printed with
+ * {@code mvn test -Dtest=VectorQuantizationReportTest -Dvector.report.dimension=1536 -Dvector.report.size=50000
+ * -Dvector.report.print=true}.
+ */
+class VectorQuantizationReportTest {
+    
+    private static final int K = 10;
+    private static final int EF_SEARCH = 64;
+    private static final int VOCABULARY = 20000;
+    private static final int TOPICS = 50;
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void quantizedSearch_ShouldKeepRecallAfterRerank() throws Exception {
+        // Given
+        int dimension = Integer.getInteger("vector.report.dimension", 256);
+        int size = Integer.getInteger("vector.report.size", 3000);
+        int queries = Integer.getInteger("vector.report.queries", 200);
+        Random random = new Random(11);
+        EmbeddingService embeddings = new EmbeddingService(dimension);
+        HnswIndex index = new HnswIndex(dimension, 16, 200);
+        List<Chunk> chunks = new ArrayList<>(size);
+        float[][] vectors = new float[size][];
+        for (int i = 0; i < size; i++) {
+            String text = document(random, 60 + random.nextInt(200));
+            vectors[i] = embeddings.embed(text);
+            index.add(vectors[i]);
+            chunks.add(new Chunk("doc-" + i, text));
+        }
+        float[][] queryVectors = new float[queries][];
+        List<Set<Integer>> expected = new ArrayList<>(queries);
+        for (int q = 0; q < queries; q++) {
+            queryVectors[q] = embeddings.embed(document(random, 12));
+            expected.add(bruteForce(vectors, queryVectors[q]));
+        }
+        
+        // When
+        StringJoiner report = new StringJoiner("\n");
+        report.add(String.format("%d vectors, dimension %d, %d queries, k=%d, ef=%d", size, dimension, queries, K, EF_SEARCH));
+        report.add("| Mode | Bytes per vector searched | Recall@10 | Mean latency (us) | p99 latency (us) |");
+        report.add("|---|---|---|---|---|");
+        double[] recalls = new double[Quantization.Mode.values().length];
+        for (Quantization.Mode mode : Quantization.Mode.values()) {
+            Quantization quantization = new Quantization(mode, 4, 4);
+            Path path = directory.resolve(mode + ".seg");
+            VectorSegment segment = VectorSegment.write(path, index, chunks, quantization);
+            try (Tombstones tombstones = Tombstones.open(directory.resolve(mode + ".del"), size)) {
+                // Warm up so the JIT and the page cache do not skew the first mode
+                for (float[] query : queryVectors) {
+                    segment.search(query, K, EF_SEARCH, quantization.rerankFactor(), tombstones);
+                }
+                long[] latencies = new long[queries];
+                int found = 0;
+                for (int q = 0; q < queries; q++) {
+                    long start = System.nanoTime();
+                    List<Neighbor> results = segment.search(queryVectors[q], K, EF_SEARCH,
+                            quantization.rerankFactor(), tombstones);
+                    latencies[q] = System.nanoTime() - start;
+                    for (Neighbor neighbor : results) {
+                        if (expected.get(q).contains(neighbor.id())) {
+                            found++;
+                        }
+                    }
+                }
+                Arrays.sort(latencies);
+                double recall = found / (queries * (double) K);
+                recalls[mode.ordinal()] = recall;
+                int bytes = switch (mode) {
+                    case NONE -> dimension * 4;
+                    case INT8 -> dimension;
+                    case PRODUCT -> dimension / quantization.subvectorDimension();
+                };
+                report.add(String.format("| %s | %d | %.3f | %.0f | %.0f |", mode, bytes, recall,
+                        Arrays.stream(latencies).average().orElse(0) / 1000,
+                        latencies[(int) (queries * 0.99)] / 1000.0));
+            }
+        }
+        if (Boolean.getBoolean("vector.report.print")) {
+            System.out.println(report);
+        }
+        
+        // Then
+        assertTrue(recalls[Quantization.Mode.INT8.ordinal()] > recalls[Quantization.Mode.NONE.ordinal()] - 0.05,
+                report.toString());
+        assertTrue(recalls[Quantization.Mode.PRODUCT.ordinal()] > recalls[Quantization.Mode.NONE.ordinal()] - 0.15,
+                report.toString());
+    }
+    
+    /**
+     * Words drawn from a Zipf-like distribution, skewed towards one topic's slice of the vocabulary
+     */
+    private static String document(Random random, int words) {
+        int topic = random.nextInt(TOPICS);
+        StringJoiner text = new StringJoiner(" ");
+        for (int i = 0; i < words; i++) {
+            int rank = (int) Math.floor(Math.pow(VOCABULARY, random.nextDouble())) - 1;
+            int word = random.nextBoolean() ? rank : (topic * (VOCABULARY / TOPICS) + rank) % VOCABULARY;
+            text.add("w" + word);
+        }
+        return text.toString();
+    }
+    
+    private static Set<Integer> bruteForce(float[][] vectors, float[] query) {
+        List<Integer> ids = new ArrayList<>(vectors.length);
+        float[] scores = new float[vectors.length];
+        for (int i = 0; i < vectors.length; i++) {
+            ids.add(i);
+            for (int d = 0; d < query.length; d++) {
+                scores[i] += vectors[i][d] * query[d];
+            }
+        }
+        ids.sort((a, b) -> Float.compare(scores[b], scores[a]));
+        return new HashSet<>(ids.subList(0, K));
+    }
+}
@@ -0,0 +1,213 @@
+package com.aianalyst.vector;
+
+import com.aianalyst.vector.VectorSegmentStore.ScoredChunk;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VectorSegmentStoreTest {
+    
+    private static final int DIMENSION = 16;
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void open_ShouldReplayWriteAheadLogWithoutFlush() throws Exception {
+        // Given
+        float[] vector = randomVector(new Random(1));
+        try (VectorSegmentStore store = open()) {
+            store.put("doc-1", List.of("first chunk"), List.of(vector));
+        }
+        
+        // When
+        try (VectorSegmentStore store = open()) {
+            // Then
+            assertEquals("first chunk", store.get("doc-1").orElseThrow().get(0).text());
+            assertEquals("doc-1", store.search(vector, 1, 16).get(0).chunk().documentId());
+            assertEquals(0, store.segmentCount());
+        }
+    }
+    
+    @Test
+    void put_ShouldLinkConcurrentInsertsIntoOneSearchableSegment() throws Exception {
+        // Given
+        int documents = 200;
+        float[][] vectors = new float[documents][];
+        Random random = new Random(5);
+        for (int i = 0; i < documents; i++) {
+            vectors[i] = randomVector(random);
+        }
+        ExecutorService writers = Executors.newFixedThreadPool(4);
+        try (VectorSegmentStore store = open()) {
+            
+            // When
+            List<Future<?>> puts = new ArrayList<>();
+            for (int i = 0; i < documents; i++) {
+                int doc = i;
+                puts.add(writers.submit(() -> {
+                    store.put("doc-" + doc, List.of("chunk " + doc), List.of(vectors[doc]));
+                    return null;
+                }));
+            }
+            for (Future<?> put : puts) {
+                put.get(10, TimeUnit.SECONDS);
+            }
+            assertTrue(store.flush());
+            
+            // Then
+            assertEquals(documents, store.chunkCount());
+            for (int i = 0; i < documents; i++) {
+                assertEquals("doc-" + i, store.search(vectors[i], 1, 64).get(0).chunk().documentId());
+            }
+        } finally {
+            writers.shutdownNow();
+        }
+    }
+    
+    @Test
+    void search_ShouldFillResultsFromFilteredDocumentsOnly() throws Exception {
+        // Given - a few of one owner's chunks among many closer chunks of others, in both segment kinds
+        Random random = new Random(6);
+        float[] query = randomVector(random);
+        try (VectorSegmentStore store = open()) {
+            for (int i = 0; i < 200; i++) {
+                if (i == 100) {
+                    store.flush();
+                }
+                float[] vector = i % 50 == 0 ? randomVector(random) : nearby(query, random);
+                store.put((i % 50 == 0 ? "mine-" : "other-") + i, List.of("chunk " + i), List.of(vector));
+            }
+            
+            // When
+            List<ScoredChunk> hits = store.search(query, 4, 16, id -> id.startsWith("mine-"));
+            
+            // Then
+            assertEquals(4, hits.size());
+            hits.forEach(hit -> assertTrue(hit.chunk().documentId().startsWith("mine-")));
+        }
+    }
+    
+    @Test
+    void flush_ShouldPersistSegmentAndDeletes() throws Exception {
+        // Given
+        Random random = new Random(2);
+        float[] kept = randomVector(random);
+        try (VectorSegmentStore store = open()) {
+            store.put("kept", List.of("kept chunk"), List.of(kept));
+            store.put("deleted", List.of("deleted chunk"), List.of(randomVector(random)));
+            
+            // When
+            assertTrue(store.flush());
+            store.delete("deleted");
+        }
+        
+        // Then
+        try (VectorSegmentStore store = open()) {
+            assertEquals(1, store.segmentCount());
+            assertEquals(1, store.chunkCount());
+            assertTrue(store.get("deleted").isEmpty());
+            assertEquals("kept", store.search(kept, 1, 16).get(0).chunk().documentId());
+        }
+    }
+    
+    @Test
+    void copy_ShouldDuplicateDocumentFromSealedSegment() throws Exception {
+        // Given
+        float[] vector = randomVector(new Random(3));
+        try (VectorSegmentStore store = open()) {
+            store.put("original", List.of("deck chunk"), List.of(vector));
+            store.flush();
+            
+            // When
+            assertTrue(store.copy("original", "copy"));
+            
+            // Then
+            assertFalse(store.copy("missing", "other"));
+            assertEquals("deck chunk", store.get("copy").orElseThrow().get(0).text());
+            assertEquals(1f, store.search(vector, 2, 16).get(1).score(), 1e-4);
+        }
+    }
+    
+    @Test
+    void merge_ShouldCombineSegmentsAndKeepResults() throws Exception {
+        // Given
+        Random random = new Random(3);
+        float[][] vectors = new float[6][];
+        try (VectorSegmentStore store = open()) {
+            for (int i = 0; i < vectors.length; i++) {
+                vectors[i] = randomVector(random);
+                store.put("doc-" + i, List.of("chunk " + i), List.of(vectors[i]));
+                store.flush();
+            }
+            store.delete("doc-0");
+            
+            // When
+            assertTrue(store.merge(4, 1000));
+            
+            // Then
+            assertEquals(3, store.segmentCount());
+            assertEquals(5, store.chunkCount());
+        }
+        try (VectorSegmentStore store = open()) {
+            assertEquals(3, store.segmentCount());
+            assertTrue(store.get("doc-0").isEmpty());
+            for (int i = 1; i < vectors.length; i++) {
+                assertEquals("doc-" + i, store.search(vectors[i], 1, 16).get(0).chunk().documentId());
+            }
+        }
+    }
+    
+    @Test
+    void merge_ShouldSkipMergeThatWouldExceedTheChunkLimit() throws Exception {
+        // Given - one small segment and two that would take a merge past the limit
+        Random random = new Random(4);
+        try (VectorSegmentStore store = open()) {
+            store.put("small", List.of("chunk"), List.of(randomVector(random)));
+            store.flush();
+            for (String id : List.of("large-1", "large-2")) {
+                store.put(id, List.of("a", "b", "c"), List.of(randomVector(random), randomVector(random),
+                        randomVector(random)));
+                store.flush();
+            }
+            
+            // When
+            boolean merged = store.merge(2, 3);
+            
+            // Then
+            assertFalse(merged);
+            assertEquals(3, store.segmentCount());
+            assertEquals(7, store.chunkCount());
+        }
+    }
+    
+    private VectorSegmentStore open() throws Exception {
+        return VectorSegmentStore.open(directory, DIMENSION, 8, 32, Quantization.none());
+    }
+    
+    private static float[] nearby(float[] vector, Random random) {
+        float[] near = vector.clone();
+        for (int i = 0; i < DIMENSION; i++) {
+            near[i] += (float) random.nextGaussian() * 0.1f;
+        }
+        return near;
+    }
+    
+    private static float[] randomVector(Random random) {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}